@@ -1,7 +1,40 @@
+import model.ApplicationStatusChanged;
+import model.DataLoader;
+import model.DataModel;
+import model.ProjectScheduler;
+import model.ReceiptPipeline;
+import model.User;
 import pages.Login;
+import utils.CSVUtils;
+import utils.Log;
+import utils.Metrics;
+import utils.Snapshot;
+import utils.TransactionManager;
 
 public class Main {
     public static void main(String[] args) {
+        Snapshot.getDefault().load();
+        TransactionManager.getInstance().recover();
+        try {
+            DataModel model = DataLoader.load();
+            Log.info("Loaded {} in {} ms", model, model.getLoadMillis());
+        } catch (RuntimeException e) {
+            System.out.println("Warning: Unable to load data at startup: " + e.getMessage());
+        }
+        try {
+            CSVUtils.sortCSV(User.USERS_CSV, User.NRIC_COLUMN);
+        } catch (RuntimeException e) {
+            System.out.println("Warning: Unable to index users by NRIC: " + e.getMessage());
+        }
+        ApplicationStatusChanged.recordFlightEvents();
+        ReceiptPipeline.getInstance().start();
+        ProjectScheduler.getInstance().start();
+        Metrics.getInstance().startDumping(Metrics.METRICS_CSV, Metrics.DEFAULT_DUMP_SECONDS);
         Login.display();
+        try {
+            Snapshot.getDefault().save();
+        } catch (RuntimeException e) {
+            System.out.println("Warning: Unable to save the data snapshot: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,54 @@
+package benchmark;
+
+import model.BallotEngine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark for the ballot engine. Generates the requested number of pending applications for one
+ * project, split across three flat types, and times an in-memory ballot over them. It then draws
+ * again with the same seed over a fresh copy of the rows to check that the result is reproducible.
+ *
+ * <p>Run with {@code java benchmark.BallotBenchmark [applications] [seed]} (default 1000000, 42).</p>
+ *
+ * @author SC2002Team
+ */
+public class BallotBenchmark {
+    private static final String PROJECT = "Benchmark Project";
+    private static final String[] FLAT_TYPES = { "2-Room", "3-Room", "4-Room" };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        Map<String, Integer> capacity = new HashMap<>();
+        for (String flatType : FLAT_TYPES) {
+            capacity.put(flatType.toLowerCase(), Math.max(1, count / 100));
+        }
+        System.out.println("Ballot benchmark: " + count + " applications, seed " + seed);
+
+        // Warm up so the timed run measures compiled code.
+        BallotEngine.allocate(PROJECT, capacity, rows(Math.min(count, 100_000)), seed);
+
+        List<String[]> rows = rows(count);
+        long start = System.nanoTime();
+        BallotEngine.Result first = BallotEngine.allocate(PROJECT, capacity, rows, seed);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(first);
+        System.out.printf("%-50s %10.1f ms total %10.3f us/application%n", "Ballot", elapsed / 1e6, elapsed / 1e3 / count);
+
+        BallotEngine.Result replay = BallotEngine.allocate(PROJECT, capacity, rows(count), seed);
+        System.out.println("Replay digest " + replay.getDigest() + (replay.getDigest().equals(first.getDigest()) ? " matches" : " DOES NOT MATCH"));
+    }
+
+    private static List<String[]> rows(int count) {
+        List<String[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String nric = (i % 2 == 0 ? "S" : "T") + String.format("%07d", i % 10_000_000) + (char) ('A' + i % 26);
+            rows.add(new String[] { nric, PROJECT, FLAT_TYPES[i % FLAT_TYPES.length], "Pending" });
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,113 @@
+package benchmark;
+
+import utils.EventBus;
+import utils.RingBuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for the domain event bus. Measures the cost of publishing an event with no
+ * subscribers, with a synchronous subscriber and with an asynchronous subscriber, then the
+ * throughput of the ring buffer behind asynchronous delivery with several producer threads and
+ * one consumer. Each stage checks that every event was received exactly once.
+ *
+ * <p>Run with {@code java benchmark.EventBusBenchmark [events] [producers]} (default 2000000, 4).</p>
+ *
+ * @author SC2002Team
+ */
+public class EventBusBenchmark {
+
+    /** Event type used by the benchmark. */
+    private static class Tick {
+        final private long value;
+
+        Tick(long value) {
+            this.value = value;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        System.out.println("Event bus benchmark: " + count + " events, " + producers + " producers");
+        Tick[] events = new Tick[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = new Tick(i);
+        }
+
+        EventBus bus = new EventBus(1 << 16);
+        long start = System.nanoTime();
+        for (Tick event : events) {
+            bus.publish(event);
+        }
+        report("Publish, no subscribers", start, count);
+
+        AtomicLong sum = new AtomicLong();
+        EventBus.Subscription sync = bus.subscribe(Tick.class, event -> sum.addAndGet(event.value));
+        start = System.nanoTime();
+        for (Tick event : events) {
+            bus.publish(event);
+        }
+        report("Publish, one synchronous subscriber", start, count);
+        check("synchronous", sum.get(), count);
+        sync.cancel();
+
+        sum.set(0);
+        bus.subscribeAsync(Tick.class, event -> sum.addAndGet(event.value));
+        start = System.nanoTime();
+        for (Tick event : events) {
+            bus.publish(event);
+        }
+        report("Publish, one asynchronous subscriber", start, count);
+        if (!bus.awaitDelivered(60_000)) {
+            System.out.println("Warning: asynchronous delivery did not finish in time.");
+        }
+        report("Publish and deliver, one asynchronous subscriber", start, count);
+        check("asynchronous", sum.get(), count);
+
+        RingBuffer<Tick> ring = new RingBuffer<>(1 << 14);
+        Thread[] threads = new Thread[producers];
+        int perProducer = count / producers;
+        for (int p = 0; p < producers; p++) {
+            int from = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = from; i < from + perProducer; i++) {
+                    while (!ring.offer(events[i])) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+        long total = 0;
+        int received = 0;
+        int expected = perProducer * producers;
+        start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        while (received < expected) {
+            Tick event = ring.poll();
+            if (event == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            total += event.value;
+            received++;
+        }
+        report("Ring buffer, " + producers + " producers to 1 consumer", start, expected);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check("ring buffer", total, expected);
+    }
+
+    private static void check(String label, long sum, long count) {
+        long expected = count * (count - 1) / 2;
+        System.out.println("  " + label + ": " + (sum == expected ? "all events received" : "MISMATCH, sum " + sum + " expected " + expected));
+    }
+
+    private static void report(String label, long start, int ops) {
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-50s %10.1f ms total %10.3f us/op%n", label, elapsed / 1e6, elapsed / 1e3 / ops);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Summarizes a flight recording by event type: the number of events, their total, median, 99th
+ * percentile and longest duration, and for the system's CSV events the rows and bytes moved.
+ * Event types are listed with the system's own events first, then by total duration, so the
+ * operations that cost the most come to the top.
+ *
+ * <p>Record with {@code java -XX:StartFlightRecording:settings=benchmark/hdb.jfc,filename=hdb.jfr Main},
+ * then run {@code java benchmark.JfrSummary hdb.jfr [all]}. Only {@code hdb.*}, GC and I/O
+ * events are listed unless {@code all} is given.</p>
+ *
+ * @author SC2002Team
+ */
+public class JfrSummary {
+
+    /** Totals for one event type. */
+    private static class Summary {
+        final private String name;
+        final private List<Long> durations = new ArrayList<>();
+        private long totalNanos;
+        private long rows;
+        private long bytes;
+        private boolean hasSizes;
+
+        Summary(String name) {
+            this.name = name;
+        }
+
+        void add(RecordedEvent event) {
+            long nanos = event.getDuration().toNanos();
+            durations.add(nanos);
+            totalNanos += nanos;
+            if (event.hasField("rows") && event.hasField("bytes")) {
+                rows += event.getLong("rows");
+                bytes += event.getLong("bytes");
+                hasSizes = true;
+            }
+        }
+
+        long percentile(double p) {
+            if (durations.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p / 100.0 * durations.size()) - 1;
+            return durations.get(Math.max(0, Math.min(index, durations.size() - 1)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java benchmark.JfrSummary <recording.jfr> [all]");
+            return;
+        }
+        Path recording = Paths.get(args[0]);
+        boolean all = args.length > 1 && args[1].equalsIgnoreCase("all");
+
+        Map<String, Summary> summaries = new HashMap<>();
+        long events = 0;
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String name = event.getEventType().getName();
+                if (all || isInteresting(name)) {
+                    summaries.computeIfAbsent(name, Summary::new).add(event);
+                }
+                events++;
+            }
+        }
+
+        List<Summary> sorted = new ArrayList<>(summaries.values());
+        sorted.sort(Comparator.comparing((Summary s) -> !s.name.startsWith("hdb."))
+                .thenComparing(s -> -s.totalNanos)
+                .thenComparing(s -> s.name));
+        System.out.println("Recording " + recording + ": " + events + " events, " + summaries.size() + " types listed");
+        System.out.printf("%-32s %8s %12s %10s %10s %10s %10s %12s%n", "Event", "Count", "Total ms", "p50 ms",
+                "p99 ms", "Max ms", "Rows", "Bytes");
+        for (Summary s : sorted) {
+            Collections.sort(s.durations);
+            System.out.printf("%-32s %8d %12.3f %10.3f %10.3f %10.3f %10s %12s%n", s.name, s.durations.size(),
+                    s.totalNanos / 1e6, s.percentile(50) / 1e6, s.percentile(99) / 1e6,
+                    s.percentile(100) / 1e6, s.hasSizes ? Long.toString(s.rows) : "-",
+                    s.hasSizes ? Long.toString(s.bytes) : "-");
+        }
+    }
+
+    private static boolean isInteresting(String name) {
+        return name.startsWith("hdb.") || name.startsWith("jdk.GC") || name.equals("jdk.GarbageCollection")
+                || name.startsWith("jdk.File") || name.equals("jdk.ObjectAllocationSample")
+                || name.equals("jdk.JavaMonitorEnter") || name.equals("jdk.ThreadPark");
+    }
+}
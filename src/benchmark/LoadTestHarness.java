@@ -0,0 +1,539 @@
+package benchmark;
+
+import controller.ApplicantController;
+import controller.HDBOfficerController;
+import controller.ProjectManagerController;
+import model.ApplicationStatusChanged;
+import model.BTOApplication;
+import model.Enquiry;
+import model.ReceiptPipeline;
+import model.User;
+import model.WithdrawalRequest;
+import model.WithdrawalStore;
+import utils.CSVUtils;
+import utils.LatencyHistogram;
+import utils.StaleVersionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Load test that drives the controllers directly from many threads at once, as thousands of
+ * applicants, officers and managers would, and then checks that the data files are still
+ * consistent. It is the acceptance gate for changes to concurrency or storage: it exits with
+ * status 1 if any operation fails unexpectedly or any consistency check fails.
+ *
+ * <p>The harness generates a fresh dataset in a temporary directory and runs the load in a child
+ * JVM started there, because the system reads and writes {@code data/} relative to the working
+ * directory; the files it is run next to are never touched. Each operation takes an idle actor
+ * of the right role, so no user runs two operations at once. Operations are:</p>
+ * <ul>
+ *     <li>{@code apply} - an applicant applies for a random project and an eligible flat type</li>
+ *     <li>{@code view} - an applicant lists the projects available to them</li>
+ *     <li>{@code enquiry} - an applicant submits an enquiry</li>
+ *     <li>{@code approve} - a manager approves the pending applications and withdrawals of their project</li>
+ *     <li>{@code book} - an officer books flats for up to five successful applicants of their project</li>
+ *     <li>{@code withdraw} - an applicant requests to withdraw their application</li>
+ *     <li>{@code report} - a manager generates the report of their project</li>
+ * </ul>
+ *
+ * <p>Each operation is counted as ok, rejected (the controller returned false or refused with an
+ * IllegalArgumentException or IllegalStateException), conflict (a {@link StaleVersionException}
+ * after retries) or error (anything else). At the end the harness prints throughput, latency
+ * percentiles and outcome counts per operation, and the result of checks that every row is well
+ * formed, refers to known users and projects, that no applicant holds two live applications,
+ * that enquiry IDs are unique, that every project's units plus its bookings equal the units
+ * it started with and that compacting the withdrawals log leaves every request's version
+ * unchanged.</p>
+ *
+ * <p>Run with {@code java benchmark.LoadTestHarness [--applicants 2000] [--officers 40]
+ * [--projects 20] [--threads 32] [--ops 20000] [--units 50] [--seed 1] [--keep]
+ * [--mix apply=25,view=30,enquiry=15,approve=10,book=10,withdraw=5,report=5]}.</p>
+ *
+ * @author SC2002Team
+ */
+public class LoadTestHarness {
+    private static final String[] OPERATIONS = { "apply", "view", "enquiry", "approve", "book", "withdraw", "report" };
+    private static final String DEFAULT_MIX = "apply=25,view=30,enquiry=15,approve=10,book=10,withdraw=5,report=5";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("M/dd/yyyy");
+    private static final Set<String> LIVE = new HashSet<>(Arrays.asList("pending", "successful", "booked"));
+
+    /** The settings of a run. */
+    private static class Config {
+        private int applicants = 2000;
+        private int officers = 40;
+        private int projects = 20;
+        private int threads = 32;
+        private int ops = 20_000;
+        private int units = 50;
+        private long seed = 1;
+        private boolean keep = false;
+        private String mix = DEFAULT_MIX;
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--keep")) {
+                    config.keep = true;
+                    continue;
+                }
+                if (arg.equals("--child")) {
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--applicants" -> config.applicants = Integer.parseInt(value);
+                    case "--officers" -> config.officers = Integer.parseInt(value);
+                    case "--projects" -> config.projects = Integer.parseInt(value);
+                    case "--threads" -> config.threads = Integer.parseInt(value);
+                    case "--ops" -> config.ops = Integer.parseInt(value);
+                    case "--units" -> config.units = Integer.parseInt(value);
+                    case "--seed" -> config.seed = Long.parseLong(value);
+                    case "--mix" -> config.mix = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (config.applicants < 1 || config.projects < 1 || config.officers < config.projects
+                    || config.threads < 1 || config.ops < 1 || config.units < 1) {
+                throw new IllegalArgumentException("Need at least one applicant, project, thread, operation and unit, "
+                        + "and at least one officer per project.");
+            }
+            return config;
+        }
+
+        double[] weights() {
+            double[] weights = new double[OPERATIONS.length];
+            for (String part : mix.split(",")) {
+                String[] kv = part.trim().split("=");
+                int index = Arrays.asList(OPERATIONS).indexOf(kv[0].trim());
+                if (kv.length != 2 || index < 0) {
+                    throw new IllegalArgumentException("Invalid mix entry: " + part);
+                }
+                weights[index] = Double.parseDouble(kv[1].trim());
+            }
+            return weights;
+        }
+    }
+
+    /** The outcome counts and latencies of one operation. */
+    private static class OpStats {
+        final private LatencyHistogram latency = new LatencyHistogram();
+        final private AtomicLong ok = new AtomicLong();
+        final private AtomicLong rejected = new AtomicLong();
+        final private AtomicLong conflicts = new AtomicLong();
+        final private AtomicLong errors = new AtomicLong();
+    }
+
+    /** An applicant actor; one per generated applicant. */
+    private static class ApplicantActor {
+        final private ApplicantController controller;
+        final private boolean married;
+
+        ApplicantActor(User user) {
+            this.controller = new ApplicantController(user);
+            this.married = user.getMaritalStatus().equalsIgnoreCase("Married");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        if (args.length > 0 && args[0].equals("--child")) {
+            System.exit(runLoad(config));
+        }
+        Path dir = Files.createTempDirectory("hdb-load");
+        try {
+            Map<String, Integer> units = generate(dir.resolve("data"), config);
+            System.out.println("Generated " + config.applicants + " applicants, " + config.officers + " officers and "
+                    + config.projects + " projects with " + units.size() + " flat types in " + dir);
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                    .map(entry -> new File(entry).getAbsolutePath()).collect(Collectors.joining(File.pathSeparator)));
+            command.add(LoadTestHarness.class.getName());
+            command.add("--child");
+            command.addAll(Arrays.asList(args));
+            Process child = new ProcessBuilder(command).directory(dir.toFile()).inheritIO().start();
+            int status = child.waitFor();
+            System.exit(status);
+        } finally {
+            if (!config.keep) {
+                deleteTree(dir);
+            }
+        }
+    }
+
+    /**
+     * Writes a dataset: users, projects that are open and visible with their officers assigned,
+     * and empty application, enquiry, officer application and withdrawal files.
+     *
+     * @return The units each project started with, by "project|flat type".
+     */
+    private static Map<String, Integer> generate(Path data, Config config) throws IOException {
+        Files.createDirectories(data);
+        Random random = new Random(config.seed);
+        List<String[]> users = new ArrayList<>();
+        for (int i = 0; i < config.applicants; i++) {
+            boolean married = random.nextInt(10) < 7;
+            int age = married ? 21 + random.nextInt(40) : 35 + random.nextInt(30);
+            users.add(new String[] { "Applicant " + letters(i), nric('S', i), Integer.toString(age),
+                    married ? "Married" : "Single", "password", "Applicant" });
+        }
+        for (int i = 0; i < config.officers; i++) {
+            users.add(new String[] { "Officer " + letters(i), nric('T', i), "30", "Married", "password", "HDBOfficer" });
+        }
+        for (int i = 0; i < config.projects; i++) {
+            users.add(new String[] { "Manager " + letters(i), nric('T', 5_000_000 + i), "45", "Married", "password",
+                    "HDBManager" });
+        }
+        CSVUtils.writeCSVAtomic(data.resolve("Users.csv").toString(), users);
+
+        Map<String, Integer> units = new LinkedHashMap<>();
+        List<String[]> projects = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        int perProject = config.officers / config.projects;
+        for (int i = 0; i < config.projects; i++) {
+            String name = "Project " + letters(i);
+            List<String> officers = new ArrayList<>();
+            for (int j = i * perProject; j < (i + 1) * perProject; j++) {
+                officers.add("Officer " + letters(j));
+            }
+            int twoRoom = config.units;
+            int threeRoom = config.units;
+            units.put(name + "|2-Room", twoRoom);
+            units.put(name + "|3-Room", threeRoom);
+            projects.add(new String[] { name, "Town " + letters(i), "2-Room", Integer.toString(twoRoom), "350000",
+                    "3-Room", Integer.toString(threeRoom), "450000", today.minusDays(10).format(DATE),
+                    today.plusDays(60).format(DATE), "Manager " + letters(i), Integer.toString(perProject),
+                    "\"" + String.join(",", officers) + "\"", "on" });
+        }
+        CSVUtils.writeCSVAtomic(data.resolve("ProjectList.csv").toString(), projects);
+        for (String empty : new String[] { "FlatApplications.csv", "FlatEnquiries.csv", "OfficerApplication.csv",
+                "withdrawals.csv" }) {
+            CSVUtils.writeCSVAtomic(data.resolve(empty).toString(), new ArrayList<>());
+        }
+        return units;
+    }
+
+    /**
+     * Runs the load in the current directory, which must hold a generated dataset, and checks the
+     * files afterwards.
+     *
+     * @return The exit status: 0 if there were no errors and no violations.
+     */
+    private static int runLoad(Config config) throws Exception {
+        PrintStream console = System.out;
+        ApplicationStatusChanged.recordFlightEvents();
+        Map<String, Integer> initialUnits = new HashMap<>();
+        for (String[] row : CSVUtils.readCSV("data/ProjectList.csv")) {
+            initialUnits.put(row[0] + "|" + row[2], Integer.parseInt(row[3]));
+            initialUnits.put(row[0] + "|" + row[5], Integer.parseInt(row[6]));
+        }
+        List<String> projectNames = CSVUtils.readCSV("data/ProjectList.csv").stream().map(row -> row[0])
+                .collect(Collectors.toList());
+
+        ConcurrentLinkedQueue<ApplicantActor> applicants = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<HDBOfficerController> officers = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<ProjectManagerController> managers = new ConcurrentLinkedQueue<>();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long setup = System.nanoTime();
+        for (String[] row : CSVUtils.readCSV("data/Users.csv")) {
+            User user = new User(row[0], row[1], row[4], Integer.parseInt(row[2]), row[3], row[5]);
+            switch (row[5]) {
+                case "Applicant" -> applicants.add(new ApplicantActor(user));
+                case "HDBOfficer" -> officers.add(new HDBOfficerController(user));
+                default -> managers.add(new ProjectManagerController(user));
+            }
+        }
+        console.printf("Set up %d applicants, %d officers and %d managers in %.1f s%n", applicants.size(),
+                officers.size(), managers.size(), (System.nanoTime() - setup) / 1e9);
+
+        double[] weights = config.weights();
+        double totalWeight = Arrays.stream(weights).sum();
+        Map<String, OpStats> stats = new LinkedHashMap<>();
+        for (String op : OPERATIONS) {
+            stats.put(op, new OpStats());
+        }
+        Map<String, String> firstErrors = Collections.synchronizedMap(new LinkedHashMap<>());
+        AtomicInteger remaining = new AtomicInteger(config.ops);
+        AtomicInteger enquiries = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(config.threads);
+        console.printf("Running %d operations on %d threads, mix %s%n", config.ops, config.threads, config.mix);
+        long start = System.nanoTime();
+        for (int t = 0; t < config.threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (remaining.getAndDecrement() > 0) {
+                        String op = pick(weights, totalWeight, random.nextDouble());
+                        OpStats op_stats = stats.get(op);
+                        long began = System.nanoTime();
+                        try {
+                            boolean ok = run(op, applicants, officers, managers, projectNames, enquiries, random);
+                            (ok ? op_stats.ok : op_stats.rejected).incrementAndGet();
+                        } catch (StaleVersionException e) {
+                            op_stats.conflicts.incrementAndGet();
+                        } catch (IllegalArgumentException | IllegalStateException e) {
+                            op_stats.rejected.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            op_stats.errors.incrementAndGet();
+                            firstErrors.putIfAbsent(op + ": " + e.getClass().getSimpleName(), String.valueOf(e.getMessage()));
+                        }
+                        op_stats.latency.record(System.nanoTime() - began);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            worker.start();
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        ReceiptPipeline.getInstance().flush(10_000);
+        System.setOut(console);
+
+        long errors = 0;
+        System.out.printf("%nCompleted %d operations in %.2f s: %.0f ops/s%n", config.ops, seconds, config.ops / seconds);
+        System.out.printf("%-9s %7s %7s %8s %9s %7s %9s %9s %9s %9s%n", "Operation", "Count", "Ok", "Rejected",
+                "Conflicts", "Errors", "p50 ms", "p99 ms", "p999 ms", "Max ms");
+        for (Map.Entry<String, OpStats> entry : stats.entrySet()) {
+            OpStats s = entry.getValue();
+            errors += s.errors.get();
+            if (s.latency.getCount() == 0) {
+                continue;
+            }
+            System.out.printf("%-9s %7d %7d %8d %9d %7d %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), s.latency.getCount(),
+                    s.ok.get(), s.rejected.get(), s.conflicts.get(), s.errors.get(), s.latency.getPercentile(50) / 1e6,
+                    s.latency.getPercentile(99) / 1e6, s.latency.getPercentile(99.9) / 1e6, s.latency.getMax() / 1e6);
+        }
+        System.out.printf("Error rate: %.3f%%%n", 100.0 * errors / config.ops);
+        firstErrors.forEach((kind, message) -> System.out.println("  " + kind + " - " + message));
+
+        List<String> violations = checkConsistency(initialUnits);
+        System.out.println("Consistency violations: " + violations.size());
+        violations.stream().limit(20).forEach(v -> System.out.println("  " + v));
+        boolean passed = errors == 0 && violations.isEmpty();
+        System.out.println(passed ? "PASS" : "FAIL");
+        return passed ? 0 : 1;
+    }
+
+    /**
+     * Runs one operation with an idle actor of the right role.
+     *
+     * @return True if the operation succeeded, false if the controller turned it down.
+     */
+    private static boolean run(String op, Queue<ApplicantActor> applicants, Queue<HDBOfficerController> officers,
+            Queue<ProjectManagerController> managers, List<String> projects, AtomicInteger enquiries,
+            ThreadLocalRandom random) {
+        switch (op) {
+            case "apply", "view", "enquiry", "withdraw" -> {
+                ApplicantActor actor = take(applicants);
+                try {
+                    return switch (op) {
+                        case "apply" -> actor.controller.applyForProject(projects.get(random.nextInt(projects.size())),
+                                actor.married && random.nextBoolean() ? "3-Room" : "2-Room");
+                        case "view" -> actor.controller.viewAvailableProjects() != null;
+                        case "enquiry" -> actor.controller.submitEnquiry(projects.get(random.nextInt(projects.size())),
+                                "Load " + enquiries.incrementAndGet(), "Generated by the load test");
+                        default -> actor.controller.requestWithdrawal();
+                    };
+                } finally {
+                    applicants.add(actor);
+                }
+            }
+            case "book" -> {
+                HDBOfficerController officer = take(officers);
+                try {
+                    if (officer.getProjectAssigned() == null) {
+                        return false;
+                    }
+                    String project = officer.getProjectAssigned().getProjectName();
+                    List<String[]> bookings = new ArrayList<>();
+                    for (BTOApplication app : BTOApplication.getApplications()) {
+                        if (bookings.size() < 5 && app.getProjectName().equals(project)
+                                && app.getStatus().equalsIgnoreCase("Successful")) {
+                            bookings.add(new String[] { app.getApplicantNRIC(), "" });
+                        }
+                    }
+                    return !bookings.isEmpty() && !officer.bookFlats(bookings).getSucceeded().isEmpty();
+                } finally {
+                    officers.add(officer);
+                }
+            }
+            default -> {
+                ProjectManagerController manager = take(managers);
+                try {
+                    if (op.equals("report")) {
+                        return manager.generateReport(manager.getProjectManaging().getProjectName(), null, null) != null;
+                    }
+                    boolean approved = !manager.approveAllPendingApplications().getSucceeded().isEmpty();
+                    return !manager.approveAllPendingWithdrawals().getSucceeded().isEmpty() || approved;
+                } finally {
+                    managers.add(manager);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the data files after the run.
+     *
+     * @param initialUnits The units each project started with, by "project|flat type".
+     * @return A description of each violation found.
+     */
+    private static List<String> checkConsistency(Map<String, Integer> initialUnits) {
+        List<String> violations = new ArrayList<>();
+        Set<String> nrics = new HashSet<>();
+        for (String[] row : CSVUtils.readCSV("data/Users.csv")) {
+            nrics.add(row[1]);
+        }
+
+        Map<String, Integer> units = new HashMap<>();
+        for (String[] row : CSVUtils.readCSV("data/ProjectList.csv")) {
+            if (row.length != 14) {
+                violations.add("ProjectList.csv: row has " + row.length + " fields: " + String.join(",", row));
+                continue;
+            }
+            for (int column : new int[] { 3, 6 }) {
+                String key = row[0] + "|" + row[column - 1];
+                if (!row[column].matches("\\d+")) {
+                    violations.add("ProjectList.csv: invalid units for " + key + ": " + row[column]);
+                } else {
+                    units.put(key, Integer.parseInt(row[column]));
+                }
+            }
+        }
+
+        Map<String, Integer> booked = new HashMap<>();
+        Map<String, Integer> live = new HashMap<>();
+        for (String[] row : CSVUtils.readCSV("data/FlatApplications.csv")) {
+            if (row.length != 4) {
+                violations.add("FlatApplications.csv: row has " + row.length + " fields: " + String.join(",", row));
+                continue;
+            }
+            if (!nrics.contains(row[0])) {
+                violations.add("FlatApplications.csv: unknown applicant " + row[0]);
+            }
+            if (!initialUnits.containsKey(row[1] + "|" + row[2])) {
+                violations.add("FlatApplications.csv: unknown project or flat type " + row[1] + "|" + row[2]);
+            }
+            if (LIVE.contains(row[3].toLowerCase())) {
+                live.merge(row[0], 1, Integer::sum);
+            }
+            if (row[3].equalsIgnoreCase("Booked")) {
+                booked.merge(row[1] + "|" + row[2], 1, Integer::sum);
+            }
+        }
+        live.forEach((nric, count) -> {
+            if (count > 1) {
+                violations.add("FlatApplications.csv: " + nric + " has " + count + " live applications");
+            }
+        });
+        for (Map.Entry<String, Integer> entry : initialUnits.entrySet()) {
+            int left = units.getOrDefault(entry.getKey(), -1);
+            int bookings = booked.getOrDefault(entry.getKey(), 0);
+            if (left < 0 || left + bookings != entry.getValue()) {
+                violations.add("Units for " + entry.getKey() + ": " + left + " left + " + bookings + " booked != "
+                        + entry.getValue() + " at start");
+            }
+        }
+
+        Set<String> enquiryIds = new HashSet<>();
+        for (String[] row : CSVUtils.readCSV(Enquiry.ENQUIRIES_CSV)) {
+            if (row.length < 6) {
+                violations.add("FlatEnquiries.csv: row has " + row.length + " fields: " + String.join(",", row));
+            } else if (!enquiryIds.add(row[0])) {
+                violations.add("FlatEnquiries.csv: duplicate enquiry ID " + row[0]);
+            }
+        }
+        for (String[] row : CSVUtils.readCSV("data/withdrawals.csv")) {
+            if (row.length != 4) {
+                violations.add("withdrawals.csv: row has " + row.length + " fields: " + String.join(",", row));
+            } else if (!nrics.contains(row[0])) {
+                violations.add("withdrawals.csv: unknown applicant " + row[0]);
+            }
+        }
+        // Withdrawal versions follow from the order and status of each applicant's requests, so
+        // compacting the log must leave every request at the version it had.
+        Map<String, Long> before = withdrawalVersions();
+        new WithdrawalStore("data/withdrawals.csv").compact();
+        Map<String, Long> after = withdrawalVersions();
+        if (!before.equals(after)) {
+            violations.add("withdrawals.csv: versions changed by compaction: " + before + " became " + after);
+        }
+        return violations;
+    }
+
+    /**
+     * Reads the withdrawals log into a new store and gives the version of each request, keyed by
+     * NRIC and the request's position among the applicant's requests.
+     */
+    private static Map<String, Long> withdrawalVersions() {
+        Map<String, Long> versions = new TreeMap<>();
+        Map<String, Integer> seen = new HashMap<>();
+        for (WithdrawalRequest request : new WithdrawalStore("data/withdrawals.csv").getAll()) {
+            int k = seen.merge(request.getApplicantNRIC(), 1, Integer::sum) - 1;
+            versions.put(request.getApplicantNRIC() + "#" + k, request.getVersion());
+        }
+        return versions;
+    }
+
+    private static <T> T take(Queue<T> idle) {
+        T actor;
+        while ((actor = idle.poll()) == null) {
+            Thread.onSpinWait();
+        }
+        return actor;
+    }
+
+    private static String pick(double[] weights, double total, double roll) {
+        double target = roll * total;
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return OPERATIONS[i];
+            }
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+
+    private static String letters(int index) {
+        StringBuilder sb = new StringBuilder();
+        int n = index;
+        do {
+            sb.append((char) ('A' + n % 26));
+            n = n / 26 - 1;
+        } while (n >= 0);
+        return sb.reverse().toString();
+    }
+
+    private static String nric(char prefix, int index) {
+        return prefix + String.format("%07d", index) + (char) ('A' + index % 26);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import utils.CSVUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark for parallel CSV parsing. Generates an applications file with the requested number
+ * of rows, some with quoted values holding commas, and parses it with
+ * {@link CSVUtils#readCSVParallel(String, ForkJoinPool)} on pools of 1, 2, 4 and so on up to the
+ * given number of threads, reporting throughput and the speedup over one thread. Every run is
+ * checked to return the same rows as the one-thread run.
+ *
+ * <p>Run with {@code java benchmark.ParallelCsvBenchmark [rows] [threads] [repeats]} (default
+ * 5000000, the number of processors, 3). Give the JVM enough heap for the rows, e.g. {@code -Xmx4g}.</p>
+ *
+ * @author SC2002Team
+ */
+public class ParallelCsvBenchmark {
+    private static final String[] FLAT_TYPES = { "2-Room", "3-Room" };
+    private static final String[] STATUSES = { "Pending", "Successful", "Unsuccessful", "Booked" };
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        File dir = Files.createTempDirectory("parallel-csv-bench").toFile();
+        File csv = new File(dir, "FlatApplications.csv");
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(csv))) {
+            for (int i = 0; i < count; i++) {
+                String nric = (i % 2 == 0 ? "S" : "T") + String.format("%07d", i % 10_000_000) + (char) ('A' + i % 26);
+                String project = i % 10 == 0 ? "\"Project " + i % 100 + ", Phase " + i % 3 + "\"" : "Project " + i % 100;
+                out.write(nric + "," + project + "," + FLAT_TYPES[i % 2] + "," + STATUSES[i % 4]);
+                out.newLine();
+            }
+        }
+        double megabytes = csv.length() / (1024.0 * 1024.0);
+        System.out.printf("Parallel CSV benchmark: %d rows, %.1f MB, %d processors%n", count, megabytes,
+                Runtime.getRuntime().availableProcessors());
+
+        List<String[]> reference = null;
+        double baseline = 0;
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        for (int threads : threadCounts) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long best = Long.MAX_VALUE;
+                List<String[]> rows = null;
+                for (int run = 0; run < repeats; run++) {
+                    rows = null; // Let the previous run's rows be collected before timing the next
+                    long start = System.nanoTime();
+                    rows = CSVUtils.readCSVParallel(csv.getPath(), pool);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                if (reference == null) {
+                    reference = rows;
+                    baseline = best;
+                }
+                boolean same = rows.size() == reference.size();
+                for (int i = 0; same && i < rows.size(); i++) {
+                    same = Arrays.equals(rows.get(i), reference.get(i));
+                }
+                System.out.printf("%2d thread(s): %9.1f ms %8.1f MB/s %12.0f rows/s  speedup %.2fx  %s%n", threads,
+                        best / 1e6, megabytes / (best / 1e9), rows.size() / (best / 1e9), baseline / best,
+                        same ? "rows match" : "ROWS DO NOT MATCH");
+            } finally {
+                pool.shutdown();
+            }
+        }
+        csv.delete();
+        dir.delete();
+    }
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import utils.CSVUtils;
+import utils.Snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark for startup loading. Generates application and project files with the requested
+ * total number of rows, then times a cold load of them the way the system starts without a
+ * snapshot (parsing every CSV) and with one (mapping the snapshot and reading the tables from
+ * it). Each load runs in a fresh {@link Snapshot} so that nothing is cached between runs, and the
+ * rows from the snapshot are checked against the parsed rows.
+ *
+ * <p>Run with {@code java benchmark.SnapshotBenchmark [rows] [repeats]} (default 1000000, 3).</p>
+ *
+ * @author SC2002Team
+ */
+public class SnapshotBenchmark {
+    private static final String[] FLAT_TYPES = { "2-Room", "3-Room" };
+    private static final String[] STATUSES = { "Pending", "Successful", "Unsuccessful", "Booked" };
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File dir = Files.createTempDirectory("snapshot-bench").toFile();
+        String applications = new File(dir, "FlatApplications.csv").getPath();
+        String projects = new File(dir, "ProjectList.csv").getPath();
+        String snapshotFile = new File(dir, "Tables.snap").getPath();
+
+        int projectCount = Math.max(1, count / 1000);
+        List<String[]> projectRows = new ArrayList<>(projectCount);
+        for (int i = 0; i < projectCount; i++) {
+            projectRows.add(new String[] { "Project " + i, "Town " + i % 30, "2-Room", Integer.toString(100 + i % 50),
+                    "350000", "3-Room", Integer.toString(200 + i % 70), "450000", (1 + i % 12) + "/15/2025",
+                    (1 + i % 12) + "/28/2025", "Manager " + i % 40, "3", "\"Officer A,Officer B\"", "on" });
+        }
+        List<String[]> applicationRows = new ArrayList<>(count);
+        for (int i = 0; i < count - projectCount; i++) {
+            String nric = (i % 2 == 0 ? "S" : "T") + String.format("%07d", i % 10_000_000) + (char) ('A' + i % 26);
+            applicationRows.add(new String[] { nric, "Project " + i % projectCount, FLAT_TYPES[i % 2], STATUSES[i % 4] });
+        }
+        CSVUtils.writeCSV(projects, projectRows);
+        CSVUtils.writeCSV(applications, applicationRows);
+        List<String> files = Arrays.asList(applications, projects);
+        long csvBytes = new File(applications).length() + new File(projects).length();
+        System.out.println("Snapshot benchmark: " + count + " rows, " + csvBytes / 1024 + " KB of CSV");
+
+        long start = System.nanoTime();
+        Snapshot saved = new Snapshot(snapshotFile, dir.getPath());
+        saved.save(files);
+        report("Save snapshot (" + saved.getFile().toFile().length() / 1024 + " KB)", start);
+
+        for (int run = 1; run <= repeats; run++) {
+            start = System.nanoTime();
+            int csvRows = 0;
+            for (String file : files) {
+                csvRows += CSVUtils.readCSV(file).size();
+            }
+            report("Run " + run + ": parse CSV (" + csvRows + " rows)", start);
+
+            start = System.nanoTime();
+            Snapshot snapshot = new Snapshot(snapshotFile, dir.getPath());
+            snapshot.load();
+            report("Run " + run + ": map and check snapshot", start);
+            int snapshotRows = 0;
+            for (String file : files) {
+                snapshotRows += snapshot.read(file).size();
+            }
+            report("Run " + run + ": load from snapshot (" + snapshotRows + " rows)", start);
+        }
+
+        Snapshot snapshot = new Snapshot(snapshotFile, dir.getPath());
+        snapshot.load();
+        boolean same = true;
+        for (String file : files) {
+            List<String[]> parsed = CSVUtils.readCSV(file);
+            List<String[]> loaded = snapshot.read(file);
+            same &= parsed.size() == loaded.size();
+            for (int i = 0; same && i < parsed.size(); i++) {
+                same = Arrays.equals(parsed.get(i), loaded.get(i));
+            }
+        }
+        System.out.println("Snapshot rows " + (same ? "match" : "DO NOT MATCH") + " the CSV rows");
+
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private static void report(String label, long start) {
+        System.out.printf("%-50s %10.1f ms%n", label, (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,93 @@
+package benchmark;
+
+import utils.CSVUtils;
+import utils.ExternalSort;
+import utils.SortedCsvIndex;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark for key lookups in a sorted CSV file. Generates a users file with the requested
+ * number of rows in random order, sorts it by NRIC with {@link ExternalSort}, and then looks up
+ * random NRICs both through its {@link SortedCsvIndex} and by reading the whole file, reporting
+ * the time per lookup, the size of the index and the memory it holds. Every indexed lookup is
+ * checked against the scan for the first few keys.
+ *
+ * <p>Run with {@code java benchmark.SortedCsvIndexBenchmark [rows] [lookups] [runRows]} (default
+ * 1000000, 10000, {@value ExternalSort#DEFAULT_RUN_ROWS}). Full-file lookups are limited to 20,
+ * since each reads the whole file.</p>
+ *
+ * @author SC2002Team
+ */
+public class SortedCsvIndexBenchmark {
+    private static final String[] ROLES = { "Applicant", "HDBOfficer", "HDBManager" };
+    private static final int SCANS = 20;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int runRows = args.length > 2 ? Integer.parseInt(args[2]) : ExternalSort.DEFAULT_RUN_ROWS;
+        File dir = Files.createTempDirectory("sorted-csv-bench").toFile();
+        File csv = new File(dir, "Users.csv");
+        Random random = new Random(42);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(csv))) {
+            for (int i = 0; i < count; i++) {
+                out.write("User " + i + "," + nric(random.nextInt(count)) + "," + (21 + i % 50) + ","
+                        + (i % 2 == 0 ? "Single" : "Married") + ",password," + ROLES[i % 3]);
+                out.newLine();
+            }
+        }
+        System.out.printf("Sorted CSV index benchmark: %d rows, %.1f MB%n", count, csv.length() / (1024.0 * 1024.0));
+
+        long start = System.nanoTime();
+        SortedCsvIndex index = ExternalSort.sort(csv.getPath(), 1, runRows, SortedCsvIndex.DEFAULT_STRIDE);
+        System.out.printf("External sort (runs of %d rows): %.1f ms%n", runRows, (System.nanoTime() - start) / 1e6);
+        File sidecar = SortedCsvIndex.sidecar(csv.getPath()).toFile();
+        System.out.printf("Index: %d keys for %d rows, sidecar %.1f KB%n", index.getEntryCount(), index.getRowCount(),
+                sidecar.length() / 1024.0);
+
+        String[] keys = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            keys[i] = nric(random.nextInt(count));
+        }
+        int found = 0;
+        start = System.nanoTime();
+        for (String key : keys) {
+            found += index.lookupAll(key).size();
+        }
+        long indexed = System.nanoTime() - start;
+
+        int scans = Math.min(SCANS, lookups);
+        boolean same = true;
+        start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            int matches = 0;
+            for (String[] row : CSVUtils.readCSV(csv.getPath())) {
+                if (row[1].trim().equals(keys[i])) {
+                    matches++;
+                }
+            }
+            List<String[]> viaIndex = index.lookupAll(keys[i]);
+            same &= matches == viaIndex.size();
+        }
+        long scanned = System.nanoTime() - start;
+
+        System.out.printf("Indexed lookup: %10.1f us per lookup (%d lookups, %d rows found)%n",
+                indexed / 1e3 / lookups, lookups, found);
+        System.out.printf("Full-file scan: %10.1f us per lookup (%d lookups)%n", scanned / 1e3 / scans, scans);
+        System.out.println(same ? "Indexed lookups match the scan" : "INDEXED LOOKUPS DO NOT MATCH THE SCAN");
+        csv.delete();
+        sidecar.delete();
+        dir.delete();
+    }
+
+    private static String nric(int n) {
+        return (n % 2 == 0 ? "S" : "T") + String.format("%07d", n % 10_000_000) + (char) ('A' + n % 26);
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import utils.HierarchicalTimingWheel;
+
+import java.util.Random;
+
+/**
+ * Benchmark for the hierarchical timing wheel used to expire unit reservations. Schedules the
+ * requested number of timeouts with deadlines spread over a week of one-second ticks, cancels a
+ * tenth of them as if booked, then advances the wheel through the whole week and checks that
+ * every remaining timeout expired within one tick of its deadline.
+ *
+ * <p>Run with {@code java benchmark.TimingWheelBenchmark [timeouts]} (default 2000000).</p>
+ *
+ * @author SC2002Team
+ */
+public class TimingWheelBenchmark {
+    private static final long TICK_MILLIS = 1000;
+    private static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        HierarchicalTimingWheel<long[]> wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 4, 0);
+        Random random = new Random(42);
+        System.out.println("Timing wheel benchmark: " + count + " timeouts over one week");
+
+        long start = System.nanoTime();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        HierarchicalTimingWheel.Timeout<long[]>[] timeouts = new HierarchicalTimingWheel.Timeout[count];
+        for (int i = 0; i < count; i++) {
+            long deadline = 1 + (long) (random.nextDouble() * WEEK_MILLIS);
+            timeouts[i] = wheel.schedule(new long[] { deadline }, deadline);
+        }
+        report("Schedule", start, count);
+
+        start = System.nanoTime();
+        int cancelled = 0;
+        for (int i = 0; i < count; i += 10) {
+            if (timeouts[i].cancel()) {
+                cancelled++;
+            }
+        }
+        report("Cancel every tenth", start, cancelled);
+
+        long[] now = { 0 };
+        int[] early = { 0 };
+        int[] late = { 0 };
+        start = System.nanoTime();
+        int expired = 0;
+        for (now[0] = 0; now[0] <= WEEK_MILLIS + TICK_MILLIS; now[0] += TICK_MILLIS) {
+            expired += wheel.advance(now[0], item -> {
+                if (item[0] > now[0]) {
+                    early[0]++;
+                } else if (now[0] - item[0] >= TICK_MILLIS) {
+                    late[0]++;
+                }
+            });
+        }
+        report("Advance one week (" + WEEK_MILLIS / TICK_MILLIS + " ticks)", start, Math.max(expired, 1));
+        System.out.println("Expired " + expired + " of " + (count - cancelled) + ", early " + early[0] + ", late " + late[0]
+                + ", still pending " + wheel.size());
+    }
+
+    private static void report(String label, long start, int ops) {
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-50s %10.1f ms total %10.3f us/op%n", label, elapsed / 1e6, elapsed / 1e3 / ops);
+    }
+}
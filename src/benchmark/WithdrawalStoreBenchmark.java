@@ -0,0 +1,104 @@
+package benchmark;
+
+import model.BTOProject;
+import model.WithdrawalStore;
+import utils.CSVUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark for the withdrawal store. Generates a withdrawals log with the requested number of
+ * pending requests, then times loading, pending lookups, approving/rejecting every request through
+ * the append log, and reloading the folded log. For comparison it also times the old
+ * rewrite-the-whole-file approach on a sample of requests and extrapolates.
+ *
+ * <p>Run from the {@code src} directory so that the project list can be read:
+ * {@code java benchmark.WithdrawalStoreBenchmark [requests]} (default 100000).</p>
+ *
+ * @author SC2002Team
+ */
+public class WithdrawalStoreBenchmark {
+    private static final int LEGACY_SAMPLE = 20;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<BTOProject> projects = BTOProject.getProjects();
+        if (projects.isEmpty()) {
+            System.out.println("No projects found; run from the src directory.");
+            return;
+        }
+        String projectName = projects.get(0).getProjectName();
+        File dir = Files.createTempDirectory("withdrawal-bench").toFile();
+        File log = new File(dir, "withdrawals.csv");
+
+        List<String[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new String[] { nric(i), projectName, i % 2 == 0 ? "2-Room" : "3-Room", "Pending" });
+        }
+        CSVUtils.writeCSV(log.getPath(), rows);
+        System.out.println("Withdrawal store benchmark: " + count + " requests");
+
+        WithdrawalStore store = new WithdrawalStore(log.getPath());
+        long start = System.nanoTime();
+        int pending = store.getPending().size();
+        report("Load " + pending + " pending requests", start, 1);
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (store.getPendingByNric(nric(i)) != null) {
+                found++;
+            }
+        }
+        report("Pending lookup by NRIC (" + found + " found)", start, count);
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            store.transition(nric(i), i % 3 == 0 ? "Rejected" : "Approved");
+        }
+        report("Approve/reject every request", start, count);
+        System.out.println("Log rows after transitions : " + store.getLogRows());
+
+        WithdrawalStore reloaded = new WithdrawalStore(log.getPath());
+        start = System.nanoTime();
+        int approved = reloaded.getByStatus("Approved").size();
+        int rejected = reloaded.getByStatus("Rejected").size();
+        report("Reload (" + approved + " approved, " + rejected + " rejected, "
+                + reloaded.getPending().size() + " pending)", start, 1);
+
+        // Old approach: read every request, update one, rewrite the whole file.
+        CSVUtils.writeCSV(log.getPath(), rows);
+        int sample = Math.min(LEGACY_SAMPLE, count);
+        start = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            List<String[]> all = CSVUtils.readCSV(log.getPath());
+            for (String[] row : all) {
+                if (row[0].equals(nric(i)) && row[3].equals("Pending")) {
+                    row[3] = "Approved";
+                    break;
+                }
+            }
+            CSVUtils.writeCSV(log.getPath(), all);
+        }
+        long perOp = (System.nanoTime() - start) / sample;
+        System.out.printf("%-50s %10.1f us/op (extrapolated %.1f s for %d)%n",
+                "Full rewrite per transition (" + sample + " sampled)", perOp / 1000.0,
+                perOp * (double) count / 1e9, count);
+
+        log.delete();
+        dir.delete();
+    }
+
+    private static String nric(int i) {
+        return (i % 2 == 0 ? "S" : "T") + String.format("%07d", i) + (char) ('A' + i % 26);
+    }
+
+    private static void report(String label, long start, int ops) {
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-50s %10.1f ms total %10.2f us/op%n", label, elapsed / 1e6, elapsed / 1e3 / ops);
+    }
+}
@@ -4,7 +4,9 @@ import model.Applicant;
 import model.BTOProject;
 import model.BTOApplication;
 import model.Enquiry;
+import model.EnquiryPage;
 import model.User;
+import utils.Metrics;
 import utils.Validator;
 
 import java.util.List;
@@ -49,14 +51,19 @@ public class ApplicantController {
      * @throws IllegalStateException If the applicant is not found.
      */
     public List<BTOProject> viewAvailableProjects() {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            return applicant.viewAvailableProjects();
+        } finally {
+            Metrics.getInstance().record("ApplicantController.viewAvailableProjects", started);
         }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
-        }
-        return applicant.viewAvailableProjects();
     }
 
     /**
@@ -69,28 +76,33 @@ public class ApplicantController {
      * @throws IllegalStateException If the applicant is not found.
      */
     public boolean applyForProject(String projectName, String flatType) {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
-        }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
-        }
-        if (!Validator.isValidProjectName(projectName)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        if (!Validator.isValidFlatType(flatType)) {
-            throw new IllegalArgumentException("Invalid flat type: Must be a valid type (e.g., '2-room', '3-room').");
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            if (!Validator.isValidProjectName(projectName)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            if (!Validator.isValidFlatType(flatType)) {
+                throw new IllegalArgumentException("Invalid flat type: Must be a valid type (e.g., '2-room', '3-room').");
+            }
+            BTOProject project = BTOProject.getProjectByName(projectName.trim());
+            if (project == null) {
+                throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+            }
+            boolean success = applicant.applyForProject(projectName.trim(), flatType.trim());
+            if (success) {
+                System.out.println("Application submitted successfully for project: " + projectName.trim());
+            }
+            return success;
+        } finally {
+            Metrics.getInstance().record("ApplicantController.applyForProject", started);
         }
-        BTOProject project = BTOProject.getProjectByName(projectName.trim());
-        if (project == null) {
-            throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
-        }
-        boolean success = applicant.applyForProject(projectName.trim(), flatType.trim());
-        if (success) {
-            System.out.println("Application submitted successfully for project: " + projectName.trim());
-        }
-        return success;
     }
 
     /**
@@ -100,14 +112,19 @@ public class ApplicantController {
      * @throws IllegalStateException If the applicant is not found.
      */
     public BTOApplication viewMyApplication() {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            return applicant.viewMyApplication();
+        } finally {
+            Metrics.getInstance().record("ApplicantController.viewMyApplication", started);
         }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
-        }
-        return applicant.viewMyApplication();
     }
 
     /**
@@ -117,18 +134,23 @@ public class ApplicantController {
      * @throws IllegalStateException If the applicant is not found.
      */
     public boolean requestWithdrawal() {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
-        }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            boolean success = applicant.requestWithdrawal();
+            if (success) {
+                System.out.println("Withdrawal request submitted successfully.");
+            }
+            return success;
+        } finally {
+            Metrics.getInstance().record("ApplicantController.requestWithdrawal", started);
         }
-        boolean success = applicant.requestWithdrawal();
-        if (success) {
-            System.out.println("Withdrawal request submitted successfully.");
-        }
-        return success;
     }
 
     /**
@@ -142,29 +164,34 @@ public class ApplicantController {
      * @throws IllegalStateException If the applicant is not found.
      */
     public boolean submitEnquiry(String project, String title, String detail) {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
-        }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
-        }
-        if (!Validator.isValidProjectName(project)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        if (title == null || title.trim().isEmpty()) {
-            throw new IllegalArgumentException("Enquiry title cannot be null or empty.");
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            if (!Validator.isValidProjectName(project)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            if (title == null || title.trim().isEmpty()) {
+                throw new IllegalArgumentException("Enquiry title cannot be null or empty.");
+            }
+            if (detail == null || detail.trim().isEmpty()) {
+                throw new IllegalArgumentException("Enquiry detail cannot be null or empty.");
+            }
+            BTOProject btoProject = BTOProject.getProjectByName(project.trim());
+            if (btoProject == null) {
+                throw new IllegalArgumentException("Project does not exist: " + project.trim());
+            }
+            applicant.submitEnquiry(project.trim(), title.trim(), detail.trim());
+            System.out.println("Enquiry submitted successfully for project: " + project.trim());
+            return true;
+        } finally {
+            Metrics.getInstance().record("ApplicantController.submitEnquiry", started);
         }
-        if (detail == null || detail.trim().isEmpty()) {
-            throw new IllegalArgumentException("Enquiry detail cannot be null or empty.");
-        }
-        BTOProject btoProject = BTOProject.getProjectByName(project.trim());
-        if (btoProject == null) {
-            throw new IllegalArgumentException("Project does not exist: " + project.trim());
-        }
-        applicant.submitEnquiry(project.trim(), title.trim(), detail.trim());
-        System.out.println("Enquiry submitted successfully for project: " + project.trim());
-        return true;
     }
 
     /**
@@ -174,81 +201,124 @@ public class ApplicantController {
      * @throws IllegalStateException If the applicant is not found.
      */
     public List<Enquiry> viewMyEnquiries() {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            return applicant.viewMyEnquiries();
+        } finally {
+            Metrics.getInstance().record("ApplicantController.viewMyEnquiries/0", started);
         }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+    }
+
+    /**
+     * Retrieves one page of enquiries submitted by the applicant.
+     *
+     * @param cursor The cursor returned by the previous page, or {@link EnquiryPage#START}.
+     * @param pageSize The maximum number of enquiries on the page.
+     * @return The requested page of the applicant's enquiries.
+     * @throws IllegalArgumentException If the page size is not positive.
+     * @throws IllegalStateException If the applicant is not found.
+     */
+    public EnquiryPage viewMyEnquiries(int cursor, int pageSize) {
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException("Page size must be positive.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            return applicant.viewMyEnquiries(cursor, pageSize);
+        } finally {
+            Metrics.getInstance().record("ApplicantController.viewMyEnquiries/2", started);
         }
-        return applicant.viewMyEnquiries();
     }
 
     /**
      * Edits an existing enquiry submitted by the applicant.
      *
-     * @param enquiryIndex The index of the enquiry to edit.
+     * @param enquiryId The ID of the enquiry to edit.
      * @param newTitle The new title for the enquiry.
      * @param newDetail The new detailed description for the enquiry.
      * @return True if the enquiry is edited successfully, false otherwise.
-     * @throws IllegalArgumentException If the enquiry index is invalid or the new title/detail is invalid.
+     * @throws IllegalArgumentException If the enquiry ID is invalid or the new title/detail is invalid.
      * @throws IllegalStateException If the applicant is not found.
      */
-    public boolean editEnquiry(int enquiryIndex, String newTitle, String newDetail) {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
-        }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
-        }
-        if (enquiryIndex < 0) {
-            throw new IllegalArgumentException("Enquiry index cannot be negative.");
-        }
-        List<Enquiry> enquiries = applicant.viewMyEnquiries();
-        if (enquiryIndex >= enquiries.size()) {
-            throw new IllegalArgumentException("Invalid enquiry index: " + enquiryIndex + ". Must be less than " + enquiries.size() + ".");
+    public boolean editEnquiry(int enquiryId, String newTitle, String newDetail) {
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            if (enquiryId < 0) {
+                throw new IllegalArgumentException("Enquiry ID cannot be negative.");
+            }
+            Enquiry enquiry = Enquiry.getEnquiryById(enquiryId);
+            if (enquiry == null || !enquiry.getEnquirerNRIC().equals(applicant.getNric())) {
+                throw new IllegalArgumentException("No enquiry with ID " + enquiryId + " found for this applicant.");
+            }
+            if (newTitle == null || newTitle.trim().isEmpty()) {
+                throw new IllegalArgumentException("New enquiry title cannot be null or empty.");
+            }
+            if (newDetail == null || newDetail.trim().isEmpty()) {
+                throw new IllegalArgumentException("New enquiry detail cannot be null or empty.");
+            }
+            boolean success = applicant.editEnquiry(enquiryId, newTitle.trim(), newDetail.trim());
+            if (success) {
+                System.out.println("Enquiry edited successfully: ID " + enquiryId);
+            }
+            return success;
+        } finally {
+            Metrics.getInstance().record("ApplicantController.editEnquiry", started);
         }
-        if (newTitle == null || newTitle.trim().isEmpty()) {
-            throw new IllegalArgumentException("New enquiry title cannot be null or empty.");
-        }
-        if (newDetail == null || newDetail.trim().isEmpty()) {
-            throw new IllegalArgumentException("New enquiry detail cannot be null or empty.");
-        }
-        boolean success = applicant.editEnquiry(enquiryIndex, newTitle.trim(), newDetail.trim());
-        if (success) {
-            System.out.println("Enquiry edited successfully at index: " + enquiryIndex);
-        }
-        return success;
     }
 
     /**
      * Deletes an existing enquiry submitted by the applicant.
      *
-     * @param enquiryIndex The index of the enquiry to delete.
+     * @param enquiryId The ID of the enquiry to delete.
      * @return True if the enquiry is deleted successfully, false otherwise.
-     * @throws IllegalArgumentException If the enquiry index is invalid.
+     * @throws IllegalArgumentException If the enquiry ID is invalid.
      * @throws IllegalStateException If the applicant is not found.
      */
-    public boolean deleteEnquiry(int enquiryIndex) {
-        if (user.getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
-        }
-        Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
-        }
-        if (enquiryIndex < 0) {
-            throw new IllegalArgumentException("Enquiry index cannot be negative.");
-        }
-        List<Enquiry> enquiries = applicant.viewMyEnquiries();
-        if (enquiryIndex >= enquiries.size()) {
-            throw new IllegalArgumentException("Invalid enquiry index: " + enquiryIndex + ". Must be less than " + enquiries.size() + ".");
-        }
-        boolean success = applicant.deleteEnquiry(enquiryIndex);
-        if (success) {
-            System.out.println("Enquiry deleted successfully at index: " + enquiryIndex);
+    public boolean deleteEnquiry(int enquiryId) {
+        long started = Metrics.start();
+        try {
+            if (user.getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(user.getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + user.getNRIC());
+            }
+            if (enquiryId < 0) {
+                throw new IllegalArgumentException("Enquiry ID cannot be negative.");
+            }
+            Enquiry enquiry = Enquiry.getEnquiryById(enquiryId);
+            if (enquiry == null || !enquiry.getEnquirerNRIC().equals(applicant.getNric())) {
+                throw new IllegalArgumentException("No enquiry with ID " + enquiryId + " found for this applicant.");
+            }
+            boolean success = applicant.deleteEnquiry(enquiryId);
+            if (success) {
+                System.out.println("Enquiry deleted successfully: ID " + enquiryId);
+            }
+            return success;
+        } finally {
+            Metrics.getInstance().record("ApplicantController.deleteEnquiry", started);
         }
-        return success;
     }
 }
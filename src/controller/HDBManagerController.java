@@ -1,6 +1,7 @@
 package controller;
 
 import model.*;
+import utils.Metrics;
 import utils.Validator;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -51,40 +52,45 @@ public class HDBManagerController {
      */
     public BTOProject createNewProject(String projectName, String neighborhood, ArrayList<Room> rooms, String openDate,
             String closeDate, int officerSlot, String officerList, String visibility) {
-        if (Validator.isValidProjectName(projectName)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        if (neighborhood == null || neighborhood.trim().isEmpty()) {
-            throw new IllegalArgumentException("Neighborhood cannot be null or empty.");
-        }
-        if (rooms == null || rooms.isEmpty()) {
-            throw new IllegalArgumentException("Rooms list cannot be null or empty.");
-        }
-        for (Room room : rooms) {
-            if (room == null || !Validator.isValidFlatType(room.getRoomType()) || room.getUnits() < 0 || room.getPrice() < 0) {
-                throw new IllegalArgumentException("Invalid room: Must have valid type, non-negative units, and non-negative price.");
+        long started = Metrics.start();
+        try {
+            if (Validator.isValidProjectName(projectName)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            if (neighborhood == null || neighborhood.trim().isEmpty()) {
+                throw new IllegalArgumentException("Neighborhood cannot be null or empty.");
+            }
+            if (rooms == null || rooms.isEmpty()) {
+                throw new IllegalArgumentException("Rooms list cannot be null or empty.");
+            }
+            for (Room room : rooms) {
+                if (room == null || !Validator.isValidFlatType(room.getRoomType()) || room.getUnits() < 0 || room.getPrice() < 0) {
+                    throw new IllegalArgumentException("Invalid room: Must have valid type, non-negative units, and non-negative price.");
+                }
+            }
+            if (!Validator.isValidDate(openDate) || !Validator.isValidDate(closeDate)) {
+                throw new IllegalArgumentException("Invalid date format: Must be M/dd/yyyy.");
+            }
+            LocalDate open = LocalDate.parse(openDate, formatter);
+            LocalDate close = LocalDate.parse(closeDate, formatter);
+            if (!open.isBefore(close)) {
+                throw new IllegalArgumentException("Open date must be before close date.");
+            }
+            if (officerSlot < 0) {
+                throw new IllegalArgumentException("Officer slots cannot be negative.");
+            }
+            if (!Validator.isValidCommaSeparatedList(officerList)) {
+                throw new IllegalArgumentException("Invalid officer list: Must be a comma-separated list of valid names or empty.");
+            }
+            if (!Validator.isValidVisibility(visibility)) {
+                throw new IllegalArgumentException("Invalid visibility: Must be 'on' or 'off'.");
             }
-        }
-        if (!Validator.isValidDate(openDate) || !Validator.isValidDate(closeDate)) {
-            throw new IllegalArgumentException("Invalid date format: Must be M/dd/yyyy.");
-        }
-        LocalDate open = LocalDate.parse(openDate, formatter);
-        LocalDate close = LocalDate.parse(closeDate, formatter);
-        if (!open.isBefore(close)) {
-            throw new IllegalArgumentException("Open date must be before close date.");
-        }
-        if (officerSlot < 0) {
-            throw new IllegalArgumentException("Officer slots cannot be negative.");
-        }
-        if (!Validator.isValidCommaSeparatedList(officerList)) {
-            throw new IllegalArgumentException("Invalid officer list: Must be a comma-separated list of valid names or empty.");
-        }
-        if (!Validator.isValidVisibility(visibility)) {
-            throw new IllegalArgumentException("Invalid visibility: Must be 'on' or 'off'.");
-        }
 
-        return hdbManager.createListing(projectName.trim(), neighborhood.trim(), rooms,
-                openDate.trim(), closeDate.trim(), officerSlot, officerList.trim(), visibility.trim());
+            return hdbManager.createListing(projectName.trim(), neighborhood.trim(), rooms,
+                    openDate.trim(), closeDate.trim(), officerSlot, officerList.trim(), visibility.trim());
+        } finally {
+            Metrics.getInstance().record("HDBManagerController.createNewProject", started);
+        }
     }
 
     /**
@@ -132,7 +138,7 @@ public class HDBManagerController {
         Iterator<Room> iterator = selected.getRooms().iterator();
         while (iterator.hasNext()) {
             Room type = iterator.next();
-        
+    
             System.out.print("Keep Room Type " + count + " [" + type.getRoomType() + "]? (yes/no): ");
             String keep = sc.nextLine().trim().toLowerCase();
             if (keep.equals("no")) {
@@ -140,7 +146,7 @@ public class HDBManagerController {
                 System.out.println("Room Type " + count + " removed.");
                 continue;
             }
-        
+    
             System.out.print("New Type " + count + " [" + type.getRoomType() + "]: ");
             String type1 = sc.nextLine().trim();
             if (!type1.isEmpty()) {
@@ -149,7 +155,7 @@ public class HDBManagerController {
                 }
                 type.setRoomType(type1);
             }
-        
+    
             System.out.print("New Units for Type " + count + " [" + type.getUnits() + "]: ");
             String units1 = sc.nextLine().trim();
             if (!units1.isEmpty()) {
@@ -163,7 +169,7 @@ public class HDBManagerController {
                     throw new IllegalArgumentException("Invalid units: Must be a valid integer.");
                 }
             }
-        
+    
             System.out.print("New Price for Type " + count + " [" + type.getPrice() + "]: ");
             String price1 = sc.nextLine().trim();
             if (!price1.isEmpty()) {
@@ -179,20 +185,20 @@ public class HDBManagerController {
             }
             count++;
         }
-        
+    
         // Ask to add new types
         while (true) {
             System.out.print("Do you want to add a new room type? (yes/no): ");
             String addMore = sc.nextLine().trim().toLowerCase();
             if (!addMore.equals("yes")) break;
-        
+    
             System.out.print("Enter new room type: ");
             String newType = sc.nextLine().trim();
             if (!Validator.isValidFlatType(newType)) {
                 System.out.println("Invalid room type.");
                 continue;
             }
-        
+    
             System.out.print("Enter units for " + newType + ": ");
             String newUnitsStr = sc.nextLine().trim();
             int newUnits;
@@ -203,7 +209,7 @@ public class HDBManagerController {
                 System.out.println("Invalid units.");
                 continue;
             }
-        
+    
             System.out.print("Enter price for " + newType + ": ");
             String newPriceStr = sc.nextLine().trim();
             int newPrice;
@@ -214,13 +220,13 @@ public class HDBManagerController {
                 System.out.println("Invalid price.");
                 continue;
             }
-            
+        
             ArrayList<Room> rooms = selected.getRooms();
             rooms.add(new Room(newType, newUnits, newPrice));
             selected.setRooms(rooms);
             System.out.println("New room type added.");
         }
-        
+    
 
         System.out.print("New Application Opening Date [" + selected.getOpenDate() + "]: ");
         String openDateStr = sc.nextLine().trim();
@@ -272,7 +278,12 @@ public class HDBManagerController {
             selected.setVisibility(visibility);
         }
 
-        hdbManager.editProject(selected);
+        long started = Metrics.start(); // Times the save only, not the prompts
+        try {
+            hdbManager.editProject(selected);
+        } finally {
+            Metrics.getInstance().record("HDBManagerController.editProject", started);
+        }
     }
 
     /**
@@ -282,14 +293,19 @@ public class HDBManagerController {
      * @throws IllegalArgumentException If the project name is invalid or not editable.
      */
     public void deleteProject(String projectName) {
-        if (!Validator.isValidProjectName(projectName)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        BTOProject project = BTOProject.getProjectByName(projectName.trim());
-        if (project == null || !project.getManager().equals(hdbManager.getName())) {
-            throw new IllegalArgumentException("You do not have permission to delete this project or it does not exist.");
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidProjectName(projectName)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            BTOProject project = BTOProject.getProjectByName(projectName.trim());
+            if (project == null || !project.getManager().equals(hdbManager.getName())) {
+                throw new IllegalArgumentException("You do not have permission to delete this project or it does not exist.");
+            }
+            hdbManager.deleteListing(projectName.trim());
+        } finally {
+            Metrics.getInstance().record("HDBManagerController.deleteProject", started);
         }
-        hdbManager.deleteListing(projectName.trim());
     }
 
     /**
@@ -300,18 +316,23 @@ public class HDBManagerController {
      * @throws IllegalArgumentException If inputs are invalid or the project is not editable.
      */
     public void toggleProjectVisibility(String projectName, String visibility) {
-        if (!Validator.isValidProjectName(projectName)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        if (!Validator.isValidVisibility(visibility)) {
-            throw new IllegalArgumentException("Invalid visibility: Must be 'on' or 'off'.");
-        }
-        BTOProject project = BTOProject.getProjectByName(projectName.trim());
-        if (project == null || !project.getManager().equals(hdbManager.getName())) {
-            throw new IllegalArgumentException("You do not have permission to toggle visibility of this project or it does not exist.");
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidProjectName(projectName)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            if (!Validator.isValidVisibility(visibility)) {
+                throw new IllegalArgumentException("Invalid visibility: Must be 'on' or 'off'.");
+            }
+            BTOProject project = BTOProject.getProjectByName(projectName.trim());
+            if (project == null || !project.getManager().equals(hdbManager.getName())) {
+                throw new IllegalArgumentException("You do not have permission to toggle visibility of this project or it does not exist.");
+            }
+            hdbManager.toggleVisibility(projectName.trim(), visibility.trim());
+            System.out.println("Visibility updated successfully for project: " + projectName.trim());
+        } finally {
+            Metrics.getInstance().record("HDBManagerController.toggleProjectVisibility", started);
         }
-        hdbManager.toggleVisibility(projectName.trim(), visibility.trim());
-        System.out.println("Visibility updated successfully for project: " + projectName.trim());
     }
 
     /**
@@ -320,7 +341,12 @@ public class HDBManagerController {
      * @return A list of BTO projects managed by this manager.
      */
     public List<BTOProject> getMyProjects() {
-        return hdbManager.viewMyProjects();
+        long started = Metrics.start();
+        try {
+            return hdbManager.viewMyProjects();
+        } finally {
+            Metrics.getInstance().record("HDBManagerController.getMyProjects", started);
+        }
     }
 
 }
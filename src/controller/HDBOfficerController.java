@@ -3,9 +3,13 @@ package controller;
 import model.Applicant;
 import model.BTOApplication;
 import model.BTOProject;
+import model.BatchResult;
+import model.Enquiry;
 import model.HDBOfficer;
 import model.Receipt;
+import model.ReceiptPipeline;
 import model.User;
+import utils.Metrics;
 import utils.Validator;
 
 import java.util.*;
@@ -47,7 +51,12 @@ public class HDBOfficerController extends ApplicantController {
      * @return A list of all BTO projects.
      */
     public List<BTOProject> viewAllProjects() {
-        return BTOProject.getProjects();
+        long started = Metrics.start();
+        try {
+            return BTOProject.getProjects();
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.viewAllProjects", started);
+        }
     }
 
     /**
@@ -57,14 +66,19 @@ public class HDBOfficerController extends ApplicantController {
      * @throws IllegalArgumentException If the project name is invalid or the project does not exist.
      */
     public void registerForProject(String projectName) {
-        if (!Validator.isValidProjectName(projectName)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        BTOProject project = BTOProject.getProjectByName(projectName.trim());
-        if (project == null) {
-            throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidProjectName(projectName)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            BTOProject project = BTOProject.getProjectByName(projectName.trim());
+            if (project == null) {
+                throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+            }
+            hdbOfficer.registerForProject(project);
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.registerForProject", started);
         }
-        hdbOfficer.registerForProject(project);
     }
 
     /**
@@ -73,11 +87,16 @@ public class HDBOfficerController extends ApplicantController {
      * @throws IllegalStateException If the officer is not assigned to any project.
      */
     public void viewAssignedProject() {
-        BTOProject assignedProject = hdbOfficer.getProjectAssigned();
-        if (assignedProject == null) {
-            throw new IllegalStateException("Officer is not handling any project currently.");
+        long started = Metrics.start();
+        try {
+            BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+            if (assignedProject == null) {
+                throw new IllegalStateException("Officer is not handling any project currently.");
+            }
+            hdbOfficer.viewAllProjectDetails();
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.viewAssignedProject", started);
         }
-        hdbOfficer.viewAllProjectDetails();
     }
 
     /**
@@ -89,44 +108,112 @@ public class HDBOfficerController extends ApplicantController {
      * @throws IllegalStateException If the officer is not assigned to any project.
      */
     public void handleFlatSelection(BTOApplication application, String flatType) {
-        BTOProject assignedProject = hdbOfficer.getProjectAssigned();
-        if (assignedProject == null) {
-            throw new IllegalStateException("Officer is not handling any project currently.");
-        }
-        if (application == null) {
-            throw new IllegalArgumentException("Application cannot be null.");
-        }
-        if (!Validator.isValidNRIC(application.getApplicantNRIC())) {
-            throw new IllegalArgumentException("Invalid applicant NRIC in application: " + application.getApplicantNRIC());
+        long started = Metrics.start();
+        try {
+            BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+            if (assignedProject == null) {
+                throw new IllegalStateException("Officer is not handling any project currently.");
+            }
+            if (application == null) {
+                throw new IllegalArgumentException("Application cannot be null.");
+            }
+            if (!Validator.isValidNRIC(application.getApplicantNRIC())) {
+                throw new IllegalArgumentException("Invalid applicant NRIC in application: " + application.getApplicantNRIC());
+            }
+            if (!Validator.isValidFlatType(flatType)) {
+                throw new IllegalArgumentException("Invalid flat type: Must be a valid type (e.g., '2-room', '3-room').");
+            }
+            hdbOfficer.handleFlatSelection(application, flatType.trim());
+        
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.handleFlatSelection", started);
         }
-        if (!Validator.isValidFlatType(flatType)) {
-            throw new IllegalArgumentException("Invalid flat type: Must be a valid type (e.g., '2-room', '3-room').");
+    }
+
+    /**
+     * Books flats for several successful applicants of the officer's assigned project in one
+     * batch.
+     *
+     * @param bookings Rows of [NRIC, flat type]; an empty flat type books the type applied for.
+     * @return The outcome for each NRIC; malformed NRICs are reported as failures.
+     * @throws IllegalArgumentException If the list is null or empty.
+     * @throws IllegalStateException If the officer is not assigned to any project.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BatchResult bookFlats(List<String[]> bookings) {
+        long started = Metrics.start();
+        try {
+            if (bookings == null || bookings.isEmpty()) {
+                throw new IllegalArgumentException("At least one booking is required.");
+            }
+            if (hdbOfficer.getProjectAssigned() == null) {
+                throw new IllegalStateException("Officer is not handling any project currently.");
+            }
+            return hdbOfficer.bookFlats(bookings);
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.bookFlats", started);
         }
-        hdbOfficer.handleFlatSelection(application, flatType.trim());
-        
     }
 
     /**
-     * Generates and prints a receipt for a BTO application.
+     * Generates and prints a receipt for a BTO application. The archived receipt is printed if
+     * there is one; otherwise the receipt is built from the application.
      *
      * @param application The BTO application for which to generate the receipt.
      * @throws IllegalArgumentException If the application is null or has an invalid NRIC.
      * @throws IllegalStateException If the officer is not assigned to any project.
      */
     public void generateReceipt(BTOApplication application) {
-        BTOProject assignedProject = hdbOfficer.getProjectAssigned();
-        if (assignedProject == null) {
-            throw new IllegalStateException("Officer is not handling any project currently.");
-        }
-        if (application == null) {
-            throw new IllegalArgumentException("Application cannot be null.");
+        long started = Metrics.start();
+        try {
+            BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+            if (assignedProject == null) {
+                throw new IllegalStateException("Officer is not handling any project currently.");
+            }
+            if (application == null) {
+                throw new IllegalArgumentException("Application cannot be null.");
+            }
+            if (!Validator.isValidNRIC(application.getApplicantNRIC())) {
+                throw new IllegalArgumentException("Invalid applicant NRIC in application: " + application.getApplicantNRIC());
+            }
+            Receipt receipt = ReceiptPipeline.getInstance().find(application.getApplicantNRIC());
+            if (receipt == null || !receipt.getProjectName().equalsIgnoreCase(application.getProjectName())) {
+                receipt = Receipt.fromBTOApplication(application);
+            }
+            receipt.printReceipt();
+            System.out.println("Receipt generated successfully for application NRIC: " + application.getApplicantNRIC());
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.generateReceipt", started);
         }
-        if (!Validator.isValidNRIC(application.getApplicantNRIC())) {
-            throw new IllegalArgumentException("Invalid applicant NRIC in application: " + application.getApplicantNRIC());
+    }
+
+    /**
+     * Reprints the archived booking receipt of an applicant in the officer's assigned project.
+     *
+     * @param nric The applicant's NRIC.
+     * @return True if a receipt was printed, false if none is archived for the project.
+     * @throws IllegalArgumentException If the NRIC is invalid.
+     * @throws IllegalStateException If the officer is not assigned to any project.
+     */
+    public boolean printReceipt(String nric) {
+        long started = Metrics.start();
+        try {
+            BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+            if (assignedProject == null) {
+                throw new IllegalStateException("Officer is not handling any project currently.");
+            }
+            if (!Validator.isValidNRIC(nric)) {
+                throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+            }
+            Receipt receipt = ReceiptPipeline.getInstance().find(nric.trim());
+            if (receipt == null || !receipt.getProjectName().equalsIgnoreCase(assignedProject.getProjectName())) {
+                return false;
+            }
+            receipt.printReceipt();
+            return true;
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.printReceipt", started);
         }
-        Receipt receipt = Receipt.fromBTOApplication(application);
-        receipt.printReceipt();
-        System.out.println("Receipt generated successfully for application NRIC: " + application.getApplicantNRIC());
     }
 
     /**
@@ -137,7 +224,13 @@ public class HDBOfficerController extends ApplicantController {
      * @throws IllegalStateException If the officer is not assigned to any project.
      */
     public void respondToEnquiries(Scanner sc) {
-        BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+        BTOProject assignedProject;
+        long started = Metrics.start(); // Times the lookup only; pages and replies time themselves
+        try {
+            assignedProject = hdbOfficer.getProjectAssigned();
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.respondToEnquiries", started);
+        }
         if (assignedProject == null) {
             throw new IllegalStateException("Officer is not handling any project currently.");
         }
@@ -148,14 +241,46 @@ public class HDBOfficerController extends ApplicantController {
         System.out.println("Enquiry responses processed successfully for project: " + assignedProject.getProjectName());
     }
 
+    /**
+     * Searches enquiries for the officer's assigned project by keyword or phrase.
+     *
+     * @param query The query text; text in double quotes is matched as an exact phrase.
+     * @param limit The maximum number of results.
+     * @return The matching enquiries, most relevant first.
+     * @throws IllegalArgumentException If the query is empty or the limit is not positive.
+     * @throws IllegalStateException If the officer is not assigned to any project.
+     */
+    public List<Enquiry> searchEnquiries(String query, int limit) {
+        long started = Metrics.start();
+        try {
+            BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+            if (assignedProject == null) {
+                throw new IllegalStateException("Officer is not handling any project currently.");
+            }
+            if (query == null || query.trim().isEmpty()) {
+                throw new IllegalArgumentException("Search query cannot be empty.");
+            }
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Search limit must be positive.");
+            }
+            return Enquiry.searchEnquiries(query.trim(), assignedProject.getProjectName(), limit);
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.searchEnquiries", started);
+        }
+    }
+
     /**
      * Retrieves the project assigned to the officer.
      *
      * @return The assigned BTO project, or null if none is assigned.
      */
     public BTOProject getProjectAssigned() {
-
-        return hdbOfficer.getProjectAssigned();
+        long started = Metrics.start();
+        try {
+            return hdbOfficer.getProjectAssigned();
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.getProjectAssigned", started);
+        }
     }
 
     /**
@@ -165,11 +290,16 @@ public class HDBOfficerController extends ApplicantController {
      * @throws IllegalStateException If the officer is not assigned to any project.
      */
     public ArrayList<BTOApplication> getApplications() {
-        BTOProject assignedProject = hdbOfficer.getProjectAssigned();
-        if (assignedProject == null) {
-            throw new IllegalStateException("Officer is not handling any project currently.");
+        long started = Metrics.start();
+        try {
+            BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+            if (assignedProject == null) {
+                throw new IllegalStateException("Officer is not handling any project currently.");
+            }
+            return hdbOfficer.getApplications();
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.getApplications", started);
         }
-        return hdbOfficer.getApplications();
     }
 
     /**
@@ -184,32 +314,37 @@ public class HDBOfficerController extends ApplicantController {
      */
     @Override
     public boolean applyForProject(String projectName, String flatType) {
-        if (!Validator.isValidProjectName(projectName)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        if (!Validator.isValidFlatType(flatType)) {
-            throw new IllegalArgumentException("Invalid flat type: Must be a valid type (e.g., '2-room', '3-room').");
-        }
-        BTOProject project = BTOProject.getProjectByName(projectName.trim());
-        if (project == null) {
-            throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
-        }
-        if (getUser().getNRIC() == null) {
-            throw new IllegalStateException("User NRIC cannot be null.");
-        }
-        Applicant applicant = Applicant.getApplicantByNRIC(getUser().getNRIC());
-        if (applicant == null) {
-            throw new IllegalStateException("Applicant not found for NRIC: " + getUser().getNRIC());
-        }
-        BTOProject assignedProject = hdbOfficer.getProjectAssigned();
-        if (assignedProject != null && assignedProject.getProjectName().equals(projectName.trim())) {
-            throw new IllegalStateException("Officer cannot apply for their own assigned project: " + projectName.trim());
-        }
-        boolean success = applicant.applyForProject(projectName.trim(), flatType.trim());
-        if (success) {
-            System.out.println("Application submitted successfully for project: " + projectName.trim());
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidProjectName(projectName)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            if (!Validator.isValidFlatType(flatType)) {
+                throw new IllegalArgumentException("Invalid flat type: Must be a valid type (e.g., '2-room', '3-room').");
+            }
+            BTOProject project = BTOProject.getProjectByName(projectName.trim());
+            if (project == null) {
+                throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+            }
+            if (getUser().getNRIC() == null) {
+                throw new IllegalStateException("User NRIC cannot be null.");
+            }
+            Applicant applicant = Applicant.getApplicantByNRIC(getUser().getNRIC());
+            if (applicant == null) {
+                throw new IllegalStateException("Applicant not found for NRIC: " + getUser().getNRIC());
+            }
+            BTOProject assignedProject = hdbOfficer.getProjectAssigned();
+            if (assignedProject != null && assignedProject.getProjectName().equals(projectName.trim())) {
+                throw new IllegalStateException("Officer cannot apply for their own assigned project: " + projectName.trim());
+            }
+            boolean success = applicant.applyForProject(projectName.trim(), flatType.trim());
+            if (success) {
+                System.out.println("Application submitted successfully for project: " + projectName.trim());
+            }
+            return success;
+        } finally {
+            Metrics.getInstance().record("HDBOfficerController.applyForProject", started);
         }
-        return success;
     }
     
 }
@@ -1,6 +1,7 @@
 package controller;
 
 import model.*;
+import utils.Metrics;
 import utils.Validator;
 import java.util.*;
 
@@ -34,17 +35,22 @@ public class ProjectManagerController extends HDBManagerController {
      * @throws IllegalArgumentException If the project name is invalid or not managed by this manager.
      */
     public String generateReport(String projectName,String filterType, String filterValue) {
-        if (!Validator.isValidProjectName(projectName)) {
-            throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
-        }
-        BTOProject project = BTOProject.getProjectByName(projectName.trim());
-        if (project == null || !project.getManager().equals(hdbManager.getName())) {
-            throw new IllegalArgumentException("Project does not exist or is not managed by this manager: " + projectName.trim());
-        }
+        long started = Metrics.start();
         try {
-            return ((ProjectManager) hdbManager).generateReport(projectName.trim(),filterType,filterValue);
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating report: " + e.getMessage());
+            if (!Validator.isValidProjectName(projectName)) {
+                throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
+            }
+            BTOProject project = BTOProject.getProjectByName(projectName.trim());
+            if (project == null || !project.getManager().equals(hdbManager.getName())) {
+                throw new IllegalArgumentException("Project does not exist or is not managed by this manager: " + projectName.trim());
+            }
+            try {
+                return ((ProjectManager) hdbManager).generateReport(projectName.trim(),filterType,filterValue);
+            } catch (Exception e) {
+                throw new RuntimeException("Error generating report: " + e.getMessage());
+            }
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.generateReport", started);
         }
     }
 
@@ -54,7 +60,12 @@ public class ProjectManagerController extends HDBManagerController {
      * @return A list of all BTO projects.
      */
     public List<BTOProject> getAllProjects() {
-        return BTOProject.getProjects();
+        long started = Metrics.start();
+        try {
+            return BTOProject.getProjects();
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.getAllProjects", started);
+        }
     }
 
     /**
@@ -63,10 +74,15 @@ public class ProjectManagerController extends HDBManagerController {
      * @throws IllegalStateException If no project is managed by this manager.
      */
     public void viewOfficerApplications() {
-        if (((ProjectManager) hdbManager).getProjectManaging() == null) {
-            throw new IllegalStateException("No project is currently managed by this manager.");
+        long started = Metrics.start();
+        try {
+            if (((ProjectManager) hdbManager).getProjectManaging() == null) {
+                throw new IllegalStateException("No project is currently managed by this manager.");
+            }
+            ((ProjectManager) hdbManager).viewPendingOfficerRegistrations();
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.viewOfficerApplications", started);
         }
-        ((ProjectManager) hdbManager).viewPendingOfficerRegistrations();
     }
 
     /**
@@ -77,24 +93,29 @@ public class ProjectManagerController extends HDBManagerController {
      * @throws IllegalArgumentException If the officer NRIC is invalid or not found.
      */
     public void approveRejectOfficerRegistration(String officerNRIC, boolean approve) {
-        if (!Validator.isValidNRIC(officerNRIC)) {
-            throw new IllegalArgumentException("Invalid officer NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
-        }
-        List<OfficerApplication> applications = OfficerApplication.readOfficerApplications();
-        boolean found = false;
-        for (OfficerApplication app : applications) {
-            if (app.getStatus().equalsIgnoreCase("Pending") && 
-                app.getOfficerNRIC().equals(officerNRIC.trim()) && 
-                app.getProject().equals(((ProjectManager) hdbManager).getProjectManaging().getProjectName())) {
-                found = true;
-                break;
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidNRIC(officerNRIC)) {
+                throw new IllegalArgumentException("Invalid officer NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
             }
+            List<OfficerApplication> applications = OfficerApplication.readOfficerApplications();
+            boolean found = false;
+            for (OfficerApplication app : applications) {
+                if (app.getStatus().equalsIgnoreCase("Pending") && 
+                    app.getOfficerNRIC().equals(officerNRIC.trim()) && 
+                    app.getProject().equals(((ProjectManager) hdbManager).getProjectManaging().getProjectName())) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("No pending officer application found for NRIC: " + officerNRIC.trim() + " in managed project.");
+            }
+            ((ProjectManager) hdbManager).approveRejectOfficer(officerNRIC.trim(), approve);
+            System.out.println("Officer registration " + (approve ? "approved" : "rejected") + " for NRIC: " + officerNRIC.trim());
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.approveRejectOfficerRegistration", started);
         }
-        if (!found) {
-            throw new IllegalArgumentException("No pending officer application found for NRIC: " + officerNRIC.trim() + " in managed project.");
-        }
-        ((ProjectManager) hdbManager).approveRejectOfficer(officerNRIC.trim(), approve);
-        System.out.println("Officer registration " + (approve ? "approved" : "rejected") + " for NRIC: " + officerNRIC.trim());
     }
 
     /**
@@ -108,12 +129,46 @@ public class ProjectManagerController extends HDBManagerController {
         if (sc == null) {
             throw new IllegalArgumentException("Scanner cannot be null.");
         }
-        if (((ProjectManager) hdbManager).getProjectManaging() == null) {
+        BTOProject project;
+        long started = Metrics.start(); // Times the lookup only; pages and replies time themselves
+        try {
+            project = ((ProjectManager) hdbManager).getProjectManaging();
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.manageEnquiries", started);
+        }
+        if (project == null) {
             throw new IllegalStateException("No project is currently managed by this manager.");
         }
         // Placeholder logic; replace with actual implementation
         System.out.println("Enquiry management not fully implemented.");
-        hdbManager.viewAndReplyEnquiries(sc, ((ProjectManager) hdbManager).getProjectManaging().getProjectName());
+        hdbManager.viewAndReplyEnquiries(sc, project.getProjectName());
+    }
+
+    /**
+     * Searches enquiries across all projects, or within a single project, by keyword or phrase.
+     *
+     * @param query The query text; text in double quotes is matched as an exact phrase.
+     * @param projectName The project to restrict results to, or null to search all projects.
+     * @param limit The maximum number of results.
+     * @return The matching enquiries, most relevant first.
+     * @throws IllegalArgumentException If the query is empty, the limit is not positive, or the project does not exist.
+     */
+    public List<Enquiry> searchEnquiries(String query, String projectName, int limit) {
+        long started = Metrics.start();
+        try {
+            if (query == null || query.trim().isEmpty()) {
+                throw new IllegalArgumentException("Search query cannot be empty.");
+            }
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Search limit must be positive.");
+            }
+            if (projectName != null && BTOProject.getProjectByName(projectName.trim()) == null) {
+                throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+            }
+            return Enquiry.searchEnquiries(query.trim(), projectName == null ? null : projectName.trim(), limit);
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.searchEnquiries", started);
+        }
     }
 
     /**
@@ -123,17 +178,22 @@ public class ProjectManagerController extends HDBManagerController {
      * @throws IllegalStateException If no project is managed by this manager.
      */
     public ArrayList<BTOApplication> viewBTOApplications() {
-        if (((ProjectManager) hdbManager).getProjectManaging() == null) {
-            throw new IllegalStateException("No project is currently managed by this manager.");
-        }
-        List<BTOApplication> allApplications = BTOApplication.getApplications();
-        ArrayList<BTOApplication> managerApplications = new ArrayList<>();
-        for (BTOApplication app : allApplications) {
-            if (app.getProjectName().equals(((ProjectManager) hdbManager).getProjectManaging().getProjectName())) {
-                managerApplications.add(app);
+        long started = Metrics.start();
+        try {
+            if (((ProjectManager) hdbManager).getProjectManaging() == null) {
+                throw new IllegalStateException("No project is currently managed by this manager.");
             }
+            List<BTOApplication> allApplications = BTOApplication.getApplications();
+            ArrayList<BTOApplication> managerApplications = new ArrayList<>();
+            for (BTOApplication app : allApplications) {
+                if (app.getProjectName().equals(((ProjectManager) hdbManager).getProjectManaging().getProjectName())) {
+                    managerApplications.add(app);
+                }
+            }
+            return managerApplications;
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.viewBTOApplications", started);
         }
-        return managerApplications;
     }
 
     /**
@@ -144,23 +204,28 @@ public class ProjectManagerController extends HDBManagerController {
      * @throws IllegalArgumentException If the applicant NRIC is invalid or not found.
      */
     public void approveRejectBTOApplication(String applicantNRIC, boolean approve) {
-        if (!Validator.isValidNRIC(applicantNRIC)) {
-            throw new IllegalArgumentException("Invalid applicant NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
-        }
-        List<BTOApplication> applications = BTOApplication.getApplications();
-        boolean found = false;
-        for (BTOApplication app : applications) {
-            if (app.getApplicantNRIC().equals(applicantNRIC.trim()) && 
-                app.getProjectName().equals(((ProjectManager) hdbManager).getProjectManaging().getProjectName())) {
-                found = true;
-                break;
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidNRIC(applicantNRIC)) {
+                throw new IllegalArgumentException("Invalid applicant NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
             }
+            List<BTOApplication> applications = BTOApplication.getApplications();
+            boolean found = false;
+            for (BTOApplication app : applications) {
+                if (app.getApplicantNRIC().equals(applicantNRIC.trim()) && 
+                    app.getProjectName().equals(((ProjectManager) hdbManager).getProjectManaging().getProjectName())) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("No BTO application found for NRIC: " + applicantNRIC.trim() + " in managed project.");
+            }
+            ((ProjectManager) hdbManager).approveRejectApplication(applicantNRIC.trim(), approve);
+            System.out.println("BTO application " + (approve ? "approved" : "rejected") + " for NRIC: " + applicantNRIC.trim());
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.approveRejectBTOApplication", started);
         }
-        if (!found) {
-            throw new IllegalArgumentException("No BTO application found for NRIC: " + applicantNRIC.trim() + " in managed project.");
-        }
-        ((ProjectManager) hdbManager).approveRejectApplication(applicantNRIC.trim(), approve);
-        System.out.println("BTO application " + (approve ? "approved" : "rejected") + " for NRIC: " + applicantNRIC.trim());
     }
 
     /**
@@ -169,7 +234,12 @@ public class ProjectManagerController extends HDBManagerController {
      * @return The BTOProject managed by this manager, or null if none.
      */
     public BTOProject getProjectManaging() {
-        return ((ProjectManager) hdbManager).getProjectManaging();
+        long started = Metrics.start();
+        try {
+            return ((ProjectManager) hdbManager).getProjectManaging();
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.getProjectManaging", started);
+        }
     }
 
     /**
@@ -180,17 +250,156 @@ public class ProjectManagerController extends HDBManagerController {
      * @throws IllegalArgumentException If the applicant NRIC is invalid or not found.
      */
     public void approveRejectBTOWithdrawal(String applicantNRIC, boolean approve) {
-        if (!Validator.isValidNRIC(applicantNRIC)) {
-            throw new IllegalArgumentException("Invalid applicant NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidNRIC(applicantNRIC)) {
+                throw new IllegalArgumentException("Invalid applicant NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+            }
+            WithdrawalRequest req = WithdrawalRequest.getWithdrawalRequestByNric(applicantNRIC);
+            if (req != null) {
+                if (approve) {
+                    ProjectManager.approveWithdrawal(req);
+                } else {
+                    ProjectManager.rejectWithdrawal(req);
+                }
+            }
+
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.approveRejectBTOWithdrawal", started);
+        }
+    }
+
+    /**
+     * Approves every pending withdrawal request for the manager's project in one batch.
+     *
+     * @return The outcome for each applicant NRIC.
+     * @throws IllegalStateException If no project is managed by this manager.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BatchResult approveAllPendingWithdrawals() {
+        long started = Metrics.start();
+        try {
+            BTOProject managed = ((ProjectManager) hdbManager).getProjectManaging();
+            if (managed == null) {
+                throw new IllegalStateException("No project is currently managed by this manager.");
+            }
+            List<WithdrawalRequest> pending = new ArrayList<>();
+            for (WithdrawalRequest req : HDBManager.viewPendingWithdrawals()) {
+                if (req.getProjectName().equalsIgnoreCase(managed.getProjectName())) {
+                    pending.add(req);
+                }
+            }
+            return ProjectManager.approveWithdrawals(pending);
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.approveAllPendingWithdrawals", started);
         }
-        WithdrawalRequest req = WithdrawalRequest.getWithdrawalRequestByNric(applicantNRIC);
-        if (req != null) {
-            if (approve) {
-                ProjectManager.approveWithdrawal(req);
-            } else {
-                ProjectManager.rejectWithdrawal(req);
+    }
+
+    /**
+     * Approves or rejects the pending BTO applications of several applicants in one batch.
+     *
+     * @param applicantNRICs The NRICs of the applicants.
+     * @param approve True to approve, false to reject.
+     * @return The outcome for each NRIC; malformed NRICs are reported as failures.
+     * @throws IllegalArgumentException If the NRIC list is null or empty.
+     * @throws IllegalStateException If no project is managed by this manager.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BatchResult approveRejectBTOApplications(List<String> applicantNRICs, boolean approve) {
+        long started = Metrics.start();
+        try {
+            if (applicantNRICs == null || applicantNRICs.isEmpty()) {
+                throw new IllegalArgumentException("At least one applicant NRIC is required.");
+            }
+            if (((ProjectManager) hdbManager).getProjectManaging() == null) {
+                throw new IllegalStateException("No project is currently managed by this manager.");
+            }
+            List<String> valid = new ArrayList<>();
+            List<String> invalid = new ArrayList<>();
+            for (String nric : applicantNRICs) {
+                if (nric != null && Validator.isValidNRIC(nric)) {
+                    valid.add(nric.trim());
+                } else {
+                    invalid.add(nric == null ? "" : nric.trim());
+                }
             }
+            BatchResult result = ((ProjectManager) hdbManager).approveRejectApplications(valid, approve);
+            for (String nric : invalid) {
+                result.fail(nric, "Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+            }
+            return result;
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.approveRejectBTOApplications", started);
         }
+    }
 
+    /**
+     * Approves pending BTO applications for the manager's project in submission order, up to the
+     * units available for each flat type.
+     *
+     * @return The outcome for each applicant with a pending application.
+     * @throws IllegalStateException If no project is managed by this manager.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BatchResult approveAllPendingApplications() {
+        long started = Metrics.start();
+        try {
+            if (((ProjectManager) hdbManager).getProjectManaging() == null) {
+                throw new IllegalStateException("No project is currently managed by this manager.");
+            }
+            return ((ProjectManager) hdbManager).approvePendingApplications();
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.approveAllPendingApplications", started);
+        }
+    }
+
+    /**
+     * Draws the ballot for the manager's project. Pending applications within unit capacity become
+     * Successful and the rest Unsuccessful.
+     *
+     * @param seed The ballot seed.
+     * @return The outcome of the ballot.
+     * @throws IllegalStateException If no project is managed by this manager.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BallotEngine.Result runBallot(long seed) {
+        long started = Metrics.start();
+        try {
+            if (((ProjectManager) hdbManager).getProjectManaging() == null) {
+                throw new IllegalStateException("No project is currently managed by this manager.");
+            }
+            return ((ProjectManager) hdbManager).runBallot(seed);
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.runBallot", started);
+        }
+    }
+
+    /**
+     * Retrieves the unit reservation counters and the number of active holds.
+     *
+     * @return A map from metric name to value.
+     */
+    public Map<String, Long> getReservationMetrics() {
+        long started = Metrics.start();
+        try {
+            return ReservationManager.getInstance().getMetrics();
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.getReservationMetrics", started);
+        }
+    }
+
+    /**
+     * Retrieves the call count and latency percentiles of every operation called since the system
+     * started.
+     *
+     * @return The statistics of each operation, ordered by operation name.
+     */
+    public List<Metrics.Stats> getSystemStats() {
+        long started = Metrics.start();
+        try {
+            return Metrics.getInstance().getStats();
+        } finally {
+            Metrics.getInstance().record("ProjectManagerController.getSystemStats", started);
+        }
     }
 }
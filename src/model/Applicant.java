@@ -1,10 +1,9 @@
 package model;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 import utils.CSVUtils;
+import utils.Metrics;
 import utils.Validator;
 
 /**
@@ -18,7 +17,6 @@ public class Applicant {
     private String nric;
     private int age;
     private String maritalStatus;
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("M/dd/yyyy");
 
     /**
      * Constructs an Applicant with the specified details.
@@ -126,120 +124,142 @@ public class Applicant {
     }
 
     /**
-     * Retrieves an applicant by their NRIC from the users CSV file.
+     * Retrieves an applicant by their NRIC from the users CSV file, reading only the rows near
+     * the NRIC when the file is sorted by NRIC.
      * 
      * @param nric The NRIC to search for.
      * @return The Applicant object if found, null otherwise.
      * @throws IllegalArgumentException If the NRIC is invalid.
      */
     public static Applicant getApplicantByNRIC(String nric) {
-        if (!Validator.isValidNRIC(nric)) {
-            throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
-        }
-        List<String[]> users = CSVUtils.readCSV("data/users.csv");
-        for (String[] row : users) {
-            if (row.length < 4) {
-                continue; // Skip malformed rows
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidNRIC(nric)) {
+                throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
             }
-            if (row[1].equals(nric)) {
-                try {
-                    String name = row[0];
-                    int age = Integer.parseInt(row[2]);
-                    String maritalStatus = row[3];
-                    return new Applicant(name, nric, age, maritalStatus);
-                } catch (IllegalArgumentException e) {
-                    System.out.println("Error parsing user data for NRIC: " + nric);
+            List<String[]> users = CSVUtils.lookupCSV(User.USERS_CSV, User.NRIC_COLUMN, nric);
+            for (String[] row : users) {
+                if (row.length < 4) {
+                    continue; // Skip malformed rows
+                }
+                if (row[1].equals(nric)) {
+                    try {
+                        String name = row[0];
+                        int age = Integer.parseInt(row[2]);
+                        String maritalStatus = row[3];
+                        return new Applicant(name, nric, age, maritalStatus);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Error parsing user data for NRIC: " + nric);
+                    }
                 }
             }
+            return null; // not found
+        } finally {
+            Metrics.getInstance().record("Applicant.getApplicantByNRIC", started);
         }
-        return null; // not found
     }
 
     /**
      * Retrieves a list of available BTO projects the applicant can apply for or view.
-     * Filters projects based on visibility, application dates, eligibility, and room availability.
+     * Filters projects based on visibility, application window, eligibility, and room availability.
+     * Which projects are within their window is answered by the {@link ProjectListing}, which
+     * follows the {@link ProjectScheduler} as it opens and closes projects.
      * 
      * @return A list of available BTO projects.
      */
     public List<BTOProject> viewAvailableProjects() {
-        List<BTOProject> allProjects = BTOProject.getProjects();
-        if (allProjects == null) {
-            return new ArrayList<>(); // Return empty list if null
-        }
-        List<BTOProject> availableProjects = new ArrayList<>();
-        LocalDate today = LocalDate.now();
-
-        for (BTOProject project : allProjects) {
-            if (project == null || project.getRooms() == null) {
-                continue; // Skip invalid projects
+        long started = Metrics.start();
+        try {
+            List<BTOProject> allProjects = BTOProject.getProjects();
+            if (allProjects == null) {
+                return new ArrayList<>(); // Return empty list if null
             }
-            if (project.getVisibility().equalsIgnoreCase("on")) {
-                try {
-                    LocalDate openDate = LocalDate.parse(project.getOpenDate(), formatter);
-                    LocalDate closeDate = LocalDate.parse(project.getCloseDate(), formatter);
-                    // Within Application Date
-                    if (!today.isBefore(openDate) && !today.isAfter(closeDate) && isEligible(project)) {
-                        // Create a copy to avoid modifying original project
-                        BTOProject projectCopy = new BTOProject(
-                            project.getProjectName(),
-                            project.getNeighborhood(),
-                            new ArrayList<>(project.getRooms()),
-                            project.getOpenDate(),
-                            project.getCloseDate(),
-                            project.getManager(), // Include manager
-                            project.getOfficerSlot(),
-                            project.getOfficerList(),
-                            project.getVisibility()
-                        );
+            List<BTOProject> availableProjects = new ArrayList<>();
+            Set<String> open = new HashSet<>();
+            for (BTOProject project : ProjectListing.getInstance().getOpenProjects()) {
+                open.add(project.getProjectName());
+            }
+            BTOApplication application = null;
+            boolean applicationRead = false;
+
+            for (BTOProject project : allProjects) {
+                if (project == null || project.getRooms() == null) {
+                    continue; // Skip invalid projects
+                }
+                if (project.getVisibility().equalsIgnoreCase("on")) {
+                    try {
+                        // Within Application Date
+                        if (open.contains(project.getProjectName()) && isEligible(project)) {
+                            // Create a copy to avoid modifying original project
+                            BTOProject projectCopy = copyOf(project);
                         
-                        ArrayList<Room> rooms = projectCopy.getRooms();
-                        // If Single (Only two room)
-                        if (getMaritalStatus().equalsIgnoreCase("Single")) {
+                            ArrayList<Room> rooms = projectCopy.getRooms();
+                            // If Single (Only two room)
+                            if (getMaritalStatus().equalsIgnoreCase("Single")) {
                             
-                            rooms.removeIf(room -> room.getRoomType().equals("3-Room"));
+                                rooms.removeIf(room -> room.getRoomType().equals("3-Room"));
                             
-                        }
-
-                        // Remove Rooms with no availability
-                        rooms.removeIf(room -> room.getUnits() <= 0);
-                        projectCopy.setRooms(rooms);
+                            }
 
-                        if (!projectCopy.getRooms().isEmpty()) {
-                            availableProjects.add(projectCopy);
-                        }
-                    } else if (BTOApplication.getApplicationByNRIC(getNric()) != null && BTOApplication.getApplicationByNRIC(getNric()).getProjectName().equals(project.getProjectName())) { // If applicant has applied
-                        if (getMaritalStatus().equalsIgnoreCase("Single")) {
-                            // Create a copy for viewing applied projects
-                            BTOProject projectCopy = new BTOProject(
-                                project.getProjectName(),
-                                project.getNeighborhood(),
-                                new ArrayList<>(project.getRooms()),
-                                project.getOpenDate(),
-                                project.getCloseDate(),
-                                project.getManager(), // Include manager
-                                project.getOfficerSlot(),
-                                project.getOfficerList(),
-                                project.getVisibility()
-                            );
-                            ArrayList<Room> rooms = projectCopy.getRooms();
-                            rooms.removeIf(room -> room.getRoomType().equals("3-Room"));
+                            // Remove Rooms with no availability
+                            rooms.removeIf(room -> room.getUnits() <= 0);
                             projectCopy.setRooms(rooms);
+
                             if (!projectCopy.getRooms().isEmpty()) {
                                 availableProjects.add(projectCopy);
                             }
-                        } else {
-                            availableProjects.add(project);
+                            continue;
+                        }
+                        if (!applicationRead) {
+                            application = BTOApplication.getApplicationByNRIC(getNric());
+                            applicationRead = true;
                         }
+                        if (application != null && application.getProjectName().equals(project.getProjectName())) { // If applicant has applied
+                            if (getMaritalStatus().equalsIgnoreCase("Single")) {
+                                // Create a copy for viewing applied projects
+                                BTOProject projectCopy = copyOf(project);
+                                ArrayList<Room> rooms = projectCopy.getRooms();
+                                rooms.removeIf(room -> room.getRoomType().equals("3-Room"));
+                                projectCopy.setRooms(rooms);
+                                if (!projectCopy.getRooms().isEmpty()) {
+                                    availableProjects.add(projectCopy);
+                                }
+                            } else {
+                                availableProjects.add(project);
+                            }
 
+                        }
+                    } catch (Exception e) {
+                        System.out.println("Error processing project: " + project.getProjectName());
                     }
-                } catch (Exception e) {
-                    System.out.println("Error processing project: " + project.getProjectName());
                 }
-            }
 
             
+            }
+            return availableProjects;
+        } finally {
+            Metrics.getInstance().record("Applicant.viewAvailableProjects", started);
         }
-        return availableProjects;
+    }
+
+    /**
+     * Copies a project with its own list of rooms, so that rooms can be filtered out of the copy.
+     *
+     * @param project The project to copy.
+     * @return The copy.
+     */
+    private static BTOProject copyOf(BTOProject project) {
+        return new BTOProject(
+            project.getProjectName(),
+            project.getNeighborhood(),
+            new ArrayList<>(project.getRooms()),
+            project.getOpenDate(),
+            project.getCloseDate(),
+            project.getManager(), // Include manager
+            project.getOfficerSlot(),
+            project.getOfficerList(),
+            project.getVisibility()
+        );
     }
 
     /**
@@ -269,60 +289,65 @@ public class Applicant {
      * @throws IllegalArgumentException If inputs are invalid.
      */
     public boolean applyForProject(String projectName, String flatType) {
-        if (projectName == null || projectName.trim().isEmpty()) {
-            System.out.println("Project name cannot be empty.");
-            return false;
-        }
-        if (!Validator.isValidFlatType(flatType)) {
-            System.out.println("Invalid flat type: Must be '2-Room' or '3-Room'.");
-            return false;
-        }
-        if (!Validator.isValidProjectName(projectName)) {
-            System.out.println("Invalid or non-existent project name.");
-            return false;
-        }
-        if (hasExistingApplication()) {
-            System.out.println("You have already applied for a project.");
-            return false;
-        }
-
-        // Check eligibility for flat type
-        if (flatType.equals("3-Room")) {
-            if (getMaritalStatus().equalsIgnoreCase("Single") || getAge() < 21) {
-                System.out.println("You are not eligible to apply for a 3-Room flat.");
+        long started = Metrics.start();
+        try {
+            if (projectName == null || projectName.trim().isEmpty()) {
+                System.out.println("Project name cannot be empty.");
                 return false;
             }
-        }
+            if (!Validator.isValidFlatType(flatType)) {
+                System.out.println("Invalid flat type: Must be '2-Room' or '3-Room'.");
+                return false;
+            }
+            if (!Validator.isValidProjectName(projectName)) {
+                System.out.println("Invalid or non-existent project name.");
+                return false;
+            }
+            if (hasExistingApplication()) {
+                System.out.println("You have already applied for a project.");
+                return false;
+            }
+
+            // Check eligibility for flat type
+            if (flatType.equals("3-Room")) {
+                if (getMaritalStatus().equalsIgnoreCase("Single") || getAge() < 21) {
+                    System.out.println("You are not eligible to apply for a 3-Room flat.");
+                    return false;
+                }
+            }
 
-        boolean exists = false;
-        boolean typeAvail = false;
-        for (BTOProject project : viewAvailableProjects()) {
-            if (project.getProjectName().equals(projectName)) {
-                exists = true;
+            boolean exists = false;
+            boolean typeAvail = false;
+            for (BTOProject project : viewAvailableProjects()) {
+                if (project.getProjectName().equals(projectName)) {
+                    exists = true;
 
-                for (Room room : project.getRooms()) {
-                    if (room.getRoomType().equals(flatType) && room.getUnits() > 0) {
-                        typeAvail = true;
-                        break;
+                    for (Room room : project.getRooms()) {
+                        if (room.getRoomType().equals(flatType) && room.getUnits() > 0) {
+                            typeAvail = true;
+                            break;
+                        }
                     }
+                    break;
                 }
-                break;
             }
-        }
-        //Check if Applicant can see
-        if (!exists) {
-            System.out.println("You are not allowed to apply for this project!");
-            return false;
-        }
+            //Check if Applicant can see
+            if (!exists) {
+                System.out.println("You are not allowed to apply for this project!");
+                return false;
+            }
 
-        if (!typeAvail) {
-            System.out.println("Chosen flat type is no longer available.");
-            return false;
-        }
+            if (!typeAvail) {
+                System.out.println("Chosen flat type is no longer available.");
+                return false;
+            }
 
-        BTOApplication.applyForFlat(this, BTOProject.getProjectByName(projectName), flatType);
-        System.out.println("Application submitted successfully.");
-        return true;
+            BTOApplication.applyForFlat(this, BTOProject.getProjectByName(projectName), flatType);
+            System.out.println("Application submitted successfully.");
+            return true;
+        } finally {
+            Metrics.getInstance().record("Applicant.applyForProject", started);
+        }
     }
 
     /**
@@ -364,8 +389,12 @@ public class Applicant {
             return false;
         }
         
-        String[] row = {getNric(), myApp.getProjectObject().getProjectName(), myApp.getFlatType(), "Pending"};
-        CSVUtils.appendToCSV("data/withdrawals.csv", row);
+        WithdrawalStore store = WithdrawalStore.getInstance();
+        if (store.getPendingByNric(getNric()) != null) {
+            System.out.println("A withdrawal request is already pending for your application.");
+            return false;
+        }
+        store.submit(getNric(), myApp.getProjectObject().getProjectName(), myApp.getFlatType());
 
         System.out.println("Withdrawal request submitted.");
         return true;
@@ -389,8 +418,7 @@ public class Applicant {
         if (!Validator.isValidEnquiryDetail(detail)) {
             throw new IllegalArgumentException("Invalid enquiry detail: Must be non-empty and less than 500 characters.");
         }
-        List<Enquiry> enquiries = Enquiry.getEnquiries();
-        int id = enquiries.isEmpty() ? 1 : enquiries.get(enquiries.size() - 1).getId() + 1;
+        int id = Enquiry.nextEnquiryId();
         Enquiry enquiry = new Enquiry(id, getNric(), project, title, detail, "");
         Enquiry.appendEnquiry(enquiry);
         System.out.println("Enquiry submitted successfully.");
@@ -402,31 +430,33 @@ public class Applicant {
      * @return A list of the applicant's enquiries.
      */
     public List<Enquiry> viewMyEnquiries() {
-        List<Enquiry> allEnquiries = Enquiry.getEnquiries();
-        if (allEnquiries == null) {
-            return new ArrayList<>();
-        }
-        List<Enquiry> myEnquiries = new ArrayList<>();
-        for (Enquiry enquiry : allEnquiries) {
-            if (enquiry != null && enquiry.getEnquirerNRIC().equals(getNric())) {
-                myEnquiries.add(enquiry);
-            }
-        }
-        return myEnquiries;
+        return EnquiryStore.getInstance().getByEnquirer(getNric());
+    }
+
+    /**
+     * Retrieves one page of enquiries submitted by the applicant.
+     * 
+     * @param cursor The cursor returned by the previous page, or {@link EnquiryPage#START}.
+     * @param pageSize The maximum number of enquiries on the page.
+     * @return The requested page of the applicant's enquiries.
+     * @throws IllegalArgumentException If the page size is not positive.
+     */
+    public EnquiryPage viewMyEnquiries(int cursor, int pageSize) {
+        return Enquiry.getEnquiriesByEnquirer(getNric(), cursor, pageSize);
     }
 
     /**
      * Edits an existing enquiry submitted by the applicant.
      * 
-     * @param index The index of the enquiry to edit (0-based).
+     * @param enquiryId The ID of the enquiry to edit.
      * @param newTitle The new title for the enquiry.
      * @param newDetail The new details for the enquiry.
      * @return True if the enquiry is updated successfully, false otherwise.
      * @throws IllegalArgumentException If inputs are invalid.
      */
-    public boolean editEnquiry(int index, String newTitle, String newDetail) {
-        if (index < 0) {
-            throw new IllegalArgumentException("Invalid index: Index must be non-negative.");
+    public boolean editEnquiry(int enquiryId, String newTitle, String newDetail) {
+        if (enquiryId < 0) {
+            throw new IllegalArgumentException("Invalid enquiry ID: Must be non-negative.");
         }
         if (!Validator.isValidEnquiryTitle(newTitle)) {
             throw new IllegalArgumentException("Invalid enquiry title: Must be non-empty and less than 100 characters.");
@@ -434,15 +464,8 @@ public class Applicant {
         if (!Validator.isValidEnquiryDetail(newDetail)) {
             throw new IllegalArgumentException("Invalid enquiry detail: Must be non-empty and less than 500 characters.");
         }
-        List<Enquiry> myEnquiries = viewMyEnquiries();
-        if (index >= myEnquiries.size()) {
-            System.out.println("Invalid enquiry index.");
-            return false;
-        }
-        boolean status = Enquiry.updateEnquiry(getNric(), index, newTitle, newDetail);
-        if (status) {
-            System.out.println("Enquiry updated successfully.");
-        } else {
+        boolean status = Enquiry.updateEnquiry(getNric(), enquiryId, newTitle, newDetail);
+        if (!status) {
             System.out.println("Failed to update enquiry.");
         }
         return status;
@@ -451,18 +474,16 @@ public class Applicant {
     /**
      * Deletes an existing enquiry submitted by the applicant.
      * 
-     * @param index The index of the enquiry to delete (0-based).
+     * @param enquiryId The ID of the enquiry to delete.
      * @return True if the enquiry is deleted successfully, false otherwise.
-     * @throws IllegalArgumentException If the index is invalid.
+     * @throws IllegalArgumentException If the enquiry ID is invalid.
      */
-    public boolean deleteEnquiry(int index) {
-        if (index < 0) {
-            throw new IllegalArgumentException("Invalid index: Index must be non-negative.");
+    public boolean deleteEnquiry(int enquiryId) {
+        if (enquiryId < 0) {
+            throw new IllegalArgumentException("Invalid enquiry ID: Must be non-negative.");
         }
-        boolean status = Enquiry.removeEnquiry(getNric(), index);
-        if (status) {
-            System.out.println("Enquiry deleted successfully.");
-        } else {
+        boolean status = Enquiry.removeEnquiry(getNric(), enquiryId);
+        if (!status) {
             System.out.println("Failed to delete enquiry.");
         }
         return status;
@@ -0,0 +1,173 @@
+package model;
+
+import java.util.*;
+
+import utils.EventBus;
+import utils.RowVersions;
+
+/**
+ * Approves or rejects pending BTO applications for a project in bulk. The application rows are
+ * read once and the project's room inventory is checked in memory. All decisions are then saved
+ * with a single atomic write of the applications file, and the batch is run again from the start
+ * if another writer changed one of the same rows first.
+ *
+ * <p>A flat type's remaining capacity is its available units minus the units held by
+ * applicants approved but not yet booked (see {@link ReservationManager}). An approval is only
+ * granted while capacity remains, so the project is never approved beyond its units, and each
+ * approval takes a hold. The holds are taken, with capacity checked again under the reservation
+ * lock, before the applications are written and released if the write fails, so two batches
+ * running at once cannot both approve the last unit; the batch that lost it runs again.</p>
+ *
+ * @author SC2002Team
+ */
+public class ApplicationBatch {
+
+    private ApplicationBatch() {
+    }
+
+    /**
+     * Approves or rejects the pending applications of the given applicants for a project.
+     *
+     * @param projectName The name of the project.
+     * @param nrics The NRICs of the applicants, processed in order.
+     * @param approve True to approve, false to reject.
+     * @return The outcome for each NRIC.
+     * @throws IllegalArgumentException If the project does not exist or the NRIC list is null.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public static BatchResult decide(String projectName, Collection<String> nrics, boolean approve) {
+        if (nrics == null) {
+            throw new IllegalArgumentException("NRIC list cannot be null.");
+        }
+        return RowVersions.retry(() -> run(projectName, nrics, approve));
+    }
+
+    /**
+     * Approves pending applications for a project in the order they were submitted, until each flat
+     * type runs out of capacity. Applications beyond capacity are left pending.
+     *
+     * @param projectName The name of the project.
+     * @return The outcome for each applicant with a pending application.
+     * @throws IllegalArgumentException If the project does not exist.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public static BatchResult approveAllPending(String projectName) {
+        return RowVersions.retry(() -> run(projectName, null, true));
+    }
+
+    /**
+     * Computes the remaining approval capacity of each flat type of a project: its units minus
+     * the units held for approved applicants.
+     *
+     * @param project The project.
+     * @return A map from lower-cased flat type to remaining capacity.
+     */
+    static Map<String, Integer> remainingCapacity(BTOProject project) {
+        ReservationManager reservations = ReservationManager.getInstance();
+        Map<String, Integer> capacity = new HashMap<>();
+        for (Room room : project.getRooms()) {
+            capacity.merge(room.getRoomType().trim().toLowerCase(),
+                    reservations.available(project.getProjectName(), room.getRoomType(), room.getUnits()), Integer::sum);
+        }
+        return capacity;
+    }
+
+    /**
+     * Gets the units of each flat type of a project not yet booked.
+     *
+     * @param project The project.
+     * @return A map from lower-cased flat type to units.
+     */
+    private static Map<String, Integer> units(BTOProject project) {
+        Map<String, Integer> units = new HashMap<>();
+        for (Room room : project.getRooms()) {
+            units.merge(room.getRoomType().trim().toLowerCase(), room.getUnits(), Integer::sum);
+        }
+        return units;
+    }
+
+    /**
+     * Processes a batch of decisions.
+     *
+     * @param projectName The name of the project.
+     * @param nrics The NRICs to process, or null to approve every pending application up to capacity.
+     * @param approve True to approve, false to reject.
+     * @return The outcome for each NRIC.
+     */
+    private static BatchResult run(String projectName, Collection<String> nrics, boolean approve) {
+        if (projectName == null || projectName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Project name cannot be empty.");
+        }
+        BTOProject project = BTOProject.getProjectByName(projectName.trim());
+        if (project == null) {
+            throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+        }
+        BatchResult result = new BatchResult();
+        List<String[]> rows = BTOApplication.readRows();
+
+        // Pending applications for this project, keyed by NRIC in file order.
+        Map<String, String[]> pending = new LinkedHashMap<>();
+        for (String[] row : rows) {
+            if (row.length >= 4 && row[1].trim().equalsIgnoreCase(project.getProjectName())
+                    && row[3].trim().equalsIgnoreCase("Pending")) {
+                pending.putIfAbsent(row[0].trim(), row);
+            }
+        }
+        Map<String, Integer> capacity = remainingCapacity(project);
+        List<String[]> approvals = new ArrayList<>();
+        List<ApplicationStatusChanged> events = new ArrayList<>();
+
+        Collection<String> targets = nrics != null ? nrics : new ArrayList<>(pending.keySet());
+        boolean changed = false;
+        for (String nric : targets) {
+            String key = nric == null ? "" : nric.trim();
+            if (result.getOutcomes().containsKey(key)) {
+                continue;
+            }
+            String[] row = pending.get(key);
+            if (row == null) {
+                result.fail(key, "No pending application for project: " + project.getProjectName());
+                continue;
+            }
+            if (!approve) {
+                row[3] = "Unsuccessful";
+                events.add(new ApplicationStatusChanged(key, project.getProjectName(), row[2].trim(), "Pending", "Unsuccessful"));
+                changed = true;
+                result.succeed(key, "Rejected.");
+                continue;
+            }
+            String flatType = row[2].trim().toLowerCase();
+            Integer left = capacity.get(flatType);
+            if (left == null) {
+                result.fail(key, "Flat type not offered by project: " + row[2]);
+            } else if (left <= 0) {
+                result.fail(key, "No units available for flat type: " + row[2] + " (left pending).");
+            } else {
+                capacity.put(flatType, left - 1);
+                row[3] = "Successful";
+                approvals.add(new String[] { key, project.getProjectName(), row[2].trim() });
+                events.add(new ApplicationStatusChanged(key, project.getProjectName(), row[2].trim(), "Pending", "Successful"));
+                changed = true;
+                result.succeed(key, "Approved for " + row[2] + ".");
+            }
+        }
+        if (changed) {
+            // Take the holds before the write: they count against capacity from this point, so a
+            // concurrent batch sees them, and a batch that lost the last unit runs again.
+            ReservationManager reservations = ReservationManager.getInstance();
+            reservations.reserveAll(approvals, units(project));
+            try {
+                BTOApplication.writeRows(rows);
+            } catch (RuntimeException e) {
+                List<String> held = new ArrayList<>();
+                for (String[] approval : approvals) {
+                    held.add(approval[0]);
+                }
+                reservations.releaseAll(held);
+                throw e;
+            }
+            EventBus.getDefault().publishAll(events);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+package model;
+
+import utils.EventBus;
+import utils.FlightEvents;
+
+/**
+ * Event published when a BTO application is created or its status changes. Once
+ * {@link #recordFlightEvents()} has been called at start-up, every published change is also
+ * emitted as a {@link FlightEvents.ApplicationStatusChange} for flight recordings.
+ *
+ * @author SC2002Team
+ */
+public class ApplicationStatusChanged {
+    private static boolean recording = false;
+
+    final private String applicantNRIC;
+    final private String projectName;
+    final private String flatType;
+    final private String oldStatus;
+    final private String newStatus;
+
+    /**
+     * Constructs an ApplicationStatusChanged event.
+     *
+     * @param applicantNRIC The NRIC of the applicant.
+     * @param projectName The name of the project applied for.
+     * @param flatType The flat type applied for.
+     * @param oldStatus The previous status, or null for a new application.
+     * @param newStatus The new status.
+     */
+    public ApplicationStatusChanged(String applicantNRIC, String projectName, String flatType, String oldStatus, String newStatus) {
+        this.applicantNRIC = applicantNRIC;
+        this.projectName = projectName;
+        this.flatType = flatType;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+    }
+
+    /**
+     * Gets the NRIC of the applicant.
+     *
+     * @return The NRIC of the applicant.
+     */
+    public String getApplicantNRIC() {
+        return applicantNRIC;
+    }
+
+    /**
+     * Gets the name of the project.
+     *
+     * @return The name of the project.
+     */
+    public String getProjectName() {
+        return projectName;
+    }
+
+    /**
+     * Gets the flat type.
+     *
+     * @return The flat type.
+     */
+    public String getFlatType() {
+        return flatType;
+    }
+
+    /**
+     * Gets the previous status.
+     *
+     * @return The previous status, or null for a new application.
+     */
+    public String getOldStatus() {
+        return oldStatus;
+    }
+
+    /**
+     * Gets the new status.
+     *
+     * @return The new status.
+     */
+    public String getNewStatus() {
+        return newStatus;
+    }
+
+    /**
+     * Subscribes to changes published on the default {@link EventBus} and emits each as a flight
+     * recorder event. Calling this again has no effect.
+     */
+    public static synchronized void recordFlightEvents() {
+        if (!recording) {
+            EventBus.getDefault().subscribe(ApplicationStatusChanged.class, ApplicationStatusChanged::record);
+            recording = true;
+        }
+    }
+
+    /**
+     * Emits a published change as a flight recorder event, on the publishing thread.
+     *
+     * @param change The change published.
+     */
+    private static void record(ApplicationStatusChanged change) {
+        FlightEvents.ApplicationStatusChange event = new FlightEvents.ApplicationStatusChange();
+        if (event.shouldCommit()) {
+            event.applicantNRIC = change.applicantNRIC;
+            event.projectName = change.projectName;
+            event.flatType = change.flatType;
+            event.oldStatus = change.oldStatus;
+            event.newStatus = change.newStatus;
+            event.commit();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ApplicationStatusChanged[" + applicantNRIC + ", " + projectName + ", " + flatType + ", "
+                + oldStatus + " -> " + newStatus + "]";
+    }
+}
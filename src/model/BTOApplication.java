@@ -1,11 +1,17 @@
 package model;
 
-import java.io.*;
-
 import java.util.*;
+import java.util.function.Function;
 
 import utils.CSVUtils;
+import utils.EventBus;
+import utils.Log;
+import utils.Metrics;
+import utils.RowVersions;
+import utils.StaleVersionException;
+import utils.Transaction;
 import utils.Validator;
+import utils.VersionedRows;
 
 /**
  * Represents a BTO application for a flat in the HDB BTO Management System.
@@ -18,8 +24,11 @@ public class BTOApplication {
     final private BTOProject project;
     private String status;
     private String flatType;
+    private long version;
 
-    private static final String APPLICATIONS_CSV = "data/FlatApplications.csv";
+    static final String APPLICATIONS_CSV = "data/FlatApplications.csv";
+    private static final RowVersions VERSIONS = new RowVersions(APPLICATIONS_CSV,
+            row -> row.length >= 4 ? versionKey(row[0], row[1]) : null);
 
     /**
      * Constructs a BTOApplication with the specified details.
@@ -134,6 +143,16 @@ public class BTOApplication {
         return flatType;
     }
 
+    /**
+     * Gets the version of the application's row when it was read. Updates based on an older
+     * version are rejected.
+     *
+     * @return The row version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Gets the NRIC of the applicant.
      *
@@ -196,16 +215,21 @@ public class BTOApplication {
             throw new IllegalArgumentException("Invalid flat type: Must be '2-Room' or '3-Room'.");
         }
         BTOApplication application = new BTOApplication(applicant, project, flatType, "Pending");
-        CSVUtils.appendToCSV(APPLICATIONS_CSV, application.toCSVRow());
+        VERSIONS.locked(() -> CSVUtils.appendToCSV(APPLICATIONS_CSV, application.toCSVRow()));
+        EventBus.getDefault().publish(new ApplicationStatusChanged(
+                application.getApplicantNRIC(), application.getProjectName(), flatType, null, "Pending"));
         System.out.println("Flat application submitted successfully.");
     }
 
 
     /**
-     * Updates an existing BTO application in the CSV file.
+     * Updates an existing BTO application in the CSV file. The update is rejected if the
+     * application's row was changed since the application was read.
      *
      * @param updatedApplication The updated application object.
      * @throws IllegalArgumentException If the application is null or invalid.
+     * @throws StaleVersionException If the application was changed by someone else since it was read.
+     * @throws RuntimeException If an error occurs while writing the CSV file.
      */
     public static void updateBTOApplication(BTOApplication updatedApplication) {
         if (updatedApplication == null) {
@@ -214,32 +238,35 @@ public class BTOApplication {
         if (updatedApplication.getApplicantNRIC() == null || updatedApplication.getProjectName() == null) {
             throw new IllegalArgumentException("Applicant NRIC or project name cannot be null.");
         }
-        List<String[]> rows = CSVUtils.readCSV(APPLICATIONS_CSV);
+        String key = versionKey(updatedApplication.getApplicantNRIC(), updatedApplication.getProjectName());
+        VersionedRows rows = VERSIONS.read();
+        if (rows.version(key) != updatedApplication.getVersion()) {
+            throw new StaleVersionException(key, updatedApplication.getVersion(), rows.version(key));
+        }
         boolean applicationFound = false;
-
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(APPLICATIONS_CSV))) {
-            for (String[] row : rows) {
-                if (row.length >= 4 &&
-                        row[0].equals(updatedApplication.getApplicantNRIC()) &&
-                        row[1].equals(updatedApplication.getProjectName()) &&
-                        row[2].equals(updatedApplication.getFlatType())) {
-                    row[3] = updatedApplication.getStatus();
-                    applicationFound = true;
-                } else if (row.length < 4) {
-                    System.out.println("Skipping malformed row: " + String.join(",", row));
-                    continue;
-                }
-                bw.write(String.join(",", row));
-                bw.newLine();
+        String oldStatus = null;
+        for (Iterator<String[]> it = rows.iterator(); it.hasNext();) {
+            String[] row = it.next();
+            if (row.length < 4) {
+                Log.warn("{}: dropping malformed row: {}", APPLICATIONS_CSV, row);
+                it.remove();
+            } else if (row[0].equals(updatedApplication.getApplicantNRIC()) &&
+                    row[1].equals(updatedApplication.getProjectName()) &&
+                    row[2].equals(updatedApplication.getFlatType())) {
+                oldStatus = row[3];
+                row[3] = updatedApplication.getStatus();
+                applicationFound = true;
             }
-
-            if (applicationFound) {
-                System.out.println("Flat application updated successfully.");
-            } else {
-                System.out.println("Flat application not found for the given NRIC, project, and flat type.");
-            }
-        } catch (IOException e) {
-            System.out.println("Error updating application: " + e.getMessage());
+        }
+        if (!applicationFound) {
+            System.out.println("Flat application not found for the given NRIC, project, and flat type.");
+            return;
+        }
+        updatedApplication.version = VERSIONS.write(rows).getOrDefault(key, 0L);
+        System.out.println("Flat application updated successfully.");
+        if (!oldStatus.equalsIgnoreCase(updatedApplication.getStatus())) {
+            EventBus.getDefault().publish(new ApplicationStatusChanged(updatedApplication.getApplicantNRIC(),
+                    updatedApplication.getProjectName(), updatedApplication.getFlatType(), oldStatus, updatedApplication.getStatus()));
         }
     }
 
@@ -251,68 +278,62 @@ public class BTOApplication {
      * @throws IllegalArgumentException If the NRIC is invalid.
      */
     public static List<BTOApplication> viewApplications(String applicantNRIC) {
-        if (!Validator.isValidNRIC(applicantNRIC)) {
-            throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
-        }
-        List<BTOApplication> applications = getApplications();
-        if (applications == null) {
-            return new ArrayList<>();
-        }
-        List<BTOApplication> applicantApps = new ArrayList<>();
-        for (BTOApplication app : applications) {
-            if (app != null && app.getApplicantNRIC() != null && app.getApplicantNRIC().equals(applicantNRIC)) {
-                applicantApps.add(app);
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidNRIC(applicantNRIC)) {
+                throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+            }
+            List<BTOApplication> applicantApps = new ArrayList<>();
+            for (BTOApplication app : DataModel.getCurrent().getApplications(applicantNRIC)) {
+                applicantApps.add(app.copy());
             }
+            return applicantApps;
+        } finally {
+            Metrics.getInstance().record("BTOApplication.viewApplications", started);
         }
-        return applicantApps;
     }
 
     /**
-     * Retrieves all BTO applications from the CSV file.
+     * Retrieves all BTO applications, as resolved in the current {@link DataModel}. The model
+     * reads the file again only after it has been written. Each application returned is a copy
+     * that the caller may change; its applicant and project are shared and must not be changed.
      *
-     * @return A list of all BTO applications, or an empty list if an error occurs.
+     * @return A list of all BTO applications.
+     * @throws RuntimeException If an error occurs while reading the CSV files.
      */
     public static List<BTOApplication> getApplications() {
-        List<String[]> raw = CSVUtils.readCSV(APPLICATIONS_CSV);
-        if (raw == null) {
-            return new ArrayList<>();
-        }
-        List<BTOApplication> applications = new ArrayList<>();
-        for (String[] row : raw) {
-            try {
-                if (row.length >= 4) {
-                    applications.add(fromCSVRow(row));
-                } else {
-                    System.out.println("Skipping malformed row: " + String.join(",", row));
-                }
-            } catch (IllegalArgumentException e) {
-                System.out.println("Error parsing application row: " + e.getMessage());
+        long started = Metrics.start();
+        try {
+            List<BTOApplication> shared = DataModel.getCurrent().getApplications();
+            List<BTOApplication> applications = new ArrayList<>(shared.size());
+            for (BTOApplication application : shared) {
+                applications.add(application.copy());
             }
+            return applications;
+        } finally {
+            Metrics.getInstance().record("BTOApplication.getApplications", started);
         }
-        return applications;
     }
 
     /**
-     * Retrieves a BTO application by applicant NRIC.
+     * Retrieves a BTO application by applicant NRIC, looked up in the current {@link DataModel}'s
+     * applications by NRIC rather than by going through every application.
      *
      * @param nric The NRIC of the applicant.
-     * @return The BTO application if found, null otherwise.
+     * @return The first BTO application of the applicant in file order, or null if none.
      * @throws IllegalArgumentException If the NRIC is invalid.
      */
     public static BTOApplication getApplicationByNRIC(String nric) {
-        if (!Validator.isValidNRIC(nric)) {
-            throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
-        }
-        List<BTOApplication> applications = getApplications();
-        if (applications == null) {
-            return null;
-        }
-        for (BTOApplication app : applications) {
-            if (app != null && app.getApplicantNRIC() != null && app.getApplicantNRIC().equals(nric)) {
-                return app;
+        long started = Metrics.start();
+        try {
+            if (!Validator.isValidNRIC(nric)) {
+                throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
             }
+            List<BTOApplication> applications = DataModel.getCurrent().getApplications(nric);
+            return applications.isEmpty() ? null : applications.get(0).copy();
+        } finally {
+            Metrics.getInstance().record("BTOApplication.getApplicationByNRIC", started);
         }
-        return null;
     }
 
     /**
@@ -331,7 +352,110 @@ public class BTOApplication {
                 rows.add(app.toCSVRow());
             }
         }
-        CSVUtils.writeCSV(APPLICATIONS_CSV, rows);
+        VERSIONS.write(rows);
+    }
+
+    /**
+     * Reads the raw rows of the applications CSV file without resolving applicants or projects.
+     * Used by batch operations that only need to inspect and change row fields. The rows carry
+     * the versions they were read at, so writing them back fails if another writer got there first.
+     *
+     * @return The rows of the file as [NRIC, project name, flat type, status].
+     */
+    static VersionedRows readRows() {
+        return VERSIONS.read();
+    }
+
+    /**
+     * Copies an application from the shared {@link DataModel}, so that the caller may change it.
+     * The applicant and project are shared.
+     *
+     * @return The copy, at the same version.
+     */
+    private BTOApplication copy() {
+        BTOApplication copy = new BTOApplication(applicant, project, flatType, status);
+        copy.version = version;
+        return copy;
+    }
+
+    /**
+     * Gets the path of the file holding the row versions of the applications.
+     *
+     * @return The versions file path.
+     */
+    static String versionsPath() {
+        return VERSIONS.getVersionsPath();
+    }
+
+    /**
+     * Builds applications from raw rows, resolving projects against a table read once instead of
+     * reading the projects file again for every row as {@link #fromCSVRow(String[])} does. Rows
+     * that are invalid or refer to an unknown applicant or project are skipped and reported in
+     * the log.
+     *
+     * @param rows The rows as returned by {@link #readRows()}.
+     * @param applicants Looks up an applicant by NRIC, returning null if there is none.
+     * @param projects Every known project by name.
+     * @return The applications, each carrying the version its row was read at.
+     */
+    static List<BTOApplication> resolveAll(VersionedRows rows, Function<String, Applicant> applicants,
+            Map<String, BTOProject> projects) {
+        List<BTOApplication> applications = new ArrayList<>(rows.size());
+        Log.Tally skipped = Log.tally(APPLICATIONS_CSV);
+        for (String[] row : rows) {
+            try {
+                validateRow(row);
+                Applicant applicant = applicants.apply(row[0]);
+                if (applicant == null) {
+                    throw new IllegalArgumentException("Applicant not found for NRIC: " + row[0]);
+                }
+                BTOProject project = projects.get(row[1]);
+                if (project == null) {
+                    throw new IllegalArgumentException("Project not found: " + row[1]);
+                }
+                BTOApplication application = new BTOApplication(applicant, project, row[2], row[3]);
+                application.version = rows.version(versionKey(row[0], row[1]));
+                applications.add(application);
+            } catch (IllegalArgumentException e) {
+                skipped.add(e.getMessage(), row);
+            }
+        }
+        skipped.flush();
+        return applications;
+    }
+
+    /**
+     * Atomically replaces the applications CSV file with the given raw rows.
+     *
+     * @param rows The rows to write, as returned by {@link #readRows()}.
+     * @throws IllegalArgumentException If the rows are invalid.
+     * @throws StaleVersionException If a changed row was changed by someone else since it was read.
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    static void writeRows(List<String[]> rows) {
+        VERSIONS.write(rows);
+    }
+
+    /**
+     * Stages the raw rows of the applications CSV file in a transaction instead of writing them.
+     *
+     * @param tx The transaction.
+     * @param rows The rows to write, as returned by {@link #readRows()}.
+     */
+    static void stageRows(Transaction tx, List<String[]> rows) {
+        VERSIONS.stage(tx, rows);
+    }
+
+    /**
+     * Gives the key of an application's row in the row versions: an applicant has at most one
+     * application per project.
+     *
+     * @param nric The applicant's NRIC.
+     * @param projectName The project name.
+     * @return The row key.
+     */
+    static String versionKey(String nric, String projectName) {
+        return nric.trim() + "|" + projectName.trim().toLowerCase();
     }
 
     /**
@@ -342,6 +466,19 @@ public class BTOApplication {
      * @throws IllegalArgumentException If the row is invalid or data is missing.
      */
     public static BTOApplication fromCSVRow(String[] row) {
+        validateRow(row);
+        Applicant applicant = Applicant.getApplicantByNRIC(row[0]);
+        if (applicant == null) {
+            throw new IllegalArgumentException("Applicant not found for NRIC: " + row[0]);
+        }
+        BTOProject project = BTOProject.getProjectByName(row[1]);
+        if (project == null) {
+            throw new IllegalArgumentException("Project not found: " + row[1]);
+        }
+        return new BTOApplication(applicant, project, row[2], row[3]);
+    }
+
+    private static void validateRow(String[] row) {
         if (row == null || row.length < 4) {
             throw new IllegalArgumentException("Invalid CSV row: Must have at least 4 fields.");
         }
@@ -357,15 +494,6 @@ public class BTOApplication {
         if (!isValidStatus(row[3])) {
             throw new IllegalArgumentException("Invalid status in CSV row: Must be 'Pending', 'Successful', 'Unsuccessful', 'Booked', or 'Withdrawn'.");
         }
-        Applicant applicant = Applicant.getApplicantByNRIC(row[0]);
-        if (applicant == null) {
-            throw new IllegalArgumentException("Applicant not found for NRIC: " + row[0]);
-        }
-        BTOProject project = BTOProject.getProjectByName(row[1]);
-        if (project == null) {
-            throw new IllegalArgumentException("Project not found: " + row[1]);
-        }
-        return new BTOApplication(applicant, project, row[2], row[3]);
     }
 
     /**
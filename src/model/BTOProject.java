@@ -5,8 +5,16 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
-import utils.CSVUtils;
+import utils.CommittedNotAppliedException;
+import utils.EventBus;
+import utils.Log;
+import utils.Metrics;
+import utils.RowVersions;
+import utils.StaleVersionException;
+import utils.Transaction;
+import utils.TransactionManager;
 import utils.Validator;
+import utils.VersionedRows;
 
 /**
  * Represents a BTO project in the HDB BTO Management System.
@@ -24,8 +32,11 @@ public class BTOProject {
     private int officerSlot;
     private ArrayList<String> officerList;
     private String visibility;
+    private long version;
 
-    private static final String PROJECTS_CSV = "data/ProjectList.csv";
+    static final String PROJECTS_CSV = "data/ProjectList.csv";
+    private static final RowVersions VERSIONS = new RowVersions(PROJECTS_CSV,
+            row -> row.length >= 8 ? versionKey(row[0]) : null);
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("M/dd/yyyy");
 
     /**
@@ -88,6 +99,16 @@ public class BTOProject {
         }
     }
 
+    /**
+     * Gets the version of the project's row when it was read. Edits based on an older version are
+     * rejected.
+     *
+     * @return The row version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Gets the project name.
      *
@@ -338,98 +359,107 @@ public class BTOProject {
      * @return A list of BTO projects, or an empty list if an error occurs.
      */
     public static List<BTOProject> getProjects() {
-        List<BTOProject> projectList = new ArrayList<>();
-        List<String[]> rows = CSVUtils.readCSV(PROJECTS_CSV);
-        if (rows == null) {
-            return projectList;
-        }
+        long started = Metrics.start();
+        try {
+            List<BTOProject> projectList = new ArrayList<>();
+            VersionedRows rows = VERSIONS.read();
+            Log.Tally skipped = Log.tally(PROJECTS_CSV);
+
+            for (String[] row : rows) {
+                try {
+                    if (row.length < 8) {
+                        skipped.add("Malformed row", row);
+                        continue;
+                    }
+                    String projectName = row[0];
+                    String neighborhood = row[1];
+                    if (neighborhood == null || neighborhood.trim().isEmpty()) {
+                        skipped.add("Empty neighborhood", row);
+                        continue;
+                    }
 
-        for (String[] row : rows) {
-            try {
-                if (row.length < 8) {
-                    System.out.println("Skipping malformed row: " + String.join(",", row));
-                    continue;
-                }
-                String projectName = row[0];
-                String neighborhood = row[1];
-                if (neighborhood == null || neighborhood.trim().isEmpty()) {
-                    System.out.println("Empty neighborhood in row: " + String.join(",", row));
-                    continue;
-                }
+                    // Determine how many flat types exist (assumes flat types are in groups of 3)
+                    int roomCount = (row.length - 8) / 3;
+                    if (roomCount < 1) {
+                        skipped.add("No room types defined", row);
+                        continue;
+                    }
+                    // A bad room type drops only that room; the row counts as bad only if no room is left.
+                    ArrayList<Room> rooms = new ArrayList<>();
+                    String roomProblem = null;
+                    for (int i = 0; i < roomCount; i++) {
+                        if (2 + i * 3 + 2 >= row.length) {
+                            roomProblem = roomProblem != null ? roomProblem : "Incomplete room data";
+                            break;
+                        }
+                        String type = row[2 + i * 3];
+                        if (!Validator.isValidFlatType(type)) {
+                            roomProblem = roomProblem != null ? roomProblem : "Invalid room type";
+                            continue;
+                        }
+                        int units = Integer.parseInt(row[3 + i * 3]);
+                        if (units < 0) {
+                            roomProblem = roomProblem != null ? roomProblem : "Negative units";
+                            continue;
+                        }
+                        int price = Integer.parseInt(row[4 + i * 3]);
+                        if (price < 0) {
+                            roomProblem = roomProblem != null ? roomProblem : "Negative price";
+                            continue;
+                        }
+                        rooms.add(new Room(type, units, price));
+                    }
+                    if (rooms.isEmpty()) {
+                        skipped.add(roomProblem != null ? "No valid rooms: " + roomProblem : "No valid rooms", row);
+                        continue;
+                    }
+                    if (roomProblem != null) {
+                        Log.debug("Dropped room type(s) from project {}: {}", projectName, roomProblem);
+                    }
 
-                // Determine how many flat types exist (assumes flat types are in groups of 3)
-                int roomCount = (row.length - 8) / 3;
-                if (roomCount < 1) {
-                    System.out.println("No room types defined in row: " + String.join(",", row));
-                    continue;
-                }
-                ArrayList<Room> rooms = new ArrayList<>();
-                for (int i = 0; i < roomCount; i++) {
-                    if (2 + i * 3 + 2 >= row.length) {
-                        System.out.println("Incomplete room data in row: " + String.join(",", row));
-                        break;
+                    String openDate = row[2 + roomCount * 3];
+                    String closeDate = row[3 + roomCount * 3];
+                    if (!Validator.isValidDate(openDate) || !Validator.isValidDate(closeDate)) {
+                        skipped.add("Invalid dates", row);
+                        continue;
                     }
-                    String type = row[2 + i * 3];
-                    if (!Validator.isValidFlatType(type)) {
-                        System.out.println("Invalid room type in row: " + type);
+                    String manager = row[4 + roomCount * 3];
+                    if (!Validator.isValidName(manager)) {
+                        skipped.add("Invalid manager name", row);
                         continue;
                     }
-                    int units = Integer.parseInt(row[3 + i * 3]);
-                    if (units < 0) {
-                        System.out.println("Negative units in row: " + String.join(",", row));
+                    int officerSlot = Integer.parseInt(row[5 + roomCount * 3]);
+                    if (officerSlot < 0) {
+                        skipped.add("Negative officer slots", row);
                         continue;
                     }
-                    int price = Integer.parseInt(row[4 + i * 3]);
-                    if (price < 0) {
-                        System.out.println("Negative price in row: " + String.join(",", row));
+                    String officerList = row[6 + roomCount * 3];
+                    String visibility = row[7 + roomCount * 3];
+                    if (!Validator.isValidVisibility(visibility)) {
+                        skipped.add("Invalid visibility", row);
                         continue;
                     }
-                    rooms.add(new Room(type, units, price));
-                }
-                if (rooms.isEmpty()) {
-                    System.out.println("No valid rooms in row: " + String.join(",", row));
-                    continue;
-                }
 
-                String openDate = row[2 + roomCount * 3];
-                String closeDate = row[3 + roomCount * 3];
-                if (!Validator.isValidDate(openDate) || !Validator.isValidDate(closeDate)) {
-                    System.out.println("Invalid dates in row: " + String.join(",", row));
-                    continue;
-                }
-                String manager = row[4 + roomCount * 3];
-                if (!Validator.isValidName(manager)) {
-                    System.out.println("Invalid manager name in row: " + manager);
-                    continue;
-                }
-                int officerSlot = Integer.parseInt(row[5 + roomCount * 3]);
-                if (officerSlot < 0) {
-                    System.out.println("Negative officer slots in row: " + String.join(",", row));
-                    continue;
-                }
-                String officerList = row[6 + roomCount * 3];
-                String visibility = row[7 + roomCount * 3];
-                if (!Validator.isValidVisibility(visibility)) {
-                    System.out.println("Invalid visibility in row: " + visibility);
-                    continue;
+                    BTOProject project = new BTOProject(
+                            projectName, neighborhood, rooms, openDate, closeDate,
+                            manager, officerSlot, officerList, visibility);
+                    project.version = rows.version(versionKey(projectName));
+                    projectList.add(project);
+
+                } catch (NumberFormatException e) {
+                    skipped.add("Invalid number", row);
+                } catch (IllegalArgumentException e) {
+                    skipped.add(e.getMessage(), row);
+                } catch (Exception e) {
+                    skipped.add("Unexpected error: " + e.getMessage(), row);
                 }
-
-                BTOProject project = new BTOProject(
-                        projectName, neighborhood, rooms, openDate, closeDate,
-                        manager, officerSlot, officerList, visibility);
-                        
-                projectList.add(project);
-
-            } catch (NumberFormatException e) {
-                System.out.println("Error parsing project row: " + String.join(",", row) + " - NumberFormatException: " + e.getMessage());
-            } catch (IllegalArgumentException e) {
-                System.out.println("Error parsing project row: " + String.join(",", row) + " - " + e.getMessage());
-            } catch (Exception e) {
-                System.out.println("Error parsing project row: " + String.join(",", row) + " - Unexpected error: " + e.getMessage());
             }
-        }
 
-        return projectList;
+            skipped.flush();
+            return projectList;
+        } finally {
+            Metrics.getInstance().record("BTOProject.getProjects", started);
+        }
     }
 
     /**
@@ -445,56 +475,108 @@ public class BTOProject {
         if (getProjectByName(project.getProjectName()) != null) {
             throw new IllegalArgumentException("Project already exists: " + project.getProjectName());
         }
-        try (FileWriter fw = new FileWriter(PROJECTS_CSV, true);
-                BufferedWriter bw = new BufferedWriter(fw)) {
-
-            ArrayList<String> roomCSV = new ArrayList<>();
-            for (Room room : project.getRooms()) {
-                String csv = room.toCSV();
-                if (csv == null || csv.trim().isEmpty()) {
-                    throw new IllegalArgumentException("Invalid room data for project: " + project.getProjectName());
-                }
-                roomCSV.add(csv);
+        ArrayList<String> roomCSV = new ArrayList<>();
+        for (Room room : project.getRooms()) {
+            String csv = room.toCSV();
+            if (csv == null || csv.trim().isEmpty()) {
+                throw new IllegalArgumentException("Invalid room data for project: " + project.getProjectName());
             }
-            String[] filteredList = project.officerList.stream()
-                    .filter(s -> s != null && !s.trim().isEmpty())
-                    .toArray(String[]::new);
-                    
-            bw.write(String.join(",",
-                    project.getProjectName(),
-                    project.getNeighborhood(),
-                    String.join(",", roomCSV),
-                    project.getOpenDate(),
-                    project.getCloseDate(),
-                    project.getManager(),
-                    Integer.toString(project.getOfficerSlot()),
-                    "\"" + String.join(",", filteredList) + "\"",
-                    project.getVisibility()));
-
-            bw.newLine();
-
-            System.out.println("Project added successfully: " + project.getProjectName());
-        } catch (IOException e) {
-            System.out.println("Failed to write project: " + e.getMessage());
-            throw new RuntimeException("Error writing project to CSV: " + e.getMessage());
+            roomCSV.add(csv);
         }
+        String line = project.toRawLine(roomCSV);
+        VERSIONS.locked(() -> {
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(PROJECTS_CSV, true))) {
+                bw.write(line);
+                bw.newLine();
+                System.out.println("Project added successfully: " + project.getProjectName());
+            } catch (IOException e) {
+                System.out.println("Failed to write project: " + e.getMessage());
+                throw new RuntimeException("Error writing project to CSV: " + e.getMessage());
+            }
+        });
+        EventBus.getDefault().publish(new ProjectEdited(project.getProjectName(), ProjectEdited.Change.ADDED));
     }
 
     /**
-     * Updates an existing BTO project in the CSV file.
+     * Updates an existing BTO project in the CSV file. The edit is rejected if the project's row
+     * was changed since the project was read. If the edit leaves units free, waitlisted applicants
+     * are promoted into them, and the project row, the promoted applications and the waitlist log
+     * are committed together in one transaction. Holds for the promoted applicants are taken and
+     * the changes published once it commits.
      *
      * @param updatedProject The updated project object.
+     * @return The NRICs of the applicants promoted from the waitlist.
      * @throws IllegalArgumentException If the project is invalid or does not exist.
+     * @throws StaleVersionException If the project was changed by someone else since it was read.
+     * @throws RuntimeException If an error occurs while writing the CSV files.
      */
-    public static void editProject(BTOProject updatedProject) {
+    public static List<String> editProject(BTOProject updatedProject) {
         if (updatedProject == null) {
             throw new IllegalArgumentException("Updated project cannot be null.");
         }
         if (getProjectByName(updatedProject.getProjectName()) == null) {
             throw new IllegalArgumentException("Project does not exist: " + updatedProject.getProjectName());
         }
-        List<String> lines = new ArrayList<>();
+        List<UnitsChanged> unitChanges = new ArrayList<>();
+        Waitlist waitlist = Waitlist.getInstance();
+        // Retried only for changes to the applications; a changed project row fails every attempt.
+        List<String> promoted = waitlist.locked(() -> RowVersions.retry(() -> {
+            unitChanges.clear();
+            List<String[]> rows = editedRows(updatedProject, unitChanges);
+            List<String[]> applicationRows = BTOApplication.readRows();
+            List<String> chosen = waitlist.promote(rows, applicationRows, Collections.singleton(updatedProject.getProjectName()));
+            try {
+                Transaction tx = TransactionManager.getInstance().begin();
+                VERSIONS.stage(tx, rows);
+                if (!chosen.isEmpty()) {
+                    BTOApplication.stageRows(tx, applicationRows);
+                }
+                waitlist.stage(tx);
+                tx.commit();
+            } catch (CommittedNotAppliedException e) {
+                System.out.println("Warning: " + e.getMessage());
+            } catch (RuntimeException e) {
+                waitlist.discard();
+                throw e;
+            }
+            waitlist.committed();
+            return chosen;
+        }));
+        updatedProject.version = VERSIONS.get(versionKey(updatedProject.getProjectName()));
+        System.out.println("Project updated successfully: " + updatedProject.getProjectName());
+        EventBus bus = EventBus.getDefault();
+        bus.publishAll(unitChanges);
+        bus.publish(new ProjectEdited(updatedProject.getProjectName(), ProjectEdited.Change.EDITED));
+        return promoted;
+    }
 
+    /**
+     * Stages an edited project in a transaction instead of writing the projects file, so that it
+     * is saved together with changes to other files.
+     *
+     * @param tx The transaction.
+     * @param updatedProject The updated project object.
+     * @throws IllegalArgumentException If the project is invalid or does not exist.
+     * @throws StaleVersionException If the project was changed by someone else since it was read.
+     */
+    static void stageEdit(Transaction tx, BTOProject updatedProject) {
+        if (tx == null || updatedProject == null) {
+            throw new IllegalArgumentException("Transaction and updated project cannot be null.");
+        }
+        VERSIONS.stage(tx, editedRows(updatedProject, new ArrayList<>()));
+    }
+
+    /**
+     * Reads the rows of the projects file and replaces the row of an edited project, noting each
+     * change to a flat type's units.
+     *
+     * @param updatedProject The updated project object.
+     * @param unitChanges Receives a change for each flat type whose units differ.
+     * @return The rows of the file with the project's row replaced.
+     * @throws IllegalArgumentException If the project is invalid or does not exist.
+     * @throws StaleVersionException If the project was changed by someone else since it was read.
+     */
+    private static VersionedRows editedRows(BTOProject updatedProject, List<UnitsChanged> unitChanges) {
         ArrayList<String> roomCSV = new ArrayList<>();
         for (Room room : updatedProject.getRooms()) {
             String csv = room.toCSV();
@@ -503,46 +585,53 @@ public class BTOProject {
             }
             roomCSV.add(csv);
         }
-        try (BufferedReader br = new BufferedReader(new FileReader(PROJECTS_CSV))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("\uFEFF")) {
-                    line = line.substring(1); // Remove BOM
-                }
-                String[] parts = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-                if (parts[0].equals(updatedProject.getProjectName())) {
-                    String[] filteredList = updatedProject.officerList.stream()
-                            .filter(s -> s != null && !s.trim().isEmpty())
-                            .toArray(String[]::new);
-                    lines.add(String.join(",",
-                            updatedProject.projectName,
-                            updatedProject.neighborhood,
-                            String.join(",", roomCSV),
-                            updatedProject.openDate,
-                            updatedProject.closeDate,
-                            updatedProject.manager,
-                            Integer.toString(updatedProject.officerSlot),
-                            "\"" + String.join(",", filteredList) + "\"",
-                            updatedProject.visibility));
-                } else {
-                    lines.add(line);
+        String key = versionKey(updatedProject.getProjectName());
+        VersionedRows rows = VERSIONS.read();
+        if (rows.version(key) != updatedProject.getVersion()) {
+            throw new StaleVersionException(key, updatedProject.getVersion(), rows.version(key));
+        }
+        boolean found = false;
+        for (int i = 0; i < rows.size(); i++) {
+            String[] parts = rows.get(i);
+            if (parts[0].equals(updatedProject.getProjectName())) {
+                for (Room room : updatedProject.getRooms()) {
+                    int column = parts.length >= 8 ? unitsColumn(parts, room.getRoomType()) : -1;
+                    String oldUnits = column < 0 ? "" : parts[column].trim();
+                    if (oldUnits.matches("\\d+") && Integer.parseInt(oldUnits) != room.getUnits()) {
+                        unitChanges.add(new UnitsChanged(updatedProject.projectName, room.getRoomType(),
+                                Integer.parseInt(oldUnits), room.getUnits()));
+                    }
                 }
+                rows.set(i, updatedProject.toRawLine(roomCSV).split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1));
+                found = true;
             }
-        } catch (IOException e) {
-            System.out.println("Error reading project CSV: " + e.getMessage());
-            throw new RuntimeException("Error reading project CSV: " + e.getMessage());
         }
-
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(PROJECTS_CSV))) {
-            for (String line : lines) {
-                bw.write(line);
-                bw.newLine();
-            }
-            System.out.println("Project updated successfully: " + updatedProject.getProjectName());
-        } catch (IOException e) {
-            System.out.println("Error writing project CSV: " + e.getMessage());
-            throw new RuntimeException("Error writing project CSV: " + e.getMessage());
+        if (!found) {
+            throw new IllegalArgumentException("Project does not exist: " + updatedProject.getProjectName());
         }
+        return rows;
+    }
+
+    /**
+     * Builds the raw projects file line of this project, with the officer list quoted.
+     *
+     * @param roomCSV The CSV of each room.
+     * @return The line.
+     */
+    private String toRawLine(List<String> roomCSV) {
+        String[] filteredList = officerList.stream()
+                .filter(s -> s != null && !s.trim().isEmpty())
+                .toArray(String[]::new);
+        return String.join(",",
+                projectName,
+                neighborhood,
+                String.join(",", roomCSV),
+                openDate,
+                closeDate,
+                manager,
+                Integer.toString(officerSlot),
+                "\"" + String.join(",", filteredList) + "\"",
+                visibility);
     }
 
     /**
@@ -558,31 +647,81 @@ public class BTOProject {
         if (getProjectByName(projectName) == null) {
             throw new IllegalArgumentException("Project does not exist: " + projectName);
         }
-        List<String> lines = new ArrayList<>();
+        VersionedRows rows = VERSIONS.read();
+        rows.removeIf(parts -> parts.length >= 1 && parts[0].equals(projectName));
+        VERSIONS.write(rows);
+        System.out.println("Project deleted successfully: " + projectName);
+        EventBus.getDefault().publish(new ProjectEdited(projectName, ProjectEdited.Change.DELETED));
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(PROJECTS_CSV))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 1 && !parts[0].equals(projectName)) {
-                    lines.add(line);
-                }
-            }
-        } catch (IOException e) {
-            System.out.println("Error reading project CSV: " + e.getMessage());
-            throw new RuntimeException("Error reading project CSV: " + e.getMessage());
-        }
+    /**
+     * Reads the raw rows of the projects CSV file. Used by batch operations that only need to
+     * change a few fields, such as unit counts, without rebuilding project objects. The rows carry
+     * the versions they were read at, so writing them back fails if another writer got there first.
+     *
+     * @return The rows of the file.
+     */
+    static List<String[]> readRows() {
+        return VERSIONS.read();
+    }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(PROJECTS_CSV))) {
-            for (String line : lines) {
-                bw.write(line);
-                bw.newLine();
+    /**
+     * Gets the path of the file holding the row versions of the projects.
+     *
+     * @return The versions file path.
+     */
+    static String versionsPath() {
+        return VERSIONS.getVersionsPath();
+    }
+
+    /**
+     * Atomically replaces the projects CSV file with the given raw rows.
+     *
+     * @param rows The rows to write, as returned by {@link #readRows()}.
+     * @throws IllegalArgumentException If the rows are invalid.
+     * @throws StaleVersionException If a changed row was changed by someone else since it was read.
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    static void writeRows(List<String[]> rows) {
+        VERSIONS.write(rows);
+    }
+
+    /**
+     * Stages the raw rows of the projects CSV file in a transaction instead of writing them.
+     *
+     * @param tx The transaction.
+     * @param rows The rows to write, as returned by {@link #readRows()}.
+     */
+    static void stageRows(Transaction tx, List<String[]> rows) {
+        VERSIONS.stage(tx, rows);
+    }
+
+    /**
+     * Gives the key of a project's row in the row versions. Project names are unique regardless
+     * of case.
+     *
+     * @param projectName The project name.
+     * @return The row key.
+     */
+    static String versionKey(String projectName) {
+        return projectName.trim().toLowerCase();
+    }
+
+    /**
+     * Finds the column holding the unit count of a flat type in a raw project row.
+     *
+     * @param row The raw project row.
+     * @param flatType The flat type, case-insensitive.
+     * @return The index of the units column, or -1 if the row has no such flat type.
+     */
+    static int unitsColumn(String[] row, String flatType) {
+        int roomCount = (row.length - 8) / 3;
+        for (int i = 0; i < roomCount; i++) {
+            if (row[2 + i * 3].trim().equalsIgnoreCase(flatType.trim())) {
+                return 3 + i * 3;
             }
-            System.out.println("Project deleted successfully: " + projectName);
-        } catch (IOException e) {
-            System.out.println("Error writing project CSV: " + e.getMessage());
-            throw new RuntimeException("Error writing project CSV: " + e.getMessage());
         }
+        return -1;
     }
 
     /**
@@ -593,16 +732,21 @@ public class BTOProject {
      * @throws IllegalArgumentException If the project name is invalid.
      */
     public static BTOProject getProjectByName(String projectName) {
-        if (projectName == null || projectName.trim().isEmpty()) {
-            throw new IllegalArgumentException("Project name cannot be empty.");
-        }
-        List<BTOProject> projectList = getProjects();
-        for (BTOProject project : projectList) {
-            if (project != null && project.getProjectName().equalsIgnoreCase(projectName)) {
-                return project;
+        long started = Metrics.start();
+        try {
+            if (projectName == null || projectName.trim().isEmpty()) {
+                throw new IllegalArgumentException("Project name cannot be empty.");
+            }
+            List<BTOProject> projectList = getProjects();
+            for (BTOProject project : projectList) {
+                if (project != null && project.getProjectName().equalsIgnoreCase(projectName)) {
+                    return project;
+                }
             }
+            return null;
+        } finally {
+            Metrics.getInstance().record("BTOProject.getProjectByName", started);
         }
-        return null;
     }
 
     /**
@@ -0,0 +1,317 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import utils.CommittedNotAppliedException;
+import utils.EventBus;
+import utils.RowVersions;
+import utils.Transaction;
+import utils.TransactionManager;
+
+/**
+ * Draws the ballot for an oversubscribed project. Every Pending application for the project is
+ * given a pseudo-random score derived from the ballot seed and the applicant's NRIC. Within each
+ * flat type, the applications with the lowest scores fill the remaining units and become
+ * Successful; the rest become Unsuccessful. The results, the waitlist entries and the ballot log
+ * entry are committed together in one {@link Transaction}.
+ *
+ * <p>Scores depend only on the seed and the NRIC, so drawing again with the same seed over the
+ * same applications gives the same outcome. Each draw is recorded in the ballot log with its seed
+ * and a digest of the successful NRICs in ballot order, which lets an audit replay the draw and
+ * check the result. Scores are computed and sorted in parallel. Unsuccessful applicants join the
+ * project's {@link Waitlist} in ballot order. Once the transaction commits, successful applicants
+ * take a hold on a unit (see {@link ReservationManager}) and the status changes are published.</p>
+ *
+ * @author SC2002Team
+ */
+public class BallotEngine {
+    /** Ballot log recording the seed and digest of every draw. */
+    static final String BALLOTS_CSV = "data/Ballots.csv";
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private BallotEngine() {
+    }
+
+    /**
+     * Outcome of a ballot: the number of successful and unsuccessful applications per flat type,
+     * and a digest of the successful NRICs in the order they were drawn.
+     */
+    public static class Result {
+        final private String projectName;
+        final private long seed;
+        final private Map<String, int[]> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final private Map<String, List<String>> successful = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final private Map<String, List<String>> unsuccessful = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private long digest = FNV_OFFSET;
+
+        Result(String projectName, long seed) {
+            this.projectName = projectName;
+            this.seed = seed;
+        }
+
+        public String getProjectName() {
+            return projectName;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Gets the flat types that had pending applications.
+         *
+         * @return The flat types, in alphabetical order.
+         */
+        public Set<String> getFlatTypes() {
+            return Collections.unmodifiableSet(counts.keySet());
+        }
+
+        public int getSuccessful(String flatType) {
+            int[] c = counts.get(flatType);
+            return c == null ? 0 : c[0];
+        }
+
+        public int getUnsuccessful(String flatType) {
+            int[] c = counts.get(flatType);
+            return c == null ? 0 : c[1];
+        }
+
+        public int getTotalSuccessful() {
+            int total = 0;
+            for (int[] c : counts.values()) {
+                total += c[0];
+            }
+            return total;
+        }
+
+        public int getTotalUnsuccessful() {
+            int total = 0;
+            for (int[] c : counts.values()) {
+                total += c[1];
+            }
+            return total;
+        }
+
+        /**
+         * Gets the NRICs of the successful applicants for a flat type in ballot order.
+         *
+         * @param flatType The flat type.
+         * @return An unmodifiable list of NRICs.
+         */
+        public List<String> getSuccessfulInOrder(String flatType) {
+            List<String> list = successful.get(flatType);
+            return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+        }
+
+        /**
+         * Gets the NRICs of the unsuccessful applicants for a flat type in ballot order, best first.
+         *
+         * @param flatType The flat type.
+         * @return An unmodifiable list of NRICs.
+         */
+        public List<String> getUnsuccessfulInOrder(String flatType) {
+            List<String> list = unsuccessful.get(flatType);
+            return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+        }
+
+        /**
+         * Gets the digest of the successful NRICs in ballot order. Two draws with the same digest
+         * selected the same applicants in the same order.
+         *
+         * @return The digest as 16 hexadecimal digits.
+         */
+        public String getDigest() {
+            return String.format("%016x", digest);
+        }
+
+        private void record(String flatType, boolean successful, String nric) {
+            counts.computeIfAbsent(flatType, k -> new int[2])[successful ? 0 : 1]++;
+            if (successful) {
+                digest = fnv(digest, nric);
+                this.successful.computeIfAbsent(flatType, k -> new ArrayList<>()).add(nric);
+            } else {
+                unsuccessful.computeIfAbsent(flatType, k -> new ArrayList<>()).add(nric);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Ballot for " + projectName + " (seed " + seed + ", digest " + getDigest() + ")");
+            for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+                sb.append(System.lineSeparator()).append("  ").append(entry.getKey())
+                        .append(": ").append(entry.getValue()[0]).append(" successful, ")
+                        .append(entry.getValue()[1]).append(" unsuccessful");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Draws the ballot for a project and commits the results, the waitlist and the ballot log entry
+     * in one transaction. If another writer changes the applications first, the draw is run again.
+     *
+     * @param projectName The name of the project.
+     * @param seed The ballot seed; record it to replay the draw.
+     * @return The outcome of the ballot.
+     * @throws IllegalArgumentException If the project does not exist.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public static Result draw(String projectName, long seed) {
+        if (projectName == null || projectName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Project name cannot be empty.");
+        }
+        BTOProject project = BTOProject.getProjectByName(projectName.trim());
+        if (project == null) {
+            throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+        }
+        Waitlist waitlist = Waitlist.getInstance();
+        Result result = waitlist.locked(() -> RowVersions.retry(() -> {
+            List<String[]> rows = BTOApplication.readRows();
+            Map<String, Integer> capacity = ApplicationBatch.remainingCapacity(project);
+            Result drawn = allocate(project.getProjectName(), capacity, rows, seed);
+            if (drawn.getFlatTypes().isEmpty()) {
+                return drawn;
+            }
+            try {
+                Transaction tx = TransactionManager.getInstance().begin();
+                BTOApplication.stageRows(tx, rows);
+                for (String flatType : drawn.getFlatTypes()) {
+                    waitlist.enlist(project.getProjectName(), flatType, drawn.getUnsuccessfulInOrder(flatType));
+                }
+                waitlist.stage(tx);
+                tx.append(BALLOTS_CSV, Collections.singletonList(new String[] {
+                        project.getProjectName(), Long.toString(seed), LocalDateTime.now().toString(), drawn.getDigest(),
+                        Integer.toString(drawn.getTotalSuccessful()), Integer.toString(drawn.getTotalUnsuccessful()) }));
+                tx.commit();
+            } catch (CommittedNotAppliedException e) {
+                System.out.println("Warning: " + e.getMessage());
+            } catch (RuntimeException e) {
+                waitlist.discard();
+                throw e;
+            }
+            waitlist.committed();
+            return drawn;
+        }));
+        if (!result.getFlatTypes().isEmpty()) {
+            List<String[]> approvals = new ArrayList<>();
+            for (String flatType : result.getFlatTypes()) {
+                for (String nric : result.getSuccessfulInOrder(flatType)) {
+                    approvals.add(new String[] { nric, project.getProjectName(), flatType });
+                }
+            }
+            ReservationManager.getInstance().reserveAll(approvals);
+            publish(project.getProjectName(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Allocates units among the Pending applications for a project, updating the status of each
+     * matching row in place. Nothing is written to disk.
+     *
+     * @param projectName The name of the project.
+     * @param capacity The units available per lower-cased flat type; flat types without an entry
+     *                 have no units.
+     * @param rows The raw application rows.
+     * @param seed The ballot seed.
+     * @return The outcome of the ballot.
+     * @throws IllegalArgumentException If any argument is null.
+     */
+    public static Result allocate(String projectName, Map<String, Integer> capacity, List<String[]> rows, long seed) {
+        if (projectName == null || capacity == null || rows == null) {
+            throw new IllegalArgumentException("Project name, capacity and rows cannot be null.");
+        }
+        String project = projectName.trim();
+
+        // Group the pending rows of this project by flat type, keeping file order within a group.
+        Map<String, int[]> groups = new TreeMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            if (row.length >= 4 && row[3].trim().equalsIgnoreCase("Pending") && row[1].trim().equalsIgnoreCase(project)) {
+                String flatType = row[2].trim().toLowerCase();
+                int size = sizes.merge(flatType, 1, Integer::sum);
+                names.putIfAbsent(flatType, row[2].trim());
+                int[] group = groups.computeIfAbsent(flatType, k -> new int[16]);
+                if (size > group.length) {
+                    group = Arrays.copyOf(group, group.length * 2);
+                    groups.put(flatType, group);
+                }
+                group[size - 1] = i;
+            }
+        }
+
+        Result result = new Result(project, seed);
+        for (Map.Entry<String, int[]> entry : groups.entrySet()) {
+            String flatType = entry.getKey();
+            int[] group = entry.getValue();
+            int n = sizes.get(flatType);
+            int units = Math.max(0, capacity.getOrDefault(flatType, 0));
+
+            // Pack each score with the application's position in the group so that sorting the
+            // keys sorts the applications; equal scores fall back to file order.
+            int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1));
+            long[] keys = new long[n];
+            IntStream.range(0, n).parallel().forEach(j ->
+                    keys[j] = (score(seed, rows.get(group[j])[0].trim()) >>> indexBits << indexBits) | j);
+            Arrays.parallelSort(keys);
+
+            long indexMask = (1L << indexBits) - 1;
+            for (int rank = 0; rank < n; rank++) {
+                String[] row = rows.get(group[(int) (keys[rank] & indexMask)]);
+                boolean successful = rank < units;
+                row[3] = successful ? "Successful" : "Unsuccessful";
+                result.record(names.get(flatType), successful, row[0].trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Publishes a status change event for every application decided by a ballot.
+     *
+     * @param projectName The name of the project.
+     * @param result The outcome of the ballot.
+     */
+    private static void publish(String projectName, Result result) {
+        EventBus bus = EventBus.getDefault();
+        for (String flatType : result.getFlatTypes()) {
+            for (String nric : result.getSuccessfulInOrder(flatType)) {
+                bus.publish(new ApplicationStatusChanged(nric, projectName, flatType, "Pending", "Successful"));
+            }
+            for (String nric : result.getUnsuccessfulInOrder(flatType)) {
+                bus.publish(new ApplicationStatusChanged(nric, projectName, flatType, "Pending", "Unsuccessful"));
+            }
+        }
+    }
+
+    /**
+     * Computes the ballot score of an applicant. Lower scores are drawn first.
+     *
+     * @param seed The ballot seed.
+     * @param nric The applicant's NRIC.
+     * @return The score.
+     */
+    static long score(long seed, String nric) {
+        return mix64(fnv(FNV_OFFSET, nric) + seed * GOLDEN_GAMMA);
+    }
+
+    private static long fnv(long hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,92 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Records the outcome of a batch operation for each key it was asked to process, such as the
+ * NRIC of each applicant in a batch of withdrawals. Keys are reported in the order they were
+ * recorded.
+ *
+ * @author SC2002Team
+ */
+public class BatchResult {
+    final private Map<String, String> outcomes = new LinkedHashMap<>();
+    final private Set<String> succeeded = new LinkedHashSet<>();
+    final private Set<String> failed = new LinkedHashSet<>();
+
+    /**
+     * Records that a key was processed successfully.
+     *
+     * @param key The key, e.g. an applicant NRIC.
+     * @param message A short description of what was done.
+     */
+    public void succeed(String key, String message) {
+        failed.remove(key);
+        succeeded.add(key);
+        outcomes.put(key, message);
+    }
+
+    /**
+     * Records that a key could not be processed.
+     *
+     * @param key The key, e.g. an applicant NRIC.
+     * @param reason Why the key was not processed.
+     */
+    public void fail(String key, String reason) {
+        succeeded.remove(key);
+        failed.add(key);
+        outcomes.put(key, reason);
+    }
+
+    /**
+     * Gets the keys that were processed successfully.
+     *
+     * @return An unmodifiable set of keys.
+     */
+    public Set<String> getSucceeded() {
+        return Collections.unmodifiableSet(succeeded);
+    }
+
+    /**
+     * Gets the keys that could not be processed.
+     *
+     * @return An unmodifiable set of keys.
+     */
+    public Set<String> getFailed() {
+        return Collections.unmodifiableSet(failed);
+    }
+
+    /**
+     * Gets the outcome message recorded for each key.
+     *
+     * @return An unmodifiable map from key to message.
+     */
+    public Map<String, String> getOutcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    /**
+     * Gets a one-line summary of the batch.
+     *
+     * @return The number of keys processed and failed.
+     */
+    public String summary() {
+        return succeeded.size() + " succeeded, " + failed.size() + " failed";
+    }
+
+    /**
+     * Returns the summary followed by one line per key.
+     *
+     * @return A multi-line report of the batch.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(summary());
+        for (Map.Entry<String, String> entry : outcomes.entrySet()) {
+            sb.append(System.lineSeparator())
+                    .append(failed.contains(entry.getKey()) ? "  FAILED " : "  OK     ")
+                    .append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+}
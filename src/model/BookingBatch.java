@@ -0,0 +1,166 @@
+package model;
+
+import java.util.*;
+
+import utils.EventBus;
+import utils.FlightEvents;
+import utils.RowVersions;
+import utils.Transaction;
+import utils.TransactionManager;
+import utils.Validator;
+
+/**
+ * Books flats for many Successful applicants of a project at once. The project and application
+ * files are each read once, every booking is checked and applied to the unit counts in memory,
+ * and both files are then committed together.
+ *
+ * <p>A booking follows the same rules as a single booking (see
+ * {@link HDBOfficer#handleFlatSelection(BTOApplication, String)}): an applicant holding a unit of
+ * the flat type may always book it, and anyone else needs a unit that is neither booked nor held
+ * for another applicant (see {@link ReservationManager}). Both files are saved in one
+ * {@link utils.Transaction}, so unit counts never drift from the bookings recorded.</p>
+ *
+ * <p>If another writer changes a row the batch changes before it commits, the batch is read
+ * and applied again (see {@link RowVersions#retry(java.util.function.Supplier)}).</p>
+ *
+ * <p>Once both files are saved, the holds are consumed in one log write and the status changes
+ * are published together, so the {@link ReceiptPipeline} archives the receipts in batches.</p>
+ *
+ * @author SC2002Team
+ */
+public class BookingBatch {
+
+    private BookingBatch() {
+    }
+
+    /**
+     * Books flats for several applicants of a project.
+     *
+     * @param projectName The name of the project.
+     * @param bookings Rows of [NRIC, flat type], processed in order. A null or empty flat type
+     *                 books the flat type the applicant applied for.
+     * @return The outcome for each NRIC.
+     * @throws IllegalArgumentException If the project does not exist or the list is null.
+     * @throws utils.StaleVersionException If other writers kept changing the same rows.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public static BatchResult book(String projectName, List<String[]> bookings) {
+        if (projectName == null || projectName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Project name cannot be empty.");
+        }
+        if (bookings == null) {
+            throw new IllegalArgumentException("Bookings cannot be null.");
+        }
+        FlightEvents.Booking event = new FlightEvents.Booking();
+        event.begin();
+        BatchResult result = RowVersions.retry(() -> attempt(projectName, bookings));
+        if (event.shouldCommit()) {
+            event.projectName = projectName.trim();
+            event.requested = bookings.size();
+            event.booked = result.getSucceeded().size();
+            event.failed = result.getFailed().size();
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Reads both files and books the flats once.
+     *
+     * @param projectName The name of the project.
+     * @param bookings Rows of [NRIC, flat type], processed in order.
+     * @return The outcome for each NRIC.
+     */
+    private static BatchResult attempt(String projectName, List<String[]> bookings) {
+        List<String[]> projectRows = BTOProject.readRows();
+        String[] projectRow = null;
+        for (String[] row : projectRows) {
+            if (row.length >= 8 && row[0].trim().equalsIgnoreCase(projectName.trim())) {
+                projectRow = row;
+                break;
+            }
+        }
+        if (projectRow == null) {
+            throw new IllegalArgumentException("Project does not exist: " + projectName.trim());
+        }
+        String project = projectRow[0].trim();
+
+        // Successful applications for this project, keyed by NRIC.
+        List<String[]> applicationRows = BTOApplication.readRows();
+        Map<String, String[]> successful = new HashMap<>();
+        for (String[] row : applicationRows) {
+            if (row.length >= 4 && row[1].trim().equalsIgnoreCase(project) && row[3].trim().equalsIgnoreCase("Successful")) {
+                successful.putIfAbsent(row[0].trim(), row);
+            }
+        }
+
+        ReservationManager reservations = ReservationManager.getInstance();
+        Map<Integer, Integer> heldByColumn = new HashMap<>();
+        Map<Integer, Integer> unitsBefore = new HashMap<>();
+        List<String[]> booked = new ArrayList<>();
+        List<Object> events = new ArrayList<>();
+        BatchResult result = new BatchResult();
+        for (String[] booking : bookings) {
+            String nric = booking == null || booking.length == 0 || booking[0] == null ? "" : booking[0].trim();
+            if (result.getOutcomes().containsKey(nric)) {
+                continue;
+            }
+            if (!Validator.isValidNRIC(nric)) {
+                result.fail(nric, "Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+                continue;
+            }
+            String[] app = successful.get(nric);
+            if (app == null) {
+                result.fail(nric, "No successful application for project: " + project);
+                continue;
+            }
+            String flatType = booking.length > 1 && booking[1] != null && !booking[1].trim().isEmpty()
+                    ? booking[1].trim() : app[2].trim();
+            int column = BTOProject.unitsColumn(projectRow, flatType);
+            if (column < 0) {
+                result.fail(nric, "Flat type not available in project: " + flatType);
+                continue;
+            }
+            if (!projectRow[column].trim().matches("\\d+")) {
+                result.fail(nric, "Invalid unit count for " + flatType + " in project: " + project);
+                continue;
+            }
+            flatType = projectRow[column - 1].trim();
+            int units = Integer.parseInt(projectRow[column].trim());
+            Integer held = heldByColumn.get(column);
+            if (held == null) {
+                held = reservations.held(project, flatType);
+            }
+            boolean holding = reservations.isHolding(nric, project, flatType);
+            if (units <= 0 || (!holding && units - held <= 0)) {
+                result.fail(nric, "No units available for flat type: " + flatType);
+                continue;
+            }
+            unitsBefore.putIfAbsent(column, units);
+            projectRow[column] = Integer.toString(units - 1);
+            heldByColumn.put(column, holding ? held - 1 : held);
+            successful.remove(nric);
+            app[2] = flatType;
+            app[3] = "Booked";
+            booked.add(new String[] { nric, project, flatType });
+            events.add(new ApplicationStatusChanged(nric, project, flatType, "Successful", "Booked"));
+            result.succeed(nric, "Booked " + flatType + (holding ? " (held unit)." : "."));
+        }
+        if (booked.isEmpty()) {
+            return result;
+        }
+
+        Transaction tx = TransactionManager.getInstance().begin();
+        BTOProject.stageRows(tx, projectRows);
+        BTOApplication.stageRows(tx, applicationRows);
+        tx.commit();
+        reservations.consumeAll(booked);
+        for (Map.Entry<Integer, Integer> entry : unitsBefore.entrySet()) {
+            int column = entry.getKey();
+            events.add(new UnitsChanged(project, projectRow[column - 1].trim(), entry.getValue(),
+                    Integer.parseInt(projectRow[column].trim())));
+        }
+        EventBus.getDefault().publishAll(events);
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package model;
+
+import utils.CSVUtils;
+import utils.Log;
+import utils.Metrics;
+import utils.VersionedRows;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Loads every table of the system at once and publishes them as a {@link DataModel}.
+ *
+ * <p>Without the loader each file is read when a method first needs it, one after another, and a
+ * table that refers to others reads them again for every row: resolving an application reads the
+ * users and projects files each time. The loader makes the order explicit. Users, projects,
+ * applications, enquiries, officer applications and withdrawal requests are read concurrently,
+ * one file per thread. Applications and officer applications are then resolved against the
+ * users and projects once both are ready, so loading takes about as long as the slowest file
+ * rather than the sum of them. Reading the enquiries and withdrawal requests also loads their
+ * stores, so the first user action does not pay for it.</p>
+ *
+ * <p>After a write, {@link #refresh(DataModel)} reads again only the tables whose files changed,
+ * and resolves applications and officer applications again only if their own rows or the users
+ * or projects they refer to changed. Every other table is carried over from the previous model.</p>
+ *
+ * @author SC2002Team
+ */
+public class DataLoader {
+    private static final int THREADS = 6;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread thread = new Thread(r, "data-loader-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DataLoader() {
+    }
+
+    /**
+     * Reads every table concurrently, resolves references between them and publishes the result
+     * as the {@link DataModel#getCurrent() current model}. Invalid rows and rows that refer to an
+     * unknown user or project are left out and reported in the log.
+     *
+     * @return The model loaded.
+     * @throws RuntimeException If an error occurs while reading a file.
+     */
+    public static DataModel load() {
+        return refresh(null);
+    }
+
+    /**
+     * Builds and publishes a model that is up to date, reading only the tables of the previous
+     * model whose files have been written since it was loaded.
+     *
+     * @param previous The model to carry unchanged tables over from, or null to read them all.
+     * @return The model published.
+     * @throws RuntimeException If an error occurs while reading a file.
+     */
+    static DataModel refresh(DataModel previous) {
+        long started = Metrics.start();
+        Map<String, DataModel.Source> sources = new ConcurrentHashMap<>();
+        try {
+            String[] userFiles = { User.USERS_CSV };
+            String[] projectFiles = { BTOProject.PROJECTS_CSV, BTOProject.versionsPath() };
+            String[] applicationFiles = { BTOApplication.APPLICATIONS_CSV, BTOApplication.versionsPath() };
+            String[] officerFiles = { OfficerApplication.OFFICERAPPLICATION_CSV, OfficerApplication.versionsPath() };
+
+            CompletableFuture<Map<String, User>> users =
+                    table(previous, sources, DataModel::getUsers, DataLoader::readUsers, userFiles);
+            CompletableFuture<Map<String, BTOProject>> projects =
+                    table(previous, sources, DataModel::getProjects, DataLoader::readProjects, projectFiles);
+            CompletableFuture<List<Enquiry>> enquiries =
+                    table(previous, sources, DataModel::getEnquiries, Enquiry::getEnquiries, Enquiry.ENQUIRIES_CSV);
+            CompletableFuture<List<WithdrawalRequest>> withdrawals = table(previous, sources, DataModel::getWithdrawals,
+                    WithdrawalRequest::getWithdrawalRequests, WithdrawalRequest.WITHDRAWALS_CSV);
+
+            CompletableFuture<List<BTOApplication>> applications;
+            if (previous != null && previous.isCurrent(userFiles) && previous.isCurrent(projectFiles)
+                    && previous.isCurrent(applicationFiles)) {
+                applications = reuse(previous, sources, previous.getApplications(), applicationFiles);
+            } else {
+                CompletableFuture<VersionedRows> rows = read(sources, BTOApplication::readRows, applicationFiles);
+                applications = CompletableFuture.allOf(users, projects, rows)
+                        .thenApplyAsync(ready -> BTOApplication.resolveAll(rows.join(), applicants(users.join())::get,
+                                projects.join()), POOL);
+            }
+            CompletableFuture<List<OfficerApplication>> officerApplications;
+            if (previous != null && previous.isCurrent(projectFiles) && previous.isCurrent(officerFiles)) {
+                officerApplications = reuse(previous, sources, previous.getOfficerApplications(), officerFiles);
+            } else {
+                CompletableFuture<VersionedRows> rows = read(sources, OfficerApplication::readRows, officerFiles);
+                officerApplications = projects.thenCombineAsync(rows,
+                        (byName, officerRows) -> OfficerApplication.resolveAll(officerRows, byName.keySet()), POOL);
+            }
+
+            CompletableFuture.allOf(applications, officerApplications, enquiries, withdrawals).join();
+            DataModel model = new DataModel(users.join(), projects.join(), applications.join(), enquiries.join(),
+                    officerApplications.join(), withdrawals.join(), sources, (System.nanoTime() - started) / 1_000_000);
+            DataModel.publish(model);
+            return model;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error loading data: " + e.getCause().getMessage());
+        } finally {
+            Metrics.getInstance().record(previous == null ? "DataLoader.load" : "DataLoader.refresh", started);
+        }
+    }
+
+    /**
+     * Carries a table over from the previous model if none of its files changed, or reads it.
+     */
+    private static <T> CompletableFuture<T> table(DataModel previous, Map<String, DataModel.Source> sources,
+            Function<DataModel, T> table, Supplier<T> reader, String... files) {
+        if (previous != null && previous.isCurrent(files)) {
+            return reuse(previous, sources, table.apply(previous), files);
+        }
+        return read(sources, reader, files);
+    }
+
+    private static <T> CompletableFuture<T> reuse(DataModel previous, Map<String, DataModel.Source> sources, T table,
+            String... files) {
+        for (String file : files) {
+            sources.put(file, previous.source(file));
+        }
+        return CompletableFuture.completedFuture(table);
+    }
+
+    /**
+     * Reads a table on the pool, recording its files just before they are read.
+     */
+    private static <T> CompletableFuture<T> read(Map<String, DataModel.Source> sources, Supplier<T> reader,
+            String... files) {
+        return CompletableFuture.supplyAsync(() -> {
+            for (String file : files) {
+                sources.put(file, DataModel.Source.of(file));
+            }
+            return reader.get();
+        }, POOL);
+    }
+
+    /**
+     * Reads the users file, skipping invalid rows.
+     */
+    private static Map<String, User> readUsers() {
+        Map<String, User> users = new LinkedHashMap<>();
+        Log.Tally skipped = Log.tally(User.USERS_CSV);
+        for (String[] row : CSVUtils.readCSV(User.USERS_CSV)) {
+            if (row.length < 6) {
+                skipped.add("Malformed row", row);
+                continue;
+            }
+            try {
+                User user = new User(row[0].trim(), row[1].trim(), row[4].trim(), Integer.parseInt(row[2].trim()),
+                        row[3].trim(), row[5].trim());
+                users.put(user.getNRIC(), user);
+            } catch (NumberFormatException e) {
+                skipped.add("Invalid age", row);
+            } catch (IllegalArgumentException e) {
+                skipped.add(e.getMessage(), row);
+            }
+        }
+        skipped.flush();
+        return users;
+    }
+
+    /**
+     * Reads the projects file into a table keyed by name, ignoring case as
+     * {@link BTOProject#getProjectByName(String)} does.
+     */
+    private static Map<String, BTOProject> readProjects() {
+        Map<String, BTOProject> projects = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (BTOProject project : BTOProject.getProjects()) {
+            projects.putIfAbsent(project.getProjectName(), project);
+        }
+        return projects;
+    }
+
+    /**
+     * Views every user as an applicant, as {@link Applicant#getApplicantByNRIC(String)} does.
+     */
+    private static Map<String, Applicant> applicants(Map<String, User> users) {
+        Map<String, Applicant> applicants = new HashMap<>();
+        for (User user : users.values()) {
+            try {
+                applicants.put(user.getNRIC(), new Applicant(user.getName(), user.getNRIC(), user.getAge(),
+                        user.getMaritalStatus()));
+            } catch (IllegalArgumentException e) {
+                // Not a valid applicant; applications naming this NRIC are reported as unresolved.
+            }
+        }
+        return applicants;
+    }
+}
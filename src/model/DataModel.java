@@ -0,0 +1,245 @@
+package model;
+
+import java.io.File;
+import java.util.*;
+
+import utils.CSVUtils;
+
+/**
+ * A consistent view of every table in the system, built by the {@link DataLoader} from files
+ * read at the same time, with applications and officer applications resolved against the users
+ * and projects of the same load. The tables cannot be changed once the model is built; changes go
+ * through the model classes as usual and show up in the next model published.
+ *
+ * <p>The model remembers, for each file it read, how many times the file had been written
+ * ({@link CSVUtils#writeCount(String)}) and its modification time and length just before it was
+ * read. {@link #getCurrent()} checks those before handing out the model; once any file has been
+ * written since, the tables read from it are read again and a new model is published, so readers
+ * never see a model older than the last write they could have observed. The objects in the tables
+ * are shared between readers and must not be changed; readers that hand them out copy them first.</p>
+ *
+ * @author SC2002Team
+ */
+public class DataModel {
+    private static volatile DataModel current;
+
+    /**
+     * A file as it was just before a table was read from it.
+     */
+    static class Source {
+        final private String path;
+        final private long writes;
+        final private long modified;
+        final private long length;
+
+        private Source(String path, long writes, long modified, long length) {
+            this.path = path;
+            this.writes = writes;
+            this.modified = modified;
+            this.length = length;
+        }
+
+        /**
+         * Records a file as it is now. The write count is taken first, so a write that lands
+         * while the file is being read makes the source look out of date, never current.
+         */
+        static Source of(String path) {
+            long writes = CSVUtils.writeCount(path);
+            File file = new File(path);
+            return new Source(path, writes, file.lastModified(), file.length());
+        }
+
+        boolean isCurrent() {
+            File file = new File(path);
+            return writes == CSVUtils.writeCount(path) && modified == file.lastModified() && length == file.length();
+        }
+    }
+
+    final private Map<String, User> users;
+    final private Map<String, BTOProject> projects;
+    final private List<BTOApplication> applications;
+    final private Map<String, List<BTOApplication>> applicationsByNric;
+    final private List<Enquiry> enquiries;
+    final private List<OfficerApplication> officerApplications;
+    final private List<WithdrawalRequest> withdrawals;
+    final private Map<String, Source> sources;
+    final private long loadMillis;
+
+    DataModel(Map<String, User> users, Map<String, BTOProject> projects, List<BTOApplication> applications,
+            List<Enquiry> enquiries, List<OfficerApplication> officerApplications, List<WithdrawalRequest> withdrawals,
+            Map<String, Source> sources, long loadMillis) {
+        this.users = Collections.unmodifiableMap(new LinkedHashMap<>(users));
+        TreeMap<String, BTOProject> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        byName.putAll(projects);
+        this.projects = Collections.unmodifiableMap(byName);
+        this.applications = List.copyOf(applications);
+        Map<String, List<BTOApplication>> byNric = new HashMap<>();
+        for (BTOApplication application : this.applications) {
+            byNric.computeIfAbsent(application.getApplicantNRIC(), k -> new ArrayList<>()).add(application);
+        }
+        byNric.replaceAll((nric, list) -> List.copyOf(list));
+        this.applicationsByNric = byNric;
+        this.enquiries = List.copyOf(enquiries);
+        this.officerApplications = List.copyOf(officerApplications);
+        this.withdrawals = List.copyOf(withdrawals);
+        this.sources = Map.copyOf(sources);
+        this.loadMillis = loadMillis;
+    }
+
+    /**
+     * Gets the current model. If a file read into the model last published has been written
+     * since, the tables that depend on it are read again by {@link DataLoader#refresh(DataModel)}
+     * and the new model is published first; the other tables are carried over.
+     *
+     * @return The current model.
+     * @throws RuntimeException If an error occurs while reading a file.
+     */
+    public static DataModel getCurrent() {
+        DataModel model = current;
+        if (model != null && model.isCurrent()) {
+            return model;
+        }
+        synchronized (DataModel.class) {
+            model = current;
+            if (model == null || !model.isCurrent()) {
+                model = DataLoader.refresh(model);
+            }
+            return model;
+        }
+    }
+
+    static void publish(DataModel model) {
+        current = model;
+    }
+
+    /**
+     * Checks that no file read into the model has been written since.
+     *
+     * @return True if every table is up to date.
+     */
+    public boolean isCurrent() {
+        for (Source source : sources.values()) {
+            if (!source.isCurrent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the given files were read into the model and have not been written since.
+     */
+    boolean isCurrent(String... paths) {
+        for (String path : paths) {
+            Source source = sources.get(path);
+            if (source == null || !source.isCurrent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Source source(String path) {
+        return sources.get(path);
+    }
+
+    /**
+     * Gets every user by NRIC.
+     *
+     * @return The users.
+     */
+    public Map<String, User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Gets a user by NRIC.
+     *
+     * @param nric The NRIC of the user.
+     * @return The user, or null if not found.
+     */
+    public User getUser(String nric) {
+        return nric == null ? null : users.get(nric.trim());
+    }
+
+    /**
+     * Gets every project by name. Names are matched ignoring case.
+     *
+     * @return The projects.
+     */
+    public Map<String, BTOProject> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Gets a project by name, ignoring case.
+     *
+     * @param projectName The name of the project.
+     * @return The project, or null if not found.
+     */
+    public BTOProject getProject(String projectName) {
+        return projectName == null ? null : projects.get(projectName);
+    }
+
+    /**
+     * Gets every BTO application.
+     *
+     * @return The applications.
+     */
+    public List<BTOApplication> getApplications() {
+        return applications;
+    }
+
+    /**
+     * Gets the BTO applications of one applicant, in file order.
+     *
+     * @param nric The NRIC of the applicant.
+     * @return The applications; empty if there are none.
+     */
+    public List<BTOApplication> getApplications(String nric) {
+        return nric == null ? Collections.emptyList() : applicationsByNric.getOrDefault(nric.trim(), Collections.emptyList());
+    }
+
+    /**
+     * Gets every enquiry in ascending ID order.
+     *
+     * @return The enquiries.
+     */
+    public List<Enquiry> getEnquiries() {
+        return enquiries;
+    }
+
+    /**
+     * Gets every officer application.
+     *
+     * @return The officer applications.
+     */
+    public List<OfficerApplication> getOfficerApplications() {
+        return officerApplications;
+    }
+
+    /**
+     * Gets every withdrawal request.
+     *
+     * @return The withdrawal requests.
+     */
+    public List<WithdrawalRequest> getWithdrawals() {
+        return withdrawals;
+    }
+
+    /**
+     * Gets how long the model took to load.
+     *
+     * @return The load time in milliseconds.
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    @Override
+    public String toString() {
+        return users.size() + " users, " + projects.size() + " projects, " + applications.size() + " applications, "
+                + enquiries.size() + " enquiries, " + officerApplications.size() + " officer applications and "
+                + withdrawals.size() + " withdrawal requests";
+    }
+}
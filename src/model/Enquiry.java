@@ -1,12 +1,14 @@
 package model;
 
 import java.util.*;
-import utils.CSVUtils;
+import utils.Metrics;
 import utils.Validator;
 
 /**
  * Represents an enquiry submitted by an applicant for a BTO project in the HDB BTO Management System.
- * Manages enquiry details, responses, and CSV storage.
+ * Manages enquiry details, responses, and CSV storage. Enquiries held by the {@link EnquiryStore}
+ * keep only their ID, NRIC, project and title in memory; the detail and response are read from
+ * the enquiry's row in the CSV file when requested.
  *
  * @author SC2002Team
  */
@@ -17,6 +19,12 @@ public class Enquiry {
     private String title;
     private String detail;
     private String response;
+    private long version;
+
+    // Set while the detail and response are not held in memory and must be read from the store.
+    private EnquiryStore source;
+    private long rowOffset = -1;
+    private int rowLength = 0;
 
     public static final String ENQUIRIES_CSV = "data/FlatEnquiries.csv";
 
@@ -33,19 +41,37 @@ public class Enquiry {
      */
     public Enquiry(int enquiryid, String enquirerNRIC, String projectName, String title, String detail,
             String response) {
+        this(enquiryid, enquirerNRIC, projectName, title, detail, response, true);
+    }
+
+    /**
+     * Constructs an Enquiry, optionally skipping the applicant and project lookups. Used by the
+     * enquiry store, which validates references against sets loaded once per file read.
+     *
+     * @param enquiryid The unique ID of the enquiry.
+     * @param enquirerNRIC The NRIC of the enquirer.
+     * @param projectName The name of the project the enquiry is about.
+     * @param title The title of the enquiry.
+     * @param detail The detailed description of the enquiry.
+     * @param response The response to the enquiry, if any.
+     * @param checkReferences True to verify that the applicant and project exist.
+     * @throws IllegalArgumentException If any input is invalid.
+     */
+    Enquiry(int enquiryid, String enquirerNRIC, String projectName, String title, String detail,
+            String response, boolean checkReferences) {
         if (enquiryid < 0) {
             throw new IllegalArgumentException("Enquiry ID cannot be negative.");
         }
         if (!Validator.isValidNRIC(enquirerNRIC)) {
             throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
         }
-        if (Applicant.getApplicantByNRIC(enquirerNRIC) == null) {
+        if (checkReferences && Applicant.getApplicantByNRIC(enquirerNRIC) == null) {
             throw new IllegalArgumentException("Applicant not found for NRIC: " + enquirerNRIC);
         }
         if (projectName == null || projectName.trim().isEmpty()) {
             throw new IllegalArgumentException("Project name cannot be empty.");
         }
-        if (BTOProject.getProjectByName(projectName) == null) {
+        if (checkReferences && BTOProject.getProjectByName(projectName) == null) {
             throw new IllegalArgumentException("Project not found: " + projectName);
         }
         if (!Validator.isValidEnquiryTitle(title)) {
@@ -71,6 +97,20 @@ public class Enquiry {
         return enquiryid;
     }
 
+    /**
+     * Gets the version of the enquiry's row when it was read. Changes based on an older version
+     * are rejected by the {@link EnquiryStore}.
+     *
+     * @return The row version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Gets the NRIC of the enquirer.
      *
@@ -117,6 +157,9 @@ public class Enquiry {
      * @return The detail.
      */
     public String getDetail() {
+        if (detail == null && source != null) {
+            return source.readText(this)[0];
+        }
         return detail;
     }
 
@@ -130,6 +173,7 @@ public class Enquiry {
         if (!Validator.isValidEnquiryDetail(detail)) {
             throw new IllegalArgumentException("Invalid enquiry detail: Must be non-empty and less than 500 characters.");
         }
+        loadText();
         this.detail = detail.trim();
     }
 
@@ -139,6 +183,9 @@ public class Enquiry {
      * @return The response, or null if not set.
      */
     public String getResponse() {
+        if (detail == null && source != null) {
+            return source.readText(this)[1];
+        }
         return response;
     }
 
@@ -152,6 +199,7 @@ public class Enquiry {
         if (response != null && response.trim().isEmpty()) {
             throw new IllegalArgumentException("Response cannot be empty if provided.");
         }
+        loadText();
         this.response = response != null ? response.trim() : null;
     }
 
@@ -162,6 +210,7 @@ public class Enquiry {
      * @throws IllegalStateException If required fields are null.
      */
     public String[] toCSVRow() {
+        loadText();
         if (enquirerNRIC == null || projectName == null || title == null || detail == null) {
             throw new IllegalStateException("Cannot generate CSV row: One or more required fields are null.");
         }
@@ -169,28 +218,145 @@ public class Enquiry {
     }
 
     /**
-     * Retrieves all enquiries from the CSV file.
+     * Drops the detail and response from memory; they are read back from the given row of the
+     * store's CSV file when next requested.
+     *
+     * @param source The store whose CSV file holds the enquiry's row.
+     * @param rowOffset The byte offset of the row in the file.
+     * @param rowLength The length of the row in bytes, excluding the line terminator.
+     */
+    void attach(EnquiryStore source, long rowOffset, int rowLength) {
+        this.source = source;
+        this.rowOffset = rowOffset;
+        this.rowLength = rowLength;
+        this.detail = null;
+        this.response = null;
+    }
+
+    /**
+     * Checks whether the detail and response are held in memory.
+     *
+     * @return True if the text is loaded, false if it is read on demand.
+     */
+    boolean isTextLoaded() {
+        return detail != null || source == null;
+    }
+
+    /**
+     * Sets the detail and response read from the enquiry's row without re-validating them.
+     *
+     * @param detail The detail read from the CSV file.
+     * @param response The response read from the CSV file.
+     */
+    void setText(String detail, String response) {
+        this.detail = detail.trim();
+        this.response = response != null ? response.trim() : null;
+    }
+
+    long getRowOffset() {
+        return rowOffset;
+    }
+
+    int getRowLength() {
+        return rowLength;
+    }
+
+    /**
+     * Reads the detail and response into memory if they are currently held only in the CSV file,
+     * so that they can be modified or written out.
+     */
+    private void loadText() {
+        if (!isTextLoaded()) {
+            String[] text = source.readText(this);
+            setText(text[0], text[1]);
+        }
+    }
+
+    /**
+     * Retrieves all enquiries in ascending ID order.
      *
      * @return A list of enquiries, or an empty list if an error occurs.
      */
     public static List<Enquiry> getEnquiries() {
-        List<String[]> raw = CSVUtils.readCSV(ENQUIRIES_CSV);
-        if (raw == null) {
-            return new ArrayList<>();
-        }
-        List<Enquiry> list = new ArrayList<>();
-        for (String[] row : raw) {
-            try {
-                if (row.length >= 6) {
-                    list.add(fromCSVRow(row));
-                } else {
-                    System.out.println("Skipping malformed row: " + String.join(",", row));
-                }
-            } catch (IllegalArgumentException e) {
-                System.out.println("Error parsing enquiry row: " + e.getMessage());
-            }
+        long started = Metrics.start();
+        try {
+            return EnquiryStore.getInstance().getAll();
+        } finally {
+            Metrics.getInstance().record("Enquiry.getEnquiries", started);
         }
-        return list;
+    }
+
+    /**
+     * Retrieves an enquiry by its ID.
+     *
+     * @param id The enquiry ID.
+     * @return The enquiry if found, null otherwise.
+     */
+    public static Enquiry getEnquiryById(int id) {
+        return EnquiryStore.getInstance().getById(id);
+    }
+
+    /**
+     * Retrieves one page of enquiries submitted by an enquirer.
+     *
+     * @param nric The NRIC of the enquirer.
+     * @param cursor The cursor returned by the previous page, or {@link EnquiryPage#START}.
+     * @param pageSize The maximum number of enquiries on the page.
+     * @return The requested page of enquiries.
+     * @throws IllegalArgumentException If the NRIC or page size is invalid.
+     */
+    public static EnquiryPage getEnquiriesByEnquirer(String nric, int cursor, int pageSize) {
+        if (!Validator.isValidNRIC(nric)) {
+            throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+        }
+        return EnquiryStore.getInstance().pageByEnquirer(nric, cursor, pageSize);
+    }
+
+    /**
+     * Retrieves one page of enquiries about a project.
+     *
+     * @param projectName The name of the project.
+     * @param cursor The cursor returned by the previous page, or {@link EnquiryPage#START}.
+     * @param pageSize The maximum number of enquiries on the page.
+     * @return The requested page of enquiries.
+     * @throws IllegalArgumentException If the project name or page size is invalid.
+     */
+    public static EnquiryPage getEnquiriesByProject(String projectName, int cursor, int pageSize) {
+        if (projectName == null || projectName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Project name cannot be empty.");
+        }
+        long started = Metrics.start();
+        try {
+            return EnquiryStore.getInstance().pageByProject(projectName, cursor, pageSize);
+        } finally {
+            Metrics.getInstance().record("Enquiry.getEnquiriesByProject", started);
+        }
+    }
+
+    /**
+     * Searches enquiry titles, details and responses. Bare words are ranked keywords and text in
+     * double quotes must appear as an exact phrase.
+     *
+     * @param query The query text.
+     * @param projectName The project to restrict results to, or null to search all projects.
+     * @param limit The maximum number of results.
+     * @return The matching enquiries, most relevant first.
+     * @throws IllegalArgumentException If the query is empty or the limit is not positive.
+     */
+    public static List<Enquiry> searchEnquiries(String query, String projectName, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty.");
+        }
+        return EnquiryStore.getInstance().search(query, projectName, limit);
+    }
+
+    /**
+     * Gets the next unused enquiry ID.
+     *
+     * @return The next enquiry ID.
+     */
+    public static int nextEnquiryId() {
+        return EnquiryStore.getInstance().nextId();
     }
 
     /**
@@ -203,16 +369,7 @@ public class Enquiry {
         if (enquirers == null) {
             throw new IllegalArgumentException("Enquiries list cannot be null.");
         }
-        enquirers.sort(Comparator.comparingInt(Enquiry::getId));
-        List<String[]> rows = new ArrayList<>();
-        for (Enquiry e : enquirers) {
-            if (e != null) {
-                rows.add(e.toCSVRow());
-            } else {
-                System.out.println("Skipping null enquiry.");
-            }
-        }
-        CSVUtils.writeCSV(ENQUIRIES_CSV, rows);
+        EnquiryStore.getInstance().replaceAll(enquirers);
     }
 
     /**
@@ -225,7 +382,31 @@ public class Enquiry {
         if (e == null) {
             throw new IllegalArgumentException("Enquiry cannot be null.");
         }
-        CSVUtils.appendToCSV(ENQUIRIES_CSV, e.toCSVRow());
+        EnquiryStore.getInstance().add(e);
+    }
+
+    /**
+     * Saves replies to several enquiries with a single write.
+     *
+     * @param replies A map from enquiry ID to reply text.
+     * @return The number of enquiries updated.
+     * @throws IllegalArgumentException If the map is null or a reply is invalid.
+     */
+    public static int saveReplies(Map<Integer, String> replies) {
+        if (replies == null) {
+            throw new IllegalArgumentException("Replies cannot be null.");
+        }
+        for (String reply : replies.values()) {
+            if (!Validator.isValidEnquiryResponse(reply)) {
+                throw new IllegalArgumentException("Invalid reply: Must be non-empty and up to 500 characters.");
+            }
+        }
+        long started = Metrics.start();
+        try {
+            return EnquiryStore.getInstance().replyAll(replies);
+        } finally {
+            Metrics.getInstance().record("Enquiry.saveReplies", started);
+        }
     }
 
     /**
@@ -270,21 +451,21 @@ public class Enquiry {
     }
 
     /**
-     * Updates an existing enquiry for a given NRIC and index.
+     * Updates an existing enquiry by its ID, provided it belongs to the given enquirer.
      *
      * @param nric The NRIC of the enquirer.
-     * @param index The index of the enquiry to update (0-based among enquiries for this NRIC).
+     * @param enquiryId The ID of the enquiry to update.
      * @param newTitle The new title for the enquiry.
      * @param newDetail The new detail for the enquiry.
      * @return True if the enquiry was updated, false if not found or invalid.
      * @throws IllegalArgumentException If any input is invalid.
      */
-    public static boolean updateEnquiry(String nric, int index, String newTitle, String newDetail) {
+    public static boolean updateEnquiry(String nric, int enquiryId, String newTitle, String newDetail) {
         if (!Validator.isValidNRIC(nric)) {
             throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
         }
-        if (index < 0) {
-            throw new IllegalArgumentException("Index cannot be negative.");
+        if (enquiryId < 0) {
+            throw new IllegalArgumentException("Enquiry ID cannot be negative.");
         }
         if (!Validator.isValidEnquiryTitle(newTitle)) {
             throw new IllegalArgumentException("Invalid enquiry title: Must be non-empty and less than 100 characters.");
@@ -292,64 +473,46 @@ public class Enquiry {
         if (!Validator.isValidEnquiryDetail(newDetail)) {
             throw new IllegalArgumentException("Invalid enquiry detail: Must be non-empty and less than 500 characters.");
         }
-        List<Enquiry> enquiries = getEnquiries();
-        if (enquiries == null) {
+        EnquiryStore store = EnquiryStore.getInstance();
+        Enquiry enquiry = store.getById(enquiryId);
+        if (enquiry == null || !enquiry.getEnquirerNRIC().equals(nric)) {
+            System.out.println("Enquiry not found for NRIC and ID.");
             return false;
         }
-        int count = -1;
-        for (int i = 0; i < enquiries.size(); i++) {
-            if (enquiries.get(i) != null && enquiries.get(i).getEnquirerNRIC().equals(nric)) {
-                count++;
-                if (count == index) {
-                    Enquiry enquiry = enquiries.get(i);
-                    enquiry.setTitle(newTitle);
-                    enquiry.setDetail(newDetail);
-                    writeEnquiries(enquiries);
-                    System.out.println("Enquiry updated successfully.");
-                    return true;
-                }
-            }
-        }
-        System.out.println("Enquiry not found for NRIC and index.");
-        return false;
+        store.update(enquiryId, enquiry.getVersion(), newTitle, newDetail);
+        System.out.println("Enquiry updated successfully.");
+        return true;
     }
 
     /**
-     * Removes an existing enquiry for a given NRIC and index, if it has no response.
+     * Removes an existing enquiry by its ID, if it belongs to the given enquirer and has no response.
      *
      * @param nric The NRIC of the enquirer.
-     * @param index The index of the enquiry to remove (0-based among enquiries for this NRIC).
+     * @param enquiryId The ID of the enquiry to remove.
      * @return True if the enquiry was removed, false if not found, invalid, or has a response.
      * @throws IllegalArgumentException If any input is invalid.
      */
-    public static boolean removeEnquiry(String nric, int index) {
+    public static boolean removeEnquiry(String nric, int enquiryId) {
         if (!Validator.isValidNRIC(nric)) {
             throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
         }
-        if (index < 0) {
-            throw new IllegalArgumentException("Index cannot be negative.");
+        if (enquiryId < 0) {
+            throw new IllegalArgumentException("Enquiry ID cannot be negative.");
         }
-        List<Enquiry> enquiries = getEnquiries();
-        if (enquiries == null) {
+        EnquiryStore store = EnquiryStore.getInstance();
+        Enquiry enquiry = store.getById(enquiryId);
+        if (enquiry == null || !enquiry.getEnquirerNRIC().equals(nric)) {
+            System.out.println("Enquiry not found for NRIC and ID.");
             return false;
         }
-        int count = -1;
-        for (int i = 0; i < enquiries.size(); i++) {
-            if (enquiries.get(i) != null && enquiries.get(i).getEnquirerNRIC().equals(nric)) {
-                count++;
-                if (count == index) {
-                    if (enquiries.get(i).getResponse() != null && !enquiries.get(i).getResponse().isEmpty()) {
-                        System.out.println("Cannot delete enquiry as it has a response.");
-                        return false;
-                    }
-                    enquiries.remove(i);
-                    writeEnquiries(enquiries);
-                    System.out.println("Enquiry deleted successfully.");
-                    return true;
-                }
-            }
+        // Checked at this version, so a reply that lands in between makes the removal fail.
+        long version = enquiry.getVersion();
+        if (enquiry.getResponse() != null && !enquiry.getResponse().isEmpty()) {
+            System.out.println("Cannot delete enquiry as it has a response.");
+            return false;
         }
-        System.out.println("Enquiry not found for NRIC and index.");
-        return false;
+        store.remove(enquiryId, version);
+        System.out.println("Enquiry deleted successfully.");
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package model;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import utils.Validator;
 
@@ -61,8 +63,8 @@ public interface EnquiryInt {
     }
 
     /**
-     * Displays enquiries for the specified project and allows the user to reply to them.
-     * Saves replies to the enquiry list if changes are made.
+     * Displays enquiries for the specified project one page at a time and allows the user to reply
+     * to them. Replies made on a page are saved together before the next page is shown.
      *
      * @param sc The Scanner object for reading user input.
      * @param assignedProject The name of the project to view enquiries for.
@@ -81,27 +83,19 @@ public interface EnquiryInt {
             System.out.println("Error: Project not found: " + assignedProject);
             return;
         }
-        List<Enquiry> enquiries = Enquiry.getEnquiries();
-        if (enquiries == null) {
-            System.out.println("Error: Unable to retrieve enquiries.");
-            return;
-        }
         boolean found = false;
-        boolean modified = false;
+        int saved = 0;
+        int cursor = EnquiryPage.START;
 
-        for (int i = 0; i < enquiries.size(); i++) {
-            Enquiry e = enquiries.get(i);
-            if (e == null) {
-                System.out.println("Warning: Skipping null enquiry.");
-                continue;
+        while (true) {
+            EnquiryPage page = Enquiry.getEnquiriesByProject(assignedProject, cursor, EnquiryStore.DEFAULT_PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
             }
-            if (e.getProjectName() != null && e.getProjectName().equalsIgnoreCase(assignedProject)) {
-                found = true;
-                System.out.println("\nEnquiry from NRIC : " + (e.getEnquirerNRIC() != null ? e.getEnquirerNRIC() : "<Unknown>"));
-                System.out.println("Title             : " + (e.getTitle() != null ? e.getTitle() : "<Unknown>"));
-                System.out.println("Detail            : " + (e.getDetail() != null ? e.getDetail() : "<Unknown>"));
-                System.out.println("Reply             : " +
-                        (e.getResponse() == null || e.getResponse().isEmpty() ? "<None>" : e.getResponse()));
+            found = true;
+            Map<Integer, String> replies = new LinkedHashMap<>();
+            for (Enquiry e : page.getItems()) {
+                printEnquiry(e);
                 System.out.print("Reply to this enquiry? (y/n): ");
                 String choice = sc.nextLine().trim();
                 while (!choice.equalsIgnoreCase("y") && !choice.equalsIgnoreCase("n")) {
@@ -115,25 +109,37 @@ public interface EnquiryInt {
                         System.out.print("Invalid reply: Must be non-empty and up to 500 characters. Enter reply: ");
                         reply = sc.nextLine().trim();
                     }
-                    e.setResponse(reply);
-                    modified = true;
+                    replies.put(e.getId(), reply);
+                }
+            }
+            if (!replies.isEmpty()) {
+                try {
+                    saved += Enquiry.saveReplies(replies);
+                    System.out.println("Replies saved.");
+                } catch (RuntimeException ex) {
+                    System.out.println("Error saving replies: " + ex.getMessage());
                 }
             }
+            if (!page.hasMore()) {
+                break;
+            }
+            System.out.print("Show next page of enquiries? (y/n): ");
+            if (!sc.nextLine().trim().equalsIgnoreCase("y")) {
+                break;
+            }
+            cursor = page.getNextCursor();
         }
 
-        if (found && modified) {
-            Enquiry.writeEnquiries(enquiries);
-            System.out.println("Replies saved.");
-        } else if (found && !modified) {
-            System.out.println("No replies were added.");
-        } else {
+        if (!found) {
             System.out.println("No enquiries found for project: " + assignedProject);
+        } else if (saved == 0) {
+            System.out.println("No replies were added.");
         }
-
     }
 
     /**
-     * Displays all enquiries for the specified project.
+     * Displays all enquiries for the specified project, reading them from the project index one
+     * page at a time.
      *
      * @param assignedProject The name of the project to view enquiries for.
      * @throws IllegalArgumentException If the project name is invalid.
@@ -148,29 +154,59 @@ public interface EnquiryInt {
             System.out.println("Error: Project not found: " + assignedProject);
             return;
         }
-        List<Enquiry> enquiries = Enquiry.getEnquiries();
-        if (enquiries == null) {
-            System.out.println("Error: Unable to retrieve enquiries.");
-            return;
-        }
+        int cursor = EnquiryPage.START;
         boolean found = false;
-
-        for (Enquiry e : enquiries) {
-            if (e == null) {
-                System.out.println("Warning: Skipping null enquiry.");
-                continue;
+        while (true) {
+            EnquiryPage page = Enquiry.getEnquiriesByProject(assignedProject, cursor, EnquiryStore.DEFAULT_PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
             }
-            if (e.getProjectName() != null && e.getProjectName().equalsIgnoreCase(assignedProject)) {
-                found = true;
-                System.out.println("\nEnquiry from NRIC : " + (e.getEnquirerNRIC() != null ? e.getEnquirerNRIC() : "<Unknown>"));
-                System.out.println("Title             : " + (e.getTitle() != null ? e.getTitle() : "<Unknown>"));
-                System.out.println("Detail            : " + (e.getDetail() != null ? e.getDetail() : "<Unknown>"));
-                System.out.println("Reply             : " +
-                        (e.getResponse() == null || e.getResponse().isEmpty() ? "<None>" : e.getResponse()));
+            found = true;
+            for (Enquiry e : page.getItems()) {
+                printEnquiry(e);
             }
+            if (!page.hasMore()) {
+                break;
+            }
+            cursor = page.getNextCursor();
         }
         if (!found) {
             System.out.println("No enquiries found for project: " + assignedProject);
         }
     }
+
+    /**
+     * Displays one page of enquiries for the specified project.
+     *
+     * @param assignedProject The name of the project to view enquiries for.
+     * @param cursor The cursor returned by the previous call, or {@link EnquiryPage#START}.
+     * @param pageSize The maximum number of enquiries to display.
+     * @return The cursor for the next page, {@link EnquiryPage#START} if this was the last page,
+     *         or the given cursor if the page was empty.
+     * @throws IllegalArgumentException If the project name or page size is invalid.
+     */
+    default int viewallEnquiries(String assignedProject, int cursor, int pageSize) {
+        EnquiryPage page = Enquiry.getEnquiriesByProject(assignedProject, cursor, pageSize);
+        if (page.isEmpty()) {
+            return cursor;
+        }
+        for (Enquiry e : page.getItems()) {
+            printEnquiry(e);
+        }
+        return page.hasMore() ? page.getNextCursor() : EnquiryPage.START;
+    }
+
+    /**
+     * Prints the details of a single enquiry.
+     *
+     * @param e The enquiry to print.
+     */
+    private void printEnquiry(Enquiry e) {
+        System.out.println("\nEnquiry ID        : " + e.getId());
+        System.out.println("Enquiry from NRIC : " + (e.getEnquirerNRIC() != null ? e.getEnquirerNRIC() : "<Unknown>"));
+        System.out.println("Title             : " + (e.getTitle() != null ? e.getTitle() : "<Unknown>"));
+        System.out.println("Detail            : " + (e.getDetail() != null ? e.getDetail() : "<Unknown>"));
+        System.out.println("Reply             : " +
+                (e.getResponse() == null || e.getResponse().isEmpty() ? "<None>" : e.getResponse()));
+    }
 }
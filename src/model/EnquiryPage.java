@@ -0,0 +1,73 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents one screen of enquiries returned by a cursor-based query on the enquiry store.
+ * The cursor is the ID of the last enquiry on the page; passing it back returns the next page.
+ *
+ * @author SC2002Team
+ */
+public class EnquiryPage {
+    /** Cursor value to pass in order to fetch the first page. */
+    public static final int START = -1;
+
+    final private List<Enquiry> items;
+    final private int nextCursor;
+    final private boolean hasMore;
+
+    /**
+     * Constructs an EnquiryPage with the specified items and cursor.
+     *
+     * @param items The enquiries on this page.
+     * @param nextCursor The cursor to pass to fetch the following page.
+     * @param hasMore True if more enquiries exist after this page.
+     * @throws IllegalArgumentException If the items list is null.
+     */
+    public EnquiryPage(List<Enquiry> items, int nextCursor, boolean hasMore) {
+        if (items == null) {
+            throw new IllegalArgumentException("Page items cannot be null.");
+        }
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Gets the enquiries on this page.
+     *
+     * @return An unmodifiable list of enquiries.
+     */
+    public List<Enquiry> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the cursor for the following page.
+     *
+     * @return The ID of the last enquiry on this page, or the original cursor if the page is empty.
+     */
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether more enquiries exist after this page.
+     *
+     * @return True if another page can be fetched, false otherwise.
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Checks whether this page contains no enquiries.
+     *
+     * @return True if the page is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
@@ -0,0 +1,69 @@
+package model;
+
+/**
+ * Event published when a response is saved for an enquiry.
+ *
+ * @author SC2002Team
+ */
+public class EnquiryReplied {
+    final private int enquiryId;
+    final private String enquirerNRIC;
+    final private String projectName;
+    final private String response;
+
+    /**
+     * Constructs an EnquiryReplied event.
+     *
+     * @param enquiryId The ID of the enquiry.
+     * @param enquirerNRIC The NRIC of the enquirer.
+     * @param projectName The name of the project enquired about.
+     * @param response The response text.
+     */
+    public EnquiryReplied(int enquiryId, String enquirerNRIC, String projectName, String response) {
+        this.enquiryId = enquiryId;
+        this.enquirerNRIC = enquirerNRIC;
+        this.projectName = projectName;
+        this.response = response;
+    }
+
+    /**
+     * Gets the ID of the enquiry.
+     *
+     * @return The ID of the enquiry.
+     */
+    public int getEnquiryId() {
+        return enquiryId;
+    }
+
+    /**
+     * Gets the NRIC of the enquirer.
+     *
+     * @return The NRIC of the enquirer.
+     */
+    public String getEnquirerNRIC() {
+        return enquirerNRIC;
+    }
+
+    /**
+     * Gets the name of the project.
+     *
+     * @return The name of the project.
+     */
+    public String getProjectName() {
+        return projectName;
+    }
+
+    /**
+     * Gets the response text.
+     *
+     * @return The response text.
+     */
+    public String getResponse() {
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return "EnquiryReplied[" + enquiryId + ", " + enquirerNRIC + ", " + projectName + "]";
+    }
+}
@@ -0,0 +1,731 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import utils.CSVUtils;
+import utils.EventBus;
+import utils.InvertedIndex;
+import utils.Log;
+import utils.RowVersions;
+import utils.StaleVersionException;
+import utils.Tracer;
+import utils.Validator;
+
+/**
+ * In-memory store of enquiries backed by the enquiries CSV file. Enquiries are indexed by their
+ * stable ID, by enquirer NRIC and by project, so single-enquiry lookups are O(1) and paginated
+ * views only touch the enquiries on the requested page. Titles, details and responses are also
+ * held in a full-text index that is kept up to date on every change. The store reloads itself
+ * whenever the CSV file is modified outside of it, and reloads itself from the file if a write
+ * fails, so that a failed change never stays in memory.
+ *
+ * <p>To keep the heap small, the store holds only the ID, NRIC, project and title of each enquiry.
+ * It also records the byte offset and length of each enquiry's row. The detail and response are
+ * read from the file with a positional read when requested.</p>
+ *
+ * <p>Each enquiry carries the version of its row (see {@link RowVersions}). Updates and removals
+ * can name the version they were based on, and are rejected if the enquiry changed since.</p>
+ *
+ * @author SC2002Team
+ */
+public class EnquiryStore {
+    /** Number of enquiries shown per screen by the paginated views. */
+    public static final int DEFAULT_PAGE_SIZE = 5;
+
+    private static final String CSV_SPLIT = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private static EnquiryStore instance;
+
+    final private String filepath;
+    final private Map<Integer, Enquiry> byId = new HashMap<>();
+    final private TreeSet<Integer> allIds = new TreeSet<>();
+    final private Map<String, TreeSet<Integer>> idsByEnquirer = new HashMap<>();
+    final private Map<String, TreeSet<Integer>> idsByProject = new HashMap<>();
+    final private InvertedIndex textIndex = new InvertedIndex();
+    final private RowVersions versions;
+    private long loadedModified = -1;
+    private long loadedLength = -1;
+
+    /**
+     * Constructs an EnquiryStore backed by the specified CSV file. The file is loaded lazily.
+     *
+     * @param filepath The path to the enquiries CSV file.
+     * @throws IllegalArgumentException If the filepath is null or empty.
+     */
+    public EnquiryStore(String filepath) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Enquiry store filepath cannot be empty.");
+        }
+        this.filepath = filepath;
+        this.versions = new RowVersions(filepath, row -> row.length >= 6 ? row[0].trim() : null);
+    }
+
+    /**
+     * Gets the shared store backed by the system's enquiries CSV file.
+     *
+     * @return The shared EnquiryStore.
+     */
+    public static synchronized EnquiryStore getInstance() {
+        if (instance == null) {
+            instance = new EnquiryStore(Enquiry.ENQUIRIES_CSV);
+        }
+        return instance;
+    }
+
+    /**
+     * Retrieves all enquiries in ascending ID order.
+     *
+     * @return A list of all enquiries.
+     */
+    public synchronized List<Enquiry> getAll() {
+        refreshIfChanged();
+        List<Enquiry> list = new ArrayList<>(allIds.size());
+        for (int id : allIds) {
+            list.add(byId.get(id));
+        }
+        return list;
+    }
+
+    /**
+     * Retrieves an enquiry by its ID.
+     *
+     * @param id The enquiry ID.
+     * @return The enquiry, or null if not found.
+     */
+    public synchronized Enquiry getById(int id) {
+        refreshIfChanged();
+        return byId.get(id);
+    }
+
+    /**
+     * Retrieves all enquiries submitted by the specified enquirer in ascending ID order.
+     *
+     * @param nric The NRIC of the enquirer.
+     * @return A list of the enquirer's enquiries.
+     */
+    public synchronized List<Enquiry> getByEnquirer(String nric) {
+        refreshIfChanged();
+        List<Enquiry> list = new ArrayList<>();
+        TreeSet<Integer> ids = idsByEnquirer.get(enquirerKey(nric));
+        if (ids != null) {
+            for (int id : ids) {
+                list.add(byId.get(id));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Retrieves one page of enquiries submitted by the specified enquirer.
+     *
+     * @param nric The NRIC of the enquirer.
+     * @param cursor The cursor returned by the previous page, or {@link EnquiryPage#START}.
+     * @param pageSize The maximum number of enquiries on the page.
+     * @return The requested page.
+     * @throws IllegalArgumentException If the page size is not positive.
+     */
+    public synchronized EnquiryPage pageByEnquirer(String nric, int cursor, int pageSize) {
+        refreshIfChanged();
+        return page(idsByEnquirer.get(enquirerKey(nric)), cursor, pageSize);
+    }
+
+    /**
+     * Retrieves one page of enquiries about the specified project.
+     *
+     * @param projectName The name of the project (case-insensitive).
+     * @param cursor The cursor returned by the previous page, or {@link EnquiryPage#START}.
+     * @param pageSize The maximum number of enquiries on the page.
+     * @return The requested page.
+     * @throws IllegalArgumentException If the page size is not positive.
+     */
+    public synchronized EnquiryPage pageByProject(String projectName, int cursor, int pageSize) {
+        refreshIfChanged();
+        return page(idsByProject.get(projectKey(projectName)), cursor, pageSize);
+    }
+
+    /**
+     * Searches enquiry titles, details and responses. Bare words are ranked keywords and text in
+     * double quotes must appear as an exact phrase.
+     *
+     * @param query The query text.
+     * @param projectName The project to restrict results to, or null to search all projects.
+     * @param limit The maximum number of results.
+     * @return The matching enquiries, most relevant first.
+     * @throws IllegalArgumentException If the query is null or the limit is not positive.
+     */
+    public synchronized List<Enquiry> search(String query, String projectName, int limit) {
+        refreshIfChanged();
+        List<Enquiry> results = new ArrayList<>();
+        for (InvertedIndex.Hit hit : textIndex.search(query, projectName, limit)) {
+            results.add(byId.get(hit.getDocId()));
+        }
+        return results;
+    }
+
+    /**
+     * Gets the next unused enquiry ID.
+     *
+     * @return One more than the highest stored ID, or 1 if the store is empty.
+     */
+    public synchronized int nextId() {
+        refreshIfChanged();
+        return allIds.isEmpty() ? 1 : allIds.last() + 1;
+    }
+
+    /**
+     * Adds a new enquiry and appends it to the CSV file.
+     *
+     * @param e The enquiry to add.
+     * @throws IllegalArgumentException If the enquiry is null or its ID is already in use.
+     */
+    public synchronized void add(Enquiry e) {
+        if (e == null) {
+            throw new IllegalArgumentException("Enquiry cannot be null.");
+        }
+        refreshIfChanged();
+        if (byId.containsKey(e.getId())) {
+            throw new IllegalArgumentException("Enquiry ID already exists: " + e.getId());
+        }
+        long offset = new File(filepath).length();
+        CSVUtils.appendToCSV(filepath, e.toCSVRow());
+        index(e);
+        indexText(e);
+        int length = (int) (new File(filepath).length() - offset - System.lineSeparator().getBytes(CHARSET).length);
+        e.attach(this, offset, length);
+        stamp();
+    }
+
+    /**
+     * Updates the title and detail of an enquiry and persists the change.
+     *
+     * @param id The enquiry ID.
+     * @param newTitle The new title.
+     * @param newDetail The new detail.
+     * @return True if the enquiry was updated, false if not found.
+     * @throws IllegalArgumentException If the title or detail is invalid.
+     */
+    public synchronized boolean update(int id, String newTitle, String newDetail) {
+        refreshIfChanged();
+        Enquiry enquiry = byId.get(id);
+        return enquiry != null && update(id, enquiry.getVersion(), newTitle, newDetail);
+    }
+
+    /**
+     * Updates the title and detail of an enquiry and persists the change, provided the enquiry is
+     * still at the version the caller read.
+     *
+     * @param id The enquiry ID.
+     * @param expectedVersion The version of the enquiry the change is based on.
+     * @param newTitle The new title.
+     * @param newDetail The new detail.
+     * @return True if the enquiry was updated, false if not found.
+     * @throws IllegalArgumentException If the title or detail is invalid.
+     * @throws StaleVersionException If the enquiry was changed since that version.
+     */
+    public synchronized boolean update(int id, long expectedVersion, String newTitle, String newDetail) {
+        refreshIfChanged();
+        Enquiry enquiry = byId.get(id);
+        if (enquiry == null) {
+            return false;
+        }
+        checkVersion(enquiry, expectedVersion);
+        enquiry.setTitle(newTitle);
+        enquiry.setDetail(newDetail);
+        indexText(enquiry);
+        persistOrReload();
+        return true;
+    }
+
+    /**
+     * Sets the responses of several enquiries and persists them with a single write.
+     *
+     * @param replies A map from enquiry ID to response text.
+     * @return The number of enquiries updated.
+     * @throws IllegalArgumentException If the map is null or a response is invalid.
+     */
+    public synchronized int replyAll(Map<Integer, String> replies) {
+        if (replies == null) {
+            throw new IllegalArgumentException("Replies cannot be null.");
+        }
+        refreshIfChanged();
+        List<EnquiryReplied> events = new ArrayList<>();
+        for (Map.Entry<Integer, String> reply : replies.entrySet()) {
+            Enquiry enquiry = byId.get(reply.getKey());
+            if (enquiry != null) {
+                enquiry.setResponse(reply.getValue());
+                indexText(enquiry);
+                events.add(new EnquiryReplied(enquiry.getId(), enquiry.getEnquirerNRIC(), enquiry.getProjectName(), reply.getValue()));
+            }
+        }
+        if (!events.isEmpty()) {
+            persistOrReload();
+            EventBus.getDefault().publishAll(events);
+        }
+        return events.size();
+    }
+
+    /**
+     * Removes an enquiry and persists the change.
+     *
+     * @param id The enquiry ID.
+     * @return True if the enquiry was removed, false if not found.
+     */
+    public synchronized boolean remove(int id) {
+        refreshIfChanged();
+        Enquiry enquiry = byId.get(id);
+        return enquiry != null && remove(id, enquiry.getVersion());
+    }
+
+    /**
+     * Removes an enquiry and persists the change, provided the enquiry is still at the version the
+     * caller read.
+     *
+     * @param id The enquiry ID.
+     * @param expectedVersion The version of the enquiry the removal is based on.
+     * @return True if the enquiry was removed, false if not found.
+     * @throws StaleVersionException If the enquiry was changed since that version.
+     */
+    public synchronized boolean remove(int id, long expectedVersion) {
+        refreshIfChanged();
+        Enquiry enquiry = byId.get(id);
+        if (enquiry == null) {
+            return false;
+        }
+        checkVersion(enquiry, expectedVersion);
+        byId.remove(id);
+        allIds.remove(id);
+        removeFromIndex(idsByEnquirer, enquirerKey(enquiry.getEnquirerNRIC()), id);
+        removeFromIndex(idsByProject, projectKey(enquiry.getProjectName()), id);
+        textIndex.remove(id);
+        persistOrReload();
+        return true;
+    }
+
+    /**
+     * Replaces the contents of the store with the given enquiries and rewrites the CSV file.
+     *
+     * @param enquiries The enquiries to store.
+     * @throws IllegalArgumentException If the list is null.
+     */
+    public synchronized void replaceAll(List<Enquiry> enquiries) {
+        if (enquiries == null) {
+            throw new IllegalArgumentException("Enquiries list cannot be null.");
+        }
+        refreshIfChanged();
+        materialize(enquiries);
+        clear();
+        for (Enquiry e : enquiries) {
+            if (e != null) {
+                index(e);
+                indexText(e);
+            }
+        }
+        persistOrReload();
+    }
+
+    /**
+     * Persists any in-memory changes made directly to enquiries held by this store. Only enquiries
+     * whose text has been loaded can have been modified, so only those are re-indexed.
+     */
+    public synchronized void save() {
+        for (Enquiry e : byId.values()) {
+            if (e.isTextLoaded()) {
+                indexText(e);
+            }
+        }
+        persistOrReload();
+    }
+
+    /**
+     * Builds a page from an ID index, starting after the given cursor.
+     *
+     * @param ids The ID index to page through, or null if empty.
+     * @param cursor The cursor to start after.
+     * @param pageSize The maximum number of items on the page.
+     * @return The requested page.
+     */
+    private EnquiryPage page(TreeSet<Integer> ids, int cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        List<Enquiry> items = new ArrayList<>(pageSize);
+        if (ids == null) {
+            return new EnquiryPage(items, cursor, false);
+        }
+        int last = cursor;
+        for (int id : ids.tailSet(cursor, false)) {
+            if (items.size() == pageSize) {
+                break;
+            }
+            items.add(byId.get(id));
+            last = id;
+        }
+        return new EnquiryPage(items, last, ids.higher(last) != null);
+    }
+
+    /**
+     * Reloads the store if the CSV file was modified since it was last read or written.
+     */
+    private void refreshIfChanged() {
+        File file = new File(filepath);
+        if (file.lastModified() != loadedModified || file.length() != loadedLength) {
+            load();
+        }
+    }
+
+    /**
+     * Loads all enquiries from the CSV file and rebuilds the indexes. Referenced applicants and
+     * projects are validated against sets read once per load rather than once per row.
+     */
+    private void load() {
+        clear();
+        File file = new File(filepath);
+        if (!file.exists()) {
+            stamp();
+            return;
+        }
+        Set<String> knownNrics = new HashSet<>();
+        for (String[] row : CSVUtils.readCSV(User.USERS_CSV)) {
+            if (row.length >= 4) {
+                knownNrics.add(row[1].trim());
+            }
+        }
+        Set<String> knownProjects = new HashSet<>();
+        for (BTOProject project : BTOProject.getProjects()) {
+            knownProjects.add(projectKey(project.getProjectName()));
+        }
+        Map<String, Long> known = versions.snapshot();
+        Log.Tally skipped = Log.tally(filepath);
+        scanRows((row, offset, length) -> {
+            try {
+                if (row.length < 6) {
+                    skipped.add("Malformed row", row);
+                    return;
+                }
+                Enquiry e = parseRow(row, knownNrics, knownProjects);
+                e.setVersion(known.getOrDefault(row[0].trim(), 0L));
+                index(e);
+                indexText(e);
+                e.attach(this, offset, length);
+            } catch (IllegalArgumentException e) {
+                skipped.add(e.getMessage(), row);
+            }
+        });
+        skipped.flush();
+        stamp();
+    }
+
+    /**
+     * Reads the detail and response of an enquiry from its row in the CSV file. If the file has
+     * changed since the enquiry was loaded, the store is reloaded and the enquiry re-pointed at
+     * its current row first.
+     *
+     * @param e The enquiry to read.
+     * @return A two-element array holding the detail and the response.
+     * @throws IllegalStateException If the enquiry no longer exists in the file.
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    synchronized String[] readText(Enquiry e) {
+        refreshIfChanged();
+        Enquiry current = byId.get(e.getId());
+        if (current == null) {
+            throw new IllegalStateException("Enquiry no longer exists: " + e.getId());
+        }
+        if (current != e) {
+            if (current.isTextLoaded()) {
+                return new String[] { current.getDetail(), current.getResponse() };
+            }
+            e.attach(this, current.getRowOffset(), current.getRowLength());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(e.getRowLength());
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, e.getRowOffset() + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading enquiry " + e.getId() + " from " + filepath + " - " + ex.getMessage());
+        }
+        Tracer.countRead(buffer.position(), 1);
+        String[] row = splitRow(new String(buffer.array(), 0, buffer.position(), CHARSET));
+        if (row.length < 6) {
+            throw new IllegalStateException("Malformed row for enquiry " + e.getId() + " in " + filepath);
+        }
+        return new String[] { row[4].trim(), row[5].trim() };
+    }
+
+    /**
+     * Loads the text of every given enquiry that is still held only in the CSV file, using one
+     * sequential read of the file instead of one positional read per enquiry.
+     *
+     * @param enquiries The enquiries whose text should be loaded.
+     */
+    private void materialize(Collection<Enquiry> enquiries) {
+        Map<Long, Enquiry> wanted = new HashMap<>();
+        for (Enquiry e : enquiries) {
+            if (e != null && !e.isTextLoaded()) {
+                if (byId.get(e.getId()) != e) {
+                    e.toCSVRow(); // Not from the current load; let it re-resolve its own row.
+                } else {
+                    wanted.put(e.getRowOffset(), e);
+                }
+            }
+        }
+        if (wanted.isEmpty()) {
+            return;
+        }
+        scanRows((row, offset, length) -> {
+            Enquiry e = wanted.get(offset);
+            if (e != null && row.length >= 6) {
+                e.setText(row[4], row[5]);
+            }
+        });
+    }
+
+    /**
+     * Callback for {@link #scanRows(RowVisitor)}.
+     */
+    private interface RowVisitor {
+        /**
+         * Visits one row of the CSV file.
+         *
+         * @param row The row split into fields.
+         * @param offset The byte offset of the row in the file.
+         * @param length The length of the row in bytes, excluding the line terminator.
+         */
+        void visit(String[] row, long offset, int length);
+    }
+
+    /**
+     * Reads the CSV file sequentially, passing each non-empty row with its byte offset and length
+     * to the visitor.
+     *
+     * @param visitor The visitor to call for each row.
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    private void scanRows(RowVisitor visitor) {
+        File file = new File(filepath);
+        if (!file.exists()) {
+            return;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] chunk = new byte[64 * 1024];
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long position = 0;
+            long lineStart = 0;
+            long rows = 0;
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] == '\n') {
+                        line.write(chunk, from, i - from);
+                        emitRow(line, lineStart, visitor);
+                        line.reset();
+                        from = i + 1;
+                        lineStart = position + i + 1;
+                        rows++;
+                    }
+                }
+                line.write(chunk, from, read - from);
+                position += read;
+            }
+            emitRow(line, lineStart, visitor);
+            Tracer.countRead(position, line.size() > 0 ? rows + 1 : rows);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV file: " + filepath + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes one line collected by {@link #scanRows(RowVisitor)} and passes it to the visitor.
+     *
+     * @param line The raw bytes of the line, without the newline.
+     * @param offset The byte offset of the line in the file.
+     * @param visitor The visitor to call.
+     */
+    private static void emitRow(ByteArrayOutputStream line, long offset, RowVisitor visitor) {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        if (length == 0) {
+            return;
+        }
+        visitor.visit(splitRow(new String(bytes, 0, length, CHARSET)), offset, length);
+    }
+
+    /**
+     * Splits a CSV line into fields, ignoring commas within quoted values.
+     *
+     * @param line The line to split.
+     * @return The fields of the line.
+     */
+    private static String[] splitRow(String line) {
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1); // Remove BOM
+        }
+        return line.split(CSV_SPLIT, -1);
+    }
+
+    /**
+     * Converts a CSV row to an Enquiry, validating references against preloaded sets.
+     *
+     * @param row The CSV row data.
+     * @param knownNrics The NRICs present in the users file.
+     * @param knownProjects The lower-cased names of existing projects.
+     * @return An Enquiry object.
+     * @throws IllegalArgumentException If the row is invalid.
+     */
+    private static Enquiry parseRow(String[] row, Set<String> knownNrics, Set<String> knownProjects) {
+        int enquiryid;
+        try {
+            enquiryid = Integer.parseInt(row[0].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid enquiry ID: Must be a non-negative integer.");
+        }
+        if (!Validator.isValidNRIC(row[1])) {
+            throw new IllegalArgumentException("Invalid NRIC in CSV row: " + row[1]);
+        }
+        if (!knownNrics.contains(row[1])) {
+            throw new IllegalArgumentException("Applicant not found for NRIC: " + row[1]);
+        }
+        if (row[2] == null || !knownProjects.contains(projectKey(row[2]))) {
+            throw new IllegalArgumentException("Project not found: " + row[2]);
+        }
+        return new Enquiry(enquiryid, row[1], row[2], row[3], row[4], row[5], false);
+    }
+
+    /**
+     * Persists the changes made to the store. If the write fails, the store is reloaded from the
+     * file, so that it never holds changes the file does not.
+     *
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    private void persistOrReload() {
+        try {
+            persist();
+        } catch (RuntimeException e) {
+            loadedModified = -1; // Reload on the next access if this reload fails too
+            try {
+                load();
+            } catch (RuntimeException reloadFailed) {
+                clear();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites the CSV file from the store in ascending ID order, then drops the detail and
+     * response of every enquiry from memory and records their new row offsets.
+     */
+    private void persist() {
+        materialize(byId.values());
+        List<String[]> rows = new ArrayList<>(allIds.size());
+        for (int id : allIds) {
+            rows.add(byId.get(id).toCSVRow());
+        }
+        Map<String, Long> written = versions.write(rows);
+        stamp();
+        for (int id : allIds) {
+            byId.get(id).setVersion(written.getOrDefault(Integer.toString(id), 0L));
+        }
+
+        // Rows are written one per line in ID order, so the new offsets follow from their lengths.
+        int separator = System.lineSeparator().getBytes(CHARSET).length;
+        long offset = 0;
+        int i = 0;
+        for (int id : allIds) {
+            int length = String.join(",", rows.get(i++)).getBytes(CHARSET).length;
+            byId.get(id).attach(this, offset, length);
+            offset += length + separator;
+        }
+    }
+
+    private static void checkVersion(Enquiry e, long expectedVersion) {
+        if (e.getVersion() != expectedVersion) {
+            throw new StaleVersionException("enquiry " + e.getId(), expectedVersion, e.getVersion());
+        }
+    }
+
+    /**
+     * Adds an enquiry to the ID, enquirer and project indexes. Its text is indexed separately by
+     * {@link #indexText(Enquiry)}.
+     *
+     * @param e The enquiry to index.
+     */
+    private void index(Enquiry e) {
+        byId.put(e.getId(), e);
+        allIds.add(e.getId());
+        idsByEnquirer.computeIfAbsent(enquirerKey(e.getEnquirerNRIC()), k -> new TreeSet<>()).add(e.getId());
+        idsByProject.computeIfAbsent(projectKey(e.getProjectName()), k -> new TreeSet<>()).add(e.getId());
+    }
+
+    /**
+     * Adds or refreshes an enquiry's title, detail and response in the full-text index.
+     *
+     * @param e The enquiry to index.
+     */
+    private void indexText(Enquiry e) {
+        textIndex.put(e.getId(), e.getProjectName(), e.getTitle(), e.getDetail(), e.getResponse());
+    }
+
+    /**
+     * Removes an ID from a secondary index, dropping the key once it has no IDs left.
+     *
+     * @param index The secondary index.
+     * @param key The index key.
+     * @param id The enquiry ID to remove.
+     */
+    private static void removeFromIndex(Map<String, TreeSet<Integer>> index, String key, int id) {
+        TreeSet<Integer> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Clears all indexes.
+     */
+    private void clear() {
+        byId.clear();
+        allIds.clear();
+        idsByEnquirer.clear();
+        idsByProject.clear();
+        textIndex.clear();
+    }
+
+    /**
+     * Records the current modification time and length of the CSV file.
+     */
+    private void stamp() {
+        File file = new File(filepath);
+        loadedModified = file.lastModified();
+        loadedLength = file.length();
+    }
+
+    private static String enquirerKey(String nric) {
+        return nric == null ? "" : nric.trim();
+    }
+
+    private static String projectKey(String projectName) {
+        return projectName == null ? "" : projectName.trim().toLowerCase();
+    }
+}
@@ -163,7 +163,8 @@ public class HDBManager extends User implements EnquiryInt {
     }
 
     /**
-     * Edits an existing BTO project and updates the CSV file.
+     * Edits an existing BTO project and updates the CSV file. If the edit leaves units free,
+     * waitlisted applicants are promoted into them.
      *
      * @param project The updated project object.
      * @throws IllegalArgumentException If the project is invalid or not managed by this manager.
@@ -179,7 +180,9 @@ public class HDBManager extends User implements EnquiryInt {
             throw new IllegalArgumentException("You are not the manager of project: " + project.getProjectName());
         }
         try {
-            BTOProject.editProject(project);
+            for (String nric : BTOProject.editProject(project)) {
+                System.out.println("Promoted from waitlist to Successful: " + nric);
+            }
         } catch (RuntimeException e) {
             System.out.println("Error updating project: " + e.getMessage());
         }
@@ -240,30 +243,12 @@ public class HDBManager extends User implements EnquiryInt {
     }
 
     /**
-     * Retrieves all pending withdrawal requests from the CSV file.
+     * Retrieves all pending withdrawal requests from the withdrawal store's status index.
      *
      * @return A list of pending WithdrawalRequest objects.
      */
     public static List<WithdrawalRequest> viewPendingWithdrawals() {
-        List<String[]> rows = CSVUtils.readCSV("data/withdrawals.csv");
-        List<WithdrawalRequest> pending = new ArrayList<>();
-        if (rows == null) {
-            System.out.println("Warning: Unable to read withdrawals CSV.");
-            return pending;
-        }
-        for (String[] row : rows) {
-            try {
-                WithdrawalRequest req = WithdrawalRequest.fromCSV(row);
-                if (req != null && req.getStatus() != null && req.getStatus().equalsIgnoreCase("Pending")) {
-                    pending.add(req);
-                }
-            } catch (IllegalArgumentException e) {
-                System.out.println("Warning: Invalid withdrawal request in CSV: " + String.join(",", row));
-            }
-        }
-        
-        return pending;
-
+        return WithdrawalStore.getInstance().getPending();
     }
 
     /**
@@ -318,7 +303,7 @@ public class HDBManager extends User implements EnquiryInt {
     /**
      * Displays enquiries for the specified project and allows the manager to reply to them.
      * Only enquiries for projects managed by this manager are shown.
-     * Saves replies to the enquiry list if changes are made.
+     * Enquiries are shown one page at a time and the replies on each page are saved together.
      *
      * @param sc The Scanner object for reading user input.
      * @param assignedProject The name of the project to view enquiries for.
@@ -343,61 +328,6 @@ public class HDBManager extends User implements EnquiryInt {
             System.out.println("Error: You are not the manager of project: " + assignedProject);
             return;
         }
-        List<Enquiry> enquiries = Enquiry.getEnquiries();
-        if (enquiries == null) {
-            System.out.println("Error: Unable to retrieve enquiries.");
-            return;
-        }
-        boolean found = false;
-        boolean modified = false;
-
-        for (int i = 0; i < enquiries.size(); i++) {
-            Enquiry e = enquiries.get(i);
-            if (e == null) {
-                System.out.println("Warning: Skipping null enquiry.");
-                continue;
-            }
-            if (e.getProjectName() != null && e.getProjectName().equalsIgnoreCase(assignedProject)) {
-                found = true;
-                System.out.println("\nEnquiry from NRIC : " + (e.getEnquirerNRIC() != null ? e.getEnquirerNRIC() : "<Unknown>"));
-                System.out.println("Title             : " + (e.getTitle() != null ? e.getTitle() : "<Unknown>"));
-                System.out.println("Detail            : " + (e.getDetail() != null ? e.getDetail() : "<Unknown>"));
-                System.out.println("Reply             : " +
-                        (e.getResponse() == null || e.getResponse().isEmpty() ? "<None>" : e.getResponse()));
-                System.out.print("Reply to this enquiry? (y/n): ");
-                String choice = sc.nextLine().trim();
-                while (!choice.equalsIgnoreCase("y") && !choice.equalsIgnoreCase("n")) {
-                    System.out.print("Invalid input. Please enter 'y' or 'n': ");
-                    choice = sc.nextLine().trim();
-                }
-                if (choice.equalsIgnoreCase("y")) {
-                    System.out.print("Enter reply: ");
-                    String reply = sc.nextLine().trim();
-                    while (!Validator.isValidEnquiryResponse(reply)) {
-                        System.out.print("Invalid reply: Must be non-empty and up to 500 characters. Enter reply: ");
-                        reply = sc.nextLine().trim();
-                    }
-                    try {
-                        e.setResponse(reply);
-                        modified = true;
-                    } catch (IllegalArgumentException ex) {
-                        System.out.println("Error setting response: " + ex.getMessage());
-                    }
-                }
-            }
-        }
-
-        if (found && modified) {
-            try {
-                Enquiry.writeEnquiries(enquiries);
-                System.out.println("Replies saved.");
-            } catch (RuntimeException e) {
-                System.out.println("Error saving replies: " + e.getMessage());
-            }
-        } else if (found && !modified) {
-            System.out.println("No replies were added.");
-        } else {
-            System.out.println("No enquiries found for project: " + assignedProject);
-        }
+        EnquiryInt.super.viewAndReplyEnquiries(sc, assignedProject);
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import java.time.LocalDate;
 import java.util.*;
 
 import utils.CSVUtils;
+import utils.Log;
 import utils.Validator;
 
 /**
@@ -58,7 +59,7 @@ public class HDBOfficer extends Applicant implements EnquiryInt {
                     break;
                 }
             } catch (Exception e) {
-                System.out.println("Warning: Error parsing officer list for project: " + (project.getProjectName() != null ? project.getProjectName() : "<Unknown>"));
+                Log.warn("Error parsing officer list for project: {}", project.getProjectName());
             }
         }
     }
@@ -196,7 +197,9 @@ public class HDBOfficer extends Applicant implements EnquiryInt {
 
     /**
      * Handles flat selection for a successful application by updating the application
-     * and project details.
+     * and project details together (see {@link BookingBatch}). Booking consumes the applicant's
+     * unit hold; without one, a unit must be free of other applicants' holds. The booking receipt
+     * is generated in the background by the {@link ReceiptPipeline}.
      *
      * @param application The BTOApplication to process.
      * @param flatType The selected flat type (e.g., "2-Room", "3-Room").
@@ -220,32 +223,51 @@ public class HDBOfficer extends Applicant implements EnquiryInt {
             return;
         }
 
-        boolean flatTypeExists = false;
-        boolean unitsAvailable = false;
+        Room room = null;
         for (Room type : projectAssigned.getRooms()) {
             if (type != null && type.getRoomType() != null && type.getRoomType().equalsIgnoreCase(flatType)) {
-                flatTypeExists = true;
-                if (type.getUnits() > 0) {
-                    try {
-                        type.setUnits(type.getUnits() - 1);
-                        application.setFlatType(flatType);
-                        application.setStatus("Booked");
-                        BTOProject.editProject(projectAssigned);
-                        BTOApplication.updateBTOApplication(application);
-                        Receipt.fromBTOApplication(application).printReceipt();
-                        System.out.println("Flat selection completed for application: " + application.getApplicantNRIC());
-                    } catch (RuntimeException e) {
-                        System.out.println("Error processing flat selection: " + e.getMessage());
-                    }
-                    return;
-                }
+                room = type;
+                break;
             }
         }
-        if (!flatTypeExists) {
+        if (room == null) {
             System.out.println("Error: Flat type not available in project: " + flatType);
-        } else if (!unitsAvailable) {
-            System.out.println("Error: No units available for flat type: " + flatType);
+            return;
+        }
+        String nric = application.getApplicantNRIC();
+        BatchResult result;
+        try {
+            result = BookingBatch.book(projectAssigned.getProjectName(),
+                    Collections.singletonList(new String[] { nric, flatType }));
+        } catch (RuntimeException e) {
+            System.out.println("Error processing flat selection: " + e.getMessage());
+            return;
+        }
+        if (!result.getSucceeded().contains(nric)) {
+            System.out.println("Error: " + result.getOutcomes().get(nric));
+            return;
         }
+        room.setUnits(Math.max(0, room.getUnits() - 1));
+        application.setFlatType(room.getRoomType());
+        application.setStatus("Booked");
+        System.out.println("Flat selection completed for application: " + nric);
+        System.out.println("The booking receipt is being generated and can be printed from the menu.");
+    }
+
+    /**
+     * Books flats for several successful applicants of the assigned project in one batch.
+     *
+     * @param bookings Rows of [NRIC, flat type]; an empty flat type books the type applied for.
+     * @return The outcome for each NRIC.
+     * @throws IllegalArgumentException If the list is null.
+     * @throws IllegalStateException If no project is assigned to this officer.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BatchResult bookFlats(List<String[]> bookings) {
+        if (projectAssigned == null) {
+            throw new IllegalStateException("No project assigned to this officer.");
+        }
+        return BookingBatch.book(projectAssigned.getProjectName(), bookings);
     }
 
     /**
@@ -259,14 +281,16 @@ public class HDBOfficer extends Applicant implements EnquiryInt {
         if (!Validator.isValidNRIC(nric)) {
             throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
         }
-        List<String[]> users = CSVUtils.readCSV("data/users.csv");
+        List<String[]> users = CSVUtils.readCSV(User.USERS_CSV);
         if (users == null) {
             System.out.println("Warning: Unable to read users CSV.");
             return null;
         }
+        Log.Tally skipped = Log.tally(User.USERS_CSV);
+        HDBOfficer officer = null;
         for (String[] row : users) {
             if (row.length < 4) {
-                System.out.println("Warning: Malformed user row in CSV.");
+                skipped.add("Malformed row", row);
                 continue;
             }
             if (row[1].equals(nric)) {
@@ -274,15 +298,17 @@ public class HDBOfficer extends Applicant implements EnquiryInt {
                     String name = row[0];
                     int age = Integer.parseInt(row[2]);
                     String maritalStatus = row[3];
-                    return new HDBOfficer(name, nric, age, maritalStatus);
+                    officer = new HDBOfficer(name, nric, age, maritalStatus);
+                    break;
                 } catch (NumberFormatException e) {
-                    System.out.println("Warning: Invalid age in user row for NRIC: " + nric);
+                    skipped.add("Invalid age", row);
                 } catch (IllegalArgumentException e) {
-                    System.out.println("Warning: Invalid user data for NRIC: " + nric + " - " + e.getMessage());
+                    skipped.add(e.getMessage(), row);
                 }
             }
         }
-        return null;
+        skipped.flush();
+        return officer;
     }
 
     /**
@@ -3,8 +3,15 @@ package model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 import utils.CSVUtils;
+import utils.Log;
+import utils.RowVersions;
+import utils.StaleVersionException;
+import utils.Transaction;
 import utils.Validator;
+import utils.VersionedRows;
 
 /**
  * Represents an officer's application to be assigned to a BTO project in the HDB BTO Management System.
@@ -17,7 +24,10 @@ public class OfficerApplication {
     private String officerNRIC;
     private String project;
     private String status;
-    private static final String OFFICERAPPLICATION_CSV = "data/OfficerApplication.csv";
+    private long version;
+    static final String OFFICERAPPLICATION_CSV = "data/OfficerApplication.csv";
+    private static final RowVersions VERSIONS = new RowVersions(OFFICERAPPLICATION_CSV,
+            row -> row.length >= 3 ? versionKey(row[0], row[1]) : null);
 
     /**
      * Constructs an OfficerApplication with the specified details.
@@ -28,13 +38,17 @@ public class OfficerApplication {
      * @throws IllegalArgumentException If any input is invalid.
      */
     public OfficerApplication(String officerNRIC, String project, String status) {
+        this(officerNRIC, project, status, name -> BTOProject.getProjectByName(name) != null);
+    }
+
+    private OfficerApplication(String officerNRIC, String project, String status, Predicate<String> projectExists) {
         if (!Validator.isValidNRIC(officerNRIC)) {
             throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
         }
         if (!Validator.isValidProjectName(project)) {
             throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
         }
-        if (BTOProject.getProjectByName(project) == null) {
+        if (!projectExists.test(project)) {
             throw new IllegalArgumentException("Project does not exist: " + project);
         }
         if (!isValidStatus(status)) {
@@ -101,6 +115,16 @@ public class OfficerApplication {
         return status;
     }
 
+    /**
+     * Gets the version of the application's row when it was read. Updates based on an older
+     * version are rejected.
+     *
+     * @return The row version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Sets the application status.
      *
@@ -145,36 +169,72 @@ public class OfficerApplication {
     }
 
     /**
-     * Reads all officer applications from the CSV file.
+     * Reads all officer applications, as checked in the current {@link DataModel}. The model
+     * reads the file again only after it has been written. Each application returned is a copy
+     * that the caller may change.
      *
      * @return A list of OfficerApplication objects.
      * @throws RuntimeException If an error occurs while reading the CSV file.
      */
     public static List<OfficerApplication> readOfficerApplications() {
-        List<OfficerApplication> officerApplications = new ArrayList<>();
-        List<String[]> rows = CSVUtils.readCSV(OFFICERAPPLICATION_CSV);
-        if (rows == null) {
-            System.out.println("Warning: Unable to read officer applications CSV.");
-            return officerApplications;
+        List<OfficerApplication> shared = DataModel.getCurrent().getOfficerApplications();
+        List<OfficerApplication> officerApplications = new ArrayList<>(shared.size());
+        for (OfficerApplication application : shared) {
+            OfficerApplication copy = new OfficerApplication(application.officerNRIC, application.project,
+                    application.status, name -> true);
+            copy.version = application.version;
+            officerApplications.add(copy);
         }
+        return officerApplications;
+    }
+
+    /**
+     * Reads the raw rows of the officer applications CSV file, with the versions they were read at.
+     *
+     * @return The rows of the file as [OfficerNRIC, project name, status].
+     */
+    static VersionedRows readRows() {
+        return VERSIONS.read();
+    }
 
+    /**
+     * Gets the path of the file holding the row versions of the officer applications.
+     *
+     * @return The versions file path.
+     */
+    static String versionsPath() {
+        return VERSIONS.getVersionsPath();
+    }
+
+    /**
+     * Builds officer applications from raw rows, checking projects against a set read once
+     * instead of reading the projects file again for every row. Invalid rows are skipped and
+     * reported in the log.
+     *
+     * @param rows The rows as returned by {@link #readRows()}.
+     * @param projects The names of every known project, compared ignoring case.
+     * @return The officer applications, each carrying the version its row was read at.
+     */
+    static List<OfficerApplication> resolveAll(VersionedRows rows, Set<String> projects) {
+        List<OfficerApplication> officerApplications = new ArrayList<>(rows.size());
+        Log.Tally skipped = Log.tally(OFFICERAPPLICATION_CSV);
         for (String[] parts : rows) {
-            if (parts.length >= 3) {
-                try {
-                    String officerNRIC = parts[0].trim();
-                    String project = parts[1].trim();
-                    String status = parts[2].trim();
-                    OfficerApplication officerApplication = new OfficerApplication(officerNRIC, project, status);
-                    officerApplications.add(officerApplication);
-                } catch (IllegalArgumentException e) {
-                    System.out.println("Warning: Invalid officer application in CSV: " + String.join(",", parts) + " - " + e.getMessage());
-                }
-            } else {
-                System.out.println("Warning: Malformed officer application row in CSV: " + String.join(",", parts));
+            if (parts.length < 3) {
+                skipped.add("Malformed row", parts);
+                continue;
+            }
+            try {
+                String officerNRIC = parts[0].trim();
+                String project = parts[1].trim();
+                OfficerApplication officerApplication = new OfficerApplication(officerNRIC, project, parts[2].trim(),
+                        projects::contains);
+                officerApplication.version = rows.version(versionKey(officerNRIC, project));
+                officerApplications.add(officerApplication);
+            } catch (IllegalArgumentException e) {
+                skipped.add(e.getMessage(), parts);
             }
-
         }
-
+        skipped.flush();
         return officerApplications;
     }
 
@@ -183,6 +243,7 @@ public class OfficerApplication {
      *
      * @param updatedApplication The updated OfficerApplication object.
      * @throws IllegalArgumentException If the updated application is invalid.
+     * @throws StaleVersionException If the application was changed by someone else since it was read.
      * @throws RuntimeException If an error occurs while writing to the CSV file.
      */
     public static void updateOfficerApplication(OfficerApplication updatedApplication) {
@@ -199,40 +260,86 @@ public class OfficerApplication {
             throw new IllegalArgumentException("Invalid status in updated application: " + updatedApplication.getStatus());
         }
 
-        List<OfficerApplication> officerApplications = readOfficerApplications();
-        boolean applicationFound = false;
-
-        for (OfficerApplication officerApp : officerApplications) {
-            if (officerApp != null &&
-                officerApp.getOfficerNRIC().equals(updatedApplication.getOfficerNRIC()) &&
-                officerApp.getProject().equals(updatedApplication.getProject())) {
-                officerApp.setStatus(updatedApplication.getStatus());
-                applicationFound = true;
-                break;
-            }
+        String key = versionKey(updatedApplication.getOfficerNRIC(), updatedApplication.getProject());
+        VersionedRows rows = VERSIONS.read();
+        if (rows.version(key) != updatedApplication.getVersion()) {
+            throw new StaleVersionException(key, updatedApplication.getVersion(), rows.version(key));
         }
-
-        if (!applicationFound) {
+        if (!setStatus(rows, updatedApplication)) {
             System.out.println("Error: Officer application not found for NRIC: " + updatedApplication.getOfficerNRIC() + " and project: " + updatedApplication.getProject());
             return;
         }
 
-        List<String[]> rows = new ArrayList<>();
-        for (OfficerApplication officerApp : officerApplications) {
-            if (officerApp != null) {
-                rows.add(officerApp.toCSV());
-            }
-        }
-
         try {
-            CSVUtils.writeCSV(OFFICERAPPLICATION_CSV, rows);
+            updatedApplication.version = VERSIONS.write(rows).getOrDefault(key, 0L);
             System.out.println("Officer application updated successfully.");
+        } catch (StaleVersionException e) {
+            throw e;
         } catch (RuntimeException e) {
             System.out.println("Error updating officer application: " + e.getMessage());
             throw new RuntimeException("Failed to write to officer applications CSV: " + e.getMessage());
         }
     }
 
+    /**
+     * Stages an updated officer application in a transaction instead of writing the CSV file, so
+     * that it is saved together with changes to other files.
+     *
+     * @param tx The transaction.
+     * @param updatedApplication The updated OfficerApplication object.
+     * @throws IllegalArgumentException If the application is invalid or not found.
+     * @throws StaleVersionException If the application was changed by someone else since it was read.
+     */
+    static void stageUpdate(Transaction tx, OfficerApplication updatedApplication) {
+        if (tx == null || updatedApplication == null) {
+            throw new IllegalArgumentException("Transaction and updated application cannot be null.");
+        }
+        if (!isValidStatus(updatedApplication.getStatus())) {
+            throw new IllegalArgumentException("Invalid status in updated application: " + updatedApplication.getStatus());
+        }
+        String key = versionKey(updatedApplication.getOfficerNRIC(), updatedApplication.getProject());
+        VersionedRows rows = VERSIONS.read();
+        if (rows.version(key) != updatedApplication.getVersion()) {
+            throw new StaleVersionException(key, updatedApplication.getVersion(), rows.version(key));
+        }
+        if (!setStatus(rows, updatedApplication)) {
+            throw new IllegalArgumentException("Officer application not found for NRIC: " + updatedApplication.getOfficerNRIC()
+                    + " and project: " + updatedApplication.getProject());
+        }
+        VERSIONS.stage(tx, rows);
+    }
+
+    /**
+     * Sets the status column of an application's raw row.
+     *
+     * @param rows The raw rows of the officer applications file.
+     * @param application The application holding the new status.
+     * @return True if the application's row was found.
+     */
+    private static boolean setStatus(List<String[]> rows, OfficerApplication application) {
+        for (String[] row : rows) {
+            if (row.length >= 3 &&
+                row[0].trim().equals(application.getOfficerNRIC()) &&
+                row[1].trim().equals(application.getProject())) {
+                row[2] = application.getStatus();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives the key of an application's row in the row versions: an officer registers for a
+     * project at most once.
+     *
+     * @param officerNRIC The officer's NRIC.
+     * @param project The project name.
+     * @return The row key.
+     */
+    static String versionKey(String officerNRIC, String project) {
+        return officerNRIC.trim() + "|" + project.trim().toLowerCase();
+    }
+
     /**
      * Creates a new officer application and appends it to the CSV file.
      *
@@ -268,7 +375,7 @@ public class OfficerApplication {
         }
 
         try {
-            CSVUtils.appendToCSV(OFFICERAPPLICATION_CSV, newApp.toCSV());
+            VERSIONS.locked(() -> CSVUtils.appendToCSV(OFFICERAPPLICATION_CSV, newApp.toCSV()));
             System.out.println("Officer application created successfully.");
         } catch (RuntimeException e) {
             System.out.println("Error creating officer application: " + e.getMessage());
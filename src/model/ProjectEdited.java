@@ -0,0 +1,53 @@
+package model;
+
+/**
+ * Event published when a project is added, edited or deleted, or when the
+ * {@link ProjectScheduler} opens or closes its application window.
+ *
+ * @author SC2002Team
+ */
+public class ProjectEdited {
+    /**
+     * The kind of change made to the project. OPENED and CLOSED change only its visibility.
+     */
+    public enum Change {
+        ADDED, EDITED, DELETED, OPENED, CLOSED
+    }
+
+    final private String projectName;
+    final private Change change;
+
+    /**
+     * Constructs a ProjectEdited event.
+     *
+     * @param projectName The name of the project.
+     * @param change The kind of change.
+     */
+    public ProjectEdited(String projectName, Change change) {
+        this.projectName = projectName;
+        this.change = change;
+    }
+
+    /**
+     * Gets the name of the project.
+     *
+     * @return The name of the project.
+     */
+    public String getProjectName() {
+        return projectName;
+    }
+
+    /**
+     * Gets the kind of change.
+     *
+     * @return The kind of change.
+     */
+    public Change getChange() {
+        return change;
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectEdited[" + projectName + ", " + change + "]";
+    }
+}
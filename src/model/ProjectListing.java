@@ -0,0 +1,109 @@
+package model;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import utils.EventBus;
+
+/**
+ * The projects open for application: visible, and within their application window according to
+ * the {@link ProjectScheduler}. The list is built from the project file when first needed and
+ * dropped whenever a {@link ProjectEdited} or {@link UnitsChanged} event says a project was added,
+ * edited, deleted, opened or closed, or its units changed. Applicants listing projects or applying
+ * for one therefore see a window change as soon as the scheduler applies it, without asking the
+ * scheduler about every project on every call.
+ *
+ * <p>A list also expires at the scheduler's next transition, so it never outlives a window even
+ * when the scheduler's thread is not running. Listings are rebuilt without holding a lock; a list
+ * built while an event arrives is used once and not kept.</p>
+ *
+ * @author SC2002Team
+ */
+public class ProjectListing {
+    private static ProjectListing instance;
+
+    /**
+     * The open projects as built at one generation, valid until the next transition.
+     */
+    private static class Built {
+        final private long generation;
+        final private long validUntil;
+        final private List<BTOProject> projects;
+
+        Built(long generation, long validUntil, List<BTOProject> projects) {
+            this.generation = generation;
+            this.validUntil = validUntil;
+            this.projects = projects;
+        }
+    }
+
+    final private ProjectScheduler scheduler;
+    final private AtomicLong generation = new AtomicLong();
+    private volatile Built built;
+
+    /**
+     * Constructs a ProjectListing that asks the given scheduler which projects are open.
+     *
+     * @param scheduler The project scheduler.
+     * @throws IllegalArgumentException If the scheduler is null.
+     */
+    ProjectListing(ProjectScheduler scheduler) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("Scheduler cannot be null.");
+        }
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Gets the shared listing, which is dropped whenever a project or its units change.
+     *
+     * @return The shared ProjectListing.
+     */
+    public static synchronized ProjectListing getInstance() {
+        if (instance == null) {
+            ProjectListing listing = new ProjectListing(ProjectScheduler.getInstance());
+            EventBus bus = EventBus.getDefault();
+            bus.subscribe(ProjectEdited.class, event -> listing.invalidate());
+            bus.subscribe(UnitsChanged.class, event -> listing.invalidate());
+            instance = listing;
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the projects that are visible and open for application, in file order. The projects
+     * are shared; callers must copy a project before changing it.
+     *
+     * @return An unmodifiable list of open projects.
+     */
+    public List<BTOProject> getOpenProjects() {
+        Built current = built;
+        long now = System.currentTimeMillis();
+        if (current != null && current.generation == generation.get() && now < current.validUntil) {
+            return current.projects;
+        }
+        long at = generation.get();
+        Instant next = scheduler.nextTransition();
+        List<BTOProject> projects = new ArrayList<>();
+        for (BTOProject project : BTOProject.getProjects()) {
+            if (project != null && project.getRooms() != null && "on".equalsIgnoreCase(project.getVisibility())
+                    && scheduler.isOpen(project.getProjectName())) {
+                projects.add(project);
+            }
+        }
+        current = new Built(at, next == null ? Long.MAX_VALUE : next.toEpochMilli(), Collections.unmodifiableList(projects));
+        if (generation.get() == at) {
+            built = current;
+        }
+        return current.projects;
+    }
+
+    /**
+     * Drops the listing so that it is rebuilt from the project file on next use.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        built = null;
+    }
+}
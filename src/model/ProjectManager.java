@@ -14,7 +14,7 @@ public class ProjectManager extends HDBManager {
     public static final String ENQUIRIES_CSV = "data/FlatEnquiries.csv";
     public static final String APPLICATIONS_CSV = "data/BTOApplications.csv";
 
-    private static BTOProject project; // Project that this manager is handling
+    private BTOProject project; // Project that this manager is handling
 
     /**
      * Constructs a ProjectManager with the specified details and assigns a project if the manager's
@@ -75,6 +75,8 @@ public class ProjectManager extends HDBManager {
      * @throws IllegalArgumentException If the project name is invalid or non-existent.
      */
     public String generateReport(String projectName, String filterType, String filterValue) {
+        FlightEvents.ReportGenerated event = new FlightEvents.ReportGenerated();
+        event.begin();
         if (!Validator.isValidProjectName(projectName)) {
             throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
         }
@@ -162,7 +164,14 @@ public class ProjectManager extends HDBManager {
         } else {
             matchingApplicants.forEach(line -> report.append(line).append("\n"));
         }
-    
+
+        if (event.shouldCommit()) {
+            event.projectName = projectName;
+            event.filter = filterType != null && filterValue != null ? filterType + "=" + filterValue : "";
+            event.applicants = matchingApplicants.size();
+            event.length = report.length();
+            event.commit();
+        }
         return report.toString();
     }
     
@@ -224,19 +233,45 @@ public class ProjectManager extends HDBManager {
                 "Pending".equalsIgnoreCase(officerApp.getStatus())) {
                 try {
                     if (approve) {
-                        if (project.getOfficerSlot() <= 0) {
-                            System.out.println("Error: No officer slots available for project: " + project.getProjectName());
-                            return;
-                        }
                         Applicant officer = HDBOfficer.getApplicantByNRIC(officerNRIC);
                         if (officer == null) {
                             System.out.println("Error: Officer not found for NRIC: " + officerNRIC);
                             return;
                         }
-                        officerApp.setStatus("Approved");
-                        project.addOfficer(officer.getName());
-                        BTOProject.editProject(project);
-                        OfficerApplication.updateOfficerApplication(officerApp);
+                        // The officer list and the registration are saved together or not at all.
+                        // Both are re-read for each attempt, since bookings and other registrations
+                        // may have changed them since this manager loaded them.
+                        BTOProject updated = RowVersions.retry(() -> {
+                            BTOProject current = BTOProject.getProjectByName(project.getProjectName());
+                            if (current == null || current.getOfficerSlot() <= 0) {
+                                return null;
+                            }
+                            OfficerApplication registration = null;
+                            for (OfficerApplication app : OfficerApplication.readOfficerApplications()) {
+                                if (app != null && project.getProjectName().equals(app.getProject())
+                                        && officerNRIC.equals(app.getOfficerNRIC()) && "Pending".equalsIgnoreCase(app.getStatus())) {
+                                    registration = app;
+                                    break;
+                                }
+                            }
+                            if (registration == null) {
+                                throw new IllegalStateException("Officer registration is no longer pending: " + officerNRIC);
+                            }
+                            registration.setStatus("Approved");
+                            current.addOfficer(officer.getName());
+                            Transaction tx = TransactionManager.getInstance().begin();
+                            BTOProject.stageEdit(tx, current);
+                            OfficerApplication.stageUpdate(tx, registration);
+                            tx.commit();
+                            return current;
+                        });
+                        if (updated == null) {
+                            System.out.println("Error: No officer slots available for project: " + project.getProjectName());
+                            return;
+                        }
+                        project = updated;
+                        EventBus.getDefault().publish(new ProjectEdited(project.getProjectName(), ProjectEdited.Change.EDITED));
+                        System.out.println("Officer registration approved for project: " + project.getProjectName());
                     } else {
                         officerApp.setStatus("Rejected");
                         OfficerApplication.updateOfficerApplication(officerApp);
@@ -253,7 +288,8 @@ public class ProjectManager extends HDBManager {
     }
 
     /**
-     * Approves or rejects an applicant's BTO application for the managed project.
+     * Approves or rejects an applicant's BTO application for the managed project. Approval takes a
+     * hold on a unit of the applied flat type, so it fails once every unit is booked or held.
      *
      * @param applicantNRIC The NRIC of the applicant.
      * @param approve True to approve, false to reject.
@@ -280,7 +316,9 @@ public class ProjectManager extends HDBManager {
                 "Pending".equalsIgnoreCase(app.getStatus())) {
                 try {
                     if (approve) {
-                        List<Room> rooms = project.getRooms();
+                        // Count against the project row as it is now, not as it was when assigned
+                        BTOProject current = BTOProject.getProjectByName(project.getProjectName());
+                        List<Room> rooms = current == null ? null : current.getRooms();
                         if (rooms == null || rooms.isEmpty()) {
                             System.out.println("Error: No room types available for project: " + project.getProjectName());
                             return;
@@ -290,19 +328,25 @@ public class ProjectManager extends HDBManager {
                             System.out.println("Error: Invalid flat type in application: " + flatType);
                             return;
                         }
-                        boolean unitAvailable = false;
+                        Room room = null;
                         for (Room type : rooms) {
-                            if (type != null && flatType.equalsIgnoreCase(type.getRoomType()) && type.getUnits() > 0) {
-                                unitAvailable = true;
+                            if (type != null && flatType.equalsIgnoreCase(type.getRoomType())) {
+                                room = type;
                                 break;
                             }
                         }
-                        if (!unitAvailable) {
+                        ReservationManager reservations = ReservationManager.getInstance();
+                        if (room == null || !reservations.reserve(applicantNRIC, project.getProjectName(), flatType, room.getUnits())) {
                             System.out.println("Error: No units available for flat type: " + flatType);
                             return;
                         }
                         app.setStatus("Successful");
-                        BTOApplication.updateBTOApplication(app);
+                        try {
+                            BTOApplication.updateBTOApplication(app);
+                        } catch (RuntimeException e) {
+                            reservations.releaseAll(Collections.singletonList(applicantNRIC));
+                            throw e;
+                        }
                         System.out.println("Applicant approved for project: " + project.getProjectName());
                     } else {
                         app.setStatus("Unsuccessful");
@@ -321,7 +365,8 @@ public class ProjectManager extends HDBManager {
 
     
     /**
-     * Approves a withdrawal request and deletes the associated application.
+     * Approves a withdrawal request, marking the associated application Unsuccessful and returning
+     * a booked flat to the project's units.
      *
      * @param req The withdrawal request to approve.
      * @throws IllegalArgumentException If the request is invalid or not pending.
@@ -337,58 +382,77 @@ public class ProjectManager extends HDBManager {
             throw new IllegalArgumentException("Withdrawal request is not pending: " + req.getStatus());
         }
         try {
-            List<BTOApplication> applications = BTOApplication.getApplications();
-            if (applications == null) {
-                System.out.println("Warning: Unable to retrieve applications.");
-                return;
+            BatchResult result = WithdrawalBatch.approve(Collections.singletonList(req));
+            String outcome = result.getOutcomes().get(req.getApplicantNRIC());
+            if (result.getSucceeded().contains(req.getApplicantNRIC())) {
+                System.out.println("Withdrawal approved for NRIC: " + req.getApplicantNRIC() + " (" + outcome + ")");
+            } else {
+                System.out.println("Error approving withdrawal: " + outcome);
             }
-            for (BTOApplication app : applications) {
-                if (app != null &&
-                    project.getProjectName().equals(app.getProjectName()) &&
-                    req.getApplicantNRIC().equals(app.getApplicantNRIC()) &&
-                    ("Successful".equalsIgnoreCase(app.getStatus()) || "Booked".equalsIgnoreCase(app.getStatus()))) {
-                    try {
-                        List<Room> rooms = project.getRooms();
-                        if (rooms == null || rooms.isEmpty()) {
-                            System.out.println("Error: No room types available for project: " + project.getProjectName());
-                            return;
-                        }
-                        String flatType = app.getFlatType();
-                        if (!Validator.isValidFlatType(flatType)) {
-                            System.out.println("Error: Invalid flat type in application: " + flatType);
-                            return;
-                        }
-                        boolean flatTypeFound = false;
-                        for (Room type : rooms) {
-                            if (type != null && flatType.equalsIgnoreCase(type.getRoomType())) {
-                                if ("Booked".equalsIgnoreCase(app.getStatus())) {
-                                    type.setUnits(type.getUnits() + 1);
-                                }
-                                flatTypeFound = true;
-                                break;
-                            }
-                        }
-                        if (!flatTypeFound) {
-                            System.out.println("Error: Flat type not found in project: " + flatType);
-                            return;
-                        }
-                        app.setStatus("Unsuccessful");
-                        BTOProject.editProject(project);
-                        BTOApplication.updateBTOApplication(app);
-                        System.out.println("Applicant withdrawal approved for project: " + project.getProjectName());
-                    } catch (RuntimeException e) {
-                        System.out.println("Error processing withdrawal: " + e.getMessage());
-                        return;
-                    }
-                }
-            }
-            updateWithdrawalStatus(req.getApplicantNRIC(), "Approved");
-            System.out.println("Withdrawal approved for NRIC: " + req.getApplicantNRIC());
         } catch (RuntimeException e) {
             System.out.println("Error approving withdrawal: " + e.getMessage());
         }
     }
 
+    /**
+     * Approves a batch of withdrawal requests, writing each affected file once.
+     *
+     * @param requests The withdrawal requests to approve.
+     * @return The outcome for each applicant NRIC.
+     * @throws IllegalArgumentException If the request collection is null.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public static BatchResult approveWithdrawals(Collection<WithdrawalRequest> requests) {
+        return WithdrawalBatch.approve(requests);
+    }
+
+    /**
+     * Approves or rejects the pending applications of several applicants to this manager's
+     * project, checking unit capacity in memory and writing the applications file once.
+     *
+     * @param applicantNRICs The NRICs of the applicants.
+     * @param approve True to approve, false to reject.
+     * @return The outcome for each NRIC.
+     * @throws IllegalArgumentException If no project is assigned or the NRIC list is null.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BatchResult approveRejectApplications(Collection<String> applicantNRICs, boolean approve) {
+        if (project == null) {
+            throw new IllegalArgumentException("No project assigned to this manager.");
+        }
+        return ApplicationBatch.decide(project.getProjectName(), applicantNRICs, approve);
+    }
+
+    /**
+     * Approves pending applications to this manager's project in submission order until each
+     * flat type runs out of units.
+     *
+     * @return The outcome for each applicant with a pending application.
+     * @throws IllegalArgumentException If no project is assigned.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BatchResult approvePendingApplications() {
+        if (project == null) {
+            throw new IllegalArgumentException("No project assigned to this manager.");
+        }
+        return ApplicationBatch.approveAllPending(project.getProjectName());
+    }
+
+    /**
+     * Draws the ballot for this manager's project, deciding every pending application.
+     *
+     * @param seed The ballot seed; the same seed over the same applications gives the same result.
+     * @return The outcome of the ballot.
+     * @throws IllegalArgumentException If no project is assigned.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public BallotEngine.Result runBallot(long seed) {
+        if (project == null) {
+            throw new IllegalArgumentException("No project assigned to this manager.");
+        }
+        return BallotEngine.draw(project.getProjectName(), seed);
+    }
+
     /**
      * Rejects a withdrawal request.
      *
@@ -406,7 +470,7 @@ public class ProjectManager extends HDBManager {
             throw new IllegalArgumentException("Withdrawal request is not pending: " + req.getStatus());
         }
         try {
-            updateWithdrawalStatus(req.getApplicantNRIC(), "Rejected");
+            updateWithdrawalStatus(req, "Rejected");
             System.out.println("Withdrawal rejected for NRIC: " + req.getApplicantNRIC());
         } catch (RuntimeException e) {
             System.out.println("Error rejecting withdrawal: " + e.getMessage());
@@ -414,41 +478,24 @@ public class ProjectManager extends HDBManager {
     }
 
     /**
-     * Updates the status of a withdrawal request in the CSV file.
+     * Updates the status of a pending withdrawal request by appending the transition to the
+     * withdrawal log. The transition is rejected if the request changed since it was read.
      *
-     * @param nric The NRIC of the applicant.
+     * @param req The withdrawal request, as read.
      * @param newStatus The new status ("Approved" or "Rejected").
      * @throws IllegalArgumentException If the NRIC or status is invalid.
+     * @throws StaleVersionException If the request was decided or replaced since it was read.
+     * @throws RuntimeException If an error occurs while writing the withdrawal log.
      */
-    private static void updateWithdrawalStatus(String nric, String newStatus) {
+    private static void updateWithdrawalStatus(WithdrawalRequest req, String newStatus) {
+        String nric = req.getApplicantNRIC();
         if (!Validator.isValidNRIC(nric)) {
             throw new IllegalArgumentException("Invalid NRIC: " + nric);
         }
         if (newStatus == null || (!newStatus.equalsIgnoreCase("Approved") && !newStatus.equalsIgnoreCase("Rejected"))) {
             throw new IllegalArgumentException("Invalid status: Must be 'Approved' or 'Rejected'.");
         }
-        ArrayList<String[]> rows = new ArrayList<>();
-        boolean updated = false;
-        ArrayList<WithdrawalRequest> requests = WithdrawalRequest.getWithdrawalRequests();
-        System.out.println(requests.size());
-        for (WithdrawalRequest request : requests) {
-            if (request.getApplicantNRIC().equals(nric) && request.getStatus().equalsIgnoreCase("Pending")) {
-                request.setStatus(newStatus);
-                updated = true;
-            }
-            String[] row = {request.getApplicantNRIC(), request.getProjectName(), request.getFlatType(), request.getStatus()};
-            rows.add(row);
-            break;
-            
-        }
-        if (!updated) {
-            throw new IllegalArgumentException("No pending withdrawal found for NRIC: " + nric);
-        }
-        try {
-            CSVUtils.writeCSV("data/withdrawals.csv", rows);
-        } catch (RuntimeException e) {
-            throw new RuntimeException("Error writing to withdrawals CSV: " + e.getMessage());
-        }
+        WithdrawalStore.getInstance().transition(nric, req.getVersion(), newStatus);
     }
     /**
      * Gets the project managed by this manager.
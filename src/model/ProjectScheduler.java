@@ -0,0 +1,325 @@
+package model;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+import utils.CSVUtils;
+import utils.EventBus;
+import utils.Log;
+import utils.RowVersions;
+
+/**
+ * Applies each project's application window on its dates. When a project's opening date begins,
+ * the project is made visible. When its closing date ends, the project is hidden and the ballot
+ * is drawn for its pending applications (see {@link BallotEngine}). The ballot seed is derived
+ * from the project name and closing date, so the draw can be replayed.
+ *
+ * <p>Upcoming transitions of every project are computed once from the project list and kept in a
+ * single priority queue ordered by time. A daemon thread sleeps until the earliest transition is
+ * due. Any caller that asks whether a project is open first applies transitions that are due, so
+ * the answer is right even without the thread. The set of projects currently in their window is
+ * cached and only changes at a transition. Adding, editing or deleting a project recomputes the
+ * queue.</p>
+ *
+ * <p>Each transition is published as a {@link ProjectEdited} event (OPENED or CLOSED), which the
+ * {@link ProjectListing} uses to refresh the projects applicants can see and apply for.</p>
+ *
+ * <p>Applied transitions are recorded in a CSV log so that they are applied only once across
+ * restarts; a transition missed while the system was down is applied on start-up. The first time
+ * the scheduler runs, transitions already in the past are recorded without being applied.</p>
+ *
+ * @author SC2002Team
+ */
+public class ProjectScheduler {
+    static final String SCHEDULE_CSV = "data/ProjectSchedule.csv";
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("M/dd/yyyy");
+
+    private static ProjectScheduler instance;
+
+    /**
+     * A project window transition due at an instant.
+     */
+    private static class Transition {
+        final private String projectName;
+        final private boolean opening;
+        final private LocalDate date;
+        final private long dueAt;
+
+        Transition(String projectName, boolean opening, LocalDate date, long dueAt) {
+            this.projectName = projectName;
+            this.opening = opening;
+            this.date = date;
+            this.dueAt = dueAt;
+        }
+
+        String key() {
+            return projectName.toLowerCase() + "|" + (opening ? "Open" : "Close") + "|" + date;
+        }
+    }
+
+    final private String logPath;
+    final private Clock clock;
+    final private PriorityQueue<Transition> queue = new PriorityQueue<>(Comparator.comparingLong((Transition t) -> t.dueAt));
+    final private Set<String> applied = new HashSet<>();
+    final private Set<String> open = new HashSet<>();
+    private boolean loaded = false;
+    private Thread thread;
+
+    /**
+     * Constructs a ProjectScheduler that records applied transitions in the specified CSV file.
+     *
+     * @param logPath The path to the schedule CSV file.
+     * @param clock The clock and time zone used to decide when dates begin and end.
+     * @throws IllegalArgumentException If the path is empty or the clock is null.
+     */
+    ProjectScheduler(String logPath, Clock clock) {
+        if (logPath == null || logPath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Schedule filepath cannot be empty.");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.logPath = logPath;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the shared scheduler for the system's project list. The shared scheduler recomputes its
+     * queue whenever a project is added, edited or deleted.
+     *
+     * @return The shared ProjectScheduler.
+     */
+    public static synchronized ProjectScheduler getInstance() {
+        if (instance == null) {
+            ProjectScheduler scheduler = new ProjectScheduler(SCHEDULE_CSV, Clock.systemDefaultZone());
+            EventBus.getDefault().subscribe(ProjectEdited.class, event -> {
+                // Opening and closing are the scheduler's own transitions and leave the dates as they are
+                if (event.getChange() != ProjectEdited.Change.OPENED && event.getChange() != ProjectEdited.Change.CLOSED) {
+                    scheduler.reschedule();
+                }
+            });
+            instance = scheduler;
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the daemon thread that applies transitions when they fall due. Transitions missed
+     * while the system was down are applied first. Calling this again has no effect.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        runDue();
+        thread = new Thread(this::loop, "project-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Checks whether a project is within its application window.
+     *
+     * @param projectName The name of the project.
+     * @return True if applications for the project are open today.
+     */
+    public synchronized boolean isOpen(String projectName) {
+        runDue();
+        return projectName != null && open.contains(projectName.trim().toLowerCase());
+    }
+
+    /**
+     * Gets the time of the next transition.
+     *
+     * @return The next transition time, or null if none is scheduled.
+     */
+    public synchronized Instant nextTransition() {
+        runDue();
+        Transition next = queue.peek();
+        return next == null ? null : Instant.ofEpochMilli(next.dueAt);
+    }
+
+    /**
+     * Rebuilds the queue of upcoming transitions and the set of open projects from the project
+     * list, then applies any transitions that are due.
+     */
+    public synchronized void reschedule() {
+        loaded = false;
+        runDue();
+        notifyAll();
+    }
+
+    /**
+     * Applies every transition that is due, in time order.
+     */
+    private void runDue() {
+        if (!loaded) {
+            load();
+        }
+        long now = clock.millis();
+        while (!queue.isEmpty() && queue.peek().dueAt <= now) {
+            Transition transition = queue.poll();
+            try {
+                apply(transition);
+            } catch (RuntimeException e) {
+                // Left unrecorded so that it is retried when the queue is next rebuilt.
+                System.out.println("Warning: Failed to apply schedule for project " + transition.projectName + ": " + e.getMessage());
+                continue;
+            }
+            applied.add(transition.key());
+            CSVUtils.appendToCSV(logPath, new String[] {
+                    transition.projectName, transition.opening ? "Open" : "Close",
+                    transition.date.format(formatter), Instant.ofEpochMilli(now).toString() });
+        }
+    }
+
+    /**
+     * Opens or closes a project: updates its visibility and the open set, publishes the change so
+     * that project listings pick it up, and draws the ballot at closing. A ballot that fails is
+     * logged and does not undo the closing; the manager can draw it again.
+     *
+     * @param transition The transition to apply.
+     */
+    private void apply(Transition transition) {
+        String key = transition.projectName.toLowerCase();
+        setVisibility(transition.projectName, transition.opening ? "on" : "off");
+        if (transition.opening) {
+            open.add(key);
+        } else {
+            open.remove(key);
+        }
+        EventBus.getDefault().publish(new ProjectEdited(transition.projectName,
+                transition.opening ? ProjectEdited.Change.OPENED : ProjectEdited.Change.CLOSED));
+        if (transition.opening) {
+            System.out.println("Applications opened for project: " + transition.projectName);
+            return;
+        }
+        System.out.println("Applications closed for project: " + transition.projectName);
+        long seed = ((long) key.hashCode() << 32) ^ transition.date.toEpochDay();
+        try {
+            BallotEngine.Result result = BallotEngine.draw(transition.projectName, seed);
+            if (!result.getFlatTypes().isEmpty()) {
+                System.out.println(result);
+            }
+        } catch (RuntimeException e) {
+            Log.warn("Failed to draw the ballot for project {}: {}", transition.projectName + " (seed " + seed + ")", e);
+        }
+    }
+
+    /**
+     * Sets a project's visibility column directly in the raw project rows.
+     *
+     * @param projectName The name of the project.
+     * @param visibility "on" or "off".
+     */
+    private static void setVisibility(String projectName, String visibility) {
+        RowVersions.retry(() -> {
+            List<String[]> rows = BTOProject.readRows();
+            for (String[] row : rows) {
+                if (row.length >= 8 && row[0].trim().equalsIgnoreCase(projectName)) {
+                    if (!row[row.length - 1].trim().equalsIgnoreCase(visibility)) {
+                        row[row.length - 1] = visibility;
+                        BTOProject.writeRows(rows);
+                    }
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the applied-transition log and the project list, then queues every transition not yet
+     * applied. On the first run, transitions already past are recorded as applied.
+     */
+    private void load() {
+        queue.clear();
+        open.clear();
+        applied.clear();
+        boolean firstRun = !new File(logPath).exists();
+        if (!firstRun) {
+            for (String[] row : CSVUtils.readCSV(logPath)) {
+                if (row.length >= 3) {
+                    try {
+                        LocalDate date = LocalDate.parse(row[2].trim(), formatter);
+                        applied.add(row[0].trim().toLowerCase() + "|" + row[1].trim() + "|" + date);
+                    } catch (DateTimeParseException e) {
+                        System.out.println("Warning: Invalid schedule entry in CSV: " + String.join(",", row));
+                    }
+                }
+            }
+        }
+        long now = clock.millis();
+        List<String[]> baseline = new ArrayList<>();
+        for (String[] row : BTOProject.readRows()) {
+            if (row.length < 8) {
+                continue;
+            }
+            String name = row[0].trim();
+            LocalDate openDate;
+            LocalDate closeDate;
+            try {
+                openDate = LocalDate.parse(row[row.length - 6].trim(), formatter);
+                closeDate = LocalDate.parse(row[row.length - 5].trim(), formatter);
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            long opensAt = openDate.atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+            long closesAt = closeDate.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+            if (opensAt <= now && now < closesAt) {
+                open.add(name.toLowerCase());
+            }
+            for (Transition transition : new Transition[] {
+                    new Transition(name, true, openDate, opensAt), new Transition(name, false, closeDate, closesAt) }) {
+                if (applied.contains(transition.key())) {
+                    continue;
+                }
+                if (firstRun && transition.dueAt <= now) {
+                    applied.add(transition.key());
+                    baseline.add(new String[] { name, transition.opening ? "Open" : "Close",
+                            transition.date.format(formatter), Instant.ofEpochMilli(now).toString() });
+                } else {
+                    queue.add(transition);
+                }
+            }
+        }
+        // Past transitions missed while the system was down are applied in time order, so the
+        // open set is rebuilt by them rather than by the window check above.
+        for (Transition transition : queue) {
+            if (transition.dueAt <= now) {
+                open.remove(transition.projectName.toLowerCase());
+            }
+        }
+        if (firstRun) {
+            CSVUtils.writeCSVAtomic(logPath, baseline);
+        }
+        loaded = true;
+    }
+
+    /**
+     * Sleeps until the earliest transition is due or the queue changes, then applies due
+     * transitions.
+     */
+    private synchronized void loop() {
+        while (true) {
+            try {
+                runDue();
+                Transition next = queue.peek();
+                if (next == null) {
+                    wait();
+                } else {
+                    wait(Math.max(1, next.dueAt - clock.millis()));
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Project scheduler error: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package model;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import utils.Validator;
 
 /**
@@ -71,6 +72,31 @@ public class Receipt {
         this.bookingDate = LocalDate.now();
     }
 
+    /**
+     * Constructs a Receipt from details already read from the system's files, such as an archived
+     * receipt. The details are not validated against the project list.
+     *
+     * @param nric The applicant's NRIC.
+     * @param applicantName The applicant's name.
+     * @param age The applicant's age.
+     * @param maritalStatus The applicant's marital status.
+     * @param flatType The type of flat.
+     * @param projectName The name of the BTO project.
+     * @param neighborhood The neighborhood of the project.
+     * @param bookingDate The booking date.
+     */
+    Receipt(String nric, String applicantName, int age, String maritalStatus, String flatType,
+            String projectName, String neighborhood, LocalDate bookingDate) {
+        this.nric = nric;
+        this.applicantName = applicantName;
+        this.age = age;
+        this.maritalStatus = maritalStatus;
+        this.flatType = flatType;
+        this.projectName = projectName;
+        this.neighborhood = neighborhood;
+        this.bookingDate = bookingDate;
+    }
+
     /**
      * Gets the applicant's NRIC.
      *
@@ -147,17 +173,31 @@ public class Receipt {
      * Prints the receipt details in a formatted manner to the console.
      */
     public void printReceipt() {
-        System.out.println("🧾 Receipt for BTO Application");
-        System.out.println("=====================================");
-        System.out.println("Applicant Name   : " + (applicantName != null ? applicantName : "<Unknown>"));
-        System.out.println("NRIC             : " + (nric != null ? nric : "<Unknown>"));
-        System.out.println("Age              : " + age);
-        System.out.println("Marital Status   : " + (maritalStatus != null ? maritalStatus : "<Unknown>"));
-        System.out.println("Flat Type        : " + (flatType != null ? flatType : "<Unknown>"));
-        System.out.println("Project Name     : " + (projectName != null ? projectName : "<Unknown>"));
-        System.out.println("Neighborhood     : " + (neighborhood != null ? neighborhood : "<Unknown>"));
-        System.out.println("Booking Date     : " + (bookingDate != null ? bookingDate.format(FORMATTER) : "<Unknown>"));
-        System.out.println("=====================================");
+        System.out.print(format());
+    }
+
+    /**
+     * Formats the receipt details for printing.
+     *
+     * @return The formatted receipt, one field per line.
+     */
+    public String format() {
+        String rule = "=====================================" + System.lineSeparator();
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("🧾 Receipt for BTO Application").append(System.lineSeparator()).append(rule);
+        line(sb, "Applicant Name   : ", applicantName);
+        line(sb, "NRIC             : ", nric);
+        line(sb, "Age              : ", String.valueOf(age));
+        line(sb, "Marital Status   : ", maritalStatus);
+        line(sb, "Flat Type        : ", flatType);
+        line(sb, "Project Name     : ", projectName);
+        line(sb, "Neighborhood     : ", neighborhood);
+        line(sb, "Booking Date     : ", bookingDate != null ? bookingDate.format(FORMATTER) : null);
+        return sb.append(rule).toString();
+    }
+
+    private static void line(StringBuilder sb, String label, String value) {
+        sb.append(label).append(value != null ? value : "<Unknown>").append(System.lineSeparator());
     }
 
     /**
@@ -183,6 +223,25 @@ public class Receipt {
         };
     }
 
+    /**
+     * Creates a Receipt from a CSV-compatible array produced by {@link #toCSV()}.
+     *
+     * @param row The receipt fields.
+     * @return A new Receipt object.
+     * @throws IllegalArgumentException If the row is malformed.
+     */
+    static Receipt fromCSV(String[] row) {
+        if (row == null || row.length < 8) {
+            throw new IllegalArgumentException("Malformed receipt row.");
+        }
+        try {
+            return new Receipt(row[0], row[1], Integer.parseInt(row[2]), row[3], row[4], row[5], row[6],
+                    LocalDate.parse(row[7], FORMATTER));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed receipt row: " + e.getMessage());
+        }
+    }
+
     /**
      * Creates a Receipt from a BTOApplication object.
      *
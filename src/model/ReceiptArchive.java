@@ -0,0 +1,240 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary archive of booking receipts, indexed in memory by applicant NRIC.
+ *
+ * <p>Each record is a 4-byte body length, a 4-byte CRC32 of the body, then the body: the
+ * receipt's CSV fields (see {@link Receipt#toCSV()}) written as length-prefixed UTF-8 strings. The
+ * NRIC is the first field, so the index is rebuilt on open by reading only each record's header
+ * and NRIC and skipping the rest. A record cut short by a crash is truncated away. The latest
+ * receipt for an NRIC replaces earlier ones in the index; earlier records stay in the file.</p>
+ *
+ * <p>{@link #appendAll(List)} encodes a batch of receipts into one buffer per record and writes
+ * them with a single gathering write followed by one sync, so a batch costs one system call
+ * regardless of its size. {@link #get(String)} is one index lookup and one positional read.</p>
+ *
+ * @author SC2002Team
+ */
+public class ReceiptArchive {
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    final private Path path;
+    final private Map<String, Long> offsets = new HashMap<>();
+    private FileChannel channel;
+    private long end = 0;
+
+    /**
+     * Constructs a ReceiptArchive backed by the specified file. The file is opened on first use.
+     *
+     * @param path The path to the archive file.
+     * @throws IllegalArgumentException If the path is empty.
+     */
+    ReceiptArchive(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new IllegalArgumentException("Receipt archive filepath cannot be empty.");
+        }
+        this.path = Paths.get(path);
+    }
+
+    /**
+     * Appends a batch of receipts with one gathering write and one sync, then indexes them.
+     *
+     * @param receipts The receipts to append.
+     * @throws IllegalArgumentException If the list is null.
+     * @throws RuntimeException If an error occurs while writing the archive.
+     */
+    public synchronized void appendAll(List<Receipt> receipts) {
+        if (receipts == null) {
+            throw new IllegalArgumentException("Receipts cannot be null.");
+        }
+        if (receipts.isEmpty()) {
+            return;
+        }
+        ensureOpen();
+        ByteBuffer[] buffers = new ByteBuffer[receipts.size()];
+        long[] recordOffsets = new long[receipts.size()];
+        long position = end;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = encode(receipts.get(i));
+            recordOffsets[i] = position;
+            position += buffers[i].remaining();
+        }
+        try {
+            channel.position(end);
+            long remaining = position - end;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // Drop whatever part of the batch reached the file so that the tail stays well formed.
+            try {
+                channel.truncate(end);
+            } catch (IOException ignored) {
+                // The torn tail is truncated when the archive is next opened.
+            }
+            throw new RuntimeException("Error writing receipt archive: " + e.getMessage());
+        }
+        end = position;
+        for (int i = 0; i < buffers.length; i++) {
+            offsets.put(receipts.get(i).getNric(), recordOffsets[i]);
+        }
+    }
+
+    /**
+     * Gets the latest archived receipt for an applicant.
+     *
+     * @param nric The applicant's NRIC.
+     * @return The receipt, or null if none is archived or the record is damaged.
+     * @throws RuntimeException If an error occurs while reading the archive.
+     */
+    public synchronized Receipt get(String nric) {
+        if (nric == null) {
+            return null;
+        }
+        ensureOpen();
+        Long offset = offsets.get(nric.trim());
+        if (offset == null) {
+            return null;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(header, offset);
+            int length = header.getInt(0);
+            int crc = header.getInt(4);
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, offset + HEADER_BYTES);
+            CRC32 check = new CRC32();
+            check.update(body.array(), 0, length);
+            if ((int) check.getValue() != crc) {
+                System.out.println("Warning: Damaged receipt record for NRIC: " + nric);
+                return null;
+            }
+            return Receipt.fromCSV(decode(body.array()));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Warning: Unable to read receipt for NRIC " + nric + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the number of applicants with an archived receipt.
+     *
+     * @return The number of indexed NRICs.
+     */
+    public synchronized int size() {
+        ensureOpen();
+        return offsets.size();
+    }
+
+    /**
+     * Opens the archive and rebuilds the index if this has not been done, or if the file was
+     * changed by someone else since it was last read.
+     */
+    private void ensureOpen() {
+        try {
+            if (channel == null) {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                scan();
+            } else if (channel.size() != end) {
+                scan();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening receipt archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads every record header and NRIC to rebuild the index, truncating a torn final record.
+     */
+    private void scan() throws IOException {
+        offsets.clear();
+        long size = channel.size();
+        long position = 0;
+        channel.position(0);
+        // Not closed: closing the stream would close the channel.
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        while (position + HEADER_BYTES <= size) {
+            int length = in.readInt();
+            in.readInt(); // CRC is checked when the record is read
+            if (length < 2 || length > MAX_BODY_BYTES || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            String nric = in.readUTF();
+            int rest = length - 2 - nric.getBytes(StandardCharsets.UTF_8).length;
+            if (rest < 0 || in.skipBytes(rest) != rest) {
+                break;
+            }
+            offsets.put(nric, position);
+            position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+            System.out.println("Warning: Truncating " + (size - position) + " damaged byte(s) from receipt archive.");
+            channel.truncate(position);
+        }
+        end = position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of receipt archive.");
+            }
+        }
+    }
+
+    /**
+     * Encodes a receipt as a complete record, header included.
+     */
+    private static ByteBuffer encode(Receipt receipt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            for (String field : receipt.toCSV()) {
+                out.writeUTF(field);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error encoding receipt: " + e.getMessage());
+        }
+        byte[] record = bytes.toByteArray();
+        int length = record.length - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_BYTES, length);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer;
+    }
+
+    private static String[] decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        String[] fields = new String[8];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = in.readUTF();
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,253 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import utils.CSVUtils;
+import utils.EventBus;
+
+/**
+ * Generates booking receipts in the background and keeps them in a {@link ReceiptArchive}.
+ *
+ * <p>The shared pipeline listens for applications changing to Booked. Each booking is only
+ * queued on the booking thread. A daemon worker takes everything queued, up to
+ * {@value #MAX_BATCH} bookings at a time. It reads the user and project lists once per batch to
+ * fill in each receipt, then appends the whole batch to the archive in one write. Officers reprint
+ * a receipt with {@link #find(String)}, which is an index lookup in the archive.</p>
+ *
+ * <p>Bookings still queued when the system exits are written by a shutdown hook. A booking whose
+ * receipt never reached the archive can still be printed from its application (see
+ * {@link Receipt#fromBTOApplication(BTOApplication)}).</p>
+ *
+ * @author SC2002Team
+ */
+public class ReceiptPipeline {
+    static final String RECEIPTS_FILE = "data/Receipts.dat";
+
+    private static final int MAX_BATCH = 256;
+    private static final long FIND_WAIT_MILLIS = 2000;
+
+    private static ReceiptPipeline instance;
+
+    /**
+     * A booking waiting for its receipt.
+     */
+    private static class Booking {
+        final private String nric;
+        final private String projectName;
+        final private String flatType;
+        final private LocalDate bookingDate;
+
+        Booking(String nric, String projectName, String flatType, LocalDate bookingDate) {
+            this.nric = nric;
+            this.projectName = projectName;
+            this.flatType = flatType;
+            this.bookingDate = bookingDate;
+        }
+    }
+
+    final private ReceiptArchive archive;
+    final private String usersPath;
+    final private BlockingQueue<Booking> queue = new LinkedBlockingQueue<>();
+    final private AtomicLong submitted = new AtomicLong();
+    final private AtomicLong completed = new AtomicLong();
+    final private Object drainLock = new Object();
+    private Thread worker;
+
+    /**
+     * Constructs a ReceiptPipeline that archives receipts in the specified archive.
+     *
+     * @param archive The receipt archive.
+     * @param usersPath The path to the users CSV file used to fill in applicant details.
+     * @throws IllegalArgumentException If the archive or path is missing.
+     */
+    ReceiptPipeline(ReceiptArchive archive, String usersPath) {
+        if (archive == null) {
+            throw new IllegalArgumentException("Receipt archive cannot be null.");
+        }
+        if (usersPath == null || usersPath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Users filepath cannot be empty.");
+        }
+        this.archive = archive;
+        this.usersPath = usersPath;
+    }
+
+    /**
+     * Gets the shared receipt pipeline. The shared pipeline queues a receipt for every application
+     * that becomes Booked.
+     *
+     * @return The shared ReceiptPipeline.
+     */
+    public static synchronized ReceiptPipeline getInstance() {
+        if (instance == null) {
+            ReceiptPipeline pipeline = new ReceiptPipeline(new ReceiptArchive(RECEIPTS_FILE), User.USERS_CSV);
+            EventBus.getDefault().subscribe(ApplicationStatusChanged.class, event -> {
+                if ("Booked".equalsIgnoreCase(event.getNewStatus())) {
+                    pipeline.submit(event.getApplicantNRIC(), event.getProjectName(), event.getFlatType());
+                }
+            });
+            instance = pipeline;
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the background worker and the shutdown hook that writes receipts still queued at
+     * exit. Calling this again has no effect.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(this::loop, "receipt-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "receipt-pipeline-shutdown"));
+    }
+
+    /**
+     * Queues a receipt for a booking made today.
+     *
+     * @param nric The applicant's NRIC.
+     * @param projectName The name of the project.
+     * @param flatType The booked flat type.
+     * @throws IllegalArgumentException If any value is null.
+     */
+    public void submit(String nric, String projectName, String flatType) {
+        if (nric == null || projectName == null || flatType == null) {
+            throw new IllegalArgumentException("Booking details cannot be null.");
+        }
+        submitted.incrementAndGet();
+        queue.add(new Booking(nric.trim(), projectName.trim(), flatType.trim(), LocalDate.now()));
+    }
+
+    /**
+     * Gets the latest receipt for an applicant, waiting briefly for receipts still being
+     * generated.
+     *
+     * @param nric The applicant's NRIC.
+     * @return The receipt, or null if none has been archived.
+     */
+    public Receipt find(String nric) {
+        try {
+            flush(FIND_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return archive.get(nric);
+    }
+
+    /**
+     * Waits until every receipt queued so far has been archived. If the worker has not been
+     * started, the queue is processed on the calling thread.
+     *
+     * @param timeoutMillis The maximum time to wait.
+     * @return True if all queued receipts were archived in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long target = submitted.get();
+        synchronized (this) {
+            if (worker == null) {
+                drain();
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (completed.get() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of receipts waiting to be archived.
+     *
+     * @return The number of queued bookings.
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Takes queued bookings in batches and archives their receipts until the system exits.
+     */
+    private void loop() {
+        List<Booking> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                Booking first = queue.take();
+                synchronized (drainLock) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    process(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Receipt pipeline error: " + e.getMessage());
+            } finally {
+                completed.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Archives every queued receipt on the calling thread.
+     */
+    private void drain() {
+        List<Booking> batch = new ArrayList<>(MAX_BATCH);
+        synchronized (drainLock) {
+            while (queue.drainTo(batch, MAX_BATCH) > 0) {
+                try {
+                    process(batch);
+                } catch (RuntimeException e) {
+                    System.out.println("Warning: Receipt pipeline error: " + e.getMessage());
+                } finally {
+                    completed.addAndGet(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the receipts for a batch of bookings and appends them to the archive. The user and
+     * project lists are each read once for the whole batch.
+     *
+     * @param batch The bookings.
+     */
+    private void process(List<Booking> batch) {
+        Map<String, String[]> users = new HashMap<>();
+        for (String[] row : CSVUtils.readCSV(usersPath)) {
+            if (row.length >= 4) {
+                users.put(row[1].trim(), row);
+            }
+        }
+        Map<String, String> neighborhoods = new HashMap<>();
+        for (String[] row : BTOProject.readRows()) {
+            if (row.length >= 8) {
+                neighborhoods.put(row[0].trim().toLowerCase(), row[1].trim());
+            }
+        }
+        List<Receipt> receipts = new ArrayList<>(batch.size());
+        for (Booking booking : batch) {
+            String[] user = users.get(booking.nric);
+            String neighborhood = neighborhoods.get(booking.projectName.toLowerCase());
+            if (user == null || neighborhood == null || !user[2].trim().matches("\\d+")) {
+                System.out.println("Warning: Unable to generate receipt for NRIC: " + booking.nric);
+                continue;
+            }
+            receipts.add(new Receipt(booking.nric, user[0].trim(), Integer.parseInt(user[2].trim()), user[3].trim(),
+                    booking.flatType, booking.projectName, neighborhood, booking.bookingDate));
+        }
+        archive.appendAll(receipts);
+    }
+}
@@ -0,0 +1,569 @@
+package model;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import utils.CSVUtils;
+import utils.HierarchicalTimingWheel;
+import utils.Snapshot;
+import utils.StaleVersionException;
+
+/**
+ * Holds units for approved applicants until they book. Approving an application takes a hold on a
+ * unit of the approved flat type, valid for a fixed time (seven days by default). Booking consumes
+ * the hold. A withdrawal releases it, and so does the hold expiring. A flat type's units can only
+ * be approved or booked by others while units minus active holds is positive, so an approved
+ * applicant cannot lose the last unit to someone else and a project is never approved beyond its
+ * units.
+ *
+ * <p>Expiries are driven by a {@link HierarchicalTimingWheel} with one-second ticks. Expiring
+ * holds costs O(1) each, and a daemon thread advances the wheel every tick. An applicant whose
+ * hold expired keeps the Successful status and can still book if a unit is free.</p>
+ *
+ * <p>Holds are persisted in an append-only CSV log, like the withdrawal log. Taking a hold appends
+ * a Held row with its expiry time. Consuming, releasing or expiring it appends a row with the new
+ * status. The log is compacted once superseded rows outnumber active holds. On the first run of
+ * the shared instance, when the log does not exist, a hold is taken for every Successful
+ * application.</p>
+ *
+ * @author SC2002Team
+ */
+public class ReservationManager {
+    static final String RESERVATIONS_CSV = "data/Reservations.csv";
+
+    /** Default time an approved applicant has to book before the hold expires. */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_LEVELS = 4;
+    private static final int COMPACT_MIN_ROWS = 64;
+
+    private static ReservationManager instance;
+
+    /**
+     * An applicant's hold on one unit of a flat type.
+     */
+    private static class Hold {
+        final private String nric;
+        final private String projectName;
+        final private String flatType;
+        final private long expiresAt;
+        private HierarchicalTimingWheel.Timeout<Hold> timeout;
+
+        Hold(String nric, String projectName, String flatType, long expiresAt) {
+            this.nric = nric;
+            this.projectName = projectName;
+            this.flatType = flatType;
+            this.expiresAt = expiresAt;
+        }
+
+        String[] toCSVRow(String status) {
+            return new String[] { nric, projectName, flatType, Long.toString(expiresAt), status };
+        }
+    }
+
+    final private String filepath;
+    final private long ttlMillis;
+    final private boolean bootstrap;
+    final private Map<String, Hold> holds = new HashMap<>();
+    final private Map<String, Integer> heldByFlatType = new HashMap<>();
+    private HierarchicalTimingWheel<Hold> wheel;
+    private int logRows = 0;
+    private long loadedModified = -1;
+    private long loadedLength = -1;
+
+    final private AtomicLong reserved = new AtomicLong();
+    final private AtomicLong consumed = new AtomicLong();
+    final private AtomicLong released = new AtomicLong();
+    final private AtomicLong expired = new AtomicLong();
+    final private AtomicLong refused = new AtomicLong();
+
+    /**
+     * Constructs a ReservationManager backed by the specified CSV file. The file is loaded lazily.
+     *
+     * @param filepath The path to the reservations CSV file.
+     * @param ttlMillis How long a hold lasts, in milliseconds.
+     * @throws IllegalArgumentException If the filepath is empty or the TTL is not positive.
+     */
+    public ReservationManager(String filepath, long ttlMillis) {
+        this(filepath, ttlMillis, false);
+    }
+
+    /**
+     * Constructs a ReservationManager backed by the specified CSV file, optionally taking holds for
+     * existing Successful applications when the file does not exist yet.
+     *
+     * @param filepath The path to the reservations CSV file.
+     * @param ttlMillis How long a hold lasts, in milliseconds.
+     * @param bootstrap True to take holds for existing Successful applications on first use.
+     * @throws IllegalArgumentException If the filepath is empty or the TTL is not positive.
+     */
+    ReservationManager(String filepath, long ttlMillis, boolean bootstrap) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Reservations filepath cannot be empty.");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Reservation TTL must be positive.");
+        }
+        this.filepath = filepath;
+        this.ttlMillis = ttlMillis;
+        this.bootstrap = bootstrap;
+    }
+
+    /**
+     * Gets the shared reservation manager backed by the system's reservations CSV file, starting
+     * the daemon thread that expires holds.
+     *
+     * @return The shared ReservationManager.
+     */
+    public static synchronized ReservationManager getInstance() {
+        if (instance == null) {
+            instance = new ReservationManager(RESERVATIONS_CSV, DEFAULT_TTL_MILLIS, true);
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "reservation-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ReservationManager manager = instance;
+            ticker.scheduleAtFixedRate(() -> {
+                try {
+                    manager.expireDue();
+                } catch (RuntimeException e) {
+                    System.out.println("Warning: Failed to expire reservations: " + e.getMessage());
+                }
+            }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return instance;
+    }
+
+    /**
+     * Takes a hold on a unit for an applicant if one is free. An applicant holds at most one unit;
+     * a hold on another flat type or project is released first, and an existing hold on the same
+     * flat type is kept.
+     *
+     * @param nric The NRIC of the applicant.
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @param units The number of units of the flat type not yet booked.
+     * @return True if the applicant now holds a unit, false if every unit is held by others.
+     * @throws IllegalArgumentException If any input is empty.
+     */
+    public synchronized boolean reserve(String nric, String projectName, String flatType, int units) {
+        requireKey(nric, projectName, flatType);
+        refreshIfChanged();
+        expireDue();
+        Hold existing = holds.get(nric.trim());
+        if (existing != null && key(existing.projectName, existing.flatType).equals(key(projectName, flatType))) {
+            return true;
+        }
+        if (units - held(projectName, flatType) <= 0) {
+            refused.incrementAndGet();
+            return false;
+        }
+        List<String[]> rows = new ArrayList<>();
+        if (existing != null) {
+            remove(existing);
+            released.incrementAndGet();
+            rows.add(existing.toCSVRow("Released"));
+        }
+        Hold hold = new Hold(nric.trim(), projectName.trim(), flatType.trim(), System.currentTimeMillis() + ttlMillis);
+        add(hold);
+        reserved.incrementAndGet();
+        rows.add(hold.toCSVRow("Held"));
+        append(rows);
+        return true;
+    }
+
+    /**
+     * Takes holds for several applicants whose approval was already checked against
+     * {@link #available(String, String, int)}, appending them to the log in one write.
+     *
+     * @param approvals Rows of [NRIC, project name, flat type].
+     * @return The number of holds taken.
+     * @throws IllegalArgumentException If the collection is null.
+     */
+    public synchronized int reserveAll(Collection<String[]> approvals) {
+        if (approvals == null) {
+            throw new IllegalArgumentException("Approvals cannot be null.");
+        }
+        refreshIfChanged();
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        List<String[]> rows = new ArrayList<>();
+        int taken = 0;
+        for (String[] approval : approvals) {
+            Hold existing = holds.get(approval[0].trim());
+            if (existing != null) {
+                if (key(existing.projectName, existing.flatType).equals(key(approval[1], approval[2]))) {
+                    continue;
+                }
+                remove(existing);
+                released.incrementAndGet();
+                rows.add(existing.toCSVRow("Released"));
+            }
+            Hold hold = new Hold(approval[0].trim(), approval[1].trim(), approval[2].trim(), expiresAt);
+            add(hold);
+            reserved.incrementAndGet();
+            rows.add(hold.toCSVRow("Held"));
+            taken++;
+        }
+        append(rows);
+        return taken;
+    }
+
+    /**
+     * Takes holds for several applicants of one project only if every flat type still has units
+     * for them, checking and taking them under one lock, so that two batches cannot both approve
+     * the last unit. Nothing is held if any flat type has too few units left.
+     *
+     * @param approvals Rows of [NRIC, project name, flat type], all for the same project.
+     * @param units The number of units of each flat type not yet booked, keyed by lower-cased flat
+     *              type.
+     * @return The number of holds taken.
+     * @throws IllegalArgumentException If either argument is null.
+     * @throws StaleVersionException If other applicants took the units the approvals were
+     *                               counted against; the caller should read them again.
+     */
+    public synchronized int reserveAll(Collection<String[]> approvals, Map<String, Integer> units) {
+        if (approvals == null || units == null) {
+            throw new IllegalArgumentException("Approvals and units cannot be null.");
+        }
+        refreshIfChanged();
+        expireDue();
+        Map<String, Integer> needed = new HashMap<>();
+        Map<String, String> projectByKey = new HashMap<>();
+        for (String[] approval : approvals) {
+            Hold existing = holds.get(approval[0].trim());
+            if (existing == null || !key(existing.projectName, existing.flatType).equals(key(approval[1], approval[2]))) {
+                needed.merge(approval[2].trim().toLowerCase(), 1, Integer::sum);
+                projectByKey.putIfAbsent(approval[2].trim().toLowerCase(), approval[1]);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : needed.entrySet()) {
+            String projectName = projectByKey.get(entry.getKey());
+            int held = held(projectName, entry.getKey());
+            int allowed = units.getOrDefault(entry.getKey(), 0) - entry.getValue();
+            if (held > allowed) {
+                refused.incrementAndGet();
+                throw new StaleVersionException("holds on " + projectName.trim() + " " + entry.getKey(), allowed, held);
+            }
+        }
+        return reserveAll(approvals);
+    }
+
+    /**
+     * Consumes an applicant's hold when they book a flat. A hold on a different flat type or
+     * project is released instead.
+     *
+     * @param nric The NRIC of the applicant.
+     * @param projectName The name of the project booked.
+     * @param flatType The flat type booked.
+     * @return True if the applicant held a unit of this flat type.
+     */
+    public synchronized boolean consume(String nric, String projectName, String flatType) {
+        requireKey(nric, projectName, flatType);
+        refreshIfChanged();
+        expireDue();
+        Hold hold = holds.get(nric.trim());
+        if (hold == null) {
+            return false;
+        }
+        remove(hold);
+        boolean matches = key(hold.projectName, hold.flatType).equals(key(projectName, flatType));
+        (matches ? consumed : released).incrementAndGet();
+        append(Collections.singletonList(hold.toCSVRow(matches ? "Consumed" : "Released")));
+        return matches;
+    }
+
+    /**
+     * Consumes the holds of several applicants who booked flats, appending to the log in one
+     * write. As with {@link #consume(String, String, String)}, a hold on a different flat type or
+     * project is released instead.
+     *
+     * @param bookings Rows of [NRIC, project name, flat type booked].
+     * @return The number of holds consumed.
+     * @throws IllegalArgumentException If the collection is null.
+     */
+    public synchronized int consumeAll(Collection<String[]> bookings) {
+        if (bookings == null) {
+            throw new IllegalArgumentException("Bookings cannot be null.");
+        }
+        refreshIfChanged();
+        expireDue();
+        List<String[]> rows = new ArrayList<>();
+        int taken = 0;
+        for (String[] booking : bookings) {
+            Hold hold = holds.get(booking[0].trim());
+            if (hold == null) {
+                continue;
+            }
+            remove(hold);
+            boolean matches = key(hold.projectName, hold.flatType).equals(key(booking[1], booking[2]));
+            (matches ? consumed : released).incrementAndGet();
+            rows.add(hold.toCSVRow(matches ? "Consumed" : "Released"));
+            if (matches) {
+                taken++;
+            }
+        }
+        append(rows);
+        return taken;
+    }
+
+    /**
+     * Releases the holds of several applicants, e.g. when their applications are withdrawn.
+     *
+     * @param nrics The NRICs of the applicants.
+     * @return The number of holds released.
+     */
+    public synchronized int releaseAll(Collection<String> nrics) {
+        refreshIfChanged();
+        List<String[]> rows = new ArrayList<>();
+        for (String nric : nrics) {
+            Hold hold = nric == null ? null : holds.get(nric.trim());
+            if (hold != null) {
+                remove(hold);
+                released.incrementAndGet();
+                rows.add(hold.toCSVRow("Released"));
+            }
+        }
+        append(rows);
+        return rows.size();
+    }
+
+    /**
+     * Checks whether an applicant holds a unit of a flat type.
+     *
+     * @param nric The NRIC of the applicant.
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @return True if the applicant has an active hold on the flat type.
+     */
+    public synchronized boolean isHolding(String nric, String projectName, String flatType) {
+        refreshIfChanged();
+        expireDue();
+        Hold hold = nric == null ? null : holds.get(nric.trim());
+        return hold != null && key(hold.projectName, hold.flatType).equals(key(projectName, flatType));
+    }
+
+    /**
+     * Gets the number of active holds on a flat type.
+     *
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @return The number of units held.
+     */
+    public synchronized int held(String projectName, String flatType) {
+        refreshIfChanged();
+        return heldByFlatType.getOrDefault(key(projectName, flatType), 0);
+    }
+
+    /**
+     * Gets the number of units of a flat type that are neither booked nor held.
+     *
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @param units The number of units of the flat type not yet booked.
+     * @return The number of units free to approve or book.
+     */
+    public synchronized int available(String projectName, String flatType, int units) {
+        expireDue();
+        return Math.max(0, units - held(projectName, flatType));
+    }
+
+    /**
+     * Gets the number of units of a flat type that are neither booked nor held, counting the holds
+     * of the given applicants as already released.
+     *
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @param units The number of units of the flat type not yet booked.
+     * @param releasing The NRICs of applicants whose holds are about to be released.
+     * @return The number of units free to approve or book.
+     */
+    public synchronized int available(String projectName, String flatType, int units, Collection<String> releasing) {
+        expireDue();
+        int held = held(projectName, flatType);
+        for (String nric : releasing) {
+            Hold hold = nric == null ? null : holds.get(nric.trim());
+            if (hold != null && key(hold.projectName, hold.flatType).equals(key(projectName, flatType))) {
+                held--;
+            }
+        }
+        return Math.max(0, units - held);
+    }
+
+    /**
+     * Expires every hold whose time has passed.
+     *
+     * @return The number of holds expired.
+     */
+    public synchronized int expireDue() {
+        refreshIfChanged();
+        List<String[]> rows = new ArrayList<>();
+        wheel.advance(System.currentTimeMillis(), hold -> {
+            if (holds.get(hold.nric) == hold) {
+                hold.timeout = null;
+                remove(hold);
+                expired.incrementAndGet();
+                rows.add(hold.toCSVRow("Expired"));
+            }
+        });
+        append(rows);
+        return rows.size();
+    }
+
+    /**
+     * Gets the reservation counters since the system started, and the number of active holds.
+     *
+     * @return A map from metric name to value, in a fixed order.
+     */
+    public synchronized Map<String, Long> getMetrics() {
+        refreshIfChanged();
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("active", (long) holds.size());
+        metrics.put("reserved", reserved.get());
+        metrics.put("consumed", consumed.get());
+        metrics.put("released", released.get());
+        metrics.put("expired", expired.get());
+        metrics.put("refused", refused.get());
+        return metrics;
+    }
+
+    /**
+     * Rewrites the log atomically with one row per active hold.
+     */
+    public synchronized void compact() {
+        refreshIfChanged();
+        List<String[]> rows = new ArrayList<>(holds.size());
+        for (Hold hold : holds.values()) {
+            rows.add(hold.toCSVRow("Held"));
+        }
+        CSVUtils.writeCSVAtomic(filepath, rows);
+        logRows = rows.size();
+        stamp();
+        Snapshot.getDefault().requestSave();
+    }
+
+    private void append(List<String[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        CSVUtils.appendAllToCSV(filepath, rows);
+        logRows += rows.size();
+        stamp();
+        if (logRows >= COMPACT_MIN_ROWS && logRows > 2 * holds.size()) {
+            compact();
+        }
+    }
+
+    private void add(Hold hold) {
+        holds.put(hold.nric, hold);
+        heldByFlatType.merge(key(hold.projectName, hold.flatType), 1, Integer::sum);
+        hold.timeout = wheel.schedule(hold, hold.expiresAt);
+    }
+
+    private void remove(Hold hold) {
+        holds.remove(hold.nric);
+        heldByFlatType.computeIfPresent(key(hold.projectName, hold.flatType), (k, v) -> v > 1 ? v - 1 : null);
+        if (hold.timeout != null) {
+            hold.timeout.cancel();
+            hold.timeout = null;
+        }
+    }
+
+    /**
+     * Reloads the holds if the CSV file was modified since it was last read or written.
+     */
+    private void refreshIfChanged() {
+        File file = new File(filepath);
+        if (wheel == null || file.lastModified() != loadedModified || file.length() != loadedLength) {
+            load();
+        }
+    }
+
+    /**
+     * Loads the log, rebuilding the timing wheel. A Held row takes a hold; any other status ends
+     * it. Holds already past their expiry are dropped.
+     */
+    private void load() {
+        long now = System.currentTimeMillis();
+        holds.clear();
+        heldByFlatType.clear();
+        wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_LEVELS, now);
+        logRows = 0;
+        File file = new File(filepath);
+        if (!file.exists()) {
+            if (bootstrap) {
+                bootstrap(now);
+            } else {
+                stamp();
+            }
+            return;
+        }
+        for (String[] row : CSVUtils.readCSV(filepath)) {
+            if (row.length < 5 || !row[3].trim().matches("\\d+")) {
+                if (!String.join(",", row).trim().isEmpty()) {
+                    System.out.println("Warning: Invalid reservation in CSV: " + String.join(",", row));
+                }
+                continue;
+            }
+            logRows++;
+            Hold existing = holds.get(row[0].trim());
+            if (existing != null) {
+                remove(existing);
+            }
+            long expiresAt = Long.parseLong(row[3].trim());
+            if (row[4].trim().equalsIgnoreCase("Held") && expiresAt > now) {
+                add(new Hold(row[0].trim(), row[1].trim(), row[2].trim(), expiresAt));
+            }
+        }
+        stamp();
+    }
+
+    /**
+     * Takes a hold for every Successful application when no log exists yet, so that approvals made
+     * before reservations were introduced keep their units.
+     *
+     * @param now The current time in milliseconds.
+     */
+    private void bootstrap(long now) {
+        List<String[]> rows = new ArrayList<>();
+        try {
+            for (String[] app : BTOApplication.readRows()) {
+                if (app.length >= 4 && app[3].trim().equalsIgnoreCase("Successful") && !holds.containsKey(app[0].trim())) {
+                    Hold hold = new Hold(app[0].trim(), app[1].trim(), app[2].trim(), now + ttlMillis);
+                    add(hold);
+                    rows.add(hold.toCSVRow("Held"));
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Warning: Unable to read applications for reservations: " + e.getMessage());
+        }
+        CSVUtils.writeCSVAtomic(filepath, rows);
+        logRows = rows.size();
+        stamp();
+    }
+
+    /**
+     * Records the current modification time and length of the CSV file.
+     */
+    private void stamp() {
+        File file = new File(filepath);
+        loadedModified = file.lastModified();
+        loadedLength = file.length();
+    }
+
+    private static void requireKey(String nric, String projectName, String flatType) {
+        if (nric == null || nric.trim().isEmpty() || projectName == null || projectName.trim().isEmpty()
+                || flatType == null || flatType.trim().isEmpty()) {
+            throw new IllegalArgumentException("NRIC, project name and flat type cannot be empty.");
+        }
+    }
+
+    private static String key(String projectName, String flatType) {
+        return projectName.trim().toLowerCase() + "|" + flatType.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,70 @@
+package model;
+
+/**
+ * Event published when the number of units of a flat type in a project changes, e.g. when a flat
+ * is booked, a booking is withdrawn, or a manager edits the project.
+ *
+ * @author SC2002Team
+ */
+public class UnitsChanged {
+    final private String projectName;
+    final private String flatType;
+    final private int oldUnits;
+    final private int newUnits;
+
+    /**
+     * Constructs a UnitsChanged event.
+     *
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @param oldUnits The previous number of units.
+     * @param newUnits The new number of units.
+     */
+    public UnitsChanged(String projectName, String flatType, int oldUnits, int newUnits) {
+        this.projectName = projectName;
+        this.flatType = flatType;
+        this.oldUnits = oldUnits;
+        this.newUnits = newUnits;
+    }
+
+    /**
+     * Gets the name of the project.
+     *
+     * @return The name of the project.
+     */
+    public String getProjectName() {
+        return projectName;
+    }
+
+    /**
+     * Gets the flat type.
+     *
+     * @return The flat type.
+     */
+    public String getFlatType() {
+        return flatType;
+    }
+
+    /**
+     * Gets the previous number of units.
+     *
+     * @return The previous number of units.
+     */
+    public int getOldUnits() {
+        return oldUnits;
+    }
+
+    /**
+     * Gets the new number of units.
+     *
+     * @return The new number of units.
+     */
+    public int getNewUnits() {
+        return newUnits;
+    }
+
+    @Override
+    public String toString() {
+        return "UnitsChanged[" + projectName + ", " + flatType + ", " + oldUnits + " -> " + newUnits + "]";
+    }
+}
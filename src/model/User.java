@@ -1,6 +1,8 @@
 package model;
 
 import utils.CSVUtils;
+import utils.Log;
+import utils.Metrics;
 import utils.Validator;
 import java.util.List;
 
@@ -22,6 +24,9 @@ public class User {
     /** Path to the CSV file storing user data. */
     public static final String USERS_CSV = "data/Users.csv";
 
+    /** Index of the NRIC column in the users file, by which the file is kept sorted. */
+    public static final int NRIC_COLUMN = 1;
+
     /**
      * Constructs a User with the specified details.
      *
@@ -149,44 +154,52 @@ public class User {
      * @throws IllegalArgumentException If NRIC or password is invalid.
      */
     public static User login(String NRIC, String password) {
-        if (!Validator.isValidNRIC(NRIC)) {
-            throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
-        }
-        if (password == null || password.trim().isEmpty()) {
-            throw new IllegalArgumentException("Invalid password: Cannot be null or empty.");
-        }
-
-        List<String[]> usersData = CSVUtils.readCSV(USERS_CSV);
-        if (usersData == null) {
-            System.out.println("Error: Unable to read user database.");
-            return null;
-        }
+        long started = Metrics.start();
         try {
-            for (String[] userData : usersData) {
-                if (userData.length >= 6) {
-                    try {
-                        String userNRIC = userData[1] != null ? userData[1].trim() : "";
-                        String userPassword = userData[4] != null ? userData[4].trim() : "";
-                        if (userNRIC.equals(NRIC.trim()) && userPassword.equals(password.trim())) {
-                            String name = userData[0] != null ? userData[0].trim() : "";
-                            int age = Integer.parseInt(userData[2]);
-                            String maritalStatus = userData[3] != null ? userData[3].trim() : "";
-                            String role = userData[5] != null ? userData[5].trim() : "";
-                            return new User(name, userNRIC, userPassword, age, maritalStatus, role);
+            if (!Validator.isValidNRIC(NRIC)) {
+                throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
+            }
+            if (password == null || password.trim().isEmpty()) {
+                throw new IllegalArgumentException("Invalid password: Cannot be null or empty.");
+            }
+
+            List<String[]> usersData = CSVUtils.lookupCSV(USERS_CSV, NRIC_COLUMN, NRIC);
+            if (usersData == null) {
+                System.out.println("Error: Unable to read user database.");
+                return null;
+            }
+            Log.Tally skipped = Log.tally(USERS_CSV);
+            try {
+                for (String[] userData : usersData) {
+                    if (userData.length >= 6) {
+                        try {
+                            String userNRIC = userData[1] != null ? userData[1].trim() : "";
+                            String userPassword = userData[4] != null ? userData[4].trim() : "";
+                            if (userNRIC.equals(NRIC.trim()) && userPassword.equals(password.trim())) {
+                                String name = userData[0] != null ? userData[0].trim() : "";
+                                int age = Integer.parseInt(userData[2]);
+                                String maritalStatus = userData[3] != null ? userData[3].trim() : "";
+                                String role = userData[5] != null ? userData[5].trim() : "";
+                                skipped.flush();
+                                return new User(name, userNRIC, userPassword, age, maritalStatus, role);
+                            }
+                        } catch (NumberFormatException e) {
+                            skipped.add("Invalid age", userData[0]);
+                        } catch (IllegalArgumentException e) {
+                            skipped.add(e.getMessage(), userData[0]);
                         }
-                    } catch (NumberFormatException e) {
-                        System.out.println("Warning: Invalid age in user data: " + String.join(",", userData));
-                    } catch (IllegalArgumentException e) {
-                        System.out.println("Warning: Invalid user data: " + String.join(",", userData) + " - " + e.getMessage());
+                    } else {
+                        skipped.add("Malformed row", userData.length > 0 ? userData[0] : "");
                     }
-                } else {
-                    System.out.println("Warning: Malformed user row in CSV: " + String.join(",", userData));
                 }
+            } catch (Exception e) {
+                System.out.println("Error: Invalid login credentials.");
             }
-        } catch (Exception e) {
-            System.out.println("Error: Invalid login credentials.");
+            skipped.flush();
+            return null;
+        } finally {
+            Metrics.getInstance().record("User.login", started);
         }
-        return null;
     }
 
     /**
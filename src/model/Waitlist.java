@@ -0,0 +1,455 @@
+package model;
+
+import java.io.File;
+import java.util.*;
+import java.util.function.Supplier;
+
+import utils.CSVUtils;
+import utils.CommittedNotAppliedException;
+import utils.EventBus;
+import utils.RowVersions;
+import utils.Transaction;
+import utils.TransactionManager;
+
+/**
+ * Ranked waitlist of applicants for each (project, flat type). Applicants who lose a ballot are
+ * enrolled in ballot order. When a unit becomes free, because a withdrawal returns a flat or
+ * a manager adds units, the best-ranked eligible applicant is promoted to Successful.
+ *
+ * <p>Each (project, flat type) has its own priority queue ordered by rank, so the next applicant
+ * is found in O(log n). An entry that leaves the waitlist is dropped from the live map and
+ * skipped when it reaches the head of its queue. An applicant is eligible if their application
+ * for the project and flat type is still Unsuccessful and they have no other Pending, Successful
+ * or Booked application. Ineligible applicants are removed from the waitlist as they are
+ * reached.</p>
+ *
+ * <p>Like the withdrawal log, the waitlist CSV file is append-only. Enrolling appends Waiting rows
+ * and leaving the waitlist appends a Promoted or Skipped row. The log is compacted once superseded
+ * rows outnumber live entries. Promotions change the application rows the caller passes in, and
+ * the caller writes those rows in the same write as the restock. A caller that writes them in a
+ * {@link Transaction} stages the waitlist rows in it with {@link #stage(Transaction)} and calls
+ * {@link #committed()} once it commits; otherwise the rows are appended with {@link #flush()}
+ * after the write succeeds. If the write fails, {@link #discard()} reloads the waitlist from the
+ * file. Such a caller runs under {@link #locked(Supplier)}, so that no other change to the
+ * waitlist can interleave with its own.</p>
+ *
+ * @author SC2002Team
+ */
+public class Waitlist {
+    static final String WAITLIST_CSV = "data/Waitlist.csv";
+
+    /** Minimum number of rows in the log before it is considered for compaction. */
+    private static final int COMPACT_MIN_ROWS = 64;
+
+    private static Waitlist instance;
+
+    /**
+     * An applicant's place on the waitlist of a project and flat type.
+     */
+    private static class Entry {
+        final private String projectName;
+        final private String flatType;
+        final private String nric;
+        final private long rank;
+
+        Entry(String projectName, String flatType, String nric, long rank) {
+            this.projectName = projectName;
+            this.flatType = flatType;
+            this.nric = nric;
+            this.rank = rank;
+        }
+
+        String[] toCSVRow(String status) {
+            return new String[] { projectName, flatType, nric, Long.toString(rank), status };
+        }
+    }
+
+    final private String filepath;
+    final private Map<String, PriorityQueue<Entry>> queues = new HashMap<>();
+    final private Map<String, Entry> live = new HashMap<>();
+    final private List<String[]> unflushed = new ArrayList<>();
+    final private List<String[]> promotions = new ArrayList<>();
+    private long nextRank = 0;
+    private int logRows = 0;
+    private long loadedModified = -1;
+    private long loadedLength = -1;
+
+    /**
+     * Constructs a Waitlist backed by the specified CSV file. The file is loaded lazily.
+     *
+     * @param filepath The path to the waitlist CSV file.
+     * @throws IllegalArgumentException If the filepath is null or empty.
+     */
+    public Waitlist(String filepath) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Waitlist filepath cannot be empty.");
+        }
+        this.filepath = filepath;
+    }
+
+    /**
+     * Gets the shared waitlist backed by the system's waitlist CSV file.
+     *
+     * @return The shared Waitlist.
+     */
+    public static synchronized Waitlist getInstance() {
+        if (instance == null) {
+            instance = new Waitlist(WAITLIST_CSV);
+        }
+        return instance;
+    }
+
+    /**
+     * Adds applicants to the end of the waitlist for a project and flat type, in the order given.
+     * Applicants already waiting there keep their place.
+     *
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @param nrics The NRICs of the applicants, best-ranked first.
+     * @return The number of applicants added.
+     * @throws IllegalArgumentException If any argument is null.
+     */
+    public synchronized int enroll(String projectName, String flatType, List<String> nrics) {
+        int added = enlist(projectName, flatType, nrics);
+        flush();
+        return added;
+    }
+
+    /**
+     * Adds applicants to the end of the waitlist as {@link #enroll(String, String, List)} does,
+     * without writing the log. The caller must stage the rows with {@link #stage(Transaction)} and
+     * then call {@link #committed()}, or {@link #discard()} if the transaction fails.
+     *
+     * @param projectName The name of the project.
+     * @param flatType The flat type.
+     * @param nrics The NRICs of the applicants, best-ranked first.
+     * @return The number of applicants added.
+     * @throws IllegalArgumentException If any argument is null.
+     */
+    synchronized int enlist(String projectName, String flatType, List<String> nrics) {
+        if (projectName == null || flatType == null || nrics == null) {
+            throw new IllegalArgumentException("Project name, flat type and NRICs cannot be null.");
+        }
+        refreshIfChanged();
+        int added = 0;
+        for (String nric : nrics) {
+            if (nric == null || nric.trim().isEmpty()) {
+                continue;
+            }
+            Entry entry = new Entry(projectName.trim(), flatType.trim(), nric.trim(), nextRank);
+            if (live.containsKey(entryKey(entry))) {
+                continue;
+            }
+            nextRank++;
+            add(entry);
+            unflushed.add(entry.toCSVRow("Waiting"));
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Runs a change that spans the waitlist and other tables while holding the waitlist, so that
+     * the rows it stages and the holds it takes are its own.
+     *
+     * @param action The change.
+     * @param <T> The type of the result.
+     * @return The result of the change.
+     */
+    public synchronized <T> T locked(Supplier<T> action) {
+        return action.get();
+    }
+
+    /**
+     * Reads the project and application files, promotes waitlisted applicants into any free
+     * capacity of a project, and commits the applications and the waitlist log in one
+     * transaction. If another writer changes the applications file first, the promotion is
+     * discarded and run again.
+     *
+     * @param projectName The name of the project.
+     * @return The NRICs of the promoted applicants.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public synchronized List<String> promoteAvailable(String projectName) {
+        return RowVersions.retry(() -> {
+            List<String[]> projectRows = BTOProject.readRows();
+            List<String[]> applicationRows = BTOApplication.readRows();
+            List<String> chosen = promote(projectRows, applicationRows, Collections.singleton(projectName));
+            try {
+                Transaction tx = TransactionManager.getInstance().begin();
+                if (!chosen.isEmpty()) {
+                    BTOApplication.stageRows(tx, applicationRows);
+                }
+                stage(tx);
+                tx.commit();
+            } catch (CommittedNotAppliedException e) {
+                System.out.println("Warning: " + e.getMessage());
+            } catch (RuntimeException e) {
+                discard();
+                throw e;
+            }
+            committed();
+            return chosen;
+        });
+    }
+
+    /**
+     * Promotes waitlisted applicants into the free capacity of the given projects. A flat type's
+     * free capacity is its unit count minus the units held for approved applicants. The
+     * application rows are changed in place; the caller must write them and then call
+     * {@link #flush()}, or {@link #discard()} if the write fails.
+     *
+     * @param projectRows The raw project rows, after any restock.
+     * @param applicationRows The raw application rows.
+     * @param projectNames The projects whose capacity may have changed.
+     * @return The NRICs of the promoted applicants.
+     */
+    synchronized List<String> promote(List<String[]> projectRows, List<String[]> applicationRows,
+            Collection<String> projectNames) {
+        return promote(projectRows, applicationRows, projectNames, Collections.emptySet());
+    }
+
+    /**
+     * Promotes waitlisted applicants as {@link #promote(List, List, Collection)} does, counting
+     * the units held by the given applicants as free. The caller releases those holds once the
+     * application rows are written.
+     *
+     * @param projectRows The raw project rows, after any restock.
+     * @param applicationRows The raw application rows.
+     * @param projectNames The projects whose capacity may have changed.
+     * @param releasing The NRICs of applicants whose holds are about to be released.
+     * @return The NRICs of the promoted applicants.
+     */
+    synchronized List<String> promote(List<String[]> projectRows, List<String[]> applicationRows,
+            Collection<String> projectNames, Collection<String> releasing) {
+        refreshIfChanged();
+        List<String> promoted = new ArrayList<>();
+        Set<String> projects = new HashSet<>();
+        for (String name : projectNames) {
+            projects.add(name.trim().toLowerCase());
+        }
+        if (live.isEmpty() || projects.isEmpty()) {
+            return promoted;
+        }
+
+        // One pass over the applications: who is active anywhere, and each applicant's row for a
+        // waitlisted key.
+        ReservationManager reservations = ReservationManager.getInstance();
+        Set<String> active = new HashSet<>();
+        Map<String, String[]> rowsByEntry = new HashMap<>();
+        for (String[] row : applicationRows) {
+            if (row.length < 4) {
+                continue;
+            }
+            String status = row[3].trim();
+            if (status.equalsIgnoreCase("Pending") || status.equalsIgnoreCase("Successful")
+                    || status.equalsIgnoreCase("Booked")) {
+                active.add(nricKey(row[0]));
+            }
+            if (projects.contains(row[1].trim().toLowerCase())) {
+                rowsByEntry.put(queueKey(row[1], row[2]) + "|" + nricKey(row[0]), row);
+            }
+        }
+
+        for (String[] projectRow : projectRows) {
+            if (projectRow.length < 8 || !projects.contains(projectRow[0].trim().toLowerCase())) {
+                continue;
+            }
+            int roomCount = (projectRow.length - 8) / 3;
+            for (int i = 0; i < roomCount; i++) {
+                String key = queueKey(projectRow[0], projectRow[2 + i * 3]);
+                PriorityQueue<Entry> queue = queues.get(key);
+                String units = projectRow[3 + i * 3].trim();
+                if (queue == null || !units.matches("\\d+")) {
+                    continue;
+                }
+                int free = reservations.available(projectRow[0], projectRow[2 + i * 3], Integer.parseInt(units), releasing);
+                while (free > 0 && !queue.isEmpty()) {
+                    Entry entry = queue.poll();
+                    if (live.get(entryKey(entry)) != entry) {
+                        continue; // Already left the waitlist
+                    }
+                    live.remove(entryKey(entry));
+                    String[] row = rowsByEntry.get(entryKey(entry));
+                    if (row == null || !row[3].trim().equalsIgnoreCase("Unsuccessful")
+                            || active.contains(entry.nric)) {
+                        unflushed.add(entry.toCSVRow("Skipped"));
+                        continue;
+                    }
+                    row[3] = "Successful";
+                    active.add(entry.nric);
+                    free--;
+                    promoted.add(entry.nric);
+                    unflushed.add(entry.toCSVRow("Promoted"));
+                    promotions.add(new String[] { entry.nric, entry.projectName, entry.flatType });
+                }
+            }
+        }
+        return promoted;
+    }
+
+    /**
+     * Appends the rows recording applicants who left the waitlist since the last flush, takes a
+     * unit hold for each applicant promoted and publishes their status changes.
+     *
+     * @throws RuntimeException If an error occurs while writing the CSV files.
+     */
+    public synchronized void flush() {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        CSVUtils.appendAllToCSV(filepath, unflushed);
+        committed();
+    }
+
+    /**
+     * Stages the rows recording changes since the last flush in a transaction, as an append to
+     * the log. Once the transaction commits, the caller calls {@link #committed()}; if it fails,
+     * {@link #discard()}. A transaction that committed but could not write every file
+     * ({@link CommittedNotAppliedException}) has committed.
+     *
+     * @param tx The transaction.
+     * @throws IllegalArgumentException If the transaction is null.
+     */
+    synchronized void stage(Transaction tx) {
+        if (tx == null) {
+            throw new IllegalArgumentException("Transaction cannot be null.");
+        }
+        if (!unflushed.isEmpty()) {
+            tx.append(filepath, new ArrayList<>(unflushed));
+        }
+    }
+
+    /**
+     * Completes changes whose rows were written to the log, by {@link #flush()} or by a
+     * transaction they were staged in: takes a unit hold for each applicant promoted and publishes
+     * their status changes.
+     *
+     * @throws RuntimeException If an error occurs while writing the reservations or compacting the
+     *                          log.
+     */
+    synchronized void committed() {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        logRows += unflushed.size();
+        unflushed.clear();
+        stamp();
+        ReservationManager.getInstance().reserveAll(promotions);
+        for (String[] promotion : promotions) {
+            EventBus.getDefault().publish(new ApplicationStatusChanged(promotion[0], promotion[1], promotion[2], "Unsuccessful", "Successful"));
+        }
+        promotions.clear();
+        compactIfNeeded();
+    }
+
+    /**
+     * Drops changes that have not been flushed by reloading the waitlist from the CSV file.
+     */
+    public synchronized void discard() {
+        unflushed.clear();
+        promotions.clear();
+        loadedModified = -1;
+        loadedLength = -1;
+    }
+
+    /**
+     * Rewrites the log atomically with one row per waiting applicant.
+     */
+    public synchronized void compact() {
+        refreshIfChanged();
+        List<Entry> entries = new ArrayList<>(live.values());
+        entries.sort(Comparator.comparingLong(e -> e.rank));
+        List<String[]> rows = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            rows.add(entry.toCSVRow("Waiting"));
+        }
+        CSVUtils.writeCSVAtomic(filepath, rows);
+        logRows = rows.size();
+        stamp();
+    }
+
+    private void compactIfNeeded() {
+        if (logRows >= COMPACT_MIN_ROWS && logRows > 2 * live.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Reloads the waitlist if the CSV file was modified since it was last read or written.
+     */
+    private void refreshIfChanged() {
+        File file = new File(filepath);
+        if (file.lastModified() != loadedModified || file.length() != loadedLength) {
+            load();
+        }
+    }
+
+    /**
+     * Loads the log. A Waiting row adds an entry; a Promoted or Skipped row removes it.
+     */
+    private void load() {
+        queues.clear();
+        live.clear();
+        unflushed.clear();
+        promotions.clear();
+        nextRank = 0;
+        logRows = 0;
+        File file = new File(filepath);
+        if (!file.exists()) {
+            stamp();
+            return;
+        }
+        for (String[] row : CSVUtils.readCSV(filepath)) {
+            if (row.length < 5 || !row[3].trim().matches("\\d+")) {
+                if (!String.join(",", row).trim().isEmpty()) {
+                    System.out.println("Warning: Invalid waitlist entry in CSV: " + String.join(",", row));
+                }
+                continue;
+            }
+            logRows++;
+            Entry entry = new Entry(row[0].trim(), row[1].trim(), row[2].trim(), Long.parseLong(row[3].trim()));
+            nextRank = Math.max(nextRank, entry.rank + 1);
+            if (row[4].trim().equalsIgnoreCase("Waiting")) {
+                live.put(entryKey(entry), entry);
+            } else {
+                live.remove(entryKey(entry));
+            }
+        }
+        for (Entry entry : live.values()) {
+            queue(entry).add(entry);
+        }
+        stamp();
+    }
+
+    private void add(Entry entry) {
+        live.put(entryKey(entry), entry);
+        queue(entry).add(entry);
+    }
+
+    private PriorityQueue<Entry> queue(Entry entry) {
+        return queues.computeIfAbsent(queueKey(entry.projectName, entry.flatType),
+                k -> new PriorityQueue<>(Comparator.comparingLong((Entry e) -> e.rank)));
+    }
+
+    /**
+     * Records the current modification time and length of the CSV file.
+     */
+    private void stamp() {
+        File file = new File(filepath);
+        loadedModified = file.lastModified();
+        loadedLength = file.length();
+    }
+
+    private static String queueKey(String projectName, String flatType) {
+        return projectName.trim().toLowerCase() + "|" + flatType.trim().toLowerCase();
+    }
+
+    private static String entryKey(Entry entry) {
+        return queueKey(entry.projectName, entry.flatType) + "|" + entry.nric;
+    }
+
+    private static String nricKey(String nric) {
+        return nric == null ? "" : nric.trim();
+    }
+}
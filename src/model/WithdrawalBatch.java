@@ -0,0 +1,175 @@
+package model;
+
+import java.util.*;
+
+import utils.CommittedNotAppliedException;
+import utils.EventBus;
+import utils.RowVersions;
+import utils.Transaction;
+import utils.TransactionManager;
+
+/**
+ * Approves withdrawal requests in bulk. All unit restocks and application status changes are
+ * applied to the raw rows of the project and application files in memory. The affected files,
+ * and the Approved rows appended to the withdrawals log, are then committed together in one
+ * {@link Transaction}, regardless of how many requests are in the batch.
+ *
+ * <p>For each approved request, the applicant's Successful or Booked application for the
+ * requested project becomes Unsuccessful. A Booked flat is returned to the project's unit count.
+ * The withdrawal request itself is marked Approved. Any capacity freed this way is offered to
+ * the project's {@link Waitlist}, whose log rows are committed in the same transaction. Status
+ * and unit changes are published on the {@link EventBus} once it commits. If another writer
+ * changes a row the batch changes before it commits, the batch is read and applied again.</p>
+ *
+ * @author SC2002Team
+ */
+public class WithdrawalBatch {
+
+    private WithdrawalBatch() {
+    }
+
+    /**
+     * Approves a batch of pending withdrawal requests.
+     *
+     * @param requests The withdrawal requests to approve.
+     * @return The outcome for each applicant NRIC in the batch.
+     * @throws IllegalArgumentException If the request collection is null.
+     * @throws utils.StaleVersionException If other writers kept changing the same rows.
+     * @throws RuntimeException If an error occurs while reading or writing the CSV files.
+     */
+    public static BatchResult approve(Collection<WithdrawalRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Withdrawal requests cannot be null.");
+        }
+        return Waitlist.getInstance().locked(() -> RowVersions.retry(() -> attempt(requests)));
+    }
+
+    /**
+     * Reads both files and approves the batch once.
+     *
+     * @param requests The withdrawal requests to approve.
+     * @return The outcome for each applicant NRIC in the batch.
+     */
+    private static BatchResult attempt(Collection<WithdrawalRequest> requests) {
+        BatchResult result = new BatchResult();
+        WithdrawalStore store = WithdrawalStore.getInstance();
+
+        List<String[]> projectRows = BTOProject.readRows();
+        Map<String, String[]> projectsByName = new HashMap<>();
+        for (String[] row : projectRows) {
+            if (row.length >= 8) {
+                projectsByName.put(row[0].trim().toLowerCase(), row);
+            }
+        }
+        List<String[]> applicationRows = BTOApplication.readRows();
+        Map<String, List<String[]>> applicationsByNric = new HashMap<>();
+        for (String[] row : applicationRows) {
+            if (row.length >= 4) {
+                applicationsByNric.computeIfAbsent(row[0].trim(), k -> new ArrayList<>()).add(row);
+            }
+        }
+
+        boolean projectsChanged = false;
+        boolean applicationsChanged = false;
+        List<String> approved = new ArrayList<>();
+        Map<String, Long> versions = new LinkedHashMap<>();
+        List<Object> events = new ArrayList<>();
+        Set<String> affectedProjects = new HashSet<>();
+        Set<String> seen = new HashSet<>();
+        for (WithdrawalRequest req : requests) {
+            if (req == null || !seen.add(req.getApplicantNRIC())) {
+                continue;
+            }
+            String nric = req.getApplicantNRIC();
+            WithdrawalRequest pending = store.getPendingByNric(nric);
+            if (pending == null) {
+                result.fail(nric, "No pending withdrawal request.");
+                continue;
+            }
+            String[] projectRow = projectsByName.get(req.getProjectName().trim().toLowerCase());
+            if (projectRow == null) {
+                result.fail(nric, "Project not found: " + req.getProjectName());
+                continue;
+            }
+
+            // Check every matching application first so that a failure leaves no partial changes.
+            List<String[]> matches = new ArrayList<>();
+            String error = null;
+            for (String[] app : applicationsByNric.getOrDefault(nric, Collections.emptyList())) {
+                String status = app[3].trim();
+                if (!app[1].trim().equalsIgnoreCase(req.getProjectName())
+                        || !(status.equalsIgnoreCase("Successful") || status.equalsIgnoreCase("Booked"))) {
+                    continue;
+                }
+                if (status.equalsIgnoreCase("Booked")) {
+                    int column = BTOProject.unitsColumn(projectRow, app[2]);
+                    if (column < 0) {
+                        error = "Flat type not found in project: " + app[2];
+                        break;
+                    }
+                    if (!projectRow[column].trim().matches("\\d+")) {
+                        error = "Invalid unit count for " + app[2] + " in project: " + req.getProjectName();
+                        break;
+                    }
+                }
+                matches.add(app);
+            }
+            if (error != null) {
+                result.fail(nric, error);
+                continue;
+            }
+
+            int restocked = 0;
+            for (String[] app : matches) {
+                if (app[3].trim().equalsIgnoreCase("Booked")) {
+                    int column = BTOProject.unitsColumn(projectRow, app[2]);
+                    int units = Integer.parseInt(projectRow[column].trim());
+                    projectRow[column] = Integer.toString(units + 1);
+                    events.add(new UnitsChanged(projectRow[0].trim(), app[2].trim(), units, units + 1));
+                    projectsChanged = true;
+                    restocked++;
+                }
+                events.add(new ApplicationStatusChanged(nric, app[1].trim(), app[2].trim(), app[3].trim(), "Unsuccessful"));
+                app[3] = "Unsuccessful";
+                applicationsChanged = true;
+            }
+            approved.add(nric);
+            versions.put(nric, pending.getVersion());
+            affectedProjects.add(projectRow[0].trim());
+            result.succeed(nric, matches.isEmpty() ? "Approved; no active application to withdraw."
+                    : "Approved; " + matches.size() + " application(s) withdrawn, " + restocked + " unit(s) restocked.");
+        }
+
+        // Offer the units freed by the restock and by the withdrawn applicants' holds to the
+        // waitlist in the same transaction. The holds are released only once it commits.
+        Waitlist waitlist = Waitlist.getInstance();
+        List<String> promoted = waitlist.promote(projectRows, applicationRows, affectedProjects, approved);
+        if (!promoted.isEmpty()) {
+            applicationsChanged = true;
+        }
+        try {
+            Transaction tx = TransactionManager.getInstance().begin();
+            if (projectsChanged) {
+                BTOProject.stageRows(tx, projectRows);
+            }
+            if (applicationsChanged) {
+                BTOApplication.stageRows(tx, applicationRows);
+            }
+            waitlist.stage(tx);
+            store.commitTransitionAll(tx, versions, "Approved");
+        } catch (CommittedNotAppliedException e) {
+            // Committed, so the batch carries on as if every file had been written.
+            System.out.println("Warning: " + e.getMessage());
+        } catch (RuntimeException e) {
+            waitlist.discard();
+            throw e;
+        }
+        ReservationManager.getInstance().releaseAll(approved);
+        EventBus.getDefault().publishAll(events);
+        waitlist.committed();
+        for (String nric : promoted) {
+            System.out.println("Promoted from waitlist to Successful: " + nric);
+        }
+        return result;
+    }
+}
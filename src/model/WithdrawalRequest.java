@@ -15,6 +15,9 @@ public class WithdrawalRequest {
     private String projectName;
     private String flatType;
     private String status; // "Pending", "Approved", "Rejected"
+    private long version;
+
+    public static final String WITHDRAWALS_CSV = "data/withdrawals.csv";
 
     /**
      * Constructs a WithdrawalRequest with the specified details.
@@ -26,13 +29,29 @@ public class WithdrawalRequest {
      * @throws IllegalArgumentException If any input is invalid.
      */
     public WithdrawalRequest(String applicantNRIC, String projectName, String flatType, String status) {
+        this(applicantNRIC, projectName, flatType, status, true);
+    }
+
+    /**
+     * Constructs a WithdrawalRequest, optionally skipping the project lookup. Used by the
+     * withdrawal store, which validates projects against a set loaded once per file read.
+     *
+     * @param applicantNRIC The NRIC of the applicant.
+     * @param projectName The name of the BTO project.
+     * @param flatType The type of flat (e.g., "2-room", "3-room").
+     * @param status The status of the request ("Pending", "Approved", or "Rejected").
+     * @param checkProject True to verify that the project exists.
+     * @throws IllegalArgumentException If any input is invalid.
+     */
+    WithdrawalRequest(String applicantNRIC, String projectName, String flatType, String status, boolean checkProject) {
         if (!Validator.isValidNRIC(applicantNRIC)) {
             throw new IllegalArgumentException("Invalid NRIC: Must start with S or T, followed by 7 digits and a capital letter.");
         }
-        if (!Validator.isValidProjectName(projectName)) {
+        if (projectName == null || projectName.trim().isEmpty()
+                || (checkProject && !Validator.isValidProjectName(projectName))) {
             throw new IllegalArgumentException("Invalid project name: Must be non-empty and contain only letters, numbers, and spaces.");
         }
-        if (BTOProject.getProjectByName(projectName) == null) {
+        if (checkProject && BTOProject.getProjectByName(projectName) == null) {
             throw new IllegalArgumentException("Project does not exist: " + projectName);
         }
         if (!Validator.isValidFlatType(flatType)) {
@@ -97,6 +116,20 @@ public class WithdrawalRequest {
         return status;
     }
 
+    /**
+     * Gets the version of the request when it was read from the {@link WithdrawalStore}.
+     * Transitions based on an older version are rejected.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Sets the status of the withdrawal request.
      *
@@ -144,21 +177,42 @@ public class WithdrawalRequest {
     }
 
     /**
-     * Retrieves a Withdrawal Request by nric
+     * Converts the withdrawal request to a CSV row.
+     *
+     * @return An array of strings representing the CSV row.
+     * @throws IllegalStateException If any field is null.
+     */
+    public String[] toCSVRow() {
+        if (applicantNRIC == null || projectName == null || flatType == null || status == null) {
+            throw new IllegalStateException("Withdrawal request fields cannot be null for CSV output.");
+        }
+        return new String[] { applicantNRIC, projectName, flatType, status };
+    }
+
+    /**
+     * Retrieves a Withdrawal Request by nric. The pending request is returned if there is one,
+     * otherwise the most recent request.
      *
      * @param nric the nric of applicant
      * @return The Withdrawal Request if found, null otherwise.
      */
 
     public static WithdrawalRequest getWithdrawalRequestByNric(String nric) {
-        ArrayList<WithdrawalRequest> requests = getWithdrawalRequests();
-        for (WithdrawalRequest request : requests) {
-            if (request.getApplicantNRIC().equals(nric)) {
-                return request;
+        long started = Metrics.start();
+        try {
+            WithdrawalStore store = WithdrawalStore.getInstance();
+            WithdrawalRequest request = store.getPendingByNric(nric);
+            if (request == null) {
+                List<WithdrawalRequest> requests = store.getByNric(nric);
+                request = requests.isEmpty() ? null : requests.get(requests.size() - 1);
+            }
+            if (request == null) {
+                System.out.println("No such Request found");
             }
+            return request;
+        } finally {
+            Metrics.getInstance().record("WithdrawalRequest.getWithdrawalRequestByNric", started);
         }
-        System.out.println("No such Request found");
-        return null;
     }
 
     /**
@@ -169,12 +223,11 @@ public class WithdrawalRequest {
      */
 
     public static ArrayList<WithdrawalRequest> getWithdrawalRequests() {
-        List<String[]> rows = CSVUtils.readCSV("data/withdrawals.csv");
-        ArrayList<WithdrawalRequest> requests = new ArrayList<>();
-        for (String[] row: rows) {
-            requests.add(new WithdrawalRequest(row[0], row[1], row[2], row[3]));
+        long started = Metrics.start();
+        try {
+            return new ArrayList<>(WithdrawalStore.getInstance().getAll());
+        } finally {
+            Metrics.getInstance().record("WithdrawalRequest.getWithdrawalRequests", started);
         }
-
-        return requests;
     }
 }
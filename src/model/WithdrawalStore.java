@@ -0,0 +1,454 @@
+package model;
+
+import java.io.File;
+import java.util.*;
+
+import utils.CSVUtils;
+import utils.CommittedNotAppliedException;
+import utils.Log;
+import utils.Snapshot;
+import utils.StaleVersionException;
+import utils.TailReader;
+import utils.Transaction;
+import utils.TransactionManager;
+
+/**
+ * In-memory store of withdrawal requests backed by the withdrawals CSV file. Requests are indexed
+ * by applicant NRIC and by status, and the pending request of each applicant is kept in its own
+ * map, so pending lookups are O(1).
+ *
+ * <p>The CSV file is treated as an append-only log. Submitting a request appends a Pending row.
+ * Approving or rejecting it appends a second row with the same NRIC, project and flat type and
+ * the new status. No other rows are rewritten. When the file is loaded, a status row is folded
+ * into the open Pending request it matches; rows that match nothing are kept as requests of
+ * their own. Once superseded rows reach half the number of live requests, the log is compacted
+ * to one row per request, so it stays within 1.5 rows per request and each decision costs a
+ * constant number of rows written on average. Rows appended to the file by others are read with
+ * a {@link TailReader} and folded in without reloading the rest of the log.</p>
+ *
+ * <p>Each request carries a version that grows with every change to its applicant's withdrawals:
+ * the k-th request of an applicant (counting from 0) is at version 2k+1 while pending and 2k+2
+ * once decided. The version follows from the order and status of the applicant's requests, so it
+ * survives compaction. A transition can name the version it was based on and is rejected if the
+ * request was decided, or replaced by a newer one, in the meantime.</p>
+ *
+ * @author SC2002Team
+ */
+public class WithdrawalStore {
+    /** Minimum number of rows in the log before it is considered for compaction. */
+    private static final int COMPACT_MIN_ROWS = 64;
+
+    private static WithdrawalStore instance;
+
+    final private String filepath;
+    final private List<WithdrawalRequest> requests = new ArrayList<>();
+    final private Map<String, List<WithdrawalRequest>> byNric = new HashMap<>();
+    final private Map<String, LinkedHashSet<WithdrawalRequest>> byStatus = new HashMap<>();
+    final private Map<String, WithdrawalRequest> pendingByNric = new HashMap<>();
+    final private TailReader tail;
+    private int logRows = 0;
+
+    /**
+     * Constructs a WithdrawalStore backed by the specified CSV file. The file is loaded lazily.
+     *
+     * @param filepath The path to the withdrawals CSV file.
+     * @throws IllegalArgumentException If the filepath is null or empty.
+     */
+    public WithdrawalStore(String filepath) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Withdrawal store filepath cannot be empty.");
+        }
+        this.filepath = filepath;
+        this.tail = new TailReader(filepath);
+    }
+
+    /**
+     * Gets the shared store backed by the system's withdrawals CSV file.
+     *
+     * @return The shared WithdrawalStore.
+     */
+    public static synchronized WithdrawalStore getInstance() {
+        if (instance == null) {
+            instance = new WithdrawalStore(WithdrawalRequest.WITHDRAWALS_CSV);
+        }
+        return instance;
+    }
+
+    /**
+     * Retrieves all withdrawal requests in the order they were submitted.
+     *
+     * @return A list of all withdrawal requests.
+     */
+    public synchronized List<WithdrawalRequest> getAll() {
+        refreshIfChanged();
+        return new ArrayList<>(requests);
+    }
+
+    /**
+     * Retrieves all withdrawal requests made by an applicant, oldest first.
+     *
+     * @param nric The NRIC of the applicant.
+     * @return A list of the applicant's withdrawal requests.
+     */
+    public synchronized List<WithdrawalRequest> getByNric(String nric) {
+        refreshIfChanged();
+        List<WithdrawalRequest> list = byNric.get(nricKey(nric));
+        return list == null ? new ArrayList<>() : new ArrayList<>(list);
+    }
+
+    /**
+     * Retrieves the pending withdrawal request of an applicant.
+     *
+     * @param nric The NRIC of the applicant.
+     * @return The pending request, or null if the applicant has none.
+     */
+    public synchronized WithdrawalRequest getPendingByNric(String nric) {
+        refreshIfChanged();
+        return pendingByNric.get(nricKey(nric));
+    }
+
+    /**
+     * Retrieves all withdrawal requests with the given status, in the order they reached it.
+     *
+     * @param status The status ("Pending", "Approved", or "Rejected"), case-insensitive.
+     * @return A list of matching withdrawal requests.
+     */
+    public synchronized List<WithdrawalRequest> getByStatus(String status) {
+        refreshIfChanged();
+        Set<WithdrawalRequest> set = byStatus.get(statusKey(status));
+        return set == null ? new ArrayList<>() : new ArrayList<>(set);
+    }
+
+    /**
+     * Retrieves all pending withdrawal requests in the order they were submitted.
+     *
+     * @return A list of pending withdrawal requests.
+     */
+    public synchronized List<WithdrawalRequest> getPending() {
+        return getByStatus("Pending");
+    }
+
+    /**
+     * Submits a new pending withdrawal request and appends it to the log.
+     *
+     * @param nric The NRIC of the applicant.
+     * @param projectName The name of the project applied for.
+     * @param flatType The flat type applied for.
+     * @return The new withdrawal request.
+     * @throws IllegalArgumentException If any input is invalid.
+     * @throws IllegalStateException If the applicant already has a pending withdrawal request.
+     */
+    public synchronized WithdrawalRequest submit(String nric, String projectName, String flatType) {
+        refreshIfChanged();
+        if (pendingByNric.containsKey(nricKey(nric))) {
+            throw new IllegalStateException("A withdrawal request is already pending for NRIC: " + nric);
+        }
+        WithdrawalRequest request = new WithdrawalRequest(nric, projectName, flatType, "Pending");
+        CSVUtils.appendToCSV(filepath, request.toCSVRow());
+        logRows++;
+        add(request);
+        stamp();
+        return request;
+    }
+
+    /**
+     * Moves an applicant's pending withdrawal request to a final status by appending one row to
+     * the log.
+     *
+     * @param nric The NRIC of the applicant.
+     * @param newStatus The new status ("Approved" or "Rejected").
+     * @return The updated withdrawal request.
+     * @throws IllegalArgumentException If the status is invalid or no pending request exists.
+     */
+    public synchronized WithdrawalRequest transition(String nric, String newStatus) {
+        refreshIfChanged();
+        WithdrawalRequest request = pendingByNric.get(nricKey(nric));
+        return transition(nric, request == null ? 0 : request.getVersion(), newStatus);
+    }
+
+    /**
+     * Moves an applicant's pending withdrawal request to a final status by appending one row to
+     * the log, provided the request is still at the version the caller read.
+     *
+     * @param nric The NRIC of the applicant.
+     * @param expectedVersion The version of the request the decision is based on.
+     * @param newStatus The new status ("Approved" or "Rejected").
+     * @return The updated withdrawal request.
+     * @throws IllegalArgumentException If the status is invalid or no pending request exists.
+     * @throws StaleVersionException If the applicant's withdrawals changed since that version.
+     */
+    public synchronized WithdrawalRequest transition(String nric, long expectedVersion, String newStatus) {
+        if (newStatus == null || (!newStatus.equalsIgnoreCase("Approved") && !newStatus.equalsIgnoreCase("Rejected"))) {
+            throw new IllegalArgumentException("Invalid status: Must be 'Approved' or 'Rejected'.");
+        }
+        refreshIfChanged();
+        WithdrawalRequest request = pendingByNric.get(nricKey(nric));
+        if (request == null) {
+            throw new IllegalArgumentException("No pending withdrawal found for NRIC: " + nric);
+        }
+        if (request.getVersion() != expectedVersion) {
+            throw new StaleVersionException("withdrawal " + nricKey(nric), expectedVersion, request.getVersion());
+        }
+        String[] row = { request.getApplicantNRIC(), request.getProjectName(), request.getFlatType(), newStatus.trim() };
+        CSVUtils.appendToCSV(filepath, row);
+        logRows++;
+        setStatus(request, newStatus);
+        stamp();
+        compactIfNeeded();
+        return request;
+    }
+
+    /**
+     * Moves the pending withdrawal requests of several applicants to a final status by appending
+     * one row per request to the log in a single write.
+     *
+     * @param nrics The NRICs of the applicants whose pending requests should be updated.
+     * @param newStatus The new status ("Approved" or "Rejected").
+     * @return The number of requests updated; NRICs without a pending request are skipped.
+     * @throws IllegalArgumentException If the NRIC collection is null or the status is invalid.
+     */
+    public synchronized int transitionAll(Collection<String> nrics, String newStatus) {
+        if (nrics == null) {
+            throw new IllegalArgumentException("NRICs cannot be null.");
+        }
+        if (newStatus == null || (!newStatus.equalsIgnoreCase("Approved") && !newStatus.equalsIgnoreCase("Rejected"))) {
+            throw new IllegalArgumentException("Invalid status: Must be 'Approved' or 'Rejected'.");
+        }
+        refreshIfChanged();
+        Map<String, WithdrawalRequest> decided = new LinkedHashMap<>();
+        for (String nric : nrics) {
+            WithdrawalRequest request = pendingByNric.get(nricKey(nric));
+            if (request != null) {
+                decided.putIfAbsent(nricKey(nric), request);
+            }
+        }
+        if (decided.isEmpty()) {
+            return 0;
+        }
+        List<String[]> rows = new ArrayList<>(decided.size());
+        for (WithdrawalRequest request : decided.values()) {
+            rows.add(new String[] { request.getApplicantNRIC(), request.getProjectName(), request.getFlatType(), newStatus.trim() });
+        }
+        CSVUtils.appendAllToCSV(filepath, rows);
+        logRows += rows.size();
+        for (WithdrawalRequest request : decided.values()) {
+            setStatus(request, newStatus);
+        }
+        stamp();
+        compactIfNeeded();
+        return decided.size();
+    }
+
+    /**
+     * Moves the pending withdrawal requests of several applicants to a final status as part of a
+     * transaction, appending one row per request to the log, and commits the transaction. The log
+     * rows are written together with everything else staged in the transaction, or not at all.
+     *
+     * @param tx The transaction to append the status rows to and commit.
+     * @param expectedVersions The version each applicant's pending request was read at, by NRIC.
+     * @param newStatus The new status ("Approved" or "Rejected").
+     * @return The number of requests updated.
+     * @throws IllegalArgumentException If the transaction, versions or status are invalid.
+     * @throws StaleVersionException If an applicant's withdrawals changed since they were read;
+     *                               nothing is written.
+     * @throws CommittedNotAppliedException If the transaction committed but a file could not be
+     *                                      written. The transitions stand: the store has tried to
+     *                                      complete the files at once, and they are otherwise
+     *                                      completed on the next recovery.
+     * @throws RuntimeException If the transaction could not be committed.
+     */
+    public synchronized int commitTransitionAll(Transaction tx, Map<String, Long> expectedVersions, String newStatus) {
+        if (tx == null || expectedVersions == null) {
+            throw new IllegalArgumentException("Transaction and versions cannot be null.");
+        }
+        if (newStatus == null || (!newStatus.equalsIgnoreCase("Approved") && !newStatus.equalsIgnoreCase("Rejected"))) {
+            throw new IllegalArgumentException("Invalid status: Must be 'Approved' or 'Rejected'.");
+        }
+        refreshIfChanged();
+        List<String[]> rows = new ArrayList<>(expectedVersions.size());
+        for (Map.Entry<String, Long> entry : expectedVersions.entrySet()) {
+            WithdrawalRequest request = pendingByNric.get(nricKey(entry.getKey()));
+            long actual = request == null ? 0 : request.getVersion();
+            if (actual != entry.getValue()) {
+                throw new StaleVersionException("withdrawal " + nricKey(entry.getKey()), entry.getValue(), actual);
+            }
+            rows.add(new String[] { request.getApplicantNRIC(), request.getProjectName(), request.getFlatType(), newStatus.trim() });
+        }
+        if (!rows.isEmpty()) {
+            tx.append(filepath, rows);
+        }
+        try {
+            tx.commit();
+        } catch (CommittedNotAppliedException e) {
+            try {
+                TransactionManager.getInstance().recover();
+            } catch (RuntimeException recoveryFailed) {
+                System.out.println("Warning: Withdrawal decisions will be completed on recovery: " + recoveryFailed.getMessage());
+            }
+            refreshIfChanged(); // Folds in the appended rows once they are written
+            throw e;
+        }
+        refreshIfChanged(); // Folds in the appended rows
+        compactIfNeeded();
+        return rows.size();
+    }
+
+    /**
+     * Rewrites the log atomically with one row per request, dropping superseded status rows.
+     */
+    public synchronized void compact() {
+        refreshIfChanged();
+        List<String[]> rows = new ArrayList<>(requests.size());
+        for (WithdrawalRequest request : requests) {
+            rows.add(request.toCSVRow());
+        }
+        CSVUtils.writeCSVAtomic(filepath, rows);
+        logRows = rows.size();
+        stamp();
+        Snapshot.getDefault().requestSave();
+    }
+
+    /**
+     * Gets the number of rows currently in the log, including superseded status rows.
+     *
+     * @return The number of log rows.
+     */
+    public synchronized int getLogRows() {
+        refreshIfChanged();
+        return logRows;
+    }
+
+    /**
+     * Compacts the log once superseded rows reach half the number of live requests.
+     */
+    private void compactIfNeeded() {
+        int superseded = logRows - requests.size();
+        if (logRows >= COMPACT_MIN_ROWS && 2 * superseded >= requests.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Brings the store up to date with the CSV file: rows appended since it was last read or
+     * written are folded in, and the whole log is reloaded if the file was rewritten.
+     */
+    private void refreshIfChanged() {
+        if (!new File(filepath).exists()) {
+            if (tail.getOffset() >= 0 || !requests.isEmpty()) {
+                clear();
+                tail.reset();
+            }
+            return;
+        }
+        TailReader.Batch batch = tail.poll();
+        if (batch.isReset()) {
+            clear();
+        }
+        if (batch.isReset() || !batch.getRows().isEmpty()) {
+            fold(batch.getRows());
+        }
+    }
+
+    private void clear() {
+        requests.clear();
+        byNric.clear();
+        byStatus.clear();
+        pendingByNric.clear();
+        logRows = 0;
+    }
+
+    /**
+     * Folds log rows into the store, in order: a status row completes the open Pending request
+     * it matches. Projects are validated against a set read once per call rather than once per row.
+     *
+     * @param rows The rows to fold in.
+     */
+    private void fold(List<String[]> rows) {
+        Set<String> knownProjects = new HashSet<>();
+        for (BTOProject project : BTOProject.getProjects()) {
+            knownProjects.add(project.getProjectName().trim().toLowerCase());
+        }
+        Log.Tally skipped = Log.tally(filepath);
+        for (String[] row : rows) {
+            if (row.length < 4) {
+                if (!String.join(",", row).trim().isEmpty()) {
+                    skipped.add("Malformed row", row);
+                }
+                continue;
+            }
+            logRows++;
+            try {
+                if (!knownProjects.contains(row[1].trim().toLowerCase())) {
+                    throw new IllegalArgumentException("Project does not exist: " + row[1]);
+                }
+                WithdrawalRequest request = new WithdrawalRequest(row[0], row[1], row[2], row[3], false);
+                WithdrawalRequest open = pendingByNric.get(request.getApplicantNRIC());
+                if (open != null && sameApplication(open, request)) {
+                    if (!request.getStatus().equalsIgnoreCase("Pending")) {
+                        setStatus(open, request.getStatus());
+                    }
+                    continue;
+                }
+                add(request);
+            } catch (IllegalArgumentException e) {
+                skipped.add(e.getMessage(), row);
+            }
+        }
+        skipped.flush();
+    }
+
+    /**
+     * Adds a request to the list and all indexes.
+     *
+     * @param request The request to add.
+     */
+    private void add(WithdrawalRequest request) {
+        requests.add(request);
+        List<WithdrawalRequest> ofApplicant = byNric.computeIfAbsent(nricKey(request.getApplicantNRIC()), k -> new ArrayList<>());
+        request.setVersion(2L * ofApplicant.size() + (request.getStatus().equalsIgnoreCase("Pending") ? 1 : 2));
+        ofApplicant.add(request);
+        byStatus.computeIfAbsent(statusKey(request.getStatus()), k -> new LinkedHashSet<>()).add(request);
+        if (request.getStatus().equalsIgnoreCase("Pending")) {
+            pendingByNric.put(nricKey(request.getApplicantNRIC()), request);
+        }
+    }
+
+    /**
+     * Changes the status of a request and moves it between the status indexes.
+     *
+     * @param request The request to update.
+     * @param newStatus The new status.
+     */
+    private void setStatus(WithdrawalRequest request, String newStatus) {
+        Set<WithdrawalRequest> old = byStatus.get(statusKey(request.getStatus()));
+        if (old != null) {
+            old.remove(request);
+        }
+        if (request.getStatus().equalsIgnoreCase("Pending")) {
+            pendingByNric.remove(nricKey(request.getApplicantNRIC()));
+            request.setVersion(request.getVersion() + 1);
+        }
+        request.setStatus(newStatus);
+        byStatus.computeIfAbsent(statusKey(request.getStatus()), k -> new LinkedHashSet<>()).add(request);
+    }
+
+    private static boolean sameApplication(WithdrawalRequest a, WithdrawalRequest b) {
+        return a.getProjectName().equalsIgnoreCase(b.getProjectName())
+                && a.getFlatType().equalsIgnoreCase(b.getFlatType());
+    }
+
+    /**
+     * Marks the CSV file as read up to its current end, after the store wrote it itself.
+     */
+    private void stamp() {
+        tail.skipToEnd();
+    }
+
+    private static String nricKey(String nric) {
+        return nric == null ? "" : nric.trim();
+    }
+
+    private static String statusKey(String status) {
+        return status == null ? "" : status.trim().toLowerCase();
+    }
+}
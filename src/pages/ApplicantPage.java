@@ -4,6 +4,8 @@ import controller.ApplicantController;
 import model.BTOProject;
 import model.BTOApplication;
 import model.Enquiry;
+import model.EnquiryPage;
+import model.EnquiryStore;
 import model.Room;
 import utils.Validator;
 
@@ -219,55 +221,63 @@ public class ApplicantPage {
     }
 
     /**
-     * Displays all enquiries submitted by the applicant.
+     * Displays the enquiries submitted by the applicant, one page at a time.
      */
     private void viewMyEnquiries() {
         try {
-            List<Enquiry> enquiries = controller.viewMyEnquiries();
-            if (enquiries == null) {
-                System.out.println("No enquiries available: Invalid applicant state.");
-                return;
-            }
-            if (enquiries.isEmpty()) {
-                System.out.println("You have no enquiries.");
-                return;
-            }
-            System.out.println("Your Enquiries:");
-            for (Enquiry enquiry : enquiries) {
-                System.out.println("ID: " + enquiry.getId() + " | Project: " + enquiry.getProjectName() +
-                        " | Title: " + enquiry.getTitle() + " | Details: " + enquiry.getDetail() +
-                        " | Response: " + enquiry.getResponse());
+            int cursor = EnquiryPage.START;
+            boolean first = true;
+            while (true) {
+                EnquiryPage page = controller.viewMyEnquiries(cursor, EnquiryStore.DEFAULT_PAGE_SIZE);
+                if (page.isEmpty()) {
+                    if (first) {
+                        System.out.println("You have no enquiries.");
+                    }
+                    return;
+                }
+                if (first) {
+                    System.out.println("Your Enquiries:");
+                    first = false;
+                }
+                for (Enquiry enquiry : page.getItems()) {
+                    System.out.println("ID: " + enquiry.getId() + " | Project: " + enquiry.getProjectName() +
+                            " | Title: " + enquiry.getTitle() + " | Details: " + enquiry.getDetail() +
+                            " | Response: " + enquiry.getResponse());
+                }
+                if (!page.hasMore()) {
+                    return;
+                }
+                System.out.print("Show more enquiries? (y/n): ");
+                if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                    return;
+                }
+                cursor = page.getNextCursor();
             }
-        } catch (IllegalStateException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             System.out.println("" + e.getMessage());
         }
     }
 
     /**
-     * Prompts the applicant to edit an existing enquiry by specifying its index and new details.
+     * Prompts the applicant to edit an existing enquiry by specifying its ID and new details.
      */
     private void editEnquiry() {
         try {
-            List<Enquiry> enquiries = controller.viewMyEnquiries();
-            if (enquiries == null) {
-                System.out.println("No enquiries available: Invalid applicant state.");
-                return;
-            }
-            if (enquiries.isEmpty()) {
+            if (controller.viewMyEnquiries(EnquiryPage.START, 1).isEmpty()) {
                 System.out.println("You have no enquiries to edit.");
                 return;
             }
-            System.out.print("Enter the index of the enquiry you want to edit: ");
-            int index;
+            System.out.print("Enter the ID of the enquiry you want to edit: ");
+            int enquiryId;
             if (!scanner.hasNextInt()) {
-                System.out.println("Invalid input: Index must be a number.");
+                System.out.println("Invalid input: Enquiry ID must be a number.");
                 scanner.nextLine(); // Clear invalid input
                 return;
             }
-            index = scanner.nextInt();
+            enquiryId = scanner.nextInt();
             scanner.nextLine(); // Consume newline
-            if (index < 0 || index >= enquiries.size()) {
-                System.out.println("Invalid index: Must be between 0 and " + (enquiries.size() - 1) + ".");
+            if (enquiryId < 0) {
+                System.out.println("Invalid enquiry ID: Must be non-negative.");
                 return;
             }
             System.out.print("Enter the new title: ");
@@ -282,7 +292,7 @@ public class ApplicantPage {
                 System.out.println("New detail cannot be null or empty.");
                 return;
             }
-            boolean success = controller.editEnquiry(index, newTitle.trim(), newDetail.trim());
+            boolean success = controller.editEnquiry(enquiryId, newTitle.trim(), newDetail.trim());
             if (success) {
                 System.out.println("Your enquiry has been successfully updated.");
             } else {
@@ -294,33 +304,28 @@ public class ApplicantPage {
     }
 
     /**
-     * Prompts the applicant to delete an existing enquiry by specifying its index.
+     * Prompts the applicant to delete an existing enquiry by specifying its ID.
      */
     private void deleteEnquiry() {
         try {
-            List<Enquiry> enquiries = controller.viewMyEnquiries();
-            if (enquiries == null) {
-                System.out.println("No enquiries available: Invalid applicant state.");
-                return;
-            }
-            if (enquiries.isEmpty()) {
+            if (controller.viewMyEnquiries(EnquiryPage.START, 1).isEmpty()) {
                 System.out.println("You have no enquiries to delete.");
                 return;
             }
-            System.out.print("Enter the index of the enquiry you want to delete: ");
-            int index;
+            System.out.print("Enter the ID of the enquiry you want to delete: ");
+            int enquiryId;
             if (!scanner.hasNextInt()) {
-                System.out.println("Invalid input: Index must be a number.");
+                System.out.println("Invalid input: Enquiry ID must be a number.");
                 scanner.nextLine(); // Clear invalid input
                 return;
             }
-            index = scanner.nextInt();
+            enquiryId = scanner.nextInt();
             scanner.nextLine(); // Consume newline
-            if (index < 0 || index >= enquiries.size()) {
-                System.out.println("Invalid index: Must be between 0 and " + (enquiries.size() - 1) + ".");
+            if (enquiryId < 0) {
+                System.out.println("Invalid enquiry ID: Must be non-negative.");
                 return;
             }
-            boolean success = controller.deleteEnquiry(index);
+            boolean success = controller.deleteEnquiry(enquiryId);
             if (success) {
                 System.out.println("Your enquiry has been successfully deleted.");
             } else {
@@ -2,10 +2,15 @@ package pages;
 
 import controller.ProjectManagerController;
 import model.BTOApplication;
+import model.BallotEngine;
+import model.BatchResult;
 import model.BTOProject;
 import model.Room;
 import model.Applicant;
+import model.Enquiry;
+import model.HDBManager;
 import model.WithdrawalRequest;
+import utils.Metrics;
 import utils.Validator;
 
 import java.util.*;
@@ -20,6 +25,8 @@ public class HDBManagerPage {
     final private ProjectManagerController manager;
     final private Scanner scanner;
 
+    private static final int SEARCH_LIMIT = 20;
+
     /**
      * Constructs an HDBManagerPage with the specified controller, initializing the scanner for user input.
      *
@@ -54,6 +61,12 @@ public class HDBManagerPage {
             System.out.println("10. Approve BTO Applications");
             System.out.println("11. Approve/Reject BTO Withdrawal Request");
             System.out.println("12. Generate Report");
+            System.out.println("13. Search Enquiries");
+            System.out.println("14. Approve All Pending Withdrawals");
+            System.out.println("15. Bulk Approve/Reject BTO Applications");
+            System.out.println("16. Run Ballot");
+            System.out.println("17. View Reservation Metrics");
+            System.out.println("18. View System Stats");
             System.out.println("0. Logout");
             System.out.print("Enter your choice: ");
             if (!scanner.hasNextInt()) {
@@ -77,6 +90,12 @@ public class HDBManagerPage {
                 case 10 -> approveBTOApplications();
                 case 11 -> approveRejectBTOWithdrawal(scanner);
                 case 12 -> generateReport();
+                case 13 -> searchEnquiries();
+                case 14 -> approveAllPendingWithdrawals();
+                case 15 -> bulkApproveRejectBTOApplications();
+                case 16 -> runBallot();
+                case 17 -> viewReservationMetrics();
+                case 18 -> viewSystemStats();
                 case 0 -> System.out.println("Logging out...");
                 default -> System.out.println("Invalid choice. Please try again.");
             }
@@ -419,6 +438,39 @@ public class HDBManagerPage {
         }
     }
 
+    /**
+     * Prompts the manager for a search query and optional project, then lists matching enquiries.
+     * Words in double quotes are matched as an exact phrase.
+     */
+    private void searchEnquiries() {
+        System.out.print("Enter search terms (use \"quotes\" for phrases): ");
+        String query = scanner.nextLine();
+        if (query == null || query.trim().isEmpty()) {
+            System.out.println("Search query cannot be empty.");
+            return;
+        }
+        System.out.print("Enter project name to search within (leave blank for all projects): ");
+        String projectName = scanner.nextLine().trim();
+        List<Enquiry> results;
+        try {
+            results = manager.searchEnquiries(query.trim(), projectName.isEmpty() ? null : projectName, SEARCH_LIMIT);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Failed to search enquiries: " + e.getMessage());
+            return;
+        }
+        if (results.isEmpty()) {
+            System.out.println("No enquiries match: " + query.trim());
+            return;
+        }
+        System.out.println("\n-- " + results.size() + " matching enquiries --");
+        for (Enquiry e : results) {
+            System.out.println("ID: " + e.getId() + " | Project: " + e.getProjectName() + " | NRIC: " + e.getEnquirerNRIC());
+            System.out.println("  Title   : " + e.getTitle());
+            System.out.println("  Detail  : " + e.getDetail());
+            System.out.println("  Reply   : " + (e.getResponse() == null || e.getResponse().isEmpty() ? "<None>" : e.getResponse()));
+        }
+    }
+
     /**
      * Displays all BTO applications for the manager's assigned project.
      */
@@ -513,12 +565,12 @@ public class HDBManagerPage {
     }
 
     private void approveRejectBTOWithdrawal(Scanner sc) {
-        ArrayList<WithdrawalRequest> requests = WithdrawalRequest.getWithdrawalRequests();
+        List<WithdrawalRequest> requests = HDBManager.viewPendingWithdrawals();
         boolean anyPending = false;
 
         for (WithdrawalRequest req : requests) {
             if (!req.getStatus().equalsIgnoreCase("Pending")) {
-                continue; // Skip non-pending requests
+                continue; // Already handled earlier in this session
             }
 
             anyPending = true;
@@ -549,6 +601,143 @@ public class HDBManagerPage {
         }
     }
 
+    /**
+     * Approves every pending withdrawal request for the manager's project after confirmation.
+     */
+    private void approveAllPendingWithdrawals() {
+        System.out.print("Approve all pending withdrawal requests for your project? (y/n): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            System.out.println("No requests approved.");
+            return;
+        }
+        try {
+            BatchResult result = manager.approveAllPendingWithdrawals();
+            if (result.getOutcomes().isEmpty()) {
+                System.out.println("No pending withdrawal requests.");
+                return;
+            }
+            System.out.println(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Failed to approve withdrawals: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Error approving withdrawals: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prompts the user for several applicant NRICs, or ALL, and approves or rejects their pending
+     * BTO applications in one batch.
+     */
+    private void bulkApproveRejectBTOApplications() {
+        System.out.print("Enter applicant NRICs separated by commas, or ALL to approve every pending application up to capacity: ");
+        String input = scanner.nextLine();
+        if (input == null || input.trim().isEmpty()) {
+            System.out.println("Input cannot be null or empty.");
+            return;
+        }
+        try {
+            BatchResult result;
+            if (input.trim().equalsIgnoreCase("ALL")) {
+                result = manager.approveAllPendingApplications();
+            } else {
+                System.out.print("Approve or reject these applications? (approve/reject): ");
+                String action = scanner.nextLine().trim().toLowerCase();
+                if (!action.equals("approve") && !action.equals("reject")) {
+                    System.out.println("Invalid action: Must be 'approve' or 'reject'.");
+                    return;
+                }
+                List<String> nrics = new ArrayList<>();
+                for (String nric : input.split(",")) {
+                    if (!nric.trim().isEmpty()) {
+                        nrics.add(nric.trim());
+                    }
+                }
+                result = manager.approveRejectBTOApplications(nrics, action.equals("approve"));
+            }
+            if (result.getOutcomes().isEmpty()) {
+                System.out.println("No pending BTO applications.");
+                return;
+            }
+            System.out.println(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Failed to process applications: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Error processing applications: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prompts the user for a ballot seed and draws the ballot for the managed project.
+     */
+    private void runBallot() {
+        System.out.print("Enter ballot seed (leave blank for a new random seed): ");
+        String input = scanner.nextLine().trim();
+        long seed;
+        if (input.isEmpty()) {
+            seed = new Random().nextLong();
+        } else {
+            try {
+                seed = Long.parseLong(input);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid seed: Must be a whole number.");
+                return;
+            }
+        }
+        System.out.print("Decide all pending applications for your project by ballot? (y/n): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            System.out.println("Ballot cancelled.");
+            return;
+        }
+        try {
+            BallotEngine.Result result = manager.runBallot(seed);
+            if (result.getFlatTypes().isEmpty()) {
+                System.out.println("No pending BTO applications.");
+                return;
+            }
+            System.out.println(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Failed to run ballot: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Error running ballot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Displays the unit reservation counters since the system started.
+     */
+    private void viewReservationMetrics() {
+        try {
+            System.out.println("Unit Reservations:");
+            for (Map.Entry<String, Long> metric : manager.getReservationMetrics().entrySet()) {
+                System.out.printf("  %-10s: %d%n", metric.getKey(), metric.getValue());
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Error retrieving reservation metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Displays the call count and latency percentiles, in microseconds, of every operation called
+     * since the system started.
+     */
+    private void viewSystemStats() {
+        try {
+            List<Metrics.Stats> stats = manager.getSystemStats();
+            if (stats.isEmpty()) {
+                System.out.println("No operations recorded yet.");
+                return;
+            }
+            System.out.printf("%-55s %8s %10s %10s %10s %10s%n", "Operation", "Count", "p50 (us)", "p99 (us)",
+                    "p999 (us)", "Max (us)");
+            for (Metrics.Stats stat : stats) {
+                System.out.printf("%-55s %8d %10.1f %10.1f %10.1f %10.1f%n", stat.getOperation(), stat.getCount(),
+                        stat.getP50(), stat.getP99(), stat.getP999(), stat.getMax());
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Error retrieving system stats: " + e.getMessage());
+        }
+    }
+
     /**
      * Prompts the user to generate a report for a specified BTO project.
      */
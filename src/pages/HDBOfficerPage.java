@@ -3,8 +3,10 @@ package pages;
 import controller.HDBOfficerController;
 import model.BTOApplication;
 import model.BTOProject;
+import model.BatchResult;
 import model.Room;
 import model.Applicant;
+import model.Enquiry;
 import utils.Validator;
 
 import java.util.*;
@@ -19,6 +21,8 @@ public class HDBOfficerPage {
     final private HDBOfficerController officer;
     final private Scanner scanner;
 
+    private static final int SEARCH_LIMIT = 20;
+
     /**
      * Constructs an HDBOfficerPage with the specified controller, initializing the scanner for user input.
      *
@@ -52,6 +56,9 @@ public class HDBOfficerPage {
             System.out.println("7. Apply for BTO Project");
             System.out.println("8. View My Application");
             System.out.println("9. Withdraw My Application");
+            System.out.println("10. Search Enquiries");
+            System.out.println("11. Print Booking Receipt");
+            System.out.println("12. Book Flats in Bulk");
             System.out.println("0. Exit");
             System.out.print("Enter your choice: ");
             if (!scanner.hasNextInt()) {
@@ -72,6 +79,9 @@ public class HDBOfficerPage {
                 case 7 -> applyForProject();
                 case 8 -> viewMyApplication();
                 case 9 -> withdrawApplication();
+                case 10 -> searchEnquiries();
+                case 11 -> printBookingReceipt();
+                case 12 -> bookFlatsInBulk();
                 case 0 -> System.out.println("Exiting HDB Officer Dashboard...");
                 default -> System.out.println("Invalid choice. Please try again.");
             }
@@ -135,6 +145,87 @@ public class HDBOfficerPage {
         }
     }
 
+    /**
+     * Prompts the officer for a search query and lists matching enquiries for the assigned project.
+     * Words in double quotes are matched as an exact phrase.
+     */
+    private void searchEnquiries() {
+        System.out.print("Enter search terms (use \"quotes\" for phrases): ");
+        String query = scanner.nextLine();
+        if (query == null || query.trim().isEmpty()) {
+            System.out.println("Search query cannot be empty.");
+            return;
+        }
+        List<Enquiry> results;
+        try {
+            results = officer.searchEnquiries(query.trim(), SEARCH_LIMIT);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Failed to search enquiries: " + e.getMessage());
+            return;
+        }
+        if (results.isEmpty()) {
+            System.out.println("No enquiries match: " + query.trim());
+            return;
+        }
+        System.out.println("\n-- " + results.size() + " matching enquiries --");
+        for (Enquiry e : results) {
+            System.out.println("ID: " + e.getId() + " | Project: " + e.getProjectName() + " | NRIC: " + e.getEnquirerNRIC());
+            System.out.println("  Title   : " + e.getTitle());
+            System.out.println("  Detail  : " + e.getDetail());
+            System.out.println("  Reply   : " + (e.getResponse() == null || e.getResponse().isEmpty() ? "<None>" : e.getResponse()));
+        }
+    }
+
+    /**
+     * Prompts the officer for an applicant's NRIC and prints their archived booking receipt.
+     */
+    private void printBookingReceipt() {
+        System.out.print("Enter the applicant's NRIC: ");
+        String nric = scanner.nextLine();
+        if (nric == null || nric.trim().isEmpty()) {
+            System.out.println("NRIC cannot be null or empty.");
+            return;
+        }
+        try {
+            if (!officer.printReceipt(nric.trim())) {
+                System.out.println("No booking receipt found for NRIC " + nric.trim() + " in your assigned project.");
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Failed to print receipt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prompts the officer for several applicant NRICs, each optionally followed by a flat type, and
+     * books their flats in one batch.
+     */
+    private void bookFlatsInBulk() {
+        System.out.print("Enter bookings separated by commas as NRIC or NRIC:FlatType (e.g. S1234567A:2-Room): ");
+        String input = scanner.nextLine();
+        if (input == null || input.trim().isEmpty()) {
+            System.out.println("Input cannot be null or empty.");
+            return;
+        }
+        List<String[]> bookings = new ArrayList<>();
+        for (String entry : input.split(",")) {
+            if (!entry.trim().isEmpty()) {
+                String[] parts = entry.split(":", 2);
+                bookings.add(new String[] { parts[0].trim(), parts.length > 1 ? parts[1].trim() : "" });
+            }
+        }
+        try {
+            BatchResult result = officer.bookFlats(bookings);
+            System.out.println(result);
+            if (!result.getSucceeded().isEmpty()) {
+                System.out.println("Booking receipts are being generated and can be printed from the menu.");
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Failed to book flats: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Error booking flats: " + e.getMessage());
+        }
+    }
+
     /**
      * Displays all successful applications for the officer's assigned project.
      */
@@ -1,8 +1,27 @@
 package utils;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
 
 /**
  * Provides utility methods for reading, writing, appending, and updating CSV files
@@ -12,10 +31,23 @@ import java.util.List;
  * @author SC2002Team
  */
 public class CSVUtils {
+    /** Files at least this large are parsed in parallel by {@link #readCSV(String)}. */
+    public static final long PARALLEL_THRESHOLD_BYTES = 16L << 20;
+
+    private static final Pattern FIELD_SPLIT = Pattern.compile(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
+    static final Charset CHARSET = Charset.defaultCharset();
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    private static final Map<String, SortedCsvIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> WRITES = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> KEPT_SORTED = new ConcurrentHashMap<>();
 
     /**
      * Reads a CSV file and returns its content as a list of string arrays, where each
-     * array represents a row split by commas (ignoring commas within quoted values).
+     * array represents a row split by commas (ignoring commas within quoted values). If the file is
+     * unchanged since the loaded {@link Snapshot} was taken, the rows come from the snapshot instead.
+     * Files of at least {@value #PARALLEL_THRESHOLD_BYTES} bytes are parsed in parallel on the
+     * common fork/join pool when it has more than one thread (see {@link #readCSVParallel}).
      *
      * @param filepath The path to the CSV file.
      * @return A list of string arrays, each representing a CSV row.
@@ -24,30 +56,341 @@ public class CSVUtils {
      */
 
     public static List<String[]> readCSV(String filepath) {
-        validateFilePath(filepath);
-        File file = new File(filepath);
-        if (!file.exists() || !file.canRead()) {
-            throw new RuntimeException("Cannot read CSV file: " + filepath + " (file does not exist or is not readable)");
+        long started = Metrics.start();
+        FlightEvents.CsvRead event = new FlightEvents.CsvRead();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            File file = new File(filepath);
+            if (!file.exists() || !file.canRead()) {
+                throw new RuntimeException("Cannot read CSV file: " + filepath + " (file does not exist or is not readable)");
+            }
+
+            List<String[]> snapshot = Snapshot.getDefault().read(filepath);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            List<String[]> data;
+            if (file.length() >= PARALLEL_THRESHOLD_BYTES && ForkJoinPool.getCommonPoolParallelism() > 1
+                    && isSplittable(CHARSET)) {
+                data = readChunks(file, ForkJoinPool.commonPool());
+            } else {
+                data = readLines(file);
+            }
+            if (Tracer.isEnabled()) {
+                Tracer.countRead(file.length(), data.size());
+            }
+            if (event.shouldCommit()) {
+                event.path = filepath;
+                event.rows = data.size();
+                event.bytes = file.length();
+                event.commit();
+            }
+
+            return data;
+        } finally {
+            Metrics.getInstance().record("CSVUtils.readCSV", started);
         }
+    }
 
-        List<String[]> data = new ArrayList<>();
+    /**
+     * Reads a CSV file like {@link #readCSV(String)}, parsing it in parallel on the given pool,
+     * and returns the rows in file order.
+     *
+     * <p>The file is split into about four chunks per thread of the pool. Each chunk ends at a line
+     * break that is not inside a quoted value: the quotes in every chunk are first counted in
+     * parallel, which tells whether each chunk starts inside quotes, and each boundary is then
+     * moved forward to the next line break outside quotes. The chunks are memory-mapped, decoded
+     * and split into rows in parallel, and the results are joined in order. Rows are split exactly
+     * as {@link #readCSV(String)} splits them, so both return the same rows. A charset in which a
+     * line break or quote can be part of another character, such as UTF-16, is read on the
+     * calling thread instead.</p>
+     *
+     * @param filepath The path to the CSV file.
+     * @param pool The pool to parse on.
+     * @return A list of string arrays, each representing a CSV row.
+     * @throws IllegalArgumentException If the filepath is invalid or the pool is null.
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    public static List<String[]> readCSVParallel(String filepath, ForkJoinPool pool) {
+        long started = Metrics.start();
+        try {
+            validateFilePath(filepath);
+            if (pool == null) {
+                throw new IllegalArgumentException("Invalid pool: Cannot be null");
+            }
+            File file = new File(filepath);
+            if (!file.exists() || !file.canRead()) {
+                throw new RuntimeException("Cannot read CSV file: " + filepath + " (file does not exist or is not readable)");
+            }
+            List<String[]> data = isSplittable(CHARSET) ? readChunks(file, pool) : readLines(file);
+            if (Tracer.isEnabled()) {
+                Tracer.countRead(file.length(), data.size());
+            }
+            return data;
+        } finally {
+            Metrics.getInstance().record("CSVUtils.readCSVParallel", started);
+        }
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filepath))) {
+    /**
+     * Reads and splits a file line by line on the calling thread.
+     */
+    private static List<String[]> readLines(File file) {
+        List<String[]> data = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
 
             while ((line = br.readLine()) != null) {
+                data.add(splitLine(line));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV file: " + file.getPath() + " - " + e.getMessage());
+        }
+        return data;
+    }
 
-                if (line.startsWith("\uFEFF")) {
-                    line = line.substring(1); // Remove BOM
+    static String[] splitLine(String line) {
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1); // Remove BOM
+        }
+        return FIELD_SPLIT.split(line, -1);
+    }
+
+    /**
+     * Whether every line break and quote byte in the charset is that character and never part of
+     * another one, so that a file can be cut into chunks at byte positions.
+     */
+    static boolean isSplittable(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.newEncoder().maxBytesPerChar() == 1.0f;
+    }
+
+    /**
+     * Reads a file in chunks on the pool; see {@link #readCSVParallel(String, ForkJoinPool)}.
+     */
+    private static List<String[]> readChunks(File file, ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return new ArrayList<>();
+            }
+            long chunkBytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (4L * pool.getParallelism()) + 1));
+            int chunks = (int) ((size + chunkBytes - 1) / chunkBytes);
+
+            // Count the quotes in each chunk to know which chunks start inside a quoted value.
+            List<Boolean> oddQuotes = forEachChunk(pool, chunks, i -> {
+                MappedByteBuffer bytes = map(channel, i * chunkBytes, Math.min(chunkBytes, size - i * chunkBytes));
+                boolean odd = false;
+                while (bytes.hasRemaining()) {
+                    if (bytes.get() == '"') {
+                        odd = !odd;
+                    }
+                }
+                return odd;
+            });
+            boolean[] startsInQuotes = new boolean[chunks];
+            for (int i = 1; i < chunks; i++) {
+                startsInQuotes[i] = startsInQuotes[i - 1] ^ oddQuotes.get(i - 1);
+            }
+            List<Long> starts = forEachChunk(pool, chunks,
+                    i -> i == 0 ? 0L : recordStart(channel, i * chunkBytes, startsInQuotes[i], chunkBytes, size));
+
+            List<Long> bounds = new ArrayList<>();
+            for (long start : starts) {
+                if (start >= 0 && start < size && (bounds.isEmpty() || start > bounds.get(bounds.size() - 1))) {
+                    bounds.add(start);
                 }
-                String[] row = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-                data.add(row);
             }
+            bounds.add(size);
+            List<List<String[]>> parts = forEachChunk(pool, bounds.size() - 1,
+                    i -> parseRange(channel, bounds.get(i), bounds.get(i + 1)));
+
+            int total = 0;
+            for (List<String[]> part : parts) {
+                total += part.size();
+            }
+            List<String[]> data = new ArrayList<>(total);
+            for (List<String[]> part : parts) {
+                data.addAll(part);
+            }
+            return data;
         } catch (IOException e) {
-            throw new RuntimeException("Error reading CSV file: " + filepath + " - " + e.getMessage());
+            throw new RuntimeException("Error reading CSV file: " + file.getPath() + " - " + e.getMessage());
         }
+    }
 
-        return data;
+    /**
+     * Finds where the first record starting at or after a position begins: just past the first
+     * line break outside quotes. Rows are split line by line, so if quotes do not balance, the
+     * first line break of any kind is used instead.
+     *
+     * @return The position, or -1 if there is no line break within the next {@code limit} bytes.
+     */
+    private static long recordStart(FileChannel channel, long from, boolean inQuotes, long limit, long size) {
+        MappedByteBuffer bytes = map(channel, from, Math.min(limit, size - from));
+        int firstBreak = -1;
+        boolean quoted = inQuotes;
+        for (int i = 0; i < bytes.limit(); i++) {
+            byte b = bytes.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n') {
+                if (!quoted) {
+                    return from + i + 1;
+                }
+                if (firstBreak < 0) {
+                    firstBreak = i;
+                }
+            }
+        }
+        return firstBreak < 0 ? -1 : from + firstBreak + 1;
+    }
+
+    /**
+     * Decodes and splits the lines between two positions.
+     */
+    private static List<String[]> parseRange(FileChannel channel, long from, long to) {
+        MappedByteBuffer bytes = map(channel, from, to - from);
+        byte[] content = new byte[bytes.remaining()];
+        bytes.get(content);
+        return parseLines(new String(content, CHARSET));
+    }
+
+    /**
+     * Splits text into rows line by line. Lines end at "\n", "\r" or "\r\n", as with
+     * {@link BufferedReader#readLine()}, and are split as {@link #readCSV(String)} splits them.
+     *
+     * @param text The text of whole lines.
+     * @return The rows, in order.
+     */
+    static List<String[]> parseLines(String text) {
+        List<String[]> rows = new ArrayList<>();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            int end = i;
+            char c = 0;
+            while (end < n && (c = text.charAt(end)) != '\n' && c != '\r') {
+                end++;
+            }
+            rows.add(splitLine(text.substring(i, end)));
+            i = end + 1;
+            if (end < n && c == '\r' && i < n && text.charAt(i) == '\n') {
+                i++;
+            }
+        }
+        return rows;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long length) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        } catch (IOException e) {
+            throw new RuntimeException("Error mapping CSV file - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs one task per chunk on the pool and returns their results in chunk order.
+     */
+    private static <T> List<T> forEachChunk(ForkJoinPool pool, int chunks, IntFunction<T> work) {
+        return pool.invoke(new RecursiveTask<List<T>>() {
+            @Override
+            protected List<T> compute() {
+                List<ForkJoinTask<T>> tasks = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    int chunk = i;
+                    tasks.add(ForkJoinTask.adapt(() -> work.apply(chunk)));
+                }
+                List<T> results = new ArrayList<>(chunks);
+                for (ForkJoinTask<T> task : ForkJoinTask.invokeAll(tasks)) {
+                    results.add(task.join());
+                }
+                return results;
+            }
+        });
+    }
+
+    /**
+     * Finds the rows of a CSV file whose value in the key column equals the key, compared trimmed.
+     * If the file is sorted by the column, a {@link SortedCsvIndex} is used, so only a block of
+     * rows around the key is read; the index is loaded or built on first use and again whenever
+     * the file changes. A file kept sorted by {@link #sortCSV(String, int)} that is found out of
+     * order after a write (such as an append) is sorted again first. Otherwise the whole file is
+     * read as by {@link #readCSV(String)}.
+     *
+     * @param filepath The path to the CSV file.
+     * @param keyIndex The index of the key column.
+     * @param key The value to match.
+     * @return The matching rows, in file order.
+     * @throws IllegalArgumentException If the filepath, keyIndex or key is invalid.
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    public static List<String[]> lookupCSV(String filepath, int keyIndex, String key) {
+        long started = Metrics.start();
+        try {
+            validateFilePath(filepath);
+            if (key == null) {
+                throw new IllegalArgumentException("Invalid key: Cannot be null");
+            }
+            if (keyIndex < 0) {
+                throw new IllegalArgumentException("Invalid keyIndex: Must be non-negative");
+            }
+            String indexKey = filepath + "#" + keyIndex;
+            SortedCsvIndex index = INDEXES.get(indexKey);
+            if (index == null || !index.isCurrent()) {
+                index = SortedCsvIndex.open(filepath, keyIndex);
+                if (!index.isSorted() && Integer.valueOf(keyIndex).equals(KEPT_SORTED.get(writesKey(filepath)))) {
+                    sortCSV(filepath, keyIndex);
+                    index = INDEXES.getOrDefault(indexKey, index);
+                    Log.debug("Sorted {} again", index);
+                }
+                INDEXES.put(indexKey, index);
+                Log.debug("Opened index of {}", index);
+            }
+            if (index.isSorted()) {
+                return index.lookupAll(key);
+            }
+            String target = key.trim();
+            List<String[]> found = new ArrayList<>();
+            for (String[] row : readCSV(filepath)) {
+                if (row.length > keyIndex && row[keyIndex].trim().equals(target)) {
+                    found.add(row);
+                }
+            }
+            return found;
+        } finally {
+            Metrics.getInstance().record("CSVUtils.lookupCSV", started);
+        }
+    }
+
+    /**
+     * Sorts a CSV file by the key column with {@link ExternalSort}, unless it is already sorted,
+     * so that {@link #lookupCSV(String, int, String)} can use an index for it. The file is kept
+     * sorted from then on: {@link #writeCSV(String, List)} and {@link #writeCSVAtomic(String, List)}
+     * write its rows in key order, and a lookup that finds it out of order after any other write
+     * sorts it again, rather than falling back to reading the whole file on every lookup.
+     *
+     * @param filepath The path to the CSV file.
+     * @param keyIndex The index of the key column.
+     * @return True if the file was rewritten, false if it was already sorted.
+     * @throws IllegalArgumentException If the filepath or keyIndex is invalid.
+     * @throws RuntimeException If an error occurs while reading or writing the file.
+     */
+    public static boolean sortCSV(String filepath, int keyIndex) {
+        validateFilePath(filepath);
+        KEPT_SORTED.put(writesKey(filepath), keyIndex);
+        String indexKey = filepath + "#" + keyIndex;
+        SortedCsvIndex index = SortedCsvIndex.open(filepath, keyIndex);
+        if (index.isSorted()) {
+            INDEXES.put(indexKey, index);
+            return false;
+        }
+        forgetIndexes(filepath);
+        SortedCsvIndex sorted = ExternalSort.sort(filepath, keyIndex);
+        WRITES.computeIfAbsent(writesKey(filepath), k -> new AtomicLong()).incrementAndGet();
+        INDEXES.put(indexKey, sorted);
+        return true;
     }
 
     /**
@@ -60,23 +403,252 @@ public class CSVUtils {
      * @throws RuntimeException If an error occurs while writing the file.
      */
     public static void writeCSV(String filepath, List<String[]> data) {
-        validateFilePath(filepath);
-        validateData(data);
-        File file = new File(filepath);
-        if (file.exists() && !file.canWrite()) {
-            throw new RuntimeException("Cannot write to CSV file: " + filepath + " (file is not writable)");
+        long started = Metrics.start();
+        FlightEvents.CsvWrite event = new FlightEvents.CsvWrite();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            validateData(data);
+            data = inKeyOrder(filepath, data);
+            File file = new File(filepath);
+            if (file.exists() && !file.canWrite()) {
+                throw new RuntimeException("Cannot write to CSV file: " + filepath + " (file is not writable)");
+            }
+
+
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(filepath))) {
+
+                for (String[] row : data) {
+                    validateRow(row, "writeCSV");
+                    bw.write(String.join(",", row));
+                    bw.newLine();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Error writing to CSV file: " + filepath + " - " + e.getMessage());
+            }
+            written(filepath);
+            if (Tracer.isEnabled()) {
+                Tracer.countWrite(file.length());
+            }
+            if (event.shouldCommit()) {
+                commitWrite(event, filepath, "overwrite", data.size(), file.length());
+            }
+        } finally {
+            Metrics.getInstance().record("CSVUtils.writeCSV", started);
+        }
+    }
+
+    /**
+     * Writes a list of string arrays to a CSV file atomically. The rows are written and synced to a
+     * temporary file in the same directory, which then replaces the target in a single atomic move, so readers
+     * see either the old content or the new content and never a partially written file. Unlike
+     * {@link #writeCSV(String, List)}, rows may differ in length and the list may be empty.
+     *
+     * @param filepath The path to the CSV file.
+     * @param data The list of string arrays to write.
+     * @throws IllegalArgumentException If the filepath or data is invalid.
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    public static void writeCSVAtomic(String filepath, List<String[]> data) {
+        long started = Metrics.start();
+        try {
+            validateFilePath(filepath);
+            if (data == null) {
+                throw new IllegalArgumentException("Invalid data: Cannot be null");
+            }
+            for (int i = 0; i < data.size(); i++) {
+                validateRow(data.get(i), "writeCSVAtomic row " + i);
+            }
+            replaceFile(filepath, toCSVBytes(inKeyOrder(filepath, data)), true);
+        } finally {
+            Metrics.getInstance().record("CSVUtils.writeCSVAtomic", started);
         }
+    }
 
+    /**
+     * Encodes rows exactly as {@link #writeCSVAtomic(String, List)} writes them: fields joined by
+     * commas, one row per line, in the platform's default charset.
+     *
+     * @param data The list of string arrays to encode.
+     * @return The file content.
+     * @throws IllegalArgumentException If the data or a row is null.
+     */
+    public static byte[] toCSVBytes(List<String[]> data) {
+        if (data == null) {
+            throw new IllegalArgumentException("Invalid data: Cannot be null");
+        }
+        StringBuilder sb = new StringBuilder(data.size() * 64);
+        String newline = System.lineSeparator();
+        for (int i = 0; i < data.size(); i++) {
+            validateRow(data.get(i), "toCSVBytes row " + i);
+            sb.append(String.join(",", data.get(i))).append(newline);
+        }
+        return sb.toString().getBytes(Charset.defaultCharset());
+    }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filepath))) {
+    /**
+     * Encodes rows exactly as {@link #appendAllToCSV(String, List)} appends them: values containing
+     * commas are quoted, fields are joined by commas, one row per line, in the platform's default
+     * charset.
+     *
+     * @param rows The rows to encode.
+     * @return The bytes to append.
+     * @throws IllegalArgumentException If the rows or a row is null.
+     */
+    public static byte[] toCSVAppendBytes(List<String[]> rows) {
+        if (rows == null) {
+            throw new IllegalArgumentException("Invalid rows: Cannot be null");
+        }
+        StringBuilder sb = new StringBuilder(rows.size() * 64);
+        String newline = System.lineSeparator();
+        for (int r = 0; r < rows.size(); r++) {
+            String[] row = rows.get(r);
+            validateRow(row, "toCSVAppendBytes row " + r);
+            for (int i = 0; i < row.length; i++) {
+                sb.append(row[i].contains(",") ? "\"" + row[i] + "\"" : row[i]);
+                if (i < row.length - 1) {
+                    sb.append(',');
+                }
+            }
+            sb.append(newline);
+        }
+        return sb.toString().getBytes(Charset.defaultCharset());
+    }
 
-            for (String[] row : data) {
-                validateRow(row, "writeCSV");
-                bw.write(String.join(",", row));
-                bw.newLine();
+    /**
+     * Replaces a file's content atomically. The content is written to a temporary file in the same
+     * directory, which then replaces the target in a single atomic move, so readers see either the
+     * old content or the new content and never a partially written file.
+     *
+     * @param filepath The path to the file.
+     * @param content The new content.
+     * @param sync True to make the new content durable before it replaces the old file.
+     * @throws IllegalArgumentException If the filepath or content is invalid.
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    public static void replaceFile(String filepath, byte[] content, boolean sync) {
+        long started = Metrics.start();
+        FlightEvents.CsvWrite event = new FlightEvents.CsvWrite();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            if (content == null) {
+                throw new IllegalArgumentException("Invalid content: Cannot be null");
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Error writing to CSV file: " + filepath + " - " + e.getMessage());
+            Path target = Paths.get(filepath).toAbsolutePath();
+            if (Files.exists(target) && !Files.isWritable(target)) {
+                throw new RuntimeException("Cannot write to CSV file: " + filepath + " (file is not writable)");
+            }
+            Path temp = null;
+            try {
+                temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+                try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                    out.write(content);
+                    if (sync) {
+                        out.getFD().sync(); // Make the new content durable before it replaces the old file
+                    }
+                }
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                written(filepath);
+                Tracer.countWrite(content.length);
+                if (event.shouldCommit()) {
+                    int rows = 0;
+                    for (byte b : content) {
+                        if (b == '\n') {
+                            rows++;
+                        }
+                    }
+                    commitWrite(event, filepath, "replace", rows, content.length);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Error writing to CSV file: " + filepath + " - " + e.getMessage());
+            } finally {
+                if (temp != null) {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException ignored) {
+                        // The temporary file is harmless if it cannot be removed.
+                    }
+                }
+            }
+        } finally {
+            Metrics.getInstance().record("CSVUtils.replaceFile", started);
+        }
+    }
+
+    /**
+     * Appends encoded rows to the end of a file, creating it if it does not exist.
+     *
+     * @param filepath The path to the file.
+     * @param content The bytes to append, as encoded by {@link #toCSVAppendBytes(List)}.
+     * @throws IllegalArgumentException If the filepath or content is invalid.
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    public static void appendToFile(String filepath, byte[] content) {
+        long started = Metrics.start();
+        FlightEvents.CsvWrite event = new FlightEvents.CsvWrite();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            if (content == null) {
+                throw new IllegalArgumentException("Invalid content: Cannot be null");
+            }
+            File file = new File(filepath);
+            if (file.exists() && !file.canWrite()) {
+                throw new RuntimeException("Cannot append to CSV file: " + filepath + " (file is not writable)");
+            }
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write(content);
+            } catch (IOException e) {
+                throw new RuntimeException("Error appending to CSV file: " + filepath + " - " + e.getMessage());
+            }
+            written(filepath);
+            Tracer.countWrite(content.length);
+            if (event.shouldCommit()) {
+                int rows = 0;
+                for (byte b : content) {
+                    if (b == '\n') {
+                        rows++;
+                    }
+                }
+                commitWrite(event, filepath, "append", rows, content.length);
+            }
+        } finally {
+            Metrics.getInstance().record("CSVUtils.appendToFile", started);
+        }
+    }
+
+    /**
+     * Truncates a CSV file so that it contains no rows, creating it if it does not exist.
+     *
+     * @param filepath The path to the CSV file.
+     * @throws IllegalArgumentException If the filepath is invalid.
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    public static void clearCSV(String filepath) {
+        long started = Metrics.start();
+        FlightEvents.CsvWrite event = new FlightEvents.CsvWrite();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            File file = new File(filepath);
+            if (file.exists() && !file.canWrite()) {
+                throw new RuntimeException("Cannot write to CSV file: " + filepath + " (file is not writable)");
+            }
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(filepath))) {
+                bw.flush();
+            } catch (IOException e) {
+                throw new RuntimeException("Error clearing CSV file: " + filepath + " - " + e.getMessage());
+            }
+            written(filepath);
+            Tracer.countWrite(0);
+            commitWrite(event, filepath, "clear", 0, 0);
+        } finally {
+            Metrics.getInstance().record("CSVUtils.clearCSV", started);
         }
     }
 
@@ -90,31 +662,93 @@ public class CSVUtils {
      * @throws RuntimeException If an error occurs while appending to the file.
      */
     public static void appendToCSV(String filepath, String[] row) {
-        validateFilePath(filepath);
-        validateRow(row, "appendToCSV");
-        File file = new File(filepath);
-        if (file.exists() && !file.canWrite()) {
-            throw new RuntimeException("Cannot append to CSV file: " + filepath + " (file is not writable)");
-        }
+        long started = Metrics.start();
+        FlightEvents.CsvWrite event = new FlightEvents.CsvWrite();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            validateRow(row, "appendToCSV");
+            File file = new File(filepath);
+            if (file.exists() && !file.canWrite()) {
+                throw new RuntimeException("Cannot append to CSV file: " + filepath + " (file is not writable)");
+            }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filepath, true))) {
-            StringBuilder line = new StringBuilder();
-            for (int i = 0; i < row.length; i++) {
-                String value = row[i];
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(filepath, true))) {
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < row.length; i++) {
+                    String value = row[i];
                 
-                if (value.contains(",")) {
+                    if (value.contains(",")) {
 
-                    value = "\"" + value + "\"";
+                        value = "\"" + value + "\"";
+                    }
+                    line.append(value);
+                    if (i < row.length - 1) {
+                        line.append(",");
+                    }
                 }
-                line.append(value);
-                if (i < row.length - 1) {
-                    line.append(",");
+                bw.write(line.toString());
+                bw.write(System.lineSeparator());
+                Tracer.countWrite(line.length() + System.lineSeparator().length());
+                commitWrite(event, filepath, "append", 1, line.length() + System.lineSeparator().length());
+            } catch (IOException e) {
+                throw new RuntimeException("Error appending to CSV file: " + filepath + " - " + e.getMessage());
+            }
+            written(filepath);
+        } finally {
+            Metrics.getInstance().record("CSVUtils.appendToCSV", started);
+        }
+    }
+
+    /**
+     * Appends several rows to the end of a CSV file, opening the file once. Values containing
+     * commas are quoted as in {@link #appendToCSV(String, String[])}.
+     *
+     * @param filepath The path to the CSV file.
+     * @param rows The rows to append.
+     * @throws IllegalArgumentException If the filepath or any row is invalid.
+     * @throws RuntimeException If an error occurs while appending to the file.
+     */
+    public static void appendAllToCSV(String filepath, List<String[]> rows) {
+        long started = Metrics.start();
+        FlightEvents.CsvWrite event = new FlightEvents.CsvWrite();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            if (rows == null) {
+                throw new IllegalArgumentException("Invalid rows: Cannot be null");
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                validateRow(rows.get(i), "appendAllToCSV row " + i);
+            }
+            File file = new File(filepath);
+            if (file.exists() && !file.canWrite()) {
+                throw new RuntimeException("Cannot append to CSV file: " + filepath + " (file is not writable)");
+            }
+
+            long written = 0;
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(filepath, true))) {
+                for (String[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        String value = row[i].contains(",") ? "\"" + row[i] + "\"" : row[i];
+                        bw.write(value);
+                        written += value.length();
+                        if (i < row.length - 1) {
+                            bw.write(',');
+                            written++;
+                        }
+                    }
+                    bw.write(System.lineSeparator());
+                    written += System.lineSeparator().length();
                 }
+            } catch (IOException e) {
+                throw new RuntimeException("Error appending to CSV file: " + filepath + " - " + e.getMessage());
             }
-            bw.write(line.toString());
-            bw.write(System.lineSeparator());
-        } catch (IOException e) {
-            throw new RuntimeException("Error appending to CSV file: " + filepath + " - " + e.getMessage());
+            written(filepath);
+            Tracer.countWrite(written);
+            commitWrite(event, filepath, "append", rows.size(), written);
+        } finally {
+            Metrics.getInstance().record("CSVUtils.appendAllToCSV", started);
         }
     }
 
@@ -130,41 +764,137 @@ public class CSVUtils {
      * @throws RuntimeException If an error occurs while reading or writing the file.
      */
     public static void updateCSV(String filepath, String key, int keyIndex, String[] newRow) {
-        validateFilePath(filepath);
-        if (key == null || key.trim().isEmpty()) {
-            throw new IllegalArgumentException("Invalid key: Cannot be null or empty");
-        }
-        if (keyIndex < 0) {
-            throw new IllegalArgumentException("Invalid keyIndex: Must be non-negative");
-        }
-        validateRow(newRow, "updateCSV");
+        long started = Metrics.start();
+        FlightEvents.CsvUpdate event = new FlightEvents.CsvUpdate();
+        event.begin();
+        try {
+            validateFilePath(filepath);
+            if (key == null || key.trim().isEmpty()) {
+                throw new IllegalArgumentException("Invalid key: Cannot be null or empty");
+            }
+            if (keyIndex < 0) {
+                throw new IllegalArgumentException("Invalid keyIndex: Must be non-negative");
+            }
+            validateRow(newRow, "updateCSV");
 
-        List<String[]> data = readCSV(filepath);
-        if (data.isEmpty()) {
-            throw new RuntimeException("Cannot update CSV file: " + filepath + " is empty");
-        }
-        if (keyIndex >= data.get(0).length) {
-            throw new IllegalArgumentException("Invalid keyIndex: " + keyIndex + " exceeds row length " + data.get(0).length);
-        }
-        if (newRow.length != data.get(0).length) {
-            throw new IllegalArgumentException("Invalid newRow: Length " + newRow.length + " does not match CSV row length " + data.get(0).length);
-        }
+            List<String[]> data = readCSV(filepath);
+            if (data.isEmpty()) {
+                throw new RuntimeException("Cannot update CSV file: " + filepath + " is empty");
+            }
+            if (keyIndex >= data.get(0).length) {
+                throw new IllegalArgumentException("Invalid keyIndex: " + keyIndex + " exceeds row length " + data.get(0).length);
+            }
+            if (newRow.length != data.get(0).length) {
+                throw new IllegalArgumentException("Invalid newRow: Length " + newRow.length + " does not match CSV row length " + data.get(0).length);
+            }
 
-        boolean updated = false;
-        for (int i = 0; i < data.size(); i++) {
-            if (data.get(i).length > keyIndex && data.get(i)[keyIndex] != null && data.get(i)[keyIndex].equals(key)) {
-                data.set(i, newRow);
-                updated = true;
-                break;
+            boolean updated = false;
+            for (int i = 0; i < data.size(); i++) {
+                if (data.get(i).length > keyIndex && data.get(i)[keyIndex] != null && data.get(i)[keyIndex].equals(key)) {
+                    data.set(i, newRow);
+                    updated = true;
+                    break;
+                }
+            }
+
+            if (!updated) {
+                throw new RuntimeException("No row found with key '" + key + "' at index " + keyIndex + " in " + filepath);
             }
+
+            writeCSV(filepath, data);
+            if (event.shouldCommit()) {
+                event.path = filepath;
+                event.rows = data.size();
+                event.bytes = new File(filepath).length();
+                event.commit();
+            }
+            Log.debug("Successfully updated row in {}", filepath);
+        } finally {
+            Metrics.getInstance().record("CSVUtils.updateCSV", started);
+        }
+    }
+
+    /**
+     * Commits a write event if a recording wants it.
+     *
+     * @param event The event, begun when the write started.
+     * @param filepath The path to the CSV file.
+     * @param mode How the file was written.
+     * @param rows The number of rows written.
+     * @param bytes The number of bytes written.
+     */
+    private static void commitWrite(FlightEvents.CsvWrite event, String filepath, String mode, int rows, long bytes) {
+        if (event.shouldCommit()) {
+            event.path = filepath;
+            event.mode = mode;
+            event.rows = rows;
+            event.bytes = bytes;
+            event.commit();
         }
+    }
+
+    /**
+     * Gets how many times this process has written a file through this class. The count changes
+     * after each write has finished, so a reader that takes the count before reading a file and
+     * finds it unchanged afterwards knows the file was not rewritten in between, even by a
+     * rewrite that kept the file's length and modification time (an atomic replace may also reuse
+     * the old file's inode). Writes made by other processes are not counted.
+     *
+     * @param filepath The path to the file.
+     * @return The number of writes so far, or 0 if the file has not been written.
+     */
+    public static long writeCount(String filepath) {
+        AtomicLong writes = WRITES.get(writesKey(filepath));
+        return writes == null ? 0 : writes.get();
+    }
 
-        if (!updated) {
-            throw new RuntimeException("No row found with key '" + key + "' at index " + keyIndex + " in " + filepath);
+    private static String writesKey(String filepath) {
+        return Paths.get(filepath).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Puts rows in key order if the file is kept sorted by {@link #sortCSV(String, int)}, so that
+     * rewriting it leaves it sorted. Keys are compared trimmed, as {@link SortedCsvIndex} compares
+     * them, and rows with equal keys keep their order.
+     *
+     * @param filepath The path to the CSV file.
+     * @param data The rows to write.
+     * @return The rows in the order to write them.
+     */
+    private static List<String[]> inKeyOrder(String filepath, List<String[]> data) {
+        Integer keyIndex = KEPT_SORTED.get(writesKey(filepath));
+        if (keyIndex == null) {
+            return data;
         }
+        List<String[]> sorted = new ArrayList<>(data);
+        sorted.sort(Comparator.comparing(row -> row.length > keyIndex ? row[keyIndex].trim() : ""));
+        return sorted;
+    }
 
-        writeCSV(filepath, data);
-        System.out.println("Successfully updated row in " + filepath);
+    /**
+     * Counts a finished write to a file and drops its indexes.
+     *
+     * @param filepath The path to the CSV file.
+     */
+    private static void written(String filepath) {
+        WRITES.computeIfAbsent(writesKey(filepath), k -> new AtomicLong()).incrementAndGet();
+        forgetIndexes(filepath);
+    }
+
+    /**
+     * Drops the indexes of a file that has just been written, and their sidecar, so that a write
+     * within the same millisecond that leaves the length unchanged is not mistaken for no change.
+     *
+     * @param filepath The path to the CSV file.
+     */
+    private static void forgetIndexes(String filepath) {
+        if (INDEXES.isEmpty()) {
+            return;
+        }
+        String prefix = filepath + "#";
+        if (INDEXES.keySet().removeIf(key -> key.startsWith(prefix))) {
+            SortedCsvIndex.delete(filepath);
+        }
     }
 
     /**
@@ -0,0 +1,22 @@
+package utils;
+
+/**
+ * Thrown when a transaction was committed to the journal but one of its files could not be
+ * written. The change stands: the transaction manager completes it on recovery, which runs before
+ * the next transaction. Callers must treat the change as made, keeping any state that follows
+ * from it, rather than undoing it.
+ *
+ * @author SC2002Team
+ */
+public class CommittedNotAppliedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a CommittedNotAppliedException.
+     *
+     * @param cause The reason a file could not be written.
+     */
+    public CommittedNotAppliedException(String cause) {
+        super("Transaction committed but not fully applied; it will be completed on recovery: " + cause);
+    }
+}
@@ -0,0 +1,322 @@
+package utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe bus for domain events. Subscribers register for an event class and
+ * receive every published event of that class or a subclass.
+ *
+ * <p>Synchronous subscribers run on the publishing thread before {@link #publish(Object)} returns.
+ * Asynchronous subscribers run on a single daemon dispatcher thread, in publication order. Events
+ * reach the dispatcher through a lock-free {@link RingBuffer}. When the buffer is full, the
+ * publisher waits for space rather than dropping the event. An asynchronous subscriber that
+ * publishes is queued behind the events already waiting like any other publisher; since the
+ * dispatcher cannot wait for itself, its events go to an overflow queue when the buffer is full,
+ * which is delivered once the events that were in the buffer before it.</p>
+ *
+ * <p>Publishing an event that nobody subscribes to costs one map lookup. Handler lists are
+ * resolved once per event class and cached until subscriptions change. A handler that throws is
+ * reported and does not stop delivery to the others.</p>
+ *
+ * @author SC2002Team
+ */
+public class EventBus {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final EventBus DEFAULT = new EventBus(DEFAULT_CAPACITY);
+
+    private static final Consumer<?>[] NONE = new Consumer<?>[0];
+
+    final private Map<Class<?>, List<Consumer<?>>> syncHandlers = new HashMap<>();
+    final private Map<Class<?>, List<Consumer<?>>> asyncHandlers = new HashMap<>();
+    final private Map<Class<?>, Consumer<?>[]> resolvedSync = new ConcurrentHashMap<>();
+    final private Map<Class<?>, Consumer<?>[]> resolvedAsync = new ConcurrentHashMap<>();
+    final private RingBuffer<Object> ring;
+    final private AtomicLong queued = new AtomicLong();
+    final private AtomicLong delivered = new AtomicLong();
+    private volatile Thread dispatcher;
+    private volatile boolean dispatcherWaiting = false;
+
+    // Used only on the dispatcher thread.
+    final private ArrayDeque<Object> overflow = new ArrayDeque<>();
+    private long ringTaken = 0;
+    private long overflowAfter = 0;
+
+    /**
+     * A registered subscriber. Cancel it to stop receiving events.
+     */
+    public static class Subscription {
+        final private EventBus bus;
+        final private Map<Class<?>, List<Consumer<?>>> handlers;
+        final private Class<?> type;
+        final private Consumer<?> handler;
+
+        private Subscription(EventBus bus, Map<Class<?>, List<Consumer<?>>> handlers, Class<?> type, Consumer<?> handler) {
+            this.bus = bus;
+            this.handlers = handlers;
+            this.type = type;
+            this.handler = handler;
+        }
+
+        /**
+         * Stops delivering events to this subscriber.
+         */
+        public void cancel() {
+            bus.remove(handlers, type, handler);
+        }
+    }
+
+    /**
+     * Constructs an event bus.
+     *
+     * @param capacity The number of events that can wait for asynchronous delivery.
+     * @throws IllegalArgumentException If the capacity is out of range.
+     */
+    public EventBus(int capacity) {
+        this.ring = new RingBuffer<>(capacity);
+    }
+
+    /**
+     * Gets the system-wide event bus.
+     *
+     * @return The default EventBus.
+     */
+    public static EventBus getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Subscribes a handler that runs on the publishing thread.
+     *
+     * @param type The event class to receive, including subclasses.
+     * @param handler The handler.
+     * @param <E> The event type.
+     * @return The subscription.
+     * @throws IllegalArgumentException If the type or handler is null.
+     */
+    public <E> Subscription subscribe(Class<E> type, Consumer<? super E> handler) {
+        return add(syncHandlers, type, handler);
+    }
+
+    /**
+     * Subscribes a handler that runs on the dispatcher thread.
+     *
+     * @param type The event class to receive, including subclasses.
+     * @param handler The handler.
+     * @param <E> The event type.
+     * @return The subscription.
+     * @throws IllegalArgumentException If the type or handler is null.
+     */
+    public <E> Subscription subscribeAsync(Class<E> type, Consumer<? super E> handler) {
+        Subscription subscription = add(asyncHandlers, type, handler);
+        startDispatcher();
+        return subscription;
+    }
+
+    /**
+     * Publishes an event to its subscribers.
+     *
+     * @param event The event.
+     * @throws IllegalArgumentException If the event is null.
+     */
+    public void publish(Object event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null.");
+        }
+        Class<?> type = event.getClass();
+        Consumer<?>[] sync = resolvedSync.get(type);
+        if (sync == null) {
+            sync = resolve(syncHandlers, resolvedSync, type);
+        }
+        deliver(sync, event);
+        Consumer<?>[] async = resolvedAsync.get(type);
+        if (async == null) {
+            async = resolve(asyncHandlers, resolvedAsync, type);
+        }
+        if (async.length > 0) {
+            enqueue(event);
+        }
+    }
+
+    /**
+     * Publishes several events in order.
+     *
+     * @param events The events.
+     * @throws IllegalArgumentException If the collection or an event is null.
+     */
+    public void publishAll(Collection<?> events) {
+        if (events == null) {
+            throw new IllegalArgumentException("Events cannot be null.");
+        }
+        for (Object event : events) {
+            publish(event);
+        }
+    }
+
+    /**
+     * Waits until every event queued for asynchronous subscribers so far has been delivered.
+     *
+     * @param timeoutMillis The maximum time to wait.
+     * @return True if all queued events were delivered in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitDelivered(long timeoutMillis) throws InterruptedException {
+        long target = queued.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (delivered.get() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of events delivered to asynchronous subscribers since the bus was created.
+     *
+     * @return The number of events delivered.
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    private void enqueue(Object event) {
+        Thread current = Thread.currentThread();
+        queued.incrementAndGet();
+        if (current == dispatcher) {
+            // A handler publishing from the dispatcher cannot wait for itself to make room.
+            if (overflow.isEmpty() && ring.offer(event)) {
+                return;
+            }
+            if (overflow.isEmpty()) {
+                overflowAfter = ringTaken + ring.size(); // Deliver everything already in the buffer first
+            }
+            overflow.add(event);
+            return;
+        }
+        int spins = 0;
+        while (!ring.offer(event)) {
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+        if (dispatcherWaiting) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private void dispatch(Object event) {
+        Consumer<?>[] handlers = resolvedAsync.get(event.getClass());
+        if (handlers == null) {
+            handlers = resolve(asyncHandlers, resolvedAsync, event.getClass());
+        }
+        deliver(handlers, event);
+        delivered.incrementAndGet();
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher != null) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            while (true) {
+                Object event = next();
+                if (event != null) {
+                    dispatch(event);
+                    continue;
+                }
+                dispatcherWaiting = true;
+                event = next(); // Recheck so that an event offered before the flag was set is not missed
+                if (event == null) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                dispatcherWaiting = false;
+                if (event != null) {
+                    dispatch(event);
+                }
+            }
+        }, "event-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    /**
+     * Takes the next event on the dispatcher thread: from the buffer, or from the overflow once
+     * every event that was in the buffer before it has been taken.
+     */
+    private Object next() {
+        if (!overflow.isEmpty() && ringTaken >= overflowAfter) {
+            return overflow.poll();
+        }
+        Object event = ring.poll();
+        if (event != null) {
+            ringTaken++;
+            return event;
+        }
+        return overflow.poll();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void deliver(Consumer<?>[] handlers, Object event) {
+        for (Consumer handler : handlers) {
+            try {
+                handler.accept(event);
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Event handler failed for " + event.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized <E> Subscription add(Map<Class<?>, List<Consumer<?>>> handlers, Class<E> type, Consumer<? super E> handler) {
+        if (type == null || handler == null) {
+            throw new IllegalArgumentException("Event type and handler cannot be null.");
+        }
+        handlers.computeIfAbsent(type, k -> new ArrayList<>()).add(handler);
+        resolvedSync.clear();
+        resolvedAsync.clear();
+        return new Subscription(this, handlers, type, handler);
+    }
+
+    private synchronized void remove(Map<Class<?>, List<Consumer<?>>> handlers, Class<?> type, Consumer<?> handler) {
+        List<Consumer<?>> list = handlers.get(type);
+        if (list != null && list.remove(handler) && list.isEmpty()) {
+            handlers.remove(type);
+        }
+        resolvedSync.clear();
+        resolvedAsync.clear();
+    }
+
+    /**
+     * Collects the handlers registered for an event class and all of its supertypes, and caches
+     * the result.
+     */
+    private synchronized Consumer<?>[] resolve(Map<Class<?>, List<Consumer<?>>> handlers,
+            Map<Class<?>, Consumer<?>[]> resolved, Class<?> type) {
+        Consumer<?>[] cached = resolved.get(type);
+        if (cached != null) {
+            return cached;
+        }
+        List<Consumer<?>> matches = new ArrayList<>();
+        for (Map.Entry<Class<?>, List<Consumer<?>>> entry : handlers.entrySet()) {
+            if (entry.getKey().isAssignableFrom(type)) {
+                matches.addAll(entry.getValue());
+            }
+        }
+        Consumer<?>[] result = matches.isEmpty() ? NONE : matches.toArray(new Consumer<?>[0]);
+        resolved.put(type, result);
+        return result;
+    }
+}
@@ -0,0 +1,252 @@
+package utils;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts a CSV file by one column without holding the whole file in memory, and indexes the
+ * sorted file with a {@link SortedCsvIndex}.
+ *
+ * <p>The file is read in runs of at most a given number of rows. Each run is sorted in memory and
+ * written to a temporary file next to the CSV file, and the runs are then merged, reading one row
+ * of each at a time. Rows with equal keys keep their order, and each row is written exactly as it
+ * was read. The sorted rows replace the file atomically, and the index is built while they are
+ * written, so it costs no further read.</p>
+ *
+ * @author SC2002Team
+ */
+public class ExternalSort {
+    /** The number of rows sorted in memory at a time when none is given. */
+    public static final int DEFAULT_RUN_ROWS = 100_000;
+
+    private ExternalSort() {
+    }
+
+    /**
+     * Sorts a CSV file by the given column in runs of {@value #DEFAULT_RUN_ROWS} rows and saves
+     * its index.
+     *
+     * @param filepath The path to the CSV file.
+     * @param keyIndex The index of the key column.
+     * @return The index of the sorted file.
+     * @throws IllegalArgumentException If the filepath or keyIndex is invalid.
+     * @throws RuntimeException If an error occurs while reading or writing the file.
+     */
+    public static SortedCsvIndex sort(String filepath, int keyIndex) {
+        return sort(filepath, keyIndex, DEFAULT_RUN_ROWS, SortedCsvIndex.DEFAULT_STRIDE);
+    }
+
+    /**
+     * Sorts a CSV file by the given column and saves its index.
+     *
+     * @param filepath The path to the CSV file.
+     * @param keyIndex The index of the key column.
+     * @param runRows The most rows to sort in memory at a time.
+     * @param stride The number of rows between indexed keys.
+     * @return The index of the sorted file.
+     * @throws IllegalArgumentException If the filepath, keyIndex, runRows or stride is invalid.
+     * @throws IllegalStateException If the file's charset cannot be indexed.
+     * @throws RuntimeException If an error occurs while reading or writing the file.
+     */
+    public static SortedCsvIndex sort(String filepath, int keyIndex, int runRows, int stride) {
+        long started = Metrics.start();
+        try {
+            if (filepath == null || filepath.trim().isEmpty()) {
+                throw new IllegalArgumentException("Invalid filepath: Cannot be null or empty");
+            }
+            if (!filepath.toLowerCase().endsWith(".csv")) {
+                throw new IllegalArgumentException("Invalid filepath: Must be a .csv file");
+            }
+            if (keyIndex < 0) {
+                throw new IllegalArgumentException("Invalid keyIndex: Must be non-negative");
+            }
+            if (runRows < 1) {
+                throw new IllegalArgumentException("Invalid runRows: Must be positive");
+            }
+            if (!CSVUtils.isSplittable(CSVUtils.CHARSET)) {
+                throw new IllegalStateException("Cannot index files in charset " + CSVUtils.CHARSET);
+            }
+            Path target = Paths.get(filepath).toAbsolutePath();
+            if (!Files.isReadable(target) || !Files.isWritable(target)) {
+                throw new RuntimeException("Cannot sort CSV file: " + filepath + " (file does not exist or is not writable)");
+            }
+
+            List<Path> runs = new ArrayList<>();
+            Path temp = null;
+            try {
+                List<Row> first = writeRuns(target, keyIndex, runRows, runs);
+                temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+                SortedCsvIndex.Builder builder = new SortedCsvIndex.Builder(Paths.get(filepath), keyIndex, stride);
+                long length;
+                try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                        OutputStream out = new BufferedOutputStream(file)) {
+                    length = runs.isEmpty() ? write(first, out, builder) : merge(runs, keyIndex, out, builder);
+                    out.flush();
+                    file.getFD().sync(); // Make the sorted rows durable before they replace the file
+                }
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Tracer.countWrite(length);
+                SortedCsvIndex index = builder.finish(length, Files.getLastModifiedTime(target).toMillis());
+                index.save();
+                Log.info("Sorted {} in {} run(s)", index, Math.max(1, runs.size()));
+                return index;
+            } catch (IOException e) {
+                throw new RuntimeException("Error sorting CSV file: " + filepath + " - " + e.getMessage());
+            } finally {
+                for (Path run : runs) {
+                    deleteQuietly(run);
+                }
+                if (temp != null) {
+                    deleteQuietly(temp);
+                }
+            }
+        } finally {
+            Metrics.getInstance().record("ExternalSort.sort", started);
+        }
+    }
+
+    /**
+     * Reads the file in runs, sorting each. If the whole file fits in one run, the sorted rows are
+     * returned and no run is written; otherwise every run is written to a temporary file.
+     */
+    private static List<Row> writeRuns(Path target, int keyIndex, int runRows, List<Path> runs) throws IOException {
+        List<Row> run = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(target.toFile()), CSVUtils.CHARSET))) {
+            String line;
+            boolean firstLine = true;
+            while ((line = in.readLine()) != null) {
+                if (firstLine && line.startsWith("\uFEFF")) {
+                    line = line.substring(1); // Remove BOM, which would otherwise be moved with its row
+                }
+                firstLine = false;
+                run.add(new Row(line, keyIndex));
+                if (run.size() == runRows) {
+                    runs.add(writeRun(target, run));
+                    run.clear();
+                }
+            }
+        }
+        if (!runs.isEmpty() && !run.isEmpty()) {
+            runs.add(writeRun(target, run));
+            run.clear();
+        }
+        run.sort(Row.ORDER);
+        return run;
+    }
+
+    private static Path writeRun(Path target, List<Row> run) throws IOException {
+        run.sort(Row.ORDER); // Stable, so rows with equal keys keep their order
+        Path file = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".run");
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file.toFile()), CSVUtils.CHARSET))) {
+            for (Row row : run) {
+                out.write(row.line);
+                out.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Merges sorted runs into the output, taking rows with equal keys from earlier runs first.
+     */
+    private static long merge(List<Path> runs, int keyIndex, OutputStream out, SortedCsvIndex.Builder builder)
+            throws IOException {
+        List<BufferedReader> readers = new ArrayList<>();
+        try {
+            PriorityQueue<Head> heads = new PriorityQueue<>();
+            for (int i = 0; i < runs.size(); i++) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(runs.get(i).toFile()),
+                        CSVUtils.CHARSET));
+                readers.add(reader);
+                String line = reader.readLine();
+                if (line != null) {
+                    heads.add(new Head(new Row(line, keyIndex), i));
+                }
+            }
+            long offset = 0;
+            while (!heads.isEmpty()) {
+                Head head = heads.poll();
+                offset = writeRow(head.row, offset, out, builder);
+                String line = readers.get(head.run).readLine();
+                if (line != null) {
+                    heads.add(new Head(new Row(line, keyIndex), head.run));
+                }
+            }
+            return offset;
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static long write(List<Row> rows, OutputStream out, SortedCsvIndex.Builder builder) throws IOException {
+        long offset = 0;
+        for (Row row : rows) {
+            offset = writeRow(row, offset, out, builder);
+        }
+        return offset;
+    }
+
+    private static long writeRow(Row row, long offset, OutputStream out, SortedCsvIndex.Builder builder) throws IOException {
+        builder.add(row.key, offset);
+        byte[] bytes = (row.line + System.lineSeparator()).getBytes(CSVUtils.CHARSET);
+        out.write(bytes);
+        return offset + bytes.length;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // The temporary file is harmless if it cannot be removed.
+        }
+    }
+
+    /**
+     * A line of the file and its key.
+     */
+    private static class Row {
+        static final Comparator<Row> ORDER = Comparator.comparing(row -> row.key);
+
+        final private String line;
+        final private String key;
+
+        Row(String line, int keyIndex) {
+            this.line = line;
+            String[] fields = CSVUtils.splitLine(line);
+            this.key = fields.length > keyIndex ? fields[keyIndex].trim() : "";
+        }
+    }
+
+    /**
+     * The next row of a run during the merge.
+     */
+    private static class Head implements Comparable<Head> {
+        final private Row row;
+        final private int run;
+
+        Head(Row row, int run) {
+            this.row = row;
+            this.run = run;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            int order = row.key.compareTo(other.row.key);
+            return order != 0 ? order : Integer.compare(run, other.run);
+        }
+    }
+}
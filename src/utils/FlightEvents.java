@@ -0,0 +1,155 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events emitted by the system, so that a recording of a session shows CSV
+ * reads and writes, status changes, bookings and reports alongside GC and allocation.
+ *
+ * <p>Events cost next to nothing unless a recording is running with them enabled: each site
+ * checks {@link Event#shouldCommit()} before filling in any field. Record a session with the
+ * settings in {@code benchmark/hdb.jfc}, for example
+ * {@code java -XX:StartFlightRecording:settings=benchmark/hdb.jfc,filename=hdb.jfr Main}, and
+ * summarize it with {@code benchmark.JfrSummary}.</p>
+ *
+ * @author SC2002Team
+ */
+public class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    /**
+     * A CSV file read in full.
+     */
+    @Name("hdb.CsvRead")
+    @Label("CSV Read")
+    @Category({ "HDB BTO", "Persistence" })
+    @StackTrace(false)
+    public static class CsvRead extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Rows")
+        public int rows;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * A CSV file overwritten, replaced, appended to or cleared.
+     */
+    @Name("hdb.CsvWrite")
+    @Label("CSV Write")
+    @Category({ "HDB BTO", "Persistence" })
+    @StackTrace(false)
+    public static class CsvWrite extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Mode")
+        @Description("overwrite, replace, append or clear")
+        public String mode;
+
+        @Label("Rows")
+        public int rows;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * One row of a CSV file updated in place, including the read and rewrite of the file.
+     */
+    @Name("hdb.CsvUpdate")
+    @Label("CSV Update")
+    @Category({ "HDB BTO", "Persistence" })
+    @StackTrace(false)
+    public static class CsvUpdate extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Rows")
+        public int rows;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * A BTO application created or moved to another status.
+     */
+    @Name("hdb.ApplicationStatusChange")
+    @Label("Application Status Change")
+    @Category({ "HDB BTO", "Domain" })
+    @StackTrace(false)
+    public static class ApplicationStatusChange extends Event {
+        @Label("Applicant NRIC")
+        public String applicantNRIC;
+
+        @Label("Project")
+        public String projectName;
+
+        @Label("Flat Type")
+        public String flatType;
+
+        @Label("Old Status")
+        public String oldStatus;
+
+        @Label("New Status")
+        public String newStatus;
+    }
+
+    /**
+     * A batch of flat bookings for a project, from reading the files to committing them.
+     */
+    @Name("hdb.Booking")
+    @Label("Booking")
+    @Category({ "HDB BTO", "Domain" })
+    @StackTrace(false)
+    public static class Booking extends Event {
+        @Label("Project")
+        public String projectName;
+
+        @Label("Requested")
+        public int requested;
+
+        @Label("Booked")
+        public int booked;
+
+        @Label("Failed")
+        public int failed;
+    }
+
+    /**
+     * A project report generated for a manager.
+     */
+    @Name("hdb.ReportGenerated")
+    @Label("Report Generated")
+    @Category({ "HDB BTO", "Domain" })
+    @StackTrace(false)
+    public static class ReportGenerated extends Event {
+        @Label("Project")
+        public String projectName;
+
+        @Label("Filter")
+        public String filter;
+
+        @Label("Matching Applicants")
+        public int applicants;
+
+        @Label("Length")
+        @Description("Characters in the report")
+        public int length;
+    }
+}
@@ -0,0 +1,246 @@
+package utils;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for expiring large numbers of timeouts cheaply. Time is divided into
+ * ticks of a fixed duration. The wheel has several levels of {@value #SLOTS} slots each: a slot on
+ * level 0 covers one tick, a slot on level 1 covers {@value #SLOTS} ticks, and so on. A timeout is
+ * placed on the lowest level whose range covers its deadline. When time reaches a coarse slot, its
+ * timeouts are cascaded down to finer levels, so each timeout is moved at most once per level.
+ *
+ * <p>Scheduling and cancelling are O(1). Each slot is a doubly linked list, and a
+ * {@link Timeout} handle unlinks itself when cancelled. Advancing costs O(1) per elapsed tick plus
+ * the work of expiring and cascading timeouts. Deadlines beyond the range of the top level wait in
+ * the top level and are placed again each time they are cascaded. Timeouts are expired to the
+ * precision of one tick and never early.</p>
+ *
+ * <p>This class is not thread-safe; callers must synchronize access.</p>
+ *
+ * @param <T> The type of item carried by each timeout.
+ * @author SC2002Team
+ */
+public class HierarchicalTimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    /** Number of slots on each level. */
+    public static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    final private long tickMillis;
+    final private int levels;
+    final private Timeout<T>[][] heads;
+    private long currentTick;
+    private int size = 0;
+
+    /**
+     * A scheduled timeout. Cancel it to remove it from the wheel before it expires.
+     *
+     * @param <T> The type of item carried by the timeout.
+     */
+    public static class Timeout<T> {
+        final private T item;
+        final private long deadlineTick;
+        private HierarchicalTimingWheel<T> wheel;
+        private int level;
+        private int slot;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Gets the item carried by this timeout.
+         *
+         * @return The item.
+         */
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * Checks whether this timeout is still waiting in its wheel.
+         *
+         * @return True if it has neither expired nor been cancelled.
+         */
+        public boolean isPending() {
+            return wheel != null;
+        }
+
+        /**
+         * Removes this timeout from its wheel so that it never expires.
+         *
+         * @return True if the timeout was pending, false if it had already expired or been cancelled.
+         */
+        public boolean cancel() {
+            if (wheel == null) {
+                return false;
+            }
+            wheel.unlink(this);
+            return true;
+        }
+    }
+
+    /**
+     * Constructs a timing wheel starting at the given time.
+     *
+     * @param tickMillis The duration of one tick in milliseconds.
+     * @param levels The number of levels; the wheel spans {@code SLOTS^levels} ticks.
+     * @param startMillis The current time in milliseconds.
+     * @throws IllegalArgumentException If the tick duration or number of levels is not positive,
+     *                                  or the levels would span more than 2^60 ticks.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive.");
+        }
+        if (levels <= 0 || levels * SLOT_BITS > 60) {
+            throw new IllegalArgumentException("Number of levels must be between 1 and " + 60 / SLOT_BITS + ".");
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.heads = new Timeout[levels][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules an item to expire at the given time. A deadline in the past expires on the next
+     * call to {@link #advance(long, Consumer)}.
+     *
+     * @param item The item to carry.
+     * @param deadlineMillis The time at which the item expires, in milliseconds.
+     * @return A handle that can cancel the timeout.
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        // Round up so that a timeout never expires before its deadline.
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Timeout<T> timeout = new Timeout<>(item, Math.max(deadlineTick, currentTick + 1));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel to the given time, expiring every timeout whose deadline has passed.
+     * Expired timeouts are passed to the handler in deadline order, to the precision of a tick.
+     *
+     * @param nowMillis The current time in milliseconds.
+     * @param onExpire Called with the item of each expired timeout.
+     * @return The number of timeouts expired.
+     */
+    public int advance(long nowMillis, Consumer<T> onExpire) {
+        long targetTick = nowMillis / tickMillis;
+        int expired = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            int slot = (int) (currentTick & SLOT_MASK);
+            Timeout<T> timeout = heads[0][slot];
+            heads[0][slot] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.wheel = null;
+                timeout.prev = null;
+                timeout.next = null;
+                size--;
+                expired++;
+                onExpire.accept(timeout.item);
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Gets the number of pending timeouts.
+     *
+     * @return The number of timeouts that have neither expired nor been cancelled.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the duration of one tick.
+     *
+     * @return The tick duration in milliseconds.
+     */
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Moves the timeouts of every coarse slot that the current tick has just reached down to finer
+     * levels, coarsest first.
+     */
+    private void cascade() {
+        int top = 0;
+        while (top + 1 < levels && (currentTick & ((1L << ((top + 1) * SLOT_BITS)) - 1)) == 0) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            int slot = (int) ((currentTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+            Timeout<T> timeout = heads[level][slot];
+            heads[level][slot] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Links a timeout into the slot for its deadline, on the lowest level whose range covers it.
+     *
+     * @param timeout The timeout to place.
+     */
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level + 1 < levels && delta >= (1L << ((level + 1) * SLOT_BITS))) {
+            level++;
+        }
+        long tick = timeout.deadlineTick;
+        if (delta >= (1L << (levels * SLOT_BITS))) {
+            // Beyond the wheel: park one lap ahead on the top level and place again on cascade.
+            tick = currentTick + (1L << (levels * SLOT_BITS)) - 1;
+        } else if (delta <= 0) {
+            tick = currentTick;
+        }
+        int slot = (int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        timeout.wheel = this;
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = heads[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        heads[level][slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.wheel = null;
+        size--;
+    }
+}
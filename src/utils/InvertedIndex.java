@@ -0,0 +1,405 @@
+package utils;
+
+import java.util.*;
+
+/**
+ * In-memory positional inverted index for full-text search in the HDB BTO Management System.
+ * Documents are identified by integer IDs and may carry a scope (such as a project name) used to
+ * filter results. Each term maps to a posting list of the documents containing it together with
+ * the positions at which it occurs, so keyword queries are ranked with BM25 and quoted phrases are
+ * matched by position. Documents can be added, replaced and removed incrementally.
+ *
+ * <p>This class is not thread-safe; callers must synchronize access.</p>
+ *
+ * @author SC2002Team
+ */
+public class InvertedIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** Position gap inserted between fields so phrases never match across field boundaries. */
+    private static final int FIELD_GAP = 1;
+
+    final private Map<String, PostingList> postings = new HashMap<>();
+    final private Map<Integer, PostingList[]> docTerms = new HashMap<>();
+    final private Map<Integer, Integer> docLengths = new HashMap<>();
+    final private Map<Integer, String> docScopes = new HashMap<>();
+    private long totalLength = 0;
+
+    /**
+     * Represents a document matched by a search, with its relevance score.
+     */
+    public static class Hit {
+        final private int docId;
+        final private double score;
+
+        /**
+         * Constructs a Hit for the specified document.
+         *
+         * @param docId The ID of the matching document.
+         * @param score The relevance score of the document.
+         */
+        public Hit(int docId, double score) {
+            this.docId = docId;
+            this.score = score;
+        }
+
+        /**
+         * Gets the ID of the matching document.
+         *
+         * @return The document ID.
+         */
+        public int getDocId() {
+            return docId;
+        }
+
+        /**
+         * Gets the relevance score of the document.
+         *
+         * @return The score; higher is more relevant.
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Posting list of a single term: the IDs of the documents containing it, kept in ascending
+     * order, each with the sorted positions at which the term occurs.
+     */
+    private static class PostingList {
+        final private String term;
+        private int[] docs = new int[4];
+        private int[][] positions = new int[4][];
+        private int size = 0;
+
+        PostingList(String term) {
+            this.term = term;
+        }
+
+        /**
+         * Adds or replaces the positions of a document. Appending a document whose ID is higher than
+         * every ID already in the list is O(1).
+         *
+         * @param docId The document ID.
+         * @param docPositions The sorted positions of the term in the document.
+         */
+        void put(int docId, int[] docPositions) {
+            int at = size > 0 && docs[size - 1] < docId ? -(size + 1) : Arrays.binarySearch(docs, 0, size, docId);
+            if (at >= 0) {
+                positions[at] = docPositions;
+                return;
+            }
+            at = -(at + 1);
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            System.arraycopy(positions, at, positions, at + 1, size - at);
+            docs[at] = docId;
+            positions[at] = docPositions;
+            size++;
+        }
+
+        /**
+         * Removes a document from the list.
+         *
+         * @param docId The document ID.
+         */
+        void remove(int docId) {
+            int at = Arrays.binarySearch(docs, 0, size, docId);
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+            System.arraycopy(positions, at + 1, positions, at, size - at - 1);
+            positions[--size] = null;
+        }
+
+        /**
+         * Gets the positions of the term in a document.
+         *
+         * @param docId The document ID.
+         * @return The sorted positions, or null if the document does not contain the term.
+         */
+        int[] get(int docId) {
+            int at = Arrays.binarySearch(docs, 0, size, docId);
+            return at >= 0 ? positions[at] : null;
+        }
+    }
+
+    /**
+     * Splits text into lower-case alphanumeric tokens.
+     *
+     * @param text The text to tokenize.
+     * @return The list of tokens, or an empty list if the text is null.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds a document to the index, replacing any existing document with the same ID.
+     *
+     * @param docId The document ID.
+     * @param scope The scope of the document, or null if unscoped. Compared case-insensitively.
+     * @param fields The text fields of the document; null fields are skipped.
+     */
+    public void put(int docId, String scope, String... fields) {
+        remove(docId);
+        Map<String, List<Integer>> positions = new HashMap<>();
+        int position = 0;
+        int length = 0;
+        for (String field : fields) {
+            for (String token : tokenize(field)) {
+                positions.computeIfAbsent(token, k -> new ArrayList<>()).add(position++);
+                length++;
+            }
+            position += FIELD_GAP;
+        }
+        PostingList[] terms = new PostingList[positions.size()];
+        int t = 0;
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            List<Integer> list = entry.getValue();
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            PostingList postingList = postings.computeIfAbsent(entry.getKey(), PostingList::new);
+            postingList.put(docId, array);
+            terms[t++] = postingList; // Shares the list's term rather than keeping this document's copy
+        }
+        docTerms.put(docId, terms);
+        docLengths.put(docId, length);
+        if (scope != null) {
+            docScopes.put(docId, scopeKey(scope));
+        }
+        totalLength += length;
+    }
+
+    /**
+     * Removes a document from the index.
+     *
+     * @param docId The document ID.
+     * @return True if the document was indexed, false otherwise.
+     */
+    public boolean remove(int docId) {
+        PostingList[] terms = docTerms.remove(docId);
+        if (terms == null) {
+            return false;
+        }
+        for (PostingList list : terms) {
+            list.remove(docId);
+            if (list.size == 0) {
+                postings.remove(list.term);
+            }
+        }
+        totalLength -= docLengths.remove(docId);
+        docScopes.remove(docId);
+        return true;
+    }
+
+    /**
+     * Removes all documents from the index.
+     */
+    public void clear() {
+        postings.clear();
+        docTerms.clear();
+        docLengths.clear();
+        docScopes.clear();
+        totalLength = 0;
+    }
+
+    /**
+     * Gets the number of indexed documents.
+     *
+     * @return The document count.
+     */
+    public int size() {
+        return docTerms.size();
+    }
+
+    /**
+     * Searches the index. Bare words are optional keywords ranked with BM25; text in double quotes
+     * is a phrase that every result must contain. A query made only of phrases returns all
+     * documents containing them, ranked by the phrase terms.
+     *
+     * @param query The query text, e.g. {@code lift "lease period"}.
+     * @param scope The scope to restrict results to, or null to search all documents.
+     * @param limit The maximum number of hits to return.
+     * @return The hits in descending score order, ties broken by ascending document ID.
+     * @throws IllegalArgumentException If the query is null or the limit is not positive.
+     */
+    public List<Hit> search(String query, String scope, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("Search query cannot be null.");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive.");
+        }
+        List<List<String>> phrases = new ArrayList<>();
+        Set<String> keywords = new LinkedHashSet<>();
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> tokens = tokenize(parts[i]);
+            if (i % 2 == 1 && i < parts.length - 1) {
+                if (!tokens.isEmpty()) {
+                    phrases.add(tokens);
+                }
+            }
+            keywords.addAll(tokens);
+        }
+        if (keywords.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String scopeKey = scope == null ? null : scopeKey(scope);
+
+        Set<Integer> candidates = null;
+        for (List<String> phrase : phrases) {
+            Set<Integer> matches = phraseMatches(phrase);
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        List<Double> idfs = new ArrayList<>();
+        int docCount = docTerms.size();
+        for (String term : keywords) {
+            PostingList list = postings.get(term);
+            if (list != null) {
+                lists.add(list);
+                idfs.add(Math.log(1 + (docCount - list.size + 0.5) / (list.size + 0.5)));
+            }
+        }
+        double avgLength = docCount == 0 ? 0 : (double) totalLength / docCount;
+
+        // Document-at-a-time merge of the sorted posting lists, keeping only the best hits.
+        PriorityQueue<Hit> top = new PriorityQueue<>(InvertedIndex::compareWorstFirst);
+        int[] cursors = new int[lists.size()];
+        while (true) {
+            int docId = Integer.MAX_VALUE;
+            for (int i = 0; i < cursors.length; i++) {
+                PostingList list = lists.get(i);
+                if (cursors[i] < list.size && list.docs[cursors[i]] < docId) {
+                    docId = list.docs[cursors[i]];
+                }
+            }
+            if (docId == Integer.MAX_VALUE) {
+                break;
+            }
+            boolean eligible = (candidates == null || candidates.contains(docId))
+                    && (scopeKey == null || scopeKey.equals(docScopes.get(docId)));
+            double norm = 1;
+            if (eligible && avgLength > 0) {
+                norm = docLengths.get(docId) / avgLength;
+            }
+            double score = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                PostingList list = lists.get(i);
+                if (cursors[i] < list.size && list.docs[cursors[i]] == docId) {
+                    if (eligible) {
+                        int tf = list.positions[cursors[i]].length;
+                        score += idfs.get(i) * tf * (K1 + 1) / (tf + K1 * (1 - B + B * norm));
+                    }
+                    cursors[i]++;
+                }
+            }
+            if (eligible) {
+                top.offer(new Hit(docId, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort((a, b) -> compareWorstFirst(b, a));
+        return hits;
+    }
+
+    /**
+     * Finds the documents containing the given tokens at consecutive positions.
+     *
+     * @param phrase The phrase tokens.
+     * @return The IDs of matching documents.
+     */
+    private Set<Integer> phraseMatches(List<String> phrase) {
+        Set<Integer> matches = new HashSet<>();
+        List<PostingList> lists = new ArrayList<>(phrase.size());
+        for (String term : phrase) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return matches;
+            }
+            lists.add(list);
+        }
+        PostingList rarest = lists.get(0);
+        for (PostingList list : lists) {
+            if (list.size < rarest.size) {
+                rarest = list;
+            }
+        }
+        for (int i = 0; i < rarest.size; i++) {
+            if (containsPhrase(lists, rarest.docs[i])) {
+                matches.add(rarest.docs[i]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Checks whether a document contains the phrase whose posting lists are given in order.
+     *
+     * @param lists The posting lists of the phrase tokens, in phrase order.
+     * @param docId The document ID.
+     * @return True if the tokens occur at consecutive positions in the document.
+     */
+    private static boolean containsPhrase(List<PostingList> lists, int docId) {
+        int[][] positions = new int[lists.size()][];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = lists.get(i).get(docId);
+            if (positions[i] == null) {
+                return false;
+            }
+        }
+        for (int start : positions[0]) {
+            boolean match = true;
+            for (int i = 1; i < positions.length && match; i++) {
+                match = Arrays.binarySearch(positions[i], start + i) >= 0;
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int compareWorstFirst(Hit a, Hit b) {
+        int byScore = Double.compare(a.getScore(), b.getScore());
+        return byScore != 0 ? byScore : Integer.compare(b.getDocId(), a.getDocId());
+    }
+
+    private static String scopeKey(String scope) {
+        return scope.trim().toLowerCase();
+    }
+}
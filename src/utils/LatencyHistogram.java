@@ -0,0 +1,123 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds with a fixed relative precision, laid out like
+ * HdrHistogram. Values are grouped into buckets by power of two. Each bucket is split into
+ * {@value #SUB_BUCKETS} / 2 linear sub-buckets, so every recorded value is counted in a slot no
+ * wider than 1/64 of the value, which gives better than 2% precision over the whole range.
+ *
+ * <p>Recording is lock-free: it finds the slot with a few bit operations and increments one
+ * counter, so many threads can record at once. Percentiles are read by walking the counters and
+ * may be slightly behind concurrent recordings.</p>
+ *
+ * @author SC2002Team
+ */
+public class LatencyHistogram {
+    /** The largest value tracked exactly, about 18 minutes; longer latencies are counted as this. */
+    public static final long MAX_VALUE = 1L << 40;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_BITS = SUB_BUCKET_BITS - 1;
+    private static final int HALF = 1 << HALF_BITS;
+    private static final long SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+
+    final private AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+    final private AtomicLong count = new AtomicLong();
+    final private AtomicLong total = new AtomicLong();
+    final private AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos The latency in nanoseconds; negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    /**
+     * Gets the number of latencies recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the largest latency recorded.
+     *
+     * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean latency recorded.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Gets the latency at or below which the given percentage of recordings fall. The result is
+     * the upper end of the slot holding that recording, capped at the maximum seen.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds, or 0 if nothing was recorded.
+     * @throws IllegalArgumentException If the percentile is out of range.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Gives the slot of a value. Values below {@value #SUB_BUCKETS} each have their own slot;
+     * above that, bucket b holds values in [64 * 2^b, 128 * 2^b) in 64 slots of width 2^b.
+     */
+    private static int index(long value) {
+        int bucket = 64 - HALF_BITS - 1 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        int subBucket = (int) (value >>> bucket);
+        return ((bucket + 1) << HALF_BITS) + (subBucket - HALF);
+    }
+
+    private static long highestValueAt(int index) {
+        int bucket = (index >> HALF_BITS) - 1;
+        int subBucket = (index & (HALF - 1)) + HALF;
+        if (bucket < 0) {
+            subBucket -= HALF;
+            bucket = 0;
+        }
+        return ((long) subBucket << bucket) + (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,458 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Leveled diagnostic log, kept apart from what the user sees on the console. Callers hand
+ * messages to a bounded lock-free {@link RingBuffer}; a daemon drainer thread formats them and
+ * appends them to {@value #DEFAULT_LOG_FILE}. Logging never waits for I/O: when the buffer is full
+ * the message is dropped and counted, and the count is logged once there is room.
+ *
+ * <p>Messages are templates with {@code {}} placeholders, filled in by the drainer, so a call
+ * below the current level costs a single comparison and a call above it allocates only the
+ * entry and its argument array. A {@code String[]} argument is copied when the message is queued,
+ * so later changes to the array do not reach the log, and is written as its fields joined by
+ * commas.</p>
+ *
+ * <p>Loops that find bad rows report them through a {@link Tally}, which counts the rows per reason
+ * and keeps the first example, and logs one line per load such as
+ * {@code ProjectList.csv: 37 bad row(s) - Malformed row x37 (first: ...)}.</p>
+ *
+ * <p>The level and file are taken from {@code -Dhdb.log.level} (DEBUG, INFO, WARN or ERROR,
+ * default INFO) and {@code -Dhdb.log.file}. Anything still buffered is written when the JVM
+ * exits.</p>
+ *
+ * @author SC2002Team
+ */
+public class Log {
+    /** The file messages are appended to by default. */
+    public static final String DEFAULT_LOG_FILE = "data/System.log";
+
+    private static final int CAPACITY = 1 << 14;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private static final Log DEFAULT = new Log(System.getProperty("hdb.log.file", DEFAULT_LOG_FILE),
+            Level.parse(System.getProperty("hdb.log.level"), Level.INFO), CAPACITY);
+
+    /**
+     * How serious a message is. Messages below the log's level are discarded.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR;
+
+        static Level parse(String value, Level fallback) {
+            if (value == null) {
+                return fallback;
+            }
+            try {
+                return Level.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return fallback;
+            }
+        }
+    }
+
+    /**
+     * One message waiting to be written.
+     */
+    private static class Entry {
+        final private long time;
+        final private Level level;
+        final private String thread;
+        final private String template;
+        final private Object first;
+        final private Object second;
+
+        Entry(Level level, String template, Object first, Object second) {
+            this.time = System.currentTimeMillis();
+            this.level = level;
+            this.thread = Thread.currentThread().getName();
+            this.template = template;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /**
+     * Counts the bad rows a load finds, by reason, and logs them as one line when the load is done.
+     * A tally belongs to the thread running the load.
+     */
+    public static class Tally {
+        final private Log log;
+        final private Level level;
+        final private String source;
+        private Map<String, Integer> counts;
+        private Map<String, String> examples;
+        private int total;
+
+        private Tally(Log log, Level level, String source) {
+            this.log = log;
+            this.level = level;
+            this.source = source;
+        }
+
+        /**
+         * Counts a bad row.
+         *
+         * @param reason Why the row was skipped.
+         * @param row The row; only the first row for each reason is kept.
+         */
+        public void add(String reason, String[] row) {
+            add(reason, row == null ? null : String.join(",", row));
+        }
+
+        /**
+         * Counts a bad row described by a detail message instead of its fields.
+         *
+         * @param reason Why the row was skipped.
+         * @param detail A description of the row; only the first for each reason is kept.
+         */
+        public void add(String reason, String detail) {
+            if (counts == null) {
+                counts = new LinkedHashMap<>();
+                examples = new HashMap<>();
+            }
+            counts.merge(reason, 1, Integer::sum);
+            if (detail != null) {
+                examples.putIfAbsent(reason, detail);
+            }
+            total++;
+        }
+
+        /**
+         * Gets the number of rows counted so far.
+         *
+         * @return The number of bad rows.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Logs the rows counted since the last flush, if any, as one line, and starts counting
+         * again.
+         */
+        public void flush() {
+            if (total == 0) {
+                return;
+            }
+            if (log.isEnabled(level)) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(source).append(": ").append(total).append(" bad row(s) - ");
+                boolean first = true;
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    if (!first) {
+                        sb.append("; ");
+                    }
+                    sb.append(entry.getKey()).append(" x").append(entry.getValue());
+                    String example = examples.get(entry.getKey());
+                    if (example != null) {
+                        sb.append(" (first: ").append(example).append(')');
+                    }
+                    first = false;
+                }
+                log.log(level, "{}", sb.toString(), null);
+            }
+            counts = null;
+            examples = null;
+            total = 0;
+        }
+    }
+
+    final private String filepath;
+    final private Level level;
+    final private RingBuffer<Entry> ring;
+    final private AtomicLong dropped = new AtomicLong();
+    final private AtomicLong queued = new AtomicLong();
+    final private AtomicLong written = new AtomicLong();
+    private volatile Thread drainer;
+    private volatile boolean drainerWaiting = false;
+    private Writer out;
+
+    /**
+     * Constructs a log.
+     *
+     * @param filepath The file messages are appended to.
+     * @param level The lowest level written.
+     * @param capacity The number of messages that can wait to be written.
+     * @throws IllegalArgumentException If the filepath is empty, the level is null or the capacity
+     *                                  is out of range.
+     */
+    public Log(String filepath, Level level, int capacity) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Log filepath cannot be empty.");
+        }
+        if (level == null) {
+            throw new IllegalArgumentException("Log level cannot be null.");
+        }
+        this.filepath = filepath;
+        this.level = level;
+        this.ring = new RingBuffer<>(capacity);
+    }
+
+    /**
+     * Gets the system-wide log.
+     *
+     * @return The default Log.
+     */
+    public static Log getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Logs a message to the system-wide log at DEBUG level.
+     *
+     * @param template The message, with a {@code {}} for each argument.
+     * @param args Up to two arguments.
+     */
+    public static void debug(String template, Object... args) {
+        if (DEFAULT.isEnabled(Level.DEBUG)) {
+            DEFAULT.log(Level.DEBUG, template, args);
+        }
+    }
+
+    /**
+     * Logs a message to the system-wide log at INFO level.
+     *
+     * @param template The message, with a {@code {}} for each argument.
+     * @param args Up to two arguments.
+     */
+    public static void info(String template, Object... args) {
+        if (DEFAULT.isEnabled(Level.INFO)) {
+            DEFAULT.log(Level.INFO, template, args);
+        }
+    }
+
+    /**
+     * Logs a message to the system-wide log at WARN level.
+     *
+     * @param template The message, with a {@code {}} for each argument.
+     * @param args Up to two arguments.
+     */
+    public static void warn(String template, Object... args) {
+        if (DEFAULT.isEnabled(Level.WARN)) {
+            DEFAULT.log(Level.WARN, template, args);
+        }
+    }
+
+    /**
+     * Logs a message to the system-wide log at ERROR level.
+     *
+     * @param template The message, with a {@code {}} for each argument.
+     * @param args Up to two arguments.
+     */
+    public static void error(String template, Object... args) {
+        if (DEFAULT.isEnabled(Level.ERROR)) {
+            DEFAULT.log(Level.ERROR, template, args);
+        }
+    }
+
+    /**
+     * Starts a tally of the bad rows a load of the given source finds, logged at WARN level to the
+     * system-wide log.
+     *
+     * @param source The file or table being loaded.
+     * @return The tally.
+     */
+    public static Tally tally(String source) {
+        return new Tally(DEFAULT, Level.WARN, source);
+    }
+
+    /**
+     * Checks whether messages at a level are written.
+     *
+     * @param messageLevel The level.
+     * @return True if messages at the level are written.
+     */
+    public boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) >= 0;
+    }
+
+    /**
+     * Queues a message to be written.
+     *
+     * @param messageLevel The level of the message.
+     * @param template The message, with a {@code {}} for each argument.
+     * @param args Up to two arguments; any further arguments are ignored.
+     */
+    public void log(Level messageLevel, String template, Object... args) {
+        Object first = args != null && args.length > 0 ? args[0] : null;
+        Object second = args != null && args.length > 1 ? args[1] : null;
+        log(messageLevel, template, first, second);
+    }
+
+    private void log(Level messageLevel, String template, Object first, Object second) {
+        if (!isEnabled(messageLevel)) {
+            return;
+        }
+        if (drainer == null) {
+            startDrainer();
+        }
+        if (!ring.offer(new Entry(messageLevel, template, snapshot(first), snapshot(second)))) {
+            dropped.incrementAndGet();
+            return;
+        }
+        queued.incrementAndGet();
+        if (drainerWaiting) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    /**
+     * Waits until every message queued so far has been written to the file.
+     *
+     * @param timeoutMillis The maximum time to wait.
+     * @return True if all queued messages were written in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitWritten(long timeoutMillis) throws InterruptedException {
+        long target = queued.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (written.get() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of messages dropped because the buffer was full.
+     *
+     * @return The number of messages dropped.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private synchronized void startDrainer() {
+        if (drainer != null) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            while (true) {
+                if (drain() > 0) {
+                    continue;
+                }
+                drainerWaiting = true;
+                if (ring.size() == 0) { // Recheck so that a message offered before the flag was set is not missed
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                drainerWaiting = false;
+            }
+        }, "log-drainer");
+        thread.setDaemon(true);
+        drainer = thread;
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "log-flush"));
+    }
+
+    /**
+     * Copies a mutable array argument, since the message is formatted later on the drainer.
+     */
+    private static Object snapshot(Object arg) {
+        return arg instanceof String[] ? ((String[]) arg).clone() : arg;
+    }
+
+    /**
+     * Writes every queued message and flushes the file. A message taken from the buffer counts as
+     * written even if writing it failed, so that {@link #awaitWritten(long)} does not wait for it.
+     *
+     * @return The number of messages taken from the buffer.
+     */
+    private synchronized int drain() {
+        int count = 0;
+        try {
+            Entry entry;
+            while ((entry = ring.poll()) != null) {
+                count++;
+                write(entry);
+            }
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                write(new Entry(Level.WARN, "{} log message(s) dropped because the log buffer was full.", lost, null));
+            }
+            if ((count > 0 || lost > 0) && out != null) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to write log " + filepath + ": " + e.getMessage());
+            closeQuietly();
+        } finally {
+            written.addAndGet(count);
+        }
+        return count;
+    }
+
+    /**
+     * Closes the log file after a failed write, so that the next message reopens it.
+     */
+    private void closeQuietly() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException ignored) {
+            // The file is reopened on the next write regardless.
+        } finally {
+            out = null;
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        if (out == null) {
+            out = new BufferedWriter(new FileWriter(filepath, true));
+        }
+        out.write(TIME.format(Instant.ofEpochMilli(entry.time)));
+        out.write(' ');
+        out.write(entry.level.name());
+        out.write(" [");
+        out.write(entry.thread);
+        out.write("] ");
+        out.write(format(entry.template, entry.first, entry.second));
+        out.write(System.lineSeparator());
+    }
+
+    private static String format(String template, Object first, Object second) {
+        if (template == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(template.length() + 32);
+        int from = 0;
+        int used = 0;
+        int at;
+        while (used < 2 && (at = template.indexOf("{}", from)) >= 0) {
+            sb.append(template, from, at).append(render(used == 0 ? first : second));
+            from = at + 2;
+            used++;
+        }
+        return sb.append(template, from, template.length()).toString();
+    }
+
+    private static String render(Object value) {
+        if (value instanceof String[]) {
+            return String.join(",", (String[]) value);
+        }
+        if (value instanceof Throwable) {
+            Throwable t = (Throwable) value;
+            return t.getClass().getSimpleName() + ": " + t.getMessage();
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,251 @@
+package utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a call count and a {@link LatencyHistogram} for every named operation in the system, such
+ * as each controller method and each CSV read or write. Operations time themselves with
+ * {@link #start()} and {@link #record(String, long)}:
+ *
+ * <pre>
+ * long started = Metrics.start();
+ * try {
+ *     ...
+ * } finally {
+ *     Metrics.getInstance().record("ApplicantController.applyForProject", started);
+ * }
+ * </pre>
+ *
+ * <p>Recording takes no lock, so it is cheap enough to leave on in every call. When tracing is on,
+ * every timed operation is also a span in the {@link Tracer}'s call tree. The statistics can
+ * be viewed on the manager's System Stats screen and are also written to {@value #METRICS_CSV}
+ * periodically once {@link #startDumping(String, long)} is called.</p>
+ *
+ * @author SC2002Team
+ */
+public class Metrics {
+    /** The file the statistics are dumped to by default. */
+    public static final String METRICS_CSV = "data/Metrics.csv";
+    /** How often the statistics are dumped by default, in seconds. */
+    public static final long DEFAULT_DUMP_SECONDS = 60;
+
+    private static Metrics instance;
+
+    final private ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumper;
+
+    /**
+     * The statistics of one operation at a point in time. Latencies are in microseconds.
+     */
+    public static class Stats {
+        final private String operation;
+        final private long count;
+        final private double mean;
+        final private double p50;
+        final private double p99;
+        final private double p999;
+        final private double max;
+
+        Stats(String operation, LatencyHistogram histogram) {
+            this.operation = operation;
+            this.count = histogram.getCount();
+            this.mean = histogram.getMean() / 1000.0;
+            this.p50 = histogram.getPercentile(50) / 1000.0;
+            this.p99 = histogram.getPercentile(99) / 1000.0;
+            this.p999 = histogram.getPercentile(99.9) / 1000.0;
+            this.max = histogram.getMax() / 1000.0;
+        }
+
+        /**
+         * Gets the name of the operation.
+         *
+         * @return The operation name.
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * Gets the number of calls recorded.
+         *
+         * @return The call count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the mean latency.
+         *
+         * @return The mean in microseconds.
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Gets the median latency.
+         *
+         * @return The 50th percentile in microseconds.
+         */
+        public double getP50() {
+            return p50;
+        }
+
+        /**
+         * Gets the 99th percentile latency.
+         *
+         * @return The 99th percentile in microseconds.
+         */
+        public double getP99() {
+            return p99;
+        }
+
+        /**
+         * Gets the 99.9th percentile latency.
+         *
+         * @return The 99.9th percentile in microseconds.
+         */
+        public double getP999() {
+            return p999;
+        }
+
+        /**
+         * Gets the largest latency recorded.
+         *
+         * @return The maximum in microseconds.
+         */
+        public double getMax() {
+            return max;
+        }
+
+        String[] toCSVRow(long timestamp) {
+            return new String[] { Long.toString(timestamp), operation, Long.toString(count),
+                    String.format(Locale.ROOT, "%.1f", mean), String.format(Locale.ROOT, "%.1f", p50),
+                    String.format(Locale.ROOT, "%.1f", p99), String.format(Locale.ROOT, "%.1f", p999),
+                    String.format(Locale.ROOT, "%.1f", max) };
+        }
+    }
+
+    /**
+     * Gets the metrics registry shared by the whole system.
+     *
+     * @return The shared Metrics.
+     */
+    public static synchronized Metrics getInstance() {
+        if (instance == null) {
+            instance = new Metrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Marks the start of an operation.
+     *
+     * @return The start time, to be passed to {@link #record(String, long)}.
+     */
+    public static long start() {
+        long started = System.nanoTime();
+        Tracer.enter(started);
+        return started;
+    }
+
+    /**
+     * Records a call to an operation that started at the given time and has just finished.
+     *
+     * @param operation The name of the operation.
+     * @param started The time returned by {@link #start()} when the operation started.
+     */
+    public void record(String operation, long started) {
+        long nanos = System.nanoTime() - started;
+        recordNanos(operation, nanos);
+        Tracer.exit(operation, started, nanos);
+    }
+
+    /**
+     * Records a call to an operation with a latency measured by the caller.
+     *
+     * @param operation The name of the operation.
+     * @param nanos The latency in nanoseconds.
+     */
+    public void recordNanos(String operation, long nanos) {
+        LatencyHistogram histogram = histograms.get(operation);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(operation, name -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Gets the statistics of every operation called so far, ordered by operation name.
+     *
+     * @return The statistics.
+     */
+    public List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>(histograms.size());
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            stats.add(new Stats(entry.getKey(), entry.getValue()));
+        }
+        return stats;
+    }
+
+    /**
+     * Discards every recorded call.
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * Writes the statistics of every operation to a CSV file, replacing its contents. Each row
+     * holds the time of the dump, the operation, the call count and the mean, p50, p99, p999 and
+     * maximum latencies in microseconds.
+     *
+     * @param filepath The path to the CSV file.
+     * @throws RuntimeException If an error occurs while writing the file.
+     */
+    public void dump(String filepath) {
+        long now = System.currentTimeMillis();
+        List<String[]> rows = new ArrayList<>();
+        for (Stats stats : getStats()) {
+            rows.add(stats.toCSVRow(now));
+        }
+        CSVUtils.writeCSVAtomic(filepath, rows);
+    }
+
+    /**
+     * Starts a daemon thread that dumps the statistics to a file periodically. Calling this again
+     * while dumping has started has no effect.
+     *
+     * @param filepath The path to the CSV file.
+     * @param periodSeconds The number of seconds between dumps.
+     * @throws IllegalArgumentException If the filepath is empty or the period is not positive.
+     */
+    public synchronized void startDumping(String filepath, long periodSeconds) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Metrics filepath cannot be empty.");
+        }
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Dump period must be positive.");
+        }
+        if (dumper != null) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                dump(filepath);
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Failed to dump metrics: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+}
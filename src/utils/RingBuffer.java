@@ -0,0 +1,119 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring buffer for passing items between threads. Any number of threads may
+ * offer and poll concurrently. Each slot carries a sequence number that says whether it is ready
+ * to be written or read in the current lap, so producers and consumers claim slots with a single
+ * compare-and-set on their cursor and never take a lock.
+ *
+ * <p>The capacity is rounded up to a power of two. {@link #offer(Object)} fails rather than
+ * blocks when the buffer is full, leaving the caller to choose how to wait.</p>
+ *
+ * @param <T> The type of item held.
+ * @author SC2002Team
+ */
+public class RingBuffer<T> {
+    final private Object[] items;
+    final private AtomicLongArray sequences;
+    final private int mask;
+    final private AtomicLong tail = new AtomicLong();
+    final private AtomicLong head = new AtomicLong();
+
+    /**
+     * Constructs an empty ring buffer.
+     *
+     * @param capacity The minimum number of items the buffer can hold.
+     * @throws IllegalArgumentException If the capacity is not between 2 and 2^30.
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 2 and 2^30.");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an item to the buffer if there is room.
+     *
+     * @param item The item to add.
+     * @return True if the item was added, false if the buffer is full.
+     * @throws IllegalArgumentException If the item is null.
+     */
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Ring buffer items cannot be null.");
+        }
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items[index] = item;
+                    sequences.set(index, pos + 1); // Publishes the item to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the oldest item in the buffer.
+     *
+     * @return The item, or null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    T item = (T) items[index];
+                    items[index] = null;
+                    sequences.set(index, pos + items.length); // Frees the slot for the next lap
+                    return item;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /**
+     * Gets the approximate number of items in the buffer.
+     *
+     * @return The number of items offered but not yet polled.
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, items.length));
+    }
+
+    /**
+     * Gets the number of items the buffer can hold.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return items.length;
+    }
+}
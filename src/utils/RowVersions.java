@@ -0,0 +1,425 @@
+package utils;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tracks a version number for every row of a CSV table, so that read-modify-write cycles can be
+ * checked for conflicts instead of silently overwriting each other.
+ *
+ * <p>Versions are kept in a sidecar file next to the table (for example
+ * {@code FlatApplications.versions.csv}) as rows of [key, version], where the key identifies a row
+ * by its natural key. A row that has never been rewritten has no entry and is at version 0. The
+ * table and its sidecar are always saved in the same {@link Transaction}.</p>
+ *
+ * <p>Reads take no lock: {@link #read()} returns the rows together with the versions and content
+ * they were read at. When those rows are written back, each row is compared with how it was read
+ * and how it is in the file now. Rows the writer did not change are taken from the file, so rows
+ * changed, added or removed by others since the read are kept, and writers that change different
+ * rows never conflict. If a row the writer changed or removed was also changed by someone else,
+ * nothing is written and a {@link StaleVersionException} is thrown. A row whose content changes
+ * gets the next version, and a removed row loses its entry. Writers hold the table's lock only
+ * while their transaction commits; a writer that loses a race re-reads and tries again with
+ * {@link #retry(Supplier)}.</p>
+ *
+ * <p>Rows appended to a table must be appended under {@link #locked(Runnable)} so that a
+ * concurrent rewrite cannot drop them. Files written without going through this class are not
+ * versioned, but are still compared row by row on the next versioned write.</p>
+ *
+ * <p>The rows of the table are kept in memory and followed with a {@link TailReader}: a read
+ * parses only the rows appended since the previous read, and the whole table only after it was
+ * rewritten.</p>
+ *
+ * @author SC2002Team
+ */
+public class RowVersions {
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The versions of a table as last read from or written to the sidecar file.
+     */
+    private static class Loaded {
+        final private Map<String, Long> versions;
+        final private long modified;
+        final private long length;
+        final private long writes;
+
+        Loaded(Map<String, Long> versions, File file, long writes) {
+            this.versions = Collections.unmodifiableMap(versions);
+            this.modified = file.lastModified();
+            this.length = file.length();
+            this.writes = writes;
+        }
+
+        boolean isCurrent(File file) {
+            return writes == CSVUtils.writeCount(file.getPath()) && modified == file.lastModified()
+                    && length == file.length();
+        }
+    }
+
+    final private String tablePath;
+    final private String versionsPath;
+    final private Function<String[], String> keyOf;
+    final private ReentrantLock lock = new ReentrantLock();
+    final private TailReader tail;
+    final private List<String[]> rows = new ArrayList<>();
+    private volatile Loaded loaded;
+    private Map<String, Long> pending;
+
+    /**
+     * Constructs the row versions of a CSV table.
+     *
+     * @param tablePath The path to the CSV table.
+     * @param keyOf Gives the key of a row, or null for a row that is not versioned (such as a
+     *              malformed one).
+     * @throws IllegalArgumentException If the path is empty or the key function is null.
+     */
+    public RowVersions(String tablePath, Function<String[], String> keyOf) {
+        if (tablePath == null || tablePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid filepath: Cannot be null or empty");
+        }
+        if (keyOf == null) {
+            throw new IllegalArgumentException("Key function cannot be null.");
+        }
+        this.tablePath = tablePath;
+        this.versionsPath = tablePath.endsWith(".csv")
+                ? tablePath.substring(0, tablePath.length() - 4) + ".versions.csv"
+                : tablePath + ".versions";
+        this.keyOf = keyOf;
+        this.tail = new TailReader(tablePath);
+    }
+
+    /**
+     * Gets the path of the sidecar file holding the versions.
+     *
+     * @return The versions file path.
+     */
+    public String getVersionsPath() {
+        return versionsPath;
+    }
+
+    /**
+     * Gets the current version of a row.
+     *
+     * @param key The row key.
+     * @return The version, or 0 if the row has never been rewritten.
+     */
+    public long get(String key) {
+        return snapshot().getOrDefault(key, 0L);
+    }
+
+    /**
+     * Gets the current version of every row that has one. The sidecar file is re-read only if it
+     * changed since it was last read.
+     *
+     * @return An unmodifiable map from row key to version.
+     */
+    public Map<String, Long> snapshot() {
+        File file = new File(versionsPath);
+        Loaded current = loaded;
+        if (current == null || !current.isCurrent(file)) {
+            long writes = CSVUtils.writeCount(versionsPath);
+            current = new Loaded(readVersions(), file, writes);
+            loaded = current;
+        }
+        return current.versions;
+    }
+
+    /**
+     * Reads the rows of the table together with the versions they are at. The versions are taken
+     * first, so a write that lands in between makes the rows look older than they are, never newer.
+     *
+     * @return The rows of the table.
+     * @throws RuntimeException If an error occurs while reading the table.
+     */
+    public VersionedRows read() {
+        Map<String, Long> versions = snapshot();
+        List<String[]> rows = currentRows();
+        Map<String, String> contents = new HashMap<>();
+        for (String[] row : rows) {
+            String key = keyOf.apply(row);
+            if (key != null) {
+                contents.putIfAbsent(key, String.join(",", row));
+            }
+        }
+        return new VersionedRows(rows, versions, contents);
+    }
+
+    /**
+     * Brings the rows held in memory up to date with the table and returns a copy of them that
+     * the caller may change.
+     */
+    private List<String[]> currentRows() {
+        synchronized (rows) {
+            poll();
+            List<String[]> copy = new ArrayList<>(rows.size());
+            for (String[] row : rows) {
+                copy.add(row.clone());
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Brings the rows held in memory up to date with the table. The caller holds the lock on the
+     * rows.
+     */
+    private void poll() {
+        if (!new File(tablePath).exists()) {
+            rows.clear();
+            tail.reset();
+            return;
+        }
+        TailReader.Batch batch = tail.poll();
+        if (batch.isReset()) {
+            rows.clear();
+        }
+        rows.addAll(batch.getRows());
+    }
+
+    /**
+     * Stages the new rows of the table in a transaction. The rows are checked and their versions
+     * staged when the transaction commits.
+     *
+     * @param tx The transaction.
+     * @param rows The rows the table should contain, ideally as returned by {@link #read()}.
+     * @throws IllegalArgumentException If the transaction or rows are null.
+     */
+    public void stage(Transaction tx, List<String[]> rows) {
+        if (tx == null) {
+            throw new IllegalArgumentException("Transaction cannot be null.");
+        }
+        tx.stage(tablePath, rows);
+        tx.enlist(this);
+    }
+
+    /**
+     * Replaces the rows of the table in a transaction of its own.
+     *
+     * @param rows The rows the table should contain, ideally as returned by {@link #read()}.
+     * @return The versions of the rows after the write.
+     * @throws IllegalArgumentException If the rows are null.
+     * @throws StaleVersionException If a row was changed by someone else since it was read.
+     * @throws RuntimeException If the change could not be recorded or applied.
+     */
+    public Map<String, Long> write(List<String[]> rows) {
+        lock.lock();
+        try {
+            Transaction tx = TransactionManager.getInstance().begin();
+            stage(tx, rows);
+            tx.commit();
+            return snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs an action that changes the table outside a transaction, such as an append, while no
+     * versioned write can commit.
+     *
+     * @param action The action to run.
+     */
+    public void locked(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a read-modify-write attempt, running it again from the start if it loses a race with
+     * another writer. Attempts back off for a few milliseconds between tries.
+     *
+     * @param attempt The attempt; it must read everything it writes.
+     * @param <T> The type of the result.
+     * @return The result of the first attempt that succeeds.
+     * @throws StaleVersionException If every attempt loses its race.
+     */
+    public static <T> T retry(Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (StaleVersionException e) {
+                if (i >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(1, 1 + 2 * i));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a read-modify-write attempt that returns nothing, retrying it as
+     * {@link #retry(Supplier)} does.
+     *
+     * @param attempt The attempt; it must read everything it writes.
+     * @throws StaleVersionException If every attempt loses its race.
+     */
+    public static void retry(Runnable attempt) {
+        retry(() -> {
+            attempt.run();
+            return null;
+        });
+    }
+
+    /**
+     * Gives the order in which the tables of a transaction are locked, so that transactions over
+     * the same tables cannot deadlock.
+     */
+    String lockOrder() {
+        return Paths.get(tablePath).toAbsolutePath().normalize().toString();
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        pending = null;
+        lock.unlock();
+    }
+
+    /**
+     * Rebases the rows staged for the table onto the file as it is now, checks them for conflicts
+     * and stages the new versions. Called by the committing transaction with the table locked.
+     *
+     * @param tx The transaction.
+     * @throws StaleVersionException If a row the writer changed was changed by someone else since
+     *                               it was read.
+     */
+    void prepare(Transaction tx) {
+        List<String[]> rows = tx.getStaged(tablePath);
+        if (rows == null) {
+            return;
+        }
+        // Both the versions and the rows are held in memory and re-read only if their files changed.
+        Map<String, Long> current = snapshot();
+        Map<String, String[]> onDisk = new LinkedHashMap<>();
+        synchronized (this.rows) {
+            poll();
+            for (String[] row : this.rows) {
+                String key = keyOf.apply(row);
+                if (key != null) {
+                    onDisk.putIfAbsent(key, row.clone());
+                }
+            }
+        }
+        if (rows instanceof VersionedRows) {
+            rows = rebase((VersionedRows) rows, onDisk, current);
+            tx.put(tablePath, rows);
+        }
+
+        Map<String, Long> next = new TreeMap<>();
+        for (String[] row : rows) {
+            String key = row == null ? null : keyOf.apply(row);
+            if (key == null || next.containsKey(key)) {
+                continue;
+            }
+            long version = current.getOrDefault(key, 0L);
+            String[] old = onDisk.get(key);
+            if (old != null && String.join(",", old).equals(String.join(",", row))) {
+                if (version > 0) {
+                    next.put(key, version);
+                }
+            } else {
+                next.put(key, version + 1);
+            }
+        }
+        if (!next.equals(current)) {
+            List<String[]> versionRows = new ArrayList<>(next.size());
+            for (Map.Entry<String, Long> entry : next.entrySet()) {
+                versionRows.add(new String[] { entry.getKey(), Long.toString(entry.getValue()) });
+            }
+            tx.put(versionsPath, versionRows);
+            pending = next;
+        }
+    }
+
+    /**
+     * Combines the writer's changes with the file as it is now. Rows the writer changed, added or
+     * removed keep the writer's version; every other row is taken from the file, and rows added
+     * to the file since the read are kept at the end.
+     */
+    private List<String[]> rebase(VersionedRows rows, Map<String, String[]> onDisk, Map<String, Long> current) {
+        List<String[]> merged = new ArrayList<>(Math.max(rows.size(), onDisk.size()));
+        Set<String> seen = new HashSet<>();
+        for (String[] row : rows) {
+            String key = row == null ? null : keyOf.apply(row);
+            if (key == null || !seen.add(key)) {
+                merged.add(row);
+                continue;
+            }
+            String read = rows.readContent(key);
+            String[] now = onDisk.get(key);
+            if (String.join(",", row).equals(read)) {
+                if (now != null) {
+                    merged.add(now);
+                }
+                continue;
+            }
+            checkUnchanged(rows, key, now, current);
+            merged.add(row);
+        }
+        for (String key : rows.readKeys()) {
+            if (!seen.contains(key)) {
+                checkUnchanged(rows, key, onDisk.get(key), current);
+            }
+        }
+        for (Map.Entry<String, String[]> entry : onDisk.entrySet()) {
+            if (!seen.contains(entry.getKey()) && rows.readContent(entry.getKey()) == null) {
+                merged.add(entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Checks that a row the writer changed is as it was when read.
+     */
+    private void checkUnchanged(VersionedRows rows, String key, String[] now, Map<String, Long> current) {
+        String read = rows.readContent(key);
+        long version = current.getOrDefault(key, 0L);
+        boolean same = read == null ? now == null
+                : now != null && read.equals(String.join(",", now)) && rows.version(key) == version;
+        if (!same) {
+            throw new StaleVersionException(key, rows.version(key), version);
+        }
+    }
+
+    /**
+     * Publishes the versions staged by {@link #prepare(Transaction)} once the transaction has
+     * committed.
+     */
+    void committed() {
+        if (pending != null) {
+            loaded = new Loaded(pending, new File(versionsPath), CSVUtils.writeCount(versionsPath));
+            pending = null;
+        }
+    }
+
+    private Map<String, Long> readVersions() {
+        Map<String, Long> versions = new HashMap<>();
+        if (!new File(versionsPath).exists()) {
+            return versions;
+        }
+        for (String[] row : CSVUtils.readCSV(versionsPath)) {
+            if (row.length >= 2 && row[1].trim().matches("\\d+")) {
+                versions.put(row[0], Long.parseLong(row[1].trim()));
+            }
+        }
+        return versions;
+    }
+}
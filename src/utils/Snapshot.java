@@ -0,0 +1,588 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Binary, column-oriented copy of the CSV files in the data directory, so that startup does not
+ * have to parse every file from text. Once a snapshot is {@link #load() loaded},
+ * {@link CSVUtils#readCSV(String)} returns a file's rows from the snapshot for as long as the
+ * file is unchanged since the snapshot was taken, and parses the file as usual otherwise.
+ *
+ * <p>A table is used only while its CSV file has the modification time and length it had when the
+ * snapshot was taken. Those can stay the same across a rewrite within one clock tick, so the
+ * first read of a table also checks the file's CRC32, and the check is repeated whenever the file
+ * has been written since ({@link CSVUtils#writeCount(String)}).</p>
+ *
+ * <p>The file is a header (magic, format version, body length and CRC32 of the body) followed by
+ * the body: a dictionary of every distinct string, then for each table its path, the modification
+ * time, length and CRC32 of the CSV file it was taken from, its row count, column count, a type
+ * per column, the length of every row and then each column as an int array. A column whose values
+ * are all plain integers is stored as the numbers, one of dates in {@code M/dd/yyyy} as epoch
+ * days, and any other column as dictionary indices, so each distinct name, NRIC or status is
+ * stored once. The file is memory-mapped and checked against its CRC32 on load; columns are read
+ * straight from the mapping.</p>
+ *
+ * <p>Each save writes a new generation, {@code Tables.snap.1}, {@code Tables.snap.2} and so on,
+ * rather than replacing the file in place, because a file that is still mapped cannot be replaced
+ * or deleted on Windows, and a mapping is only released once its buffer is garbage collected.
+ * Loading takes the newest generation that checks out. Older generations are deleted after a
+ * save; one that is still mapped is left for a later save to delete.</p>
+ *
+ * <p>The system saves the snapshot on exit, and in the background after a log is compacted.</p>
+ *
+ * @author SC2002Team
+ */
+public class Snapshot {
+    /** The snapshot file used by the system; each save adds a numbered generation of it. */
+    public static final String SNAPSHOT_FILE = "data/Tables.snap";
+    /** The directory whose CSV files are saved in the system's snapshot. */
+    public static final String DATA_DIR = "data";
+
+    private static final int MAGIC = 0x48444253; // "HDBS"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 20;
+    private static final long QUIET_MILLIS = 2000;
+    private static final byte STRING = 0;
+    private static final byte INT = 1;
+    private static final byte DATE = 2;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("M/dd/yyyy");
+
+    private static Snapshot instance;
+
+    final private Path path;
+    final private String dataDir;
+    final private AtomicBoolean savePending = new AtomicBoolean();
+    private volatile Map<String, Table> tables = Collections.emptyMap();
+    private volatile Path loadedFile;
+    private volatile boolean loaded = false;
+    private ExecutorService saver;
+
+    /**
+     * One table of a loaded snapshot, read from the mapped file.
+     */
+    private static class Table {
+        final private long csvModified;
+        final private long csvLength;
+        final private int csvCrc;
+        final private int rows;
+        final private byte[] types;
+        final private IntBuffer rowLengths;
+        final private IntBuffer[] columns;
+        final private String[] dictionary;
+        final private ConcurrentHashMap<Integer, String> dates = new ConcurrentHashMap<>();
+        private volatile long checkedWrites = -1;
+
+        Table(long csvModified, long csvLength, int csvCrc, int rows, byte[] types, IntBuffer rowLengths,
+                IntBuffer[] columns, String[] dictionary) {
+            this.csvModified = csvModified;
+            this.csvLength = csvLength;
+            this.csvCrc = csvCrc;
+            this.rows = rows;
+            this.types = types;
+            this.rowLengths = rowLengths;
+            this.columns = columns;
+            this.dictionary = dictionary;
+        }
+
+        List<String[]> toRows() {
+            List<String[]> data = new ArrayList<>(rows);
+            for (int r = 0; r < rows; r++) {
+                String[] row = new String[rowLengths.get(r)];
+                for (int c = 0; c < row.length; c++) {
+                    int value = columns[c].get(r);
+                    switch (types[c]) {
+                        case INT -> row[c] = Integer.toString(value);
+                        case DATE -> row[c] = dates.computeIfAbsent(value, day -> LocalDate.ofEpochDay(day).format(DATE_FORMAT));
+                        default -> row[c] = dictionary[value];
+                    }
+                }
+                data.add(row);
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Constructs a Snapshot stored in the specified file, covering the CSV files in a directory.
+     * Nothing is read until {@link #load()} is called.
+     *
+     * @param snapshotPath The path to the snapshot file.
+     * @param dataDir The directory whose CSV files {@link #save()} includes.
+     * @throws IllegalArgumentException If either path is empty.
+     */
+    public Snapshot(String snapshotPath, String dataDir) {
+        if (snapshotPath == null || snapshotPath.trim().isEmpty() || dataDir == null || dataDir.trim().isEmpty()) {
+            throw new IllegalArgumentException("Snapshot paths cannot be empty.");
+        }
+        this.path = Paths.get(snapshotPath);
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * Gets the snapshot of the system's data directory.
+     *
+     * @return The shared Snapshot.
+     */
+    public static synchronized Snapshot getDefault() {
+        if (instance == null) {
+            instance = new Snapshot(SNAPSHOT_FILE, DATA_DIR);
+        }
+        return instance;
+    }
+
+    /**
+     * Memory-maps the newest generation of the snapshot file and checks it. Until this is called,
+     * {@link #read(String)} returns nothing and CSV files are always parsed. A damaged or outdated
+     * generation is ignored with a warning in the log, and the next older one is tried.
+     *
+     * @return True if a snapshot was loaded.
+     */
+    public boolean load() {
+        long started = Metrics.start();
+        try {
+            for (long generation : generations()) {
+                Path candidate = generation(generation);
+                try (FileChannel channel = FileChannel.open(candidate, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    tables = decode(buffer);
+                    loadedFile = candidate;
+                    return true;
+                } catch (java.nio.file.NoSuchFileException e) {
+                    // Deleted by a save since it was listed; try the next one.
+                } catch (IOException | RuntimeException e) {
+                    Log.warn("Ignoring snapshot {}: {}", candidate.toString(), e.getMessage());
+                }
+            }
+            return false;
+        } finally {
+            loaded = true;
+            Metrics.getInstance().record("Snapshot.load", started);
+        }
+    }
+
+    /**
+     * Gets the snapshot file generation that is loaded.
+     *
+     * @return The path of the loaded generation, or null if none is loaded.
+     */
+    public Path getFile() {
+        return loadedFile;
+    }
+
+    /**
+     * Gets the rows of a CSV file from the snapshot, if the file has not changed since the
+     * snapshot was taken. A table found to be out of date is dropped from the snapshot.
+     *
+     * @param filepath The path to the CSV file, as passed to {@link CSVUtils#readCSV(String)}.
+     * @return The rows, or null if the file is not in the snapshot or has changed.
+     */
+    public List<String[]> read(String filepath) {
+        if (!loaded) {
+            return null;
+        }
+        String key = key(filepath);
+        Table table = tables.get(key);
+        if (table == null) {
+            return null;
+        }
+        File csv = new File(filepath);
+        if (csv.lastModified() != table.csvModified || csv.length() != table.csvLength) {
+            drop(key);
+            return null;
+        }
+        long started = Metrics.start();
+        try {
+            long writes = CSVUtils.writeCount(filepath);
+            if (table.checkedWrites != writes) {
+                if (crc(csv) != table.csvCrc) {
+                    drop(key);
+                    return null;
+                }
+                table.checkedWrites = writes;
+            }
+            return table.toRows();
+        } finally {
+            Metrics.getInstance().record("Snapshot.read", started);
+        }
+    }
+
+    /**
+     * Saves a snapshot of every CSV file in the data directory as a new generation of the
+     * snapshot file, and loads it.
+     *
+     * @throws RuntimeException If an error occurs while reading a CSV file or writing the snapshot.
+     */
+    public void save() {
+        save(csvFiles(), 0);
+    }
+
+    /**
+     * Saves a snapshot of the given CSV files as a new generation of the snapshot file, and loads
+     * it. A file that changes while it is being read is left out.
+     *
+     * @param filepaths The paths to the CSV files.
+     * @throws RuntimeException If an error occurs while reading a CSV file or writing the snapshot.
+     */
+    public void save(List<String> filepaths) {
+        save(filepaths, 0);
+    }
+
+    private List<String> csvFiles() {
+        File[] files = new File(dataDir).listFiles((dir, name) -> name.toLowerCase().endsWith(".csv"));
+        List<String> paths = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                paths.add(new File(dataDir, file.getName()).getPath());
+            }
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    /**
+     * Saves a snapshot of the given CSV files, leaving out any file modified within the last
+     * {@code quietMillis}. File times are only as precise as the file system's clock tick, so a
+     * file still being written to could change again without its time or length changing.
+     */
+    private synchronized void save(List<String> filepaths, long quietMillis) {
+        long started = Metrics.start();
+        try {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(tableBytes);
+            int count = 0;
+            for (String filepath : filepaths) {
+                File csv = new File(filepath);
+                long writes = CSVUtils.writeCount(filepath);
+                long modified = csv.lastModified();
+                long length = csv.length();
+                if (System.currentTimeMillis() - modified < quietMillis) {
+                    continue;
+                }
+                // Taken before the rows, so a change in between makes the table fail its check.
+                int csvCrc = crc(csv);
+                List<String[]> rows = CSVUtils.readCSV(filepath);
+                if (csv.lastModified() != modified || csv.length() != length || CSVUtils.writeCount(filepath) != writes) {
+                    continue;
+                }
+                encodeTable(out, key(filepath), modified, length, csvCrc, rows, dictionary);
+                count++;
+            }
+            out.flush();
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream(tableBytes.size() + 16 * dictionary.size());
+            DataOutputStream bodyOut = new DataOutputStream(body);
+            bodyOut.writeInt(dictionary.size());
+            for (String value : dictionary.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                bodyOut.writeInt(bytes.length);
+                bodyOut.write(bytes);
+            }
+            while (body.size() % 4 != 0) {
+                bodyOut.writeByte(0); // Keep the int columns aligned
+            }
+            bodyOut.writeInt(count);
+            tableBytes.writeTo(bodyOut);
+            bodyOut.flush();
+
+            byte[] content = new byte[HEADER_BYTES + body.size()];
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            CRC32 crc = new CRC32();
+            byte[] bodyBytes = body.toByteArray();
+            crc.update(bodyBytes);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(bodyBytes.length).putInt((int) crc.getValue());
+            buffer.put(bodyBytes);
+            List<Long> generations = generations();
+            long next = generations.isEmpty() ? 1 : generations.get(0) + 1;
+            Path target = generation(next);
+            Path temp = Files.createTempFile(target.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                    file.write(content);
+                    file.getFD().sync();
+                }
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            load();
+            Files.deleteIfExists(path.toAbsolutePath()); // Written by versions that kept a single file
+            for (long generation : generations) {
+                try {
+                    Files.deleteIfExists(generation(generation));
+                } catch (IOException e) {
+                    // Still mapped (on Windows); a later save deletes it.
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing snapshot: " + path + " - " + e.getMessage());
+        } finally {
+            Metrics.getInstance().record("Snapshot.save", started);
+        }
+    }
+
+    /**
+     * Saves the snapshot on a background daemon thread, if the snapshot has been loaded. Requests
+     * made while a save is waiting to start are merged into it. Files modified in the last two
+     * seconds are left out, since they may still be changing.
+     */
+    public void requestSave() {
+        if (!loaded || !savePending.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (saver == null) {
+                saver = Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "snapshot-saver");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+        saver.execute(() -> {
+            savePending.set(false);
+            try {
+                save(csvFiles(), QUIET_MILLIS);
+            } catch (RuntimeException e) {
+                Log.warn("Failed to save snapshot: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void drop(String key) {
+        // Not locked: a drop lost to a concurrent drop or load only means the file is checked again.
+        Map<String, Table> remaining = new HashMap<>(tables);
+        remaining.remove(key);
+        tables = remaining;
+    }
+
+    private static String key(String filepath) {
+        return Paths.get(filepath).normalize().toString();
+    }
+
+    /**
+     * Gets the generations of the snapshot file on disk, newest first.
+     */
+    private List<Long> generations() {
+        Path absolute = path.toAbsolutePath();
+        String prefix = absolute.getFileName().toString() + ".";
+        String[] names = absolute.getParent().toFile().list();
+        List<Long> generations = new ArrayList<>();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(prefix) && name.length() > prefix.length()
+                        && name.substring(prefix.length()).matches("\\d{1,18}")) {
+                    generations.add(Long.parseLong(name.substring(prefix.length())));
+                }
+            }
+        }
+        generations.sort(Collections.reverseOrder());
+        return generations;
+    }
+
+    private Path generation(long generation) {
+        Path absolute = path.toAbsolutePath();
+        return absolute.resolveSibling(absolute.getFileName() + "." + generation);
+    }
+
+    /**
+     * Computes the CRC32 of a whole file.
+     *
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    private static int crc(File csv) {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 << 10];
+        try (FileInputStream in = new FileInputStream(csv)) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                crc.update(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV file: " + csv.getPath() + " - " + e.getMessage());
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes one table. Every value is added to the dictionary unless its column turns out to
+     * hold only integers or dates.
+     */
+    private static void encodeTable(DataOutputStream out, String key, long modified, long length, int csvCrc,
+            List<String[]> rows, Map<String, Integer> dictionary) throws IOException {
+        int columns = 0;
+        for (String[] row : rows) {
+            columns = Math.max(columns, row.length);
+        }
+        byte[] types = new byte[columns];
+        for (int c = 0; c < columns; c++) {
+            types[c] = columnType(rows, c);
+        }
+        out.writeInt(intern(key, dictionary));
+        out.writeLong(modified);
+        out.writeLong(length);
+        out.writeInt(csvCrc);
+        out.writeInt(rows.size());
+        out.writeInt(columns);
+        out.write(types);
+        for (int pad = columns; pad % 4 != 0; pad++) {
+            out.writeByte(0);
+        }
+        for (String[] row : rows) {
+            out.writeInt(row.length);
+        }
+        for (int c = 0; c < columns; c++) {
+            for (String[] row : rows) {
+                if (c >= row.length) {
+                    out.writeInt(0);
+                } else if (types[c] == INT) {
+                    out.writeInt(Integer.parseInt(row[c]));
+                } else if (types[c] == DATE) {
+                    out.writeInt((int) LocalDate.parse(row[c], DATE_FORMAT).toEpochDay());
+                } else {
+                    out.writeInt(intern(row[c], dictionary));
+                }
+            }
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> dictionary) {
+        Integer id = dictionary.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Picks how a column is stored. A column is stored as numbers or dates only if every value
+     * in it is written back exactly as it was read.
+     */
+    private static byte columnType(List<String[]> rows, int column) {
+        boolean ints = true;
+        boolean dates = true;
+        boolean any = false;
+        for (String[] row : rows) {
+            if (column >= row.length) {
+                continue;
+            }
+            String value = row[column];
+            any = true;
+            if (ints && !isPlainInt(value)) {
+                ints = false;
+            }
+            if (dates && !isPlainDate(value)) {
+                dates = false;
+            }
+            if (!ints && !dates) {
+                return STRING;
+            }
+        }
+        return !any ? STRING : ints ? INT : DATE;
+    }
+
+    private static boolean isPlainInt(String value) {
+        try {
+            return Integer.toString(Integer.parseInt(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isPlainDate(String value) {
+        if (value.length() < 9 || value.length() > 10 || value.charAt(value.length() - 5) != '/') {
+            return false;
+        }
+        try {
+            return LocalDate.parse(value, DATE_FORMAT).format(DATE_FORMAT).equals(value);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks the header and CRC32 of a mapped snapshot and indexes its tables. The dictionary is
+     * decoded; the int arrays stay in the mapping.
+     */
+    private static Map<String, Table> decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("not a snapshot file");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("unsupported format version " + buffer.getInt(4));
+        }
+        long bodyLength = buffer.getLong(8);
+        if (bodyLength != buffer.capacity() - HEADER_BYTES) {
+            throw new IllegalStateException("body is " + (buffer.capacity() - HEADER_BYTES) + " bytes, expected " + bodyLength);
+        }
+        ByteBuffer body = buffer.slice(HEADER_BYTES, (int) bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(16)) {
+            throw new IllegalStateException("checksum mismatch");
+        }
+
+        String[] dictionary = new String[body.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[body.getInt()];
+            body.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        body.position((body.position() + 3) & ~3);
+        Map<String, Table> tables = new HashMap<>();
+        int count = body.getInt();
+        for (int t = 0; t < count; t++) {
+            String key = dictionary[body.getInt()];
+            long modified = body.getLong();
+            long length = body.getLong();
+            int csvCrc = body.getInt();
+            int rows = body.getInt();
+            int columns = body.getInt();
+            byte[] types = new byte[columns];
+            body.get(types);
+            body.position((body.position() + 3) & ~3);
+            IntBuffer rowLengths = ints(body, rows);
+            IntBuffer[] columnData = new IntBuffer[columns];
+            for (int c = 0; c < columns; c++) {
+                columnData[c] = ints(body, rows);
+            }
+            tables.put(key, new Table(modified, length, csvCrc, rows, types, rowLengths, columnData, dictionary));
+        }
+        return tables;
+    }
+
+    private static IntBuffer ints(ByteBuffer body, int count) {
+        IntBuffer ints = body.slice(body.position(), count * 4).asIntBuffer();
+        body.position(body.position() + count * 4);
+        return ints;
+    }
+}
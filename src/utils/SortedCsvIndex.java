@@ -0,0 +1,498 @@
+package utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A sparse index over a CSV file whose rows are sorted by one column, for looking up rows by key
+ * without reading the whole file.
+ *
+ * <p>The index records the key and byte offset of every {@value #DEFAULT_STRIDE}th row (the
+ * stride), so its size is a small fraction of the file's. A lookup binary-searches the recorded
+ * keys for the block of rows where the key would start and reads only that block, and the
+ * following ones while they still hold the key, with positional reads. Keys are compared as
+ * trimmed strings; a row without the key column has the empty key.</p>
+ *
+ * <p>The index is kept next to the file in a sidecar ({@code Users.csv} has {@code Users.idx}),
+ * together with the length and modification time of the file it was built from, and is only used
+ * while the file still has them. Building an index reads the file once and checks that it is
+ * sorted; a file that is not sorted gets an index that {@link #isSorted() says so}, and can be
+ * sorted with {@link ExternalSort}. So does a file in a charset where a line break byte can be
+ * part of another character, since offsets of rows cannot then be found.</p>
+ *
+ * @author SC2002Team
+ */
+public class SortedCsvIndex {
+    /** The number of rows between indexed keys when none is given. */
+    public static final int DEFAULT_STRIDE = 64;
+
+    private static final int MAGIC = 0x48444249; // "HDBI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    final private Path path;
+    final private int keyIndex;
+    final private int stride;
+    final private long length;
+    final private long modified;
+    final private boolean sorted;
+    final private String[] keys;
+    final private long[] offsets;
+    final private long rows;
+
+    private SortedCsvIndex(Path path, int keyIndex, int stride, long length, long modified, boolean sorted,
+            String[] keys, long[] offsets, long rows) {
+        this.path = path;
+        this.keyIndex = keyIndex;
+        this.stride = stride;
+        this.length = length;
+        this.modified = modified;
+        this.sorted = sorted;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.rows = rows;
+    }
+
+    /**
+     * Opens the index of a CSV file by the given column, loading it from the sidecar if it is
+     * current and building it otherwise. A built index of a sorted file is saved to the sidecar.
+     *
+     * @param filepath The path to the CSV file.
+     * @param keyIndex The index of the key column.
+     * @return The index; check {@link #isSorted()} before looking up rows.
+     * @throws IllegalArgumentException If the filepath or keyIndex is invalid.
+     * @throws RuntimeException If the file does not exist or an error occurs while reading it.
+     */
+    public static SortedCsvIndex open(String filepath, int keyIndex) {
+        validate(filepath, keyIndex);
+        Path path = Paths.get(filepath);
+        SortedCsvIndex loaded = load(path, keyIndex);
+        if (loaded != null && loaded.isCurrent()) {
+            return loaded;
+        }
+        SortedCsvIndex built = build(filepath, keyIndex, DEFAULT_STRIDE);
+        if (built.isSorted()) {
+            built.save();
+        }
+        return built;
+    }
+
+    /**
+     * Builds the index of a CSV file by reading it once, without saving it.
+     *
+     * @param filepath The path to the CSV file.
+     * @param keyIndex The index of the key column.
+     * @param stride The number of rows between indexed keys.
+     * @return The index; not {@link #isSorted() sorted} if the file is not sorted by the column.
+     * @throws IllegalArgumentException If the filepath, keyIndex or stride is invalid.
+     * @throws RuntimeException If the file does not exist or an error occurs while reading it.
+     */
+    public static SortedCsvIndex build(String filepath, int keyIndex, int stride) {
+        long started = Metrics.start();
+        try {
+            validate(filepath, keyIndex);
+            Path path = Paths.get(filepath);
+            Builder builder = new Builder(path, keyIndex, stride);
+            if (!CSVUtils.isSplittable(CSVUtils.CHARSET)) {
+                builder.markUnsorted(); // Offsets of rows cannot be found by looking for line break bytes
+            }
+            try (InputStream in = Files.newInputStream(path)) {
+                BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+                byte[] buffer = new byte[READ_BUFFER_BYTES];
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                long offset = 0;
+                long lineStart = 0;
+                boolean afterCarriageReturn = false;
+                int read;
+                while ((read = in.read(buffer)) > 0 && builder.isSorted()) {
+                    for (int i = 0; i < read; i++, offset++) {
+                        byte b = buffer[i];
+                        if (b == '\n' && afterCarriageReturn) {
+                            afterCarriageReturn = false;
+                            lineStart = offset + 1; // Second half of "\r\n"
+                        } else if (b == '\n' || b == '\r') {
+                            builder.addLine(line.toString(CSVUtils.CHARSET), lineStart);
+                            line.reset();
+                            afterCarriageReturn = b == '\r';
+                            lineStart = offset + 1;
+                        } else {
+                            line.write(b);
+                            afterCarriageReturn = false;
+                        }
+                    }
+                }
+                if (line.size() > 0 && builder.isSorted()) {
+                    builder.addLine(line.toString(CSVUtils.CHARSET), lineStart); // Last line without a line break
+                }
+                Tracer.countRead(offset, builder.rows);
+                return builder.finish(before.size(), before.lastModifiedTime().toMillis());
+            } catch (NoSuchFileException e) {
+                throw new RuntimeException("Cannot read CSV file: " + filepath + " (file does not exist or is not readable)");
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading CSV file: " + filepath + " - " + e.getMessage());
+            }
+        } finally {
+            Metrics.getInstance().record("SortedCsvIndex.build", started);
+        }
+    }
+
+    /**
+     * Gets the path of the sidecar that holds the index of a CSV file.
+     *
+     * @param filepath The path to the CSV file.
+     * @return The sidecar path.
+     */
+    public static Path sidecar(String filepath) {
+        String name = filepath.substring(0, filepath.length() - ".csv".length());
+        return Paths.get(name + ".idx");
+    }
+
+    /**
+     * Finds every row with the given key, in file order.
+     *
+     * @param key The key to look up; compared trimmed.
+     * @return The rows with the key; empty if there are none.
+     * @throws IllegalArgumentException If the key is null.
+     * @throws IllegalStateException If the file is not sorted.
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    public List<String[]> lookupAll(String key) {
+        long started = Metrics.start();
+        try {
+            if (key == null) {
+                throw new IllegalArgumentException("Invalid key: Cannot be null");
+            }
+            if (!sorted) {
+                throw new IllegalStateException(path + " is not sorted by column " + keyIndex);
+            }
+            String target = key.trim();
+            List<String[]> found = new ArrayList<>();
+            if (keys.length == 0) {
+                return found;
+            }
+            int block = Math.max(0, firstAtLeast(target) - 1);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long bytes = 0;
+                int parsed = 0;
+                for (boolean more = true; more && block < keys.length; block++) {
+                    long from = offsets[block];
+                    long to = block + 1 < keys.length ? offsets[block + 1] : length;
+                    ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(to - from));
+                    while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) >= 0) {
+                        // Positional reads may return fewer bytes than asked for
+                    }
+                    bytes += buffer.position();
+                    for (String[] row : CSVUtils.parseLines(new String(buffer.array(), 0, buffer.position(), CSVUtils.CHARSET))) {
+                        parsed++;
+                        int order = keyOf(row).compareTo(target);
+                        if (order == 0) {
+                            found.add(row);
+                        } else if (order > 0) {
+                            more = false;
+                            break;
+                        }
+                    }
+                }
+                Tracer.countRead(bytes, parsed);
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading CSV file: " + path + " - " + e.getMessage());
+            }
+            return found;
+        } finally {
+            Metrics.getInstance().record("SortedCsvIndex.lookup", started);
+        }
+    }
+
+    /**
+     * Finds the first row with the given key.
+     *
+     * @param key The key to look up; compared trimmed.
+     * @return The row, or null if there is none.
+     * @throws IllegalArgumentException If the key is null.
+     * @throws IllegalStateException If the file is not sorted.
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    public String[] lookup(String key) {
+        List<String[]> found = lookupAll(key);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Gets whether the file still has the length and modification time the index was built from.
+     *
+     * @return True if the index describes the file as it is now.
+     */
+    public boolean isCurrent() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.size() == length && attributes.lastModifiedTime().toMillis() == modified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets whether the file was sorted by the key column when the index was built. An index of a
+     * file that is not sorted holds no keys and cannot look up rows.
+     *
+     * @return True if the file is sorted.
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Gets the index of the key column.
+     *
+     * @return The column index.
+     */
+    public int getKeyIndex() {
+        return keyIndex;
+    }
+
+    /**
+     * Gets the number of keys held in memory.
+     *
+     * @return The number of indexed keys.
+     */
+    public int getEntryCount() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the number of rows in the file when the index was built.
+     *
+     * @return The number of rows.
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Writes the index to the sidecar of its file. The sidecar is replaced atomically.
+     *
+     * @throws IllegalStateException If the file is not sorted.
+     * @throws RuntimeException If an error occurs while writing the sidecar.
+     */
+    public void save() {
+        if (!sorted) {
+            throw new IllegalStateException(path + " is not sorted by column " + keyIndex);
+        }
+        Path target = sidecar(path.toString()).toAbsolutePath();
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeInt(keyIndex);
+            out.writeInt(stride);
+            out.writeLong(length);
+            out.writeLong(modified);
+            out.writeLong(rows);
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                out.writeUTF(keys[i]);
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+            CRC32 crc = new CRC32();
+            crc.update(body.toByteArray());
+
+            Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                        DataOutputStream header = new DataOutputStream(file)) {
+                    header.writeInt(MAGIC);
+                    header.writeInt(FORMAT_VERSION);
+                    header.writeInt((int) crc.getValue());
+                    body.writeTo(header);
+                    header.flush();
+                    file.getFD().sync();
+                }
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing index: " + target + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the sidecar of a CSV file, if there is one.
+     *
+     * @param filepath The path to the CSV file.
+     */
+    public static void delete(String filepath) {
+        try {
+            Files.deleteIfExists(sidecar(filepath));
+        } catch (IOException e) {
+            Log.warn("Could not delete index {}: {}", sidecar(filepath), e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path + " by column " + keyIndex + ": " + (sorted ? keys.length + " keys for " + rows + " rows" : "not sorted");
+    }
+
+    /**
+     * Reads the sidecar of a file, returning null if there is none or it cannot be used.
+     */
+    private static SortedCsvIndex load(Path path, int keyIndex) {
+        Path sidecar = sidecar(path.toString());
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IllegalStateException("not an index file");
+            }
+            int checksum = in.readInt();
+            byte[] body = in.readAllBytes();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                throw new IllegalStateException("checksum mismatch");
+            }
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(body));
+            int indexedColumn = fields.readInt();
+            if (indexedColumn != keyIndex) {
+                return null; // Indexed by another column; rebuilt by this one
+            }
+            int stride = fields.readInt();
+            long length = fields.readLong();
+            long modified = fields.readLong();
+            long rows = fields.readLong();
+            String[] keys = new String[fields.readInt()];
+            long[] offsets = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = fields.readUTF();
+                offsets[i] = fields.readLong();
+            }
+            return new SortedCsvIndex(path, keyIndex, stride, length, modified, true, keys, offsets, rows);
+        } catch (IOException | IllegalStateException e) {
+            Log.warn("Ignoring index {}: {}", sidecar, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Finds the first indexed key that is not less than the target, or the number of keys if
+     * every key is less.
+     */
+    private int firstAtLeast(String target) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(target) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private String keyOf(String[] row) {
+        return row.length > keyIndex ? row[keyIndex].trim() : "";
+    }
+
+    private static String keyOf(String line, int keyIndex) {
+        String[] row = CSVUtils.splitLine(line);
+        return row.length > keyIndex ? row[keyIndex].trim() : "";
+    }
+
+    private static void validate(String filepath, int keyIndex) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid filepath: Cannot be null or empty");
+        }
+        if (!filepath.toLowerCase().endsWith(".csv")) {
+            throw new IllegalArgumentException("Invalid filepath: Must be a .csv file");
+        }
+        if (keyIndex < 0) {
+            throw new IllegalArgumentException("Invalid keyIndex: Must be non-negative");
+        }
+    }
+
+    /**
+     * Collects the keys and offsets of rows given in file order, checking that they are sorted.
+     */
+    static class Builder {
+        final private Path path;
+        final private int keyIndex;
+        final private int stride;
+        final private List<String> keys = new ArrayList<>();
+        private long[] offsets = new long[16];
+        private String previous;
+        private boolean sorted = true;
+        private long rows;
+
+        Builder(Path path, int keyIndex, int stride) {
+            if (stride < 1) {
+                throw new IllegalArgumentException("Invalid stride: Must be positive");
+            }
+            this.path = path;
+            this.keyIndex = keyIndex;
+            this.stride = stride;
+        }
+
+        /**
+         * Adds the next row's key and the offset of its first byte.
+         */
+        void add(String key, long offset) {
+            if (previous != null && key.compareTo(previous) < 0) {
+                sorted = false;
+                return;
+            }
+            if (rows % stride == 0) {
+                if (keys.size() == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[keys.size()] = offset;
+                keys.add(key);
+            }
+            previous = key;
+            rows++;
+        }
+
+        /**
+         * Adds the next row of a file, given as its line, and the offset of its first byte.
+         */
+        void addLine(String line, long offset) {
+            add(keyOf(line, keyIndex), offset);
+        }
+
+        boolean isSorted() {
+            return sorted;
+        }
+
+        void markUnsorted() {
+            sorted = false;
+        }
+
+        SortedCsvIndex finish(long length, long modified) {
+            if (!sorted) {
+                return new SortedCsvIndex(path, keyIndex, stride, length, modified, false, new String[0], new long[0], rows);
+            }
+            return new SortedCsvIndex(path, keyIndex, stride, length, modified, true, keys.toArray(new String[0]),
+                    Arrays.copyOf(offsets, keys.size()), rows);
+        }
+    }
+}
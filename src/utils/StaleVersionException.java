@@ -0,0 +1,57 @@
+package utils;
+
+/**
+ * Thrown when a write is based on a row that someone else changed after it was read. Nothing is
+ * written; the caller should read the row again and retry (see {@link RowVersions#retry}).
+ *
+ * @author SC2002Team
+ */
+public class StaleVersionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    final private String key;
+    final private long expected;
+    final private long actual;
+
+    /**
+     * Constructs a StaleVersionException for a row.
+     *
+     * @param key The key of the row.
+     * @param expected The version of the row when it was read.
+     * @param actual The version of the row now.
+     */
+    public StaleVersionException(String key, long expected, long actual) {
+        super("Record " + key + " was changed by someone else (version " + expected + ", now " + actual
+                + "). Reload it and try again.");
+        this.key = key;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    /**
+     * Gets the key of the row.
+     *
+     * @return The row key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the version of the row when it was read.
+     *
+     * @return The expected version.
+     */
+    public long getExpected() {
+        return expected;
+    }
+
+    /**
+     * Gets the version of the row when the write was attempted.
+     *
+     * @return The current version.
+     */
+    public long getActual() {
+        return actual;
+    }
+}
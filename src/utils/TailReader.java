@@ -0,0 +1,266 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Follows a CSV file that grows by appends, returning only the rows added since it was last
+ * polled, so that an in-memory copy of the file can be kept up to date without parsing the whole
+ * file again.
+ *
+ * <p>The reader remembers how far it has read, the identity of the file (so that a file replaced
+ * by an atomic rewrite is noticed), its modification time, how many times this process had
+ * written it ({@link CSVUtils#writeCount(String)}, since a rewrite of the same length within one
+ * clock tick can leave the identity and time unchanged), and a checksum of the last bytes read.
+ * When the file has only grown since then, the new bytes are read and parsed. When it is
+ * replaced, shrinks, changes without growing, or no longer ends with the bytes read, the whole
+ * file is read again and the batch is marked as a reset. A last line that had no line break when
+ * it was read also causes a reset if the file grows, since that row may have been extended. Rows
+ * are split exactly as {@link CSVUtils#readCSV(String)} splits them, reading a bounded chunk of
+ * the file at a time.</p>
+ *
+ * @author SC2002Team
+ */
+public class TailReader {
+    private static final int FINGERPRINT_BYTES = 64;
+    private static final int CHUNK_BYTES = 8 << 20;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The rows read by one {@link #poll()}.
+     */
+    public static class Batch {
+        final private boolean reset;
+        final private List<String[]> rows;
+
+        Batch(boolean reset, List<String[]> rows) {
+            this.reset = reset;
+            this.rows = rows;
+        }
+
+        /**
+         * Gets whether the file was read from the start, so that the rows replace everything read
+         * before rather than following it.
+         *
+         * @return True if the rows are the whole file.
+         */
+        public boolean isReset() {
+            return reset;
+        }
+
+        /**
+         * Gets the rows read, in file order.
+         *
+         * @return The rows.
+         */
+        public List<String[]> getRows() {
+            return rows;
+        }
+    }
+
+    final private Path path;
+    private Object fileKey;
+    private long modified;
+    private long writes;
+    private long offset = -1;
+    private long fingerprint;
+    private boolean openLine;
+    private boolean pendingLineFeed;
+
+    /**
+     * Constructs a TailReader for the specified file. Nothing is read until {@link #poll()}.
+     *
+     * @param filepath The path to the CSV file.
+     * @throws IllegalArgumentException If the filepath is empty.
+     */
+    public TailReader(String filepath) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid filepath: Cannot be null or empty");
+        }
+        this.path = Paths.get(filepath);
+    }
+
+    /**
+     * Reads the rows appended to the file since the last poll, or the whole file if it was
+     * rewritten or has not been read yet.
+     *
+     * @return The rows read; empty if the file is unchanged.
+     * @throws RuntimeException If the file does not exist or an error occurs while reading it.
+     */
+    public synchronized Batch poll() {
+        long started = Metrics.start();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                long writeCount = CSVUtils.writeCount(path.toString());
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+                    long length = channel.size();
+                    boolean grown = offset >= 0 && length > offset;
+                    boolean unchanged = offset >= 0 && length == offset && sameFile(before)
+                            && before.lastModifiedTime().toMillis() == modified && writeCount == writes;
+                    if (unchanged) {
+                        return new Batch(false, Collections.emptyList());
+                    }
+                    boolean reset = !grown || openLine || !sameFile(before) || !CSVUtils.isSplittable(CSVUtils.CHARSET)
+                            || fingerprint(channel, offset) != fingerprint;
+                    long from = reset ? 0 : offset;
+                    List<String[]> rows = read(channel, from, length, !reset && pendingLineFeed);
+                    BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (!Objects.equals(before.fileKey(), after.fileKey()) && attempt < MAX_ATTEMPTS) {
+                        continue; // Replaced while being read; read the new file
+                    }
+                    fileKey = after.fileKey();
+                    modified = after.lastModifiedTime().toMillis();
+                    writes = writeCount;
+                    offset = length;
+                    fingerprint = fingerprint(channel, length);
+                    Tracer.countRead(length - from, rows.size());
+                    return new Batch(reset, rows);
+                } catch (NoSuchFileException e) {
+                    throw new RuntimeException("Cannot read CSV file: " + path + " (file does not exist or is not readable)");
+                } catch (IOException e) {
+                    throw new RuntimeException("Error reading CSV file: " + path + " - " + e.getMessage());
+                }
+            }
+        } finally {
+            Metrics.getInstance().record("TailReader.poll", started);
+        }
+    }
+
+    /**
+     * Treats the file as read up to its current end without reading it, for an owner that has
+     * just written the file and already holds its rows in memory.
+     *
+     * @throws RuntimeException If an error occurs while reading the file.
+     */
+    public synchronized void skipToEnd() {
+        long writeCount = CSVUtils.writeCount(path.toString());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long length = channel.size();
+            fileKey = attributes.fileKey();
+            modified = attributes.lastModifiedTime().toMillis();
+            writes = writeCount;
+            offset = length;
+            fingerprint = fingerprint(channel, length);
+            ByteBuffer last = ByteBuffer.allocate(1);
+            if (length > 0) {
+                channel.read(last, length - 1);
+            }
+            byte b = length > 0 ? last.get(0) : (byte) '\n';
+            openLine = b != '\n' && b != '\r';
+            pendingLineFeed = b == '\r';
+        } catch (NoSuchFileException e) {
+            offset = -1;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV file: " + path + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets what has been read, so that the next poll reads the whole file.
+     */
+    public synchronized void reset() {
+        offset = -1;
+    }
+
+    /**
+     * Gets how far the file has been read.
+     *
+     * @return The offset in bytes, or -1 if the file has not been read.
+     */
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    private boolean sameFile(BasicFileAttributes attributes) {
+        return Objects.equals(fileKey, attributes.fileKey());
+    }
+
+    /**
+     * Reads and splits the bytes between two positions, noting whether the last line was ended.
+     * The bytes are read in chunks of at most {@value #CHUNK_BYTES} bytes, each split up to its
+     * last line break, so that only one chunk is held at a time however large the range is.
+     */
+    private List<String[]> read(FileChannel channel, long from, long to, boolean skipLineFeed) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        byte[] chunk = new byte[(int) Math.min(CHUNK_BYTES, Math.max(0, to - from))];
+        int held = 0; // Bytes of an unfinished line carried over from the previous chunk
+        long position = from;
+        boolean skip = skipLineFeed;
+        byte last = '\n';
+        boolean splittable = CSVUtils.isSplittable(CSVUtils.CHARSET); // Otherwise a line break byte may be part of a character
+        while (position < to) {
+            if (held == chunk.length) {
+                chunk = Arrays.copyOf(chunk, (int) Math.min(2L * chunk.length, Integer.MAX_VALUE - 8)); // A line longer than a chunk
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, held, (int) Math.min(chunk.length - held, to - position));
+            boolean ended = false;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    ended = true;
+                    break;
+                }
+                position += read;
+            }
+            int filled = buffer.position();
+            if (filled == 0) {
+                break;
+            }
+            last = chunk[filled - 1];
+            boolean done = ended || position >= to;
+            int cut = done ? filled : splittable ? lastLineBreak(chunk, filled) + 1 : 0;
+            if (cut > 0) {
+                int start = skip && chunk[0] == '\n' ? 1 : 0; // Completes a "\r\n" split across reads
+                rows.addAll(CSVUtils.parseLines(new String(chunk, start, cut - start, CSVUtils.CHARSET)));
+                skip = chunk[cut - 1] == '\r';
+                System.arraycopy(chunk, cut, chunk, 0, filled - cut);
+                held = filled - cut;
+            } else {
+                held = filled;
+            }
+            if (done) {
+                break;
+            }
+        }
+        openLine = last != '\n' && last != '\r';
+        pendingLineFeed = last == '\r';
+        return rows;
+    }
+
+    private static int lastLineBreak(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n' || bytes[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long fingerprint(FileChannel channel, long end) throws IOException {
+        long from = Math.max(0, end - FINGERPRINT_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - from));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                break;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        return crc.getValue();
+    }
+}
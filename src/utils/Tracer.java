@@ -0,0 +1,301 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Traces what each user action costs as a call tree of spans. Every operation timed through
+ * {@link Metrics} becomes a span, so a trace shows each controller method, the model methods it
+ * calls and the CSV reads and writes they make. Each span counts the files opened, bytes read
+ * and written, rows parsed and wall time spent inside it, including everything it calls.
+ *
+ * <p>Calls to the same operation under the same parent are merged into one node with a call
+ * count, so an action that reads the same file once per project shows up as, for example,
+ * {@code CSVUtils.readCSV x17}, which makes repeated reads easy to spot.</p>
+ *
+ * <p>Tracing is off by default and costs one volatile read per operation while off. It is turned
+ * on with the system property {@code -Dhdb.trace=text} or {@code -Dhdb.trace=json}, or with
+ * {@link #enable(String, String)}. A trace is exported when an outermost operation whose name
+ * matches {@value #DEFAULT_ROOTS} (by default, a controller method) finishes; it is appended to
+ * {@value #DEFAULT_TRACE_FILE}, or the file named by {@code -Dhdb.trace.file}, as an indented text
+ * tree or as one JSON object per line. Operations outside a traced action, such as background
+ * expiry, are not exported.</p>
+ *
+ * @author SC2002Team
+ */
+public class Tracer {
+    /** The file traces are appended to by default. */
+    public static final String DEFAULT_TRACE_FILE = "data/Trace.log";
+    /** The names of the operations that start a trace by default. */
+    public static final String DEFAULT_ROOTS = ".*Controller\\..*";
+
+    private static volatile boolean enabled;
+    private static volatile boolean json;
+    private static volatile String traceFile = DEFAULT_TRACE_FILE;
+    private static volatile Pattern roots = Pattern.compile(DEFAULT_ROOTS);
+    private static volatile int generation;
+    private static final ThreadLocal<Deque<Span>> STACK = ThreadLocal.withInitial(ArrayDeque::new);
+
+    static {
+        String format = System.getProperty("hdb.trace");
+        if (format != null && !format.trim().isEmpty() && !format.equalsIgnoreCase("off")) {
+            enable(format.equalsIgnoreCase("json") ? "json" : "text",
+                    System.getProperty("hdb.trace.file", DEFAULT_TRACE_FILE));
+        }
+    }
+
+    /**
+     * One node of a trace: an operation, or several calls to it under the same parent.
+     */
+    private static class Span {
+        final private long started;
+        final private int generation;
+        final private Map<String, Span> children = new LinkedHashMap<>();
+        private String name;
+        private long calls;
+        private long nanos;
+        private long opens;
+        private long bytesRead;
+        private long bytesWritten;
+        private long rows;
+
+        Span(long started, int generation) {
+            this.started = started;
+            this.generation = generation;
+        }
+
+        void absorb(Span other) {
+            calls += other.calls;
+            nanos += other.nanos;
+            opens += other.opens;
+            bytesRead += other.bytesRead;
+            bytesWritten += other.bytesWritten;
+            rows += other.rows;
+            for (Span child : other.children.values()) {
+                addChild(child);
+            }
+        }
+
+        void addChild(Span child) {
+            Span existing = children.get(child.name);
+            if (existing == null) {
+                children.put(child.name, child);
+            } else {
+                existing.absorb(child);
+            }
+        }
+
+        void appendText(StringBuilder sb, int depth) {
+            for (int i = 0; i < depth; i++) {
+                sb.append("  ");
+            }
+            sb.append(name);
+            if (calls > 1) {
+                sb.append(" x").append(calls);
+            }
+            sb.append(String.format(" %.3f ms opens=%d read=%s written=%s rows=%d", nanos / 1e6, opens,
+                    formatBytes(bytesRead), formatBytes(bytesWritten), rows));
+            sb.append(System.lineSeparator());
+            for (Span child : children.values()) {
+                child.appendText(sb, depth + 1);
+            }
+        }
+
+        void appendJson(StringBuilder sb) {
+            sb.append("{\"name\":\"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append('"')
+                    .append(",\"calls\":").append(calls)
+                    .append(",\"ms\":").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6))
+                    .append(",\"opens\":").append(opens)
+                    .append(",\"bytesRead\":").append(bytesRead)
+                    .append(",\"bytesWritten\":").append(bytesWritten)
+                    .append(",\"rows\":").append(rows);
+            if (!children.isEmpty()) {
+                sb.append(",\"children\":[");
+                boolean first = true;
+                for (Span child : children.values()) {
+                    if (!first) {
+                        sb.append(',');
+                    }
+                    child.appendJson(sb);
+                    first = false;
+                }
+                sb.append(']');
+            }
+            sb.append('}');
+        }
+    }
+
+    private Tracer() {
+    }
+
+    /**
+     * Turns tracing on.
+     *
+     * @param format "text" for an indented tree per trace, or "json" for one JSON object per line.
+     * @param filepath The file traces are appended to.
+     * @throws IllegalArgumentException If the format is unknown or the filepath is empty.
+     */
+    public static synchronized void enable(String format, String filepath) {
+        if (!"text".equalsIgnoreCase(format) && !"json".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Trace format must be 'text' or 'json'.");
+        }
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Trace filepath cannot be empty.");
+        }
+        json = "json".equalsIgnoreCase(format);
+        traceFile = filepath;
+        generation++;
+        enabled = true;
+    }
+
+    /**
+     * Turns tracing off. Traces in progress are discarded.
+     */
+    public static synchronized void disable() {
+        enabled = false;
+        generation++;
+    }
+
+    /**
+     * Checks whether tracing is on.
+     *
+     * @return True if tracing is on.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets which operations start a trace when called outside any other operation.
+     *
+     * @param regex A regular expression matched against the whole operation name.
+     * @throws IllegalArgumentException If the expression is empty or invalid.
+     */
+    public static void setRoots(String regex) {
+        if (regex == null || regex.trim().isEmpty()) {
+            throw new IllegalArgumentException("Root pattern cannot be empty.");
+        }
+        roots = Pattern.compile(regex);
+    }
+
+    /**
+     * Opens a span on the current thread for an operation that started at the given time. Called
+     * by {@link Metrics#start()}.
+     *
+     * @param started The start time of the operation.
+     */
+    static void enter(long started) {
+        if (!enabled) {
+            return;
+        }
+        Deque<Span> stack = STACK.get();
+        int current = generation;
+        if (!stack.isEmpty() && stack.peekLast().generation != current) {
+            stack.clear(); // Left over from before tracing was turned off
+        }
+        stack.push(new Span(started, current));
+    }
+
+    /**
+     * Closes the span of an operation that has finished, merging it into its parent or exporting
+     * it if it is the outermost. Called by {@link Metrics#record(String, long)}.
+     *
+     * @param operation The name of the operation.
+     * @param started The start time the span was opened with.
+     * @param nanos The wall time of the operation.
+     */
+    static void exit(String operation, long started, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        Deque<Span> stack = STACK.get();
+        Span span = null;
+        while (!stack.isEmpty()) {
+            Span top = stack.pop();
+            if (top.started == started) {
+                span = top;
+                break;
+            }
+        }
+        if (span == null) {
+            return; // Opened before tracing was turned on
+        }
+        span.name = operation;
+        span.calls = 1;
+        span.nanos = nanos;
+        if (!stack.isEmpty()) {
+            stack.peek().addChild(span);
+        } else if (span.generation == generation && roots.matcher(operation).matches()) {
+            export(span);
+        }
+    }
+
+    /**
+     * Counts a file read by the current operation and every operation it is part of.
+     *
+     * @param bytes The number of bytes read.
+     * @param rows The number of rows parsed.
+     */
+    public static void countRead(long bytes, long rows) {
+        if (!enabled) {
+            return;
+        }
+        for (Span span : STACK.get()) {
+            span.opens++;
+            span.bytesRead += bytes;
+            span.rows += rows;
+        }
+    }
+
+    /**
+     * Counts a file written by the current operation and every operation it is part of.
+     *
+     * @param bytes The number of bytes written.
+     */
+    public static void countWrite(long bytes) {
+        if (!enabled) {
+            return;
+        }
+        for (Span span : STACK.get()) {
+            span.opens++;
+            span.bytesWritten += bytes;
+        }
+    }
+
+    private static synchronized void export(Span root) {
+        StringBuilder sb = new StringBuilder();
+        if (json) {
+            root.appendJson(sb);
+            sb.append(System.lineSeparator());
+        } else {
+            sb.append("trace ").append(new Date()).append(System.lineSeparator());
+            root.appendText(sb, 1);
+        }
+        Path path = Paths.get(traceFile);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to write trace to " + traceFile + ": " + e.getMessage());
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,204 @@
+package utils;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * A unit of work that replaces the content of several CSV files, or appends rows to them,
+ * together. Rows are staged or appended per file and nothing is written until {@link #commit()},
+ * which records every change in one journal record before writing any file (see
+ * {@link TransactionManager}). Either all files end up with their new rows or, if the system
+ * stops before the commit record is durable, none do.
+ *
+ * <p>Tables staged through {@link RowVersions} are locked while the transaction commits, in a
+ * fixed order, and their rows are checked for conflicting writes before anything is recorded.</p>
+ *
+ * <p>A transaction is used once: after it is committed or rolled back, further calls fail.</p>
+ *
+ * @author SC2002Team
+ */
+public class Transaction {
+    final private TransactionManager manager;
+    final private Map<String, String> paths = new LinkedHashMap<>();
+    final private Map<String, List<String[]>> staged = new LinkedHashMap<>();
+    final private Map<String, List<String[]>> appended = new LinkedHashMap<>();
+    final private List<RowVersions> versioned = new ArrayList<>();
+    private boolean finished = false;
+
+    /**
+     * Constructs a transaction that commits through the given manager.
+     *
+     * @param manager The transaction manager.
+     */
+    Transaction(TransactionManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Stages the full new content of a CSV file, replacing anything staged for it before. The rows
+     * are encoded when the transaction commits, so later changes to them are included.
+     *
+     * @param filepath The path to the CSV file.
+     * @param rows The rows the file should contain.
+     * @return This transaction.
+     * @throws IllegalArgumentException If the filepath is empty or the rows are null.
+     * @throws IllegalStateException If the transaction has already finished, or rows are appended
+     *                               to the file in it.
+     */
+    public Transaction stage(String filepath, List<String[]> rows) {
+        requireOpen();
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid filepath: Cannot be null or empty");
+        }
+        if (rows == null) {
+            throw new IllegalArgumentException("Invalid data: Cannot be null");
+        }
+        if (appended.containsKey(key(filepath))) {
+            throw new IllegalStateException("Cannot replace a file that rows are appended to: " + filepath);
+        }
+        put(filepath, rows);
+        return this;
+    }
+
+    /**
+     * Appends rows to the end of a CSV file, after any appended to it before in this transaction.
+     * Only the appended rows are journaled, so this is cheaper than staging the whole file.
+     *
+     * @param filepath The path to the CSV file.
+     * @param rows The rows to append.
+     * @return This transaction.
+     * @throws IllegalArgumentException If the filepath is empty or the rows are null.
+     * @throws IllegalStateException If the transaction has already finished, or new content is
+     *                               staged for the file in it.
+     */
+    public Transaction append(String filepath, List<String[]> rows) {
+        requireOpen();
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid filepath: Cannot be null or empty");
+        }
+        if (rows == null) {
+            throw new IllegalArgumentException("Invalid data: Cannot be null");
+        }
+        String key = key(filepath);
+        if (staged.containsKey(key)) {
+            throw new IllegalStateException("Cannot append to a file staged for replacement: " + filepath);
+        }
+        paths.put(key, filepath);
+        appended.computeIfAbsent(key, k -> new ArrayList<>()).addAll(rows);
+        return this;
+    }
+
+    /**
+     * Stages the content of a file without checking whether the transaction is open. Used to add
+     * row versions while the transaction commits.
+     *
+     * @param filepath The path to the CSV file.
+     * @param rows The rows the file should contain.
+     */
+    void put(String filepath, List<String[]> rows) {
+        String key = key(filepath);
+        paths.put(key, filepath);
+        staged.put(key, rows);
+    }
+
+    /**
+     * Checks whether a file has been staged in this transaction.
+     *
+     * @param filepath The path to the CSV file.
+     * @return True if new content is staged for the file.
+     */
+    public boolean isStaged(String filepath) {
+        return filepath != null && staged.containsKey(key(filepath));
+    }
+
+    /**
+     * Gets the rows staged for a file.
+     *
+     * @param filepath The path to the CSV file.
+     * @return The staged rows, or null if nothing is staged for the file.
+     */
+    List<String[]> getStaged(String filepath) {
+        return staged.get(key(filepath));
+    }
+
+    /**
+     * Adds a versioned table to be checked and locked when the transaction commits.
+     *
+     * @param versions The row versions of the table.
+     */
+    void enlist(RowVersions versions) {
+        requireOpen();
+        if (!versioned.contains(versions)) {
+            versioned.add(versions);
+        }
+    }
+
+    /**
+     * Writes every staged file and appended row as one atomic change. Committing with nothing
+     * staged or appended does nothing.
+     *
+     * @throws IllegalStateException If the transaction has already finished.
+     * @throws StaleVersionException If a versioned row was changed by someone else since it was
+     *                               read; nothing is written.
+     * @throws CommittedNotAppliedException If the change was recorded but a file could not be
+     *                                      written. The transaction is committed and is completed
+     *                                      on recovery; the caller must not undo its own changes.
+     * @throws RuntimeException If the change could not be recorded.
+     */
+    public void commit() {
+        requireOpen();
+        finished = true;
+        if (staged.isEmpty() && appended.isEmpty()) {
+            return;
+        }
+        versioned.sort(Comparator.comparing(RowVersions::lockOrder));
+        List<RowVersions> locked = new ArrayList<>(versioned.size());
+        try {
+            for (RowVersions versions : versioned) {
+                versions.lock();
+                locked.add(versions);
+                versions.prepare(this);
+            }
+            Map<String, List<String[]>> files = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String[]>> entry : staged.entrySet()) {
+                files.put(paths.get(entry.getKey()), entry.getValue());
+            }
+            Map<String, List<String[]>> appends = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String[]>> entry : appended.entrySet()) {
+                appends.put(paths.get(entry.getKey()), entry.getValue());
+            }
+            manager.commit(files, appends);
+            for (RowVersions versions : locked) {
+                versions.committed();
+            }
+        } finally {
+            for (RowVersions versions : locked) {
+                versions.unlock();
+            }
+        }
+    }
+
+    /**
+     * Discards everything staged. No file is changed.
+     *
+     * @throws IllegalStateException If the transaction has already finished.
+     */
+    public void rollback() {
+        requireOpen();
+        finished = true;
+        staged.clear();
+        appended.clear();
+        paths.clear();
+        versioned.clear();
+    }
+
+    private static String key(String filepath) {
+        return Paths.get(filepath).toAbsolutePath().normalize().toString();
+    }
+
+    private void requireOpen() {
+        if (finished) {
+            throw new IllegalStateException("Transaction has already been committed or rolled back.");
+        }
+    }
+}
@@ -0,0 +1,569 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Commits {@link Transaction}s that change several CSV files together, using a write-ahead
+ * journal.
+ *
+ * <p>A commit encodes every staged file and appends one record to the journal. The record holds
+ * only what changed. For a file whose content is replaced, it holds the rows that differ from the
+ * current content, as byte ranges of the old file and their new bytes, with checksums of the old
+ * and new content. For rows appended to a file, it holds the appended bytes, the length of the
+ * file before them and a checksum of its last bytes. The record is synced to disk, which is the
+ * commit point and the only sync on the commit path. Replaced files are then replaced atomically
+ * and appended rows are written to the end of their file, without a sync of their own. Files
+ * written since the last checkpoint are synced together once the journal grows past
+ * {@value #CHECKPOINT_BYTES} bytes, after which the journal is emptied.</p>
+ *
+ * <p>On recovery, each record is replayed in order. A replaced file whose content still matches
+ * the record's old checksum has the changed rows applied to it. Appended rows are written again
+ * if the file still ends where it ended before them, after cutting off anything partly written.
+ * A file that already has the new content, or was changed again afterwards, is left alone, so
+ * replaying is idempotent. A record cut short by a crash was never committed and is discarded.
+ * Recovery runs before the first commit in each process, and can be run at start-up with
+ * {@link #recover()}. Records written by earlier versions, which hold whole files, are replayed
+ * too.</p>
+ *
+ * @author SC2002Team
+ */
+public class TransactionManager {
+    /** Path of the system's transaction journal. */
+    public static final String JOURNAL_FILE = "data/Transactions.journal";
+
+    private static final int MAGIC_IMAGES = 0x54584E31; // "TXN1": whole file images
+    private static final int MAGIC = 0x54584E32; // "TXN2": changed and appended rows
+    private static final int HEADER_BYTES = 12;
+    private static final long CHECKPOINT_BYTES = 1L << 20;
+    private static final long MISSING = -1;
+    private static final int FINGERPRINT_BYTES = 64;
+    private static final byte REPLACE = 0;
+    private static final byte APPEND = 1;
+
+    private static TransactionManager instance;
+
+    /**
+     * A run of bytes of the old content of a file replaced by new bytes.
+     */
+    private static class Splice {
+        final private long offset;
+        final private long length;
+        final private byte[] bytes;
+
+        /**
+         * @param offset Where the run starts in the old content.
+         * @param length The length of the run, or -1 for the rest of the old content.
+         * @param bytes The new bytes.
+         */
+        Splice(long offset, long length, byte[] bytes) {
+            this.offset = offset;
+            this.length = length;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A file change, as recorded in the journal.
+     */
+    private static class FileChange {
+        final private String path;
+        final private byte kind;
+        final private long oldCrc;
+        final private long newCrc;
+        final private long oldLength;
+        final private List<Splice> splices;
+        final private byte[] content;
+
+        private FileChange(String path, byte kind, long oldCrc, long newCrc, long oldLength, List<Splice> splices,
+                byte[] content) {
+            this.path = path;
+            this.kind = kind;
+            this.oldCrc = oldCrc;
+            this.newCrc = newCrc;
+            this.oldLength = oldLength;
+            this.splices = splices;
+            this.content = content;
+        }
+
+        /**
+         * A replaced file. The content is the whole new content while committing, and null when
+         * read back from the journal.
+         */
+        static FileChange replace(String path, long oldCrc, long newCrc, List<Splice> splices, byte[] content) {
+            return new FileChange(path, REPLACE, oldCrc, newCrc, MISSING, splices, content);
+        }
+
+        /**
+         * Rows appended to a file. The old checksum is that of the last bytes before them.
+         */
+        static FileChange append(String path, long oldLength, long fingerprint, byte[] appended) {
+            return new FileChange(path, APPEND, fingerprint, MISSING, oldLength, null, appended);
+        }
+    }
+
+    final private Path journal;
+    final private Set<String> unsynced = new LinkedHashSet<>();
+    private FileChannel channel;
+    private boolean recovered = false;
+    private long nextId = 1;
+
+    /**
+     * Constructs a TransactionManager that keeps its journal in the specified file.
+     *
+     * @param journalPath The path to the journal file.
+     * @throws IllegalArgumentException If the path is empty.
+     */
+    public TransactionManager(String journalPath) {
+        if (journalPath == null || journalPath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Journal filepath cannot be empty.");
+        }
+        this.journal = Paths.get(journalPath);
+    }
+
+    /**
+     * Gets the system's transaction manager.
+     *
+     * @return The shared TransactionManager.
+     */
+    public static synchronized TransactionManager getInstance() {
+        if (instance == null) {
+            instance = new TransactionManager(JOURNAL_FILE);
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a new unit of work.
+     *
+     * @return An empty transaction.
+     */
+    public Transaction begin() {
+        return new Transaction(this);
+    }
+
+    /**
+     * Rolls forward every committed change in the journal that did not reach its files, syncs
+     * the files and empties the journal.
+     *
+     * @return The number of files rolled forward.
+     * @throws RuntimeException If an error occurs while reading the journal or writing a file.
+     */
+    public synchronized int recover() {
+        int rolledForward = 0;
+        try {
+            open();
+            for (List<FileChange> record : readRecords()) {
+                for (FileChange change : record) {
+                    unsynced.add(change.path);
+                    if (change.kind == APPEND ? replayAppend(change) : replayReplace(change)) {
+                        rolledForward++;
+                    }
+                }
+            }
+            checkpoint();
+        } catch (IOException e) {
+            throw new RuntimeException("Error recovering transaction journal: " + e.getMessage());
+        }
+        recovered = true;
+        if (rolledForward > 0) {
+            System.out.println("Recovered " + rolledForward + " file(s) from the transaction journal.");
+        }
+        return rolledForward;
+    }
+
+    /**
+     * Commits new content for several files and rows appended to others as one change.
+     *
+     * @param files The new rows of each replaced file, by path.
+     * @param appends The rows appended to each file, by path.
+     * @throws CommittedNotAppliedException If the change was recorded but a file could not be
+     *                                      written; it is completed on recovery.
+     * @throws RuntimeException If the change could not be recorded.
+     */
+    synchronized void commit(Map<String, List<String[]>> files, Map<String, List<String[]>> appends) {
+        if (!recovered) {
+            recover();
+        }
+        List<FileChange> changes = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(0); // Body length, filled in below
+            out.writeInt(0); // Body checksum, filled in below
+            out.writeLong(nextId);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(files.size() + appends.size());
+            for (Map.Entry<String, List<String[]>> entry : files.entrySet()) {
+                FileChange change = replacement(entry.getKey(), CSVUtils.toCSVBytes(entry.getValue()));
+                changes.add(change);
+                encode(out, change);
+            }
+            for (Map.Entry<String, List<String[]>> entry : appends.entrySet()) {
+                FileChange change = appended(entry.getKey(), CSVUtils.toCSVAppendBytes(entry.getValue()));
+                changes.add(change);
+                encode(out, change);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error encoding transaction: " + e.getMessage());
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int bodyLength = record.capacity() - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, bodyLength);
+        record.putInt(4, bodyLength);
+        record.putInt(8, (int) crc.getValue());
+
+        long start = -1;
+        try {
+            open();
+            start = channel.size();
+            channel.position(start);
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+            Tracer.countWrite(record.limit());
+        } catch (IOException e) {
+            try {
+                if (start >= 0) {
+                    channel.truncate(start);
+                }
+            } catch (IOException ignored) {
+                // A torn record is discarded on recovery.
+            }
+            throw new RuntimeException("Error writing transaction journal: " + e.getMessage());
+        }
+        nextId++;
+
+        try {
+            for (FileChange change : changes) {
+                if (change.kind == APPEND) {
+                    CSVUtils.appendToFile(change.path, change.content);
+                } else {
+                    CSVUtils.replaceFile(change.path, change.content, false);
+                }
+                unsynced.add(change.path);
+            }
+        } catch (RuntimeException e) {
+            // The change is committed; replay it before the next transaction.
+            recovered = false;
+            throw new CommittedNotAppliedException(e.getMessage());
+        }
+        try {
+            if (channel.size() >= CHECKPOINT_BYTES) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: Transaction journal checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Describes the replacement of a file's content by the rows that differ from its current
+     * content. When both have the same number of lines, each changed line is recorded on its own;
+     * otherwise the bytes between the longest common prefix and suffix are.
+     */
+    private static FileChange replacement(String path, byte[] content) throws IOException {
+        Path file = Paths.get(path);
+        if (!Files.exists(file)) {
+            List<Splice> whole = Collections.singletonList(new Splice(0, MISSING, content));
+            return FileChange.replace(path, MISSING, crc(content), whole, content);
+        }
+        byte[] old = Files.readAllBytes(file);
+        Tracer.countRead(old.length, 0);
+        return FileChange.replace(path, crc(old), crc(content), diff(old, content), content);
+    }
+
+    private static List<Splice> diff(byte[] old, byte[] content) {
+        List<Splice> splices = new ArrayList<>();
+        int[] oldLines = lineStarts(old);
+        int[] newLines = lineStarts(content);
+        if (oldLines.length == newLines.length) {
+            for (int i = 0; i < oldLines.length; i++) {
+                int oldFrom = oldLines[i];
+                int oldTo = i + 1 < oldLines.length ? oldLines[i + 1] : old.length;
+                int newFrom = newLines[i];
+                int newTo = i + 1 < newLines.length ? newLines[i + 1] : content.length;
+                if (!Arrays.equals(old, oldFrom, oldTo, content, newFrom, newTo)) {
+                    splices.add(new Splice(oldFrom, oldTo - oldFrom, Arrays.copyOfRange(content, newFrom, newTo)));
+                }
+            }
+            return splices;
+        }
+        int prefix = 0;
+        int limit = Math.min(old.length, content.length);
+        while (prefix < limit && old[prefix] == content[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix && old[old.length - 1 - suffix] == content[content.length - 1 - suffix]) {
+            suffix++;
+        }
+        splices.add(new Splice(prefix, old.length - prefix - suffix,
+                Arrays.copyOfRange(content, prefix, content.length - suffix)));
+        return splices;
+    }
+
+    /**
+     * Finds where each line starts; the last line may be empty or lack a line break.
+     */
+    private static int[] lineStarts(byte[] content) {
+        int count = 1;
+        for (byte b : content) {
+            if (b == '\n') {
+                count++;
+            }
+        }
+        int[] starts = new int[count];
+        int line = 1;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    private static byte[] apply(byte[] old, List<Splice> splices) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(old.length);
+        int position = 0;
+        for (Splice splice : splices) {
+            int offset = (int) splice.offset;
+            out.write(old, position, offset - position);
+            out.write(splice.bytes, 0, splice.bytes.length);
+            position = splice.length < 0 ? old.length : offset + (int) splice.length;
+        }
+        out.write(old, position, old.length - position);
+        return out.toByteArray();
+    }
+
+    /**
+     * Describes rows appended to a file: its length before them and a checksum of its last bytes,
+     * which tell on recovery whether the file still ends where the rows go.
+     */
+    private static FileChange appended(String path, byte[] appended) throws IOException {
+        Path file = Paths.get(path);
+        if (!Files.exists(file)) {
+            return FileChange.append(path, 0, crc(new byte[0]), appended);
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = in.size();
+            return FileChange.append(path, length, fingerprint(in, length), appended);
+        }
+    }
+
+    private static long fingerprint(FileChannel in, long end) throws IOException {
+        long from = Math.max(0, end - FINGERPRINT_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - from));
+        while (buffer.hasRemaining() && in.read(buffer, from + buffer.position()) >= 0) {
+            // Positional reads may return fewer bytes than asked for
+        }
+        return crc(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    private static void encode(DataOutputStream out, FileChange change) throws IOException {
+        out.writeUTF(change.path);
+        out.writeByte(change.kind);
+        if (change.kind == APPEND) {
+            out.writeLong(change.oldLength);
+            out.writeLong(change.oldCrc);
+            out.writeInt(change.content.length);
+            out.write(change.content);
+            return;
+        }
+        out.writeLong(change.oldCrc);
+        out.writeLong(change.newCrc);
+        out.writeInt(change.splices.size());
+        for (Splice splice : change.splices) {
+            out.writeLong(splice.offset);
+            out.writeLong(splice.length);
+            out.writeInt(splice.bytes.length);
+            out.write(splice.bytes);
+        }
+    }
+
+    /**
+     * Applies a recorded replacement to a file that still has its old content.
+     */
+    private boolean replayReplace(FileChange change) throws IOException {
+        Path file = Paths.get(change.path);
+        byte[] current = Files.exists(file) ? Files.readAllBytes(file) : null;
+        long currentCrc = current == null ? MISSING : crc(current);
+        if (currentCrc == change.newCrc || currentCrc != change.oldCrc) {
+            return false;
+        }
+        byte[] content = apply(current == null ? new byte[0] : current, change.splices);
+        if (crc(content) != change.newCrc) {
+            System.out.println("Warning: Journaled change to " + change.path + " does not apply; left unchanged.");
+            return false;
+        }
+        CSVUtils.replaceFile(change.path, content, false);
+        return true;
+    }
+
+    /**
+     * Writes recorded rows to the end of a file that still ends where they go, cutting off a
+     * partly written copy of them first. A file that already holds them is left alone.
+     */
+    private boolean replayAppend(FileChange change) throws IOException {
+        Path file = Paths.get(change.path);
+        if (!Files.exists(file)) {
+            if (change.oldLength != 0) {
+                return false;
+            }
+            CSVUtils.appendToFile(change.path, change.content);
+            return true;
+        }
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = out.size();
+            if (length < change.oldLength || fingerprint(out, change.oldLength) != change.oldCrc) {
+                return false;
+            }
+            if (length == change.oldLength + change.content.length) {
+                ByteBuffer tail = ByteBuffer.allocate(change.content.length);
+                while (tail.hasRemaining() && out.read(tail, change.oldLength + tail.position()) >= 0) {
+                    // Positional reads may return fewer bytes than asked for
+                }
+                if (Arrays.equals(tail.array(), change.content)) {
+                    return false;
+                }
+            }
+            if (length > change.oldLength + change.content.length) {
+                return false; // Appended to again since; the rows cannot be told apart
+            }
+            out.truncate(change.oldLength);
+        }
+        CSVUtils.appendToFile(change.path, change.content);
+        return true;
+    }
+
+    /**
+     * Syncs every file written since the last checkpoint, then empties the journal.
+     */
+    private void checkpoint() throws IOException {
+        for (String path : unsynced) {
+            Path file = Paths.get(path);
+            if (Files.exists(file)) {
+                try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    out.force(true);
+                }
+            }
+        }
+        unsynced.clear();
+        channel.truncate(0);
+        channel.force(false);
+    }
+
+    private void open() throws IOException {
+        if (channel == null) {
+            if (journal.getParent() != null) {
+                Files.createDirectories(journal.getParent());
+            }
+            channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * Reads every complete, intact record in the journal, truncating anything after the last one.
+     */
+    private List<List<FileChange>> readRecords() throws IOException {
+        List<List<FileChange>> records = new ArrayList<>();
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            int magic = header.getInt(0);
+            int length = header.getInt(4);
+            if ((magic != MAGIC && magic != MAGIC_IMAGES) || length < 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + HEADER_BYTES);
+            if ((int) crc(body.array()) != header.getInt(8)) {
+                break;
+            }
+            try {
+                records.add(decode(magic, body.array()));
+            } catch (EOFException e) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+            System.out.println("Warning: Discarding " + (size - position) + " incomplete byte(s) from the transaction journal.");
+            channel.truncate(position);
+        }
+        return records;
+    }
+
+    private List<FileChange> decode(int magic, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        nextId = Math.max(nextId, in.readLong() + 1);
+        in.readLong(); // Commit time
+        int count = in.readInt();
+        List<FileChange> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String path = in.readUTF();
+            if (magic == MAGIC_IMAGES) {
+                long oldCrc = in.readLong();
+                long newCrc = in.readLong();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                changes.add(FileChange.replace(path, oldCrc, newCrc,
+                        Collections.singletonList(new Splice(0, MISSING, content)), null));
+                continue;
+            }
+            if (in.readByte() == APPEND) {
+                long oldLength = in.readLong();
+                long fingerprint = in.readLong();
+                byte[] appended = new byte[in.readInt()];
+                in.readFully(appended);
+                changes.add(FileChange.append(path, oldLength, fingerprint, appended));
+                continue;
+            }
+            long oldCrc = in.readLong();
+            long newCrc = in.readLong();
+            int spliceCount = in.readInt();
+            List<Splice> splices = new ArrayList<>(spliceCount);
+            for (int j = 0; j < spliceCount; j++) {
+                long offset = in.readLong();
+                long length = in.readLong();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                splices.add(new Splice(offset, length, bytes));
+            }
+            changes.add(FileChange.replace(path, oldCrc, newCrc, splices, null));
+        }
+        return changes;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of transaction journal.");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        return crc.getValue();
+    }
+}
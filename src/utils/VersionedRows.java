@@ -0,0 +1,59 @@
+package utils;
+
+import java.util.*;
+
+/**
+ * The rows of a CSV file together with the row versions and content they were read at. Writing
+ * the same list back through {@link RowVersions} rejects the write if any row it changes was
+ * changed by someone else in the meantime.
+ *
+ * @author SC2002Team
+ */
+public class VersionedRows extends ArrayList<String[]> {
+    private static final long serialVersionUID = 1L;
+
+    final private Map<String, Long> versions;
+    final private Map<String, String> contents;
+
+    /**
+     * Constructs the rows read from a table.
+     *
+     * @param rows The rows as read.
+     * @param versions The row versions taken before the rows were read.
+     * @param contents The content of each row as read, by row key.
+     */
+    VersionedRows(List<String[]> rows, Map<String, Long> versions, Map<String, String> contents) {
+        super(rows);
+        this.versions = versions;
+        this.contents = contents;
+    }
+
+    /**
+     * Gets the version a row was read at.
+     *
+     * @param key The row key.
+     * @return The version, or 0 if the row has never been rewritten.
+     */
+    public long version(String key) {
+        return versions.getOrDefault(key, 0L);
+    }
+
+    /**
+     * Gets the content of a row as it was read, with its fields joined by commas.
+     *
+     * @param key The row key.
+     * @return The content, or null if no row with the key was read.
+     */
+    String readContent(String key) {
+        return contents.get(key);
+    }
+
+    /**
+     * Gets the keys of every row that was read.
+     *
+     * @return The row keys.
+     */
+    Set<String> readKeys() {
+        return contents.keySet();
+    }
+}